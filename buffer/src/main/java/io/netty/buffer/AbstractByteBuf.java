@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.ByteProcessor;
+import io.netty.util.ByteProcessor.IndexOfProcessor;
 import io.netty.util.CharsetUtil;
 import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ResourceLeakDetector;
@@ -1271,6 +1272,19 @@ public abstract class AbstractByteBuf extends ByteBuf {
     }
 
     private int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        if (end - start >= ByteBufUtil.SWAR_MIN_LENGTH) {
+            // Processors which only look for one or two byte values can scan a word at a time.
+            if (processor.getClass() == IndexOfProcessor.class) {
+                byte value = ((IndexOfProcessor) processor).byteToFind();
+                return ByteBufUtil.firstIndexOf(this, start, end, value, value);
+            }
+            if (processor == ByteProcessor.FIND_CRLF) {
+                return ByteBufUtil.firstIndexOf(this, start, end, (byte) '\r', (byte) '\n');
+            }
+            if (processor == ByteProcessor.FIND_LINEAR_WHITESPACE) {
+                return ByteBufUtil.firstIndexOf(this, start, end, (byte) ' ', (byte) '\t');
+            }
+        }
         for (; start < end; ++start) {
             if (!processor.process(_getByte(start))) {
                 return start;
@@ -61,6 +61,10 @@ public final class ByteBufUtil {
     private static final byte WRITE_UTF_UNKNOWN = (byte) '?';
     private static final int MAX_CHAR_BUFFER_SIZE;
     private static final int THREAD_LOCAL_BUFFER_SIZE;
+    // Reading eight bytes at a time needs Unsafe and support for unaligned access.
+    private static final boolean SWAR_SUPPORTED = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
+    // Shorter ranges are scanned faster byte by byte.
+    static final int SWAR_MIN_LENGTH = 16;
     private static final int MAX_BYTES_PER_CHAR_UTF8 =
             (int) CharsetUtil.encoder(CharsetUtil.UTF_8).maxBytesPerChar();
 
@@ -195,14 +199,23 @@ public final class ByteBufUtil {
      * Returns the reader index of needle in haystack, or -1 if needle is not in haystack.返回干草堆中指针的读取器索引，如果指针不在干草堆中，则返回-1。
      */
     public static int indexOf(ByteBuf needle, ByteBuf haystack) {
-        // TODO: maybe use Boyer Moore for efficiency.
-        int attempts = haystack.readableBytes() - needle.readableBytes() + 1;
-        for (int i = 0; i < attempts; i++) {
-            if (equals(needle, needle.readerIndex(),
-                       haystack, haystack.readerIndex() + i,
-                       needle.readableBytes())) {
-                return haystack.readerIndex() + i;
+        final int needleLength = needle.readableBytes();
+        if (needleLength == 0) {
+            return haystack.readerIndex();
+        }
+        // Only compare at the positions of the first byte of the needle, which are found a word at a time.
+        final byte first = needle.getByte(needle.readerIndex());
+        final int toIndex = haystack.writerIndex() - needleLength + 1;
+        int fromIndex = haystack.readerIndex();
+        while (fromIndex < toIndex) {
+            int index = haystack.indexOf(fromIndex, toIndex, first);
+            if (index < 0) {
+                break;
+            }
+            if (equals(needle, needle.readerIndex(), haystack, index, needleLength)) {
+                return index;
             }
+            fromIndex = index + 1;
         }
         return -1;
     }
@@ -222,6 +235,15 @@ public final class ByteBufUtil {
         if (a.writerIndex() - length < aStartIndex || b.writerIndex() - length < bStartIndex) {
             return false;
         }
+        if (length >= SWAR_MIN_LENGTH && isSwarAccessible(a) && isSwarAccessible(b)) {
+            ((AbstractByteBuf) a).ensureAccessible();
+            ((AbstractByteBuf) b).ensureAccessible();
+            // Comparing the bytes in native order is independent of the byte order of the buffers.
+            byte[] aArray = a.hasMemoryAddress() ? null : a.array();
+            byte[] bArray = b.hasMemoryAddress() ? null : b.array();
+            return equals(aArray, swarBase(a, aArray) + aStartIndex, bArray, swarBase(b, bArray) + bStartIndex,
+                          length);
+        }
 
         final int longCount = length >>> 3;
         final int byteCount = length & 7;
@@ -440,6 +462,95 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns the index of the first byte in {@code [fromIndex, toIndex)} which is {@code a} or {@code b}, or
+     * {@code -1} if there is none. If the buffer is backed by an array or a memory address the bytes are compared
+     * eight at a time (SWAR). The caller must have checked the range.
+     */
+    static int firstIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, byte a, byte b) {
+        if (isSwarAccessible(buffer)) {
+            byte[] array = buffer.hasMemoryAddress() ? null : buffer.array();
+            return firstIndexOf(array, swarBase(buffer, array), fromIndex, toIndex, a, b);
+        }
+        for (int i = fromIndex; i < toIndex; i ++) {
+            byte value = buffer._getByte(i);
+            if (value == a || value == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int firstIndexOf(byte[] array, long base, int fromIndex, int toIndex, byte a, byte b) {
+        final long patternA = swarPattern(a);
+        final long patternB = swarPattern(b);
+        int i = fromIndex;
+        for (final int longEnd = toIndex - 7; i < longEnd; i += 8) {
+            final long word = swarGetLong(array, base + i);
+            final long matches = swarMatches(word, patternA) | swarMatches(word, patternB);
+            if (matches != 0) {
+                return i + swarFirstMatch(matches);
+            }
+        }
+        for (; i < toIndex; i ++) {
+            byte value = swarGetByte(array, base + i);
+            if (value == a || value == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] aArray, long a, byte[] bArray, long b, int length) {
+        int i = 0;
+        for (final int longEnd = length - 7; i < longEnd; i += 8) {
+            if (swarGetLong(aArray, a + i) != swarGetLong(bArray, b + i)) {
+                return false;
+            }
+        }
+        for (; i < length; i ++) {
+            if (swarGetByte(aArray, a + i) != swarGetByte(bArray, b + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSwarAccessible(ByteBuf buffer) {
+        return SWAR_SUPPORTED && buffer instanceof AbstractByteBuf && (buffer.hasMemoryAddress() || buffer.hasArray());
+    }
+
+    // The memory address of the buffer, or the offset of its first byte if it is backed by the given array.
+    private static long swarBase(ByteBuf buffer, byte[] array) {
+        return array == null ? buffer.memoryAddress() : buffer.arrayOffset();
+    }
+
+    private static long swarGetLong(byte[] array, long index) {
+        return array == null ? PlatformDependent.getLong(index) : PlatformDependent.getLong(array, (int) index);
+    }
+
+    private static byte swarGetByte(byte[] array, long index) {
+        return array == null ? PlatformDependent.getByte(index) : PlatformDependent.getByte(array, (int) index);
+    }
+
+    // The byte repeated in all eight bytes of a long.
+    private static long swarPattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    // Sets the high bit of every byte of the word which equals the byte of the pattern, and clears all other bits.
+    private static long swarMatches(long word, long pattern) {
+        final long input = word ^ pattern;
+        final long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    // The offset of the first matching byte in memory order.
+    private static int swarFirstMatch(long matches) {
+        return (PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ?
+                Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches)) >>> 3;
+    }
+
     private static int firstIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.max(fromIndex, 0);
         if (fromIndex >= toIndex || buffer.capacity() == 0) {
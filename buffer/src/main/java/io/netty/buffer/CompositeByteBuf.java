@@ -26,12 +26,12 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ScatteringByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -48,9 +48,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     private final ByteBufAllocator alloc;
     private final boolean direct;
-    private final ComponentList components;
     private final int maxNumComponents;
 
+    private Component[] components; // resized when needed
+    private int componentCount;
+    // The component the last index lookup ended in, sequential access usually stays within the same component.
+    private Component lastAccessed;
+
     private boolean freed;
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents) {
@@ -61,7 +65,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        components = newCompArray(0, maxNumComponents);
     }
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents, ByteBuf... buffers) {
@@ -82,7 +86,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        components = newCompArray(len - offset, maxNumComponents);
 
         addComponents0(false, 0, buffers, offset, len);
         consolidateIfNeeded();
@@ -103,15 +107,17 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
-        components = newList(maxNumComponents);
+        components = newCompArray(
+                buffers instanceof Collection ? ((Collection<?>) buffers).size() : 0, maxNumComponents);
 
         addComponents0(false, 0, buffers);
         consolidateIfNeeded();
         setIndex(0, capacity());
     }
 
-    private static ComponentList newList(int maxNumComponents) {
-        return new ComponentList(Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents));
+    private static Component[] newCompArray(int initComponents, int maxNumComponents) {
+        int capacityGuess = Math.min(AbstractByteBufAllocator.DEFAULT_MAX_COMPONENTS, maxNumComponents);
+        return new Component[Math.max(initComponents, capacityGuess)];
     }
 
     // Special constructor used by WrappedCompositeByteBuf
@@ -199,7 +205,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public CompositeByteBuf addComponent(boolean increaseWriterIndex, ByteBuf buffer) {
         checkNotNull(buffer, "buffer");
-        addComponent0(increaseWriterIndex, components.size(), buffer);
+        addComponent0(increaseWriterIndex, componentCount, buffer);
         consolidateIfNeeded();
         return this;
     }
@@ -215,7 +221,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      *                添加给定的ByteBufs，如果递增的writerIndex为true，则增加writerIndex。ByteBuf.release()将缓冲区中所有ByteBuf对象的所有权转移到这个CompositeByteBuf。
      */
     public CompositeByteBuf addComponents(boolean increaseWriterIndex, ByteBuf... buffers) {
-        addComponents0(increaseWriterIndex, components.size(), buffers, 0, buffers.length);
+        addComponents0(increaseWriterIndex, componentCount, buffers, 0, buffers.length);
         consolidateIfNeeded();
         return this;
     }
@@ -230,7 +236,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * ownership of all {@link ByteBuf} objects is transfered to this {@link CompositeByteBuf}.
      */
     public CompositeByteBuf addComponents(boolean increaseWriterIndex, Iterable<ByteBuf> buffers) {
-        addComponents0(increaseWriterIndex, components.size(), buffers);
+        addComponents0(increaseWriterIndex, componentCount, buffers);
         consolidateIfNeeded();
         return this;
     }
@@ -260,29 +266,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         try {
             checkComponentIndex(cIndex);
 
-            int readableBytes = buffer.readableBytes();
-
             // No need to consolidate - just add a component to the list.不需要合并——只需要向列表中添加一个组件。
-            @SuppressWarnings("deprecation")
-            Component c = new Component(buffer.order(ByteOrder.BIG_ENDIAN).slice());
-            if (cIndex == components.size()) {
-                wasAdded = components.add(c);
-                if (cIndex == 0) {
-                    c.endOffset = readableBytes;
-                } else {
-                    Component prev = components.get(cIndex - 1);
-                    c.offset = prev.endOffset;
-                    c.endOffset = c.offset + readableBytes;
-                }
-            } else {
-                components.add(cIndex, c);
-                wasAdded = true;
-                if (readableBytes != 0) {
-                    updateComponentOffsets(cIndex);
-                }
+            Component c = newComponent(buffer, cIndex == 0 ? 0 : components[cIndex - 1].endOffset);
+            int readableBytes = c.length;
+            addComp(cIndex, c);
+            wasAdded = true;
+            if (readableBytes != 0 && cIndex < componentCount - 1) {
+                updateComponentOffsets(cIndex + 1);
             }
             if (increaseWriterIndex) {
-                writerIndex(writerIndex() + buffer.readableBytes());
+                writerIndex(writerIndex() + readableBytes);
             }
             return cIndex;
         } finally {
@@ -315,26 +308,42 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private int addComponents0(boolean increaseWriterIndex, int cIndex, ByteBuf[] buffers, int offset, int len) {
         checkNotNull(buffers, "buffers");
         int i = offset;
+        // Only set once the components were shifted, so the finally block knows how many slots were reserved.
+        int ci = -1;
+        int count = len - offset;
         try {
             checkComponentIndex(cIndex);
 
             // No need for consolidation不需要合并
+            // Make room for all buffers at once and fix up the offsets of the following components only once.
+            shiftComps(cIndex, count);
+            ci = cIndex;
+            int nextOffset = cIndex == 0 ? 0 : components[cIndex - 1].endOffset;
             while (i < len) {
-                // Increment i now to prepare for the next iteration and prevent a duplicate release (addComponent0
-                // will release if an exception occurs, and we also release in the finally block here).//增量i现在为下一次迭代做准备，并防止一个重复的版本(addComponent0
-                //如果发生异常，//将释放，我们也在这里的finally块释放)。
-                ByteBuf b = buffers[i++];
+                ByteBuf b = buffers[i];
                 if (b == null) {
                     break;
                 }
-                cIndex = addComponent0(increaseWriterIndex, cIndex, b) + 1;
-                int size = components.size();
-                if (cIndex > size) {
-                    cIndex = size;
-                }
+                Component c = newComponent(b, nextOffset);
+                // Increment i only now so the buffer is released in the finally block if newComponent(...) failed.
+                i++;
+                components[ci++] = c;
+                nextOffset = c.endOffset;
             }
-            return cIndex;
+            return ci;
         } finally {
+            if (ci >= 0) {
+                if (ci < cIndex + count) {
+                    // Stopped early, close the gap of reserved but unused slots.
+                    removeCompRange(ci, cIndex + count);
+                }
+                if (ci < componentCount) {
+                    updateComponentOffsets(ci);
+                }
+                if (increaseWriterIndex && ci > cIndex) {
+                    writerIndex(writerIndex() + components[ci - 1].endOffset - components[cIndex].offset);
+                }
+            }
             for (; i < len; ++i) {
                 ByteBuf b = buffers[i];
                 if (b != null) {
@@ -408,64 +417,103 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Consolidate if the number of components will exceed the allowed maximum by the current
         // operation.//如果组件的数量超过当前允许的最大数量，则进行合并
 //操作。
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents > maxNumComponents) {
-            final int capacity = components.get(numComponents - 1).endOffset;
+            final int capacity = components[numComponents - 1].endOffset;
 
             ByteBuf consolidated = allocBuffer(capacity);
 
             // We're not using foreach to avoid creating an iterator.我们没有使用foreach来避免创建迭代器。
             for (int i = 0; i < numComponents; i ++) {
-                Component c = components.get(i);
-                ByteBuf b = c.buf;
-                consolidated.writeBytes(b);
-                c.freeIfNecessary();
+                components[i].transferTo(consolidated);
             }
-            Component c = new Component(consolidated);
-            c.endOffset = c.length;
-            components.clear();
-            components.add(c);
+            removeCompRange(1, numComponents);
+            components[0] = new Component(consolidated, 0, 0, capacity);
         }
     }
 
     private void checkComponentIndex(int cIndex) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex > components.size()) {
+        if (cIndex < 0 || cIndex > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d (expected: >= 0 && <= numComponents(%d))",
-                    cIndex, components.size()));
+                    cIndex, componentCount));
         }
     }
 
     private void checkComponentIndex(int cIndex, int numComponents) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex + numComponents > components.size()) {
+        if (cIndex < 0 || cIndex + numComponents > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d, numComponents: %d " +
                     "(expected: cIndex >= 0 && cIndex + numComponents <= totalNumComponents(%d))",
-                    cIndex, numComponents, components.size()));
+                    cIndex, numComponents, componentCount));
         }
     }
 
     private void updateComponentOffsets(int cIndex) {
-        int size = components.size();
+        int size = componentCount;
         if (size <= cIndex) {
             return;
         }
 
-        Component c = components.get(cIndex);
-        if (cIndex == 0) {
-            c.offset = 0;
-            c.endOffset = c.length;
-            cIndex ++;
+        int nextOffset = cIndex == 0 ? 0 : components[cIndex - 1].endOffset;
+        for (int i = cIndex; i < size; i ++) {
+            Component c = components[i];
+            c.reposition(nextOffset);
+            nextOffset = c.endOffset;
         }
+    }
 
-        for (int i = cIndex; i < size; i ++) {
-            Component prev = components.get(i - 1);
-            Component cur = components.get(i);
-            cur.offset = prev.endOffset;
-            cur.endOffset = cur.offset + cur.length;
+    /**
+     * Insert {@code c} at {@code i}, shifting the following components.
+     */
+    private void addComp(int i, Component c) {
+        shiftComps(i, 1);
+        components[i] = c;
+    }
+
+    /**
+     * Open a gap of {@code count} slots at {@code i}, growing the array if needed. The slots are left for the caller
+     * to fill, {@link #componentCount} already includes them.
+     */
+    private void shiftComps(int i, int count) {
+        final int size = componentCount;
+        final int newSize = size + count;
+        assert i >= 0 && i <= size && count >= 0;
+        if (newSize > components.length) {
+            // Grow by 50% but at least to the size we need.
+            int newArrSize = Math.max(size + (size >> 1), newSize);
+            Component[] newArr = new Component[newArrSize];
+            System.arraycopy(components, 0, newArr, 0, i);
+            if (i < size) {
+                System.arraycopy(components, i, newArr, i + count, size - i);
+            }
+            components = newArr;
+        } else if (i < size) {
+            System.arraycopy(components, i, components, i + count, size - i);
         }
+        componentCount = newSize;
+    }
+
+    /**
+     * Remove the components in {@code [from, to)} without releasing them.
+     */
+    private void removeCompRange(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        final int size = componentCount;
+        assert from >= 0 && to <= size;
+        if (to < size) {
+            System.arraycopy(components, to, components, from, size - to);
+        }
+        int newSize = size - to + from;
+        for (int i = newSize; i < size; i++) {
+            components[i] = null;
+        }
+        componentCount = newSize;
+        lastAccessed = null;
     }
 
     /**
@@ -475,7 +523,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public CompositeByteBuf removeComponent(int cIndex) {
         checkComponentIndex(cIndex);
-        Component comp = components.remove(cIndex);
+        Component comp = components[cIndex];
+        removeCompRange(cIndex, cIndex + 1);
         comp.freeIfNecessary();
         if (comp.length > 0) {
             // Only need to call updateComponentOffsets if the length was > 0只需要调用updateComponentOffsets如果长度是> 0
@@ -499,13 +548,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int endIndex = cIndex + numComponents;
         boolean needsUpdate = false;
         for (int i = cIndex; i < endIndex; ++i) {
-            Component c = components.get(i);
+            Component c = components[i];
             if (c.length > 0) {
                 needsUpdate = true;
             }
             c.freeIfNecessary();
         }
-        components.removeRange(cIndex, endIndex);
+        removeCompRange(cIndex, endIndex);
 
         if (needsUpdate) {
             // Only need to call updateComponentOffsets if the length was > 0
@@ -517,7 +566,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     @Override
     public Iterator<ByteBuf> iterator() {
         ensureAccessible();
-        if (components.isEmpty()) {
+        if (componentCount == 0) {
             return EMPTY_ITERATOR;
         }
         return new CompositeByteBufIterator();
@@ -533,49 +582,28 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         int componentId = toComponentIndex(offset);
-        List<ByteBuf> slice = new ArrayList<ByteBuf>(components.size());
-
-        // The first component
-        Component firstC = components.get(componentId);
-        ByteBuf first = firstC.buf.duplicate();
-        first.readerIndex(offset - firstC.offset);
-
-        ByteBuf buf = first;
-        int bytesToSlice = length;
-        do {
-            int readableBytes = buf.readableBytes();
-            if (bytesToSlice <= readableBytes) {
-                // Last component
-                buf.writerIndex(buf.readerIndex() + bytesToSlice);
-                slice.add(buf);
-                break;
-            } else {
-                // Not the last component
-                slice.add(buf);
-                bytesToSlice -= readableBytes;
-                componentId ++;
-
-                // Fetch the next component.
-                buf = components.get(componentId).buf.duplicate();
-            }
-        } while (bytesToSlice > 0);
+        List<ByteBuf> slice = new ArrayList<ByteBuf>(componentCount - componentId);
 
         // Slice all components because only readable bytes are interesting.将所有组件切片，因为只有可读的字节才是有趣的。
-        for (int i = 0; i < slice.size(); i ++) {
-            slice.set(i, slice.get(i).slice());
-        }
+        do {
+            Component c = components[componentId++];
+            int localLength = Math.min(length, c.endOffset - offset);
+            slice.add(c.buf.slice(c.idx(offset), localLength));
+            offset += localLength;
+            length -= localLength;
+        } while (length > 0);
 
         return slice;
     }
 
     @Override
     public boolean isDirect() {
-        int size = components.size();
+        int size = componentCount;
         if (size == 0) {
             return false;
         }
         for (int i = 0; i < size; i++) {
-           if (!components.get(i).buf.isDirect()) {
+           if (!components[i].buf.isDirect()) {
                return false;
            }
         }
@@ -584,11 +612,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasArray() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return true;
         case 1:
-            return components.get(0).buf.hasArray();
+            return components[0].buf.hasArray();
         default:
             return false;
         }
@@ -596,11 +624,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public byte[] array() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EmptyArrays.EMPTY_BYTES;
         case 1:
-            return components.get(0).buf.array();
+            return components[0].buf.array();
         default:
             throw new UnsupportedOperationException();
         }
@@ -608,11 +636,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int arrayOffset() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 0;
         case 1:
-            return components.get(0).buf.arrayOffset();
+            Component c = components[0];
+            return c.idx(c.buf.arrayOffset());
         default:
             throw new UnsupportedOperationException();
         }
@@ -620,11 +649,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasMemoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.hasMemoryAddress();
         case 1:
-            return components.get(0).buf.hasMemoryAddress();
+            return components[0].buf.hasMemoryAddress();
         default:
             return false;
         }
@@ -632,11 +661,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public long memoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.memoryAddress();
         case 1:
-            return components.get(0).buf.memoryAddress();
+            Component c = components[0];
+            return c.buf.memoryAddress() + c.idx(0);
         default:
             throw new UnsupportedOperationException();
         }
@@ -644,11 +674,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int capacity() {
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents == 0) {
             return 0;
         }
-        return components.get(numComponents - 1).endOffset;
+        return components[numComponents - 1].endOffset;
     }
 
     @Override
@@ -660,37 +690,37 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (newCapacity > oldCapacity) {
             final int paddingLength = newCapacity - oldCapacity;
             ByteBuf padding;
-            int nComponents = components.size();
+            int nComponents = componentCount;
             if (nComponents < maxNumComponents) {
 //                分配内存
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
-                addComponent0(false, components.size(), padding);
+                addComponent0(false, componentCount, padding);
             } else {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
                 // FIXME: No need to create a padding buffer and consolidate.不需要创建填充缓冲区和合并。
                 // Just create a big single buffer and put the current content there.只需创建一个大的缓冲区，并把当前的内容放在那里。
-                addComponent0(false, components.size(), padding);
+                addComponent0(false, componentCount, padding);
                 consolidateIfNeeded();
             }
         } else if (newCapacity < oldCapacity) {
             int bytesToTrim = oldCapacity - newCapacity;
-            for (ListIterator<Component> i = components.listIterator(components.size()); i.hasPrevious();) {
-                Component c = i.previous();
+            int i = componentCount - 1;
+            for (; i >= 0; i--) {
+                Component c = components[i];
                 if (bytesToTrim >= c.length) {
                     bytesToTrim -= c.length;
-                    i.remove();
                     continue;
                 }
 
                 // Replace the last component with the trimmed slice.将最后一个组件替换为被修剪的片。
-                Component newC = new Component(c.buf.slice(0, c.length - bytesToTrim));
-                newC.offset = c.offset;
-                newC.endOffset = newC.offset + newC.length;
-                i.set(newC);
+                components[i] = new Component(c.buf, c.srcOffset, c.offset, c.length - bytesToTrim);
                 break;
             }
+            // Drops the components which were trimmed completely.
+            removeCompRange(i + 1, componentCount);
+            lastAccessed = null;
 
             if (readerIndex() > newCapacity) {
                 setIndex(newCapacity, newCapacity);
@@ -716,7 +746,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * 返回本实例中所组成的ByteBuf的当前数量
      */
     public int numComponents() {
-        return components.size();
+        return componentCount;
     }
 
     /**
@@ -732,9 +762,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public int toComponentIndex(int offset) {
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        Component[] components = this.components;
+        for (int low = 0, high = componentCount; low <= high;) {
             int mid = low + high >>> 1;
-            Component c = components.get(mid);
+            Component c = components[mid];
             if (offset >= c.endOffset) {
                 low = mid + 1;
             } else if (offset < c.offset) {
@@ -749,7 +780,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     public int toByteIndex(int cIndex) {
         checkComponentIndex(cIndex);
-        return components.get(cIndex).offset;
+        return components[cIndex].offset;
     }
 
     @Override
@@ -760,14 +791,14 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     @Override
     protected byte _getByte(int index) {
         Component c = findComponent(index);
-        return c.buf.getByte(index - c.offset);
+        return c.buf.getByte(c.idx(index));
     }
 
     @Override
     protected short _getShort(int index) {
         Component c = findComponent(index);
         if (index + 2 <= c.endOffset) {
-            return c.buf.getShort(index - c.offset);
+            return c.buf.getShort(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (short) ((_getByte(index) & 0xff) << 8 | _getByte(index + 1) & 0xff);
         } else {
@@ -779,7 +810,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected short _getShortLE(int index) {
         Component c = findComponent(index);
         if (index + 2 <= c.endOffset) {
-            return c.buf.getShortLE(index - c.offset);
+            return c.buf.getShortLE(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (short) (_getByte(index) & 0xff | (_getByte(index + 1) & 0xff) << 8);
         } else {
@@ -791,7 +822,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected int _getUnsignedMedium(int index) {
         Component c = findComponent(index);
         if (index + 3 <= c.endOffset) {
-            return c.buf.getUnsignedMedium(index - c.offset);
+            return c.buf.getUnsignedMedium(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (_getShort(index) & 0xffff) << 8 | _getByte(index + 2) & 0xff;
         } else {
@@ -803,7 +834,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected int _getUnsignedMediumLE(int index) {
         Component c = findComponent(index);
         if (index + 3 <= c.endOffset) {
-            return c.buf.getUnsignedMediumLE(index - c.offset);
+            return c.buf.getUnsignedMediumLE(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return _getShortLE(index) & 0xffff | (_getByte(index + 2) & 0xff) << 16;
         } else {
@@ -815,7 +846,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected int _getInt(int index) {
         Component c = findComponent(index);
         if (index + 4 <= c.endOffset) {
-            return c.buf.getInt(index - c.offset);
+            return c.buf.getInt(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (_getShort(index) & 0xffff) << 16 | _getShort(index + 2) & 0xffff;
         } else {
@@ -827,7 +858,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected int _getIntLE(int index) {
         Component c = findComponent(index);
         if (index + 4 <= c.endOffset) {
-            return c.buf.getIntLE(index - c.offset);
+            return c.buf.getIntLE(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return _getShortLE(index) & 0xffff | (_getShortLE(index + 2) & 0xffff) << 16;
         } else {
@@ -839,7 +870,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected long _getLong(int index) {
         Component c = findComponent(index);
         if (index + 8 <= c.endOffset) {
-            return c.buf.getLong(index - c.offset);
+            return c.buf.getLong(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return (_getInt(index) & 0xffffffffL) << 32 | _getInt(index + 4) & 0xffffffffL;
         } else {
@@ -851,7 +882,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected long _getLongLE(int index) {
         Component c = findComponent(index);
         if (index + 8 <= c.endOffset) {
-            return c.buf.getLongLE(index - c.offset);
+            return c.buf.getLongLE(c.idx(index));
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             return _getIntLE(index) & 0xffffffffL | (_getIntLE(index + 4) & 0xffffffffL) << 32;
         } else {
@@ -868,11 +899,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            s.getBytes(index - adjustment, dst, dstIndex, localLength);
+            int localLength = Math.min(length, c.endOffset - index);
+            s.getBytes(c.idx(index), dst, dstIndex, localLength);
             index += localLength;
             dstIndex += localLength;
             length -= localLength;
@@ -894,12 +924,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf s = c.buf;
-                int adjustment = c.offset;
-                int localLength = Math.min(length, s.capacity() - (index - adjustment));
+                int localLength = Math.min(length, c.endOffset - index);
                 dst.limit(dst.position() + localLength);
-                s.getBytes(index - adjustment, dst);
+                s.getBytes(c.idx(index), dst);
                 index += localLength;
                 length -= localLength;
                 i ++;
@@ -919,11 +948,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            s.getBytes(index - adjustment, dst, dstIndex, localLength);
+            int localLength = Math.min(length, c.endOffset - index);
+            s.getBytes(c.idx(index), dst, dstIndex, localLength);
             index += localLength;
             dstIndex += localLength;
             length -= localLength;
@@ -975,11 +1003,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            s.getBytes(index - adjustment, out, localLength);
+            int localLength = Math.min(length, c.endOffset - index);
+            s.getBytes(c.idx(index), out, localLength);
             index += localLength;
             length -= localLength;
             i ++;
@@ -990,7 +1017,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     @Override
     public CompositeByteBuf setByte(int index, int value) {
         Component c = findComponent(index);
-        c.buf.setByte(index - c.offset, value);
+        c.buf.setByte(c.idx(index), value);
         return this;
     }
 
@@ -1008,7 +1035,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setShort(int index, int value) {
         Component c = findComponent(index);
         if (index + 2 <= c.endOffset) {
-            c.buf.setShort(index - c.offset, value);
+            c.buf.setShort(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setByte(index, (byte) (value >>> 8));
             _setByte(index + 1, (byte) value);
@@ -1022,7 +1049,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setShortLE(int index, int value) {
         Component c = findComponent(index);
         if (index + 2 <= c.endOffset) {
-            c.buf.setShortLE(index - c.offset, value);
+            c.buf.setShortLE(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setByte(index, (byte) value);
             _setByte(index + 1, (byte) (value >>> 8));
@@ -1041,7 +1068,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setMedium(int index, int value) {
         Component c = findComponent(index);
         if (index + 3 <= c.endOffset) {
-            c.buf.setMedium(index - c.offset, value);
+            c.buf.setMedium(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShort(index, (short) (value >> 8));
             _setByte(index + 2, (byte) value);
@@ -1055,7 +1082,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setMediumLE(int index, int value) {
         Component c = findComponent(index);
         if (index + 3 <= c.endOffset) {
-            c.buf.setMediumLE(index - c.offset, value);
+            c.buf.setMediumLE(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShortLE(index, (short) value);
             _setByte(index + 2, (byte) (value >>> 16));
@@ -1074,7 +1101,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setInt(int index, int value) {
         Component c = findComponent(index);
         if (index + 4 <= c.endOffset) {
-            c.buf.setInt(index - c.offset, value);
+            c.buf.setInt(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShort(index, (short) (value >>> 16));
             _setShort(index + 2, (short) value);
@@ -1088,7 +1115,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setIntLE(int index, int value) {
         Component c = findComponent(index);
         if (index + 4 <= c.endOffset) {
-            c.buf.setIntLE(index - c.offset, value);
+            c.buf.setIntLE(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setShortLE(index, (short) value);
             _setShortLE(index + 2, (short) (value >>> 16));
@@ -1107,7 +1134,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setLong(int index, long value) {
         Component c = findComponent(index);
         if (index + 8 <= c.endOffset) {
-            c.buf.setLong(index - c.offset, value);
+            c.buf.setLong(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setInt(index, (int) (value >>> 32));
             _setInt(index + 4, (int) value);
@@ -1121,7 +1148,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     protected void _setLongLE(int index, long value) {
         Component c = findComponent(index);
         if (index + 8 <= c.endOffset) {
-            c.buf.setLongLE(index - c.offset, value);
+            c.buf.setLongLE(c.idx(index), value);
         } else if (order() == ByteOrder.BIG_ENDIAN) {
             _setIntLE(index, (int) value);
             _setIntLE(index + 4, (int) (value >>> 32));
@@ -1140,11 +1167,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            s.setBytes(index - adjustment, src, srcIndex, localLength);
+            int localLength = Math.min(length, c.endOffset - index);
+            s.setBytes(c.idx(index), src, srcIndex, localLength);
             index += localLength;
             srcIndex += localLength;
             length -= localLength;
@@ -1166,12 +1192,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf s = c.buf;
-                int adjustment = c.offset;
-                int localLength = Math.min(length, s.capacity() - (index - adjustment));
+                int localLength = Math.min(length, c.endOffset - index);
                 src.limit(src.position() + localLength);
-                s.setBytes(index - adjustment, src);
+                s.setBytes(c.idx(index), src);
                 index += localLength;
                 length -= localLength;
                 i ++;
@@ -1191,11 +1216,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            s.setBytes(index - adjustment, src, srcIndex, localLength);
+            int localLength = Math.min(length, c.endOffset - index);
+            s.setBytes(c.idx(index), src, srcIndex, localLength);
             index += localLength;
             srcIndex += localLength;
             length -= localLength;
@@ -1215,16 +1239,15 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int readBytes = 0;
 
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
+            int localLength = Math.min(length, c.endOffset - index);
             if (localLength == 0) {
                 // Skip empty buffer
                 i++;
                 continue;
             }
-            int localReadBytes = s.setBytes(index - adjustment, in, localLength);
+            int localReadBytes = s.setBytes(c.idx(index), in, localLength);
             if (localReadBytes < 0) {
                 if (readBytes == 0) {
                     return -1;
@@ -1258,16 +1281,15 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
+            int localLength = Math.min(length, c.endOffset - index);
             if (localLength == 0) {
                 // Skip empty buffer
                 i++;
                 continue;
             }
-            int localReadBytes = s.setBytes(index - adjustment, in, localLength);
+            int localReadBytes = s.setBytes(c.idx(index), in, localLength);
 
             if (localReadBytes == 0) {
                 break;
@@ -1306,16 +1328,15 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
+            int localLength = Math.min(length, c.endOffset - index);
             if (localLength == 0) {
                 // Skip empty buffer
                 i++;
                 continue;
             }
-            int localReadBytes = s.setBytes(index - adjustment, in, position + readBytes, localLength);
+            int localReadBytes = s.setBytes(c.idx(index), in, position + readBytes, localLength);
 
             if (localReadBytes == 0) {
                 break;
@@ -1359,11 +1380,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = componentId;
 
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
-            s.getBytes(index - adjustment, dst, dstIndex, localLength);
+            int localLength = Math.min(length, c.endOffset - index);
+            s.getBytes(c.idx(index), dst, dstIndex, localLength);
             index += localLength;
             dstIndex += localLength;
             length -= localLength;
@@ -1401,7 +1421,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public ByteBuf internalComponent(int cIndex) {
         checkComponentIndex(cIndex);
-        return components.get(cIndex).buf;
+        return components[cIndex].slice();
     }
 
     /**
@@ -1411,21 +1431,28 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param offset the offset for which the {@link ByteBuf} should be returned
      */
     public ByteBuf internalComponentAtOffset(int offset) {
-        return findComponent(offset).buf;
+        return findComponent(offset).slice();
     }
 
     private Component findComponent(int offset) {
+        Component la = lastAccessed;
+        if (la != null && offset >= la.offset && offset < la.endOffset) {
+            ensureAccessible();
+            return la;
+        }
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        Component[] components = this.components;
+        for (int low = 0, high = componentCount; low <= high;) {
             int mid = low + high >>> 1;
-            Component c = components.get(mid);
+            Component c = components[mid];
             if (offset >= c.endOffset) {
                 low = mid + 1;
             } else if (offset < c.offset) {
                 high = mid - 1;
             } else {
                 assert c.length != 0;
+                lastAccessed = c;
                 return c;
             }
         }
@@ -1435,16 +1462,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int nioBufferCount() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 1;
         case 1:
-            return components.get(0).buf.nioBufferCount();
+            return components[0].buf.nioBufferCount();
         default:
             int count = 0;
-            int componentsCount = components.size();
+            int componentsCount = componentCount;
             for (int i = 0; i < componentsCount; i++) {
-                Component c = components.get(i);
+                Component c = components[i];
                 count += c.buf.nioBufferCount();
             }
             return count;
@@ -1453,11 +1480,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public ByteBuffer internalNioBuffer(int index, int length) {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            return components.get(0).buf.internalNioBuffer(index, length);
+            Component c = components[0];
+            return c.buf.internalNioBuffer(c.idx(index), length);
         default:
             throw new UnsupportedOperationException();
         }
@@ -1467,13 +1495,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public ByteBuffer nioBuffer(int index, int length) {
         checkIndex(index, length);
 
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            ByteBuf buf = components.get(0).buf;
-            if (buf.nioBufferCount() == 1) {
-                return components.get(0).buf.nioBuffer(index, length);
+            Component c = components[0];
+            if (c.buf.nioBufferCount() == 1) {
+                return c.buf.nioBuffer(c.idx(index), length);
             }
         }
 
@@ -1495,21 +1523,30 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return new ByteBuffer[] { EMPTY_NIO_BUFFER };
         }
 
-        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(components.size());
         int i = toComponentIndex(index);
+        final int lastIndex = toComponentIndex(index + length - 1);
+        // Size the array up front, usually every component maps to exactly one ByteBuffer.
+        ByteBuffer[] buffers = new ByteBuffer[lastIndex - i + 1];
+        int count = 0;
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
-            int adjustment = c.offset;
-            int localLength = Math.min(length, s.capacity() - (index - adjustment));
+            int localLength = Math.min(length, c.endOffset - index);
             switch (s.nioBufferCount()) {
                 case 0:
                     throw new UnsupportedOperationException();
                 case 1:
-                    buffers.add(s.nioBuffer(index - adjustment, localLength));
+                    buffers[count++] = s.nioBuffer(c.idx(index), localLength);
                     break;
                 default:
-                    Collections.addAll(buffers, s.nioBuffers(index - adjustment, localLength));
+                    ByteBuffer[] nioBuffers = s.nioBuffers(c.idx(index), localLength);
+                    // Keep room for one buffer per remaining component.
+                    int required = count + nioBuffers.length + lastIndex - i;
+                    if (required > buffers.length) {
+                        buffers = Arrays.copyOf(buffers, required);
+                    }
+                    System.arraycopy(nioBuffers, 0, buffers, count, nioBuffers.length);
+                    count += nioBuffers.length;
             }
 
             index += localLength;
@@ -1517,7 +1554,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             i ++;
         }
 
-        return buffers.toArray(new ByteBuffer[buffers.size()]);
+        return count == buffers.length ? buffers : Arrays.copyOf(buffers, count);
     }
 
     /**
@@ -1530,20 +1567,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return this;
         }
 
-        final Component last = components.get(numComponents - 1);
+        final Component last = components[numComponents - 1];
         final int capacity = last.endOffset;
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = 0; i < numComponents; i ++) {
-            Component c = components.get(i);
-            ByteBuf b = c.buf;
-            consolidated.writeBytes(b);
-            c.freeIfNecessary();
+            components[i].transferTo(consolidated);
         }
 
-        components.clear();
-        components.add(new Component(consolidated));
-        updateComponentOffsets(0);
+        removeCompRange(1, numComponents);
+        components[0] = new Component(consolidated, 0, 0, capacity);
         return this;
     }
 
@@ -1560,19 +1593,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         final int endCIndex = cIndex + numComponents;
-        final Component last = components.get(endCIndex - 1);
-        final int capacity = last.endOffset - components.get(cIndex).offset;
+        final Component last = components[endCIndex - 1];
+        final int capacity = last.endOffset - components[cIndex].offset;
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = cIndex; i < endCIndex; i ++) {
-            Component c = components.get(i);
-            ByteBuf b = c.buf;
-            consolidated.writeBytes(b);
-            c.freeIfNecessary();
+            components[i].transferTo(consolidated);
         }
 
-        components.removeRange(cIndex + 1, endCIndex);
-        components.set(cIndex, new Component(consolidated));
+        removeCompRange(cIndex + 1, endCIndex);
+        components[cIndex] = new Component(consolidated, 0, 0, capacity);
         updateComponentOffsets(cIndex);
         return this;
     }
@@ -1590,11 +1620,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            int size = components.size();
+            int size = componentCount;
             for (int i = 0; i < size; i++) {
-                components.get(i).freeIfNecessary();
+                components[i].freeIfNecessary();
             }
-            components.clear();
+            removeCompRange(0, size);
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1603,12 +1633,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
-        components.removeRange(0, firstComponentId);
+        removeCompRange(0, firstComponentId);
 
         // Update indexes and markers.
-        Component first = components.get(0);
+        Component first = components[0];
         int offset = first.offset;
         updateComponentOffsets(0);
         setIndex(readerIndex - offset, writerIndex - offset);
@@ -1627,11 +1657,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            int size = components.size();
+            int size = componentCount;
             for (int i = 0; i < size; i++) {
-                components.get(i).freeIfNecessary();
+                components[i].freeIfNecessary();
             }
-            components.clear();
+            removeCompRange(0, size);
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1640,21 +1670,22 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
 
         // Remove or replace the first readable component with a new slice.用一个新的片删除或替换第一个可读的组件。
-        Component c = components.get(firstComponentId);
+        Component c = components[firstComponentId];
         int adjustment = readerIndex - c.offset;
         if (adjustment == c.length) {
             // new slice would be empty, so remove instead新的切片将是空的，所以删除
             firstComponentId++;
         } else {
-            Component newC = new Component(c.buf.slice(adjustment, c.length - adjustment));
-            components.set(firstComponentId, newC);
+            components[firstComponentId] =
+                    new Component(c.buf, c.idx(readerIndex), c.offset, c.length - adjustment);
         }
 
-        components.removeRange(0, firstComponentId);
+        removeCompRange(0, firstComponentId);
+        lastAccessed = null;
 
         // Update indexes and markers.
         updateComponentOffsets(0);
@@ -1671,18 +1702,59 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public String toString() {
         String result = super.toString();
         result = result.substring(0, result.length() - 1);
-        return result + ", components=" + components.size() + ')';
+        return result + ", components=" + componentCount + ')';
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Component newComponent(ByteBuf buf, int offset) {
+        // Only wrap the buffer if its byte order differs, there is no need for a slice as the component keeps track
+        // of where its bytes start in the buffer.
+        ByteBuf b = buf.order() == ByteOrder.BIG_ENDIAN ? buf : buf.order(ByteOrder.BIG_ENDIAN);
+        return new Component(b, buf.readerIndex(), offset, buf.readableBytes());
     }
 
     private static final class Component {
         final ByteBuf buf;
+        // The index in buf at which the bytes of this component start.
+        final int srcOffset;
         final int length;
         int offset;
         int endOffset;
 
-        Component(ByteBuf buf) {
+        // Created lazily, only needed if the component is exposed to the user.
+        private ByteBuf slice;
+
+        Component(ByteBuf buf, int srcOffset, int offset, int length) {
             this.buf = buf;
-            length = buf.readableBytes();
+            this.srcOffset = srcOffset;
+            this.offset = offset;
+            this.length = length;
+            endOffset = offset + length;
+        }
+
+        /**
+         * Translate an index of the {@link CompositeByteBuf} into an index of {@link #buf}.
+         */
+        int idx(int index) {
+            return index - offset + srcOffset;
+        }
+
+        void reposition(int newOffset) {
+            offset = newOffset;
+            endOffset = newOffset + length;
+        }
+
+        ByteBuf slice() {
+            ByteBuf slice = this.slice;
+            if (slice == null) {
+                this.slice = slice = buf.slice(srcOffset, length);
+            }
+            return slice;
+        }
+
+        void transferTo(ByteBuf dst) {
+            dst.writeBytes(buf, srcOffset, length);
+            freeIfNecessary();
         }
 
         void freeIfNecessary() {
@@ -1947,11 +2019,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         freed = true;
-        int size = components.size();
+        int size = componentCount;
         // We're not using foreach to avoid creating an iterator.
         // see https://github.com/netty/netty/issues/2642
         for (int i = 0; i < size; i++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
     }
 
@@ -1961,7 +2033,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     }
 
     private final class CompositeByteBufIterator implements Iterator<ByteBuf> {
-        private final int size = components.size();
+        private final int size = componentCount;
         private int index;
 
         @Override
@@ -1971,14 +2043,14 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         @Override
         public ByteBuf next() {
-            if (size != components.size()) {
+            if (size != componentCount) {
                 throw new ConcurrentModificationException();
             }
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
             try {
-                return components.get(index++).buf;
+                return components[index++].slice();
             } catch (IndexOutOfBoundsException e) {
                 throw new ConcurrentModificationException();
             }
@@ -1989,17 +2061,4 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             throw new UnsupportedOperationException("Read-Only");
         }
     }
-
-    private static final class ComponentList extends ArrayList<Component> {
-
-        ComponentList(int initialCapacity) {
-            super(initialCapacity);
-        }
-
-        // Expose this methods so we not need to create a new subList just to remove a range of elements.公开这个方法，这样我们就不需要创建一个新的子列表来删除一系列元素。
-        @Override
-        public void removeRange(int fromIndex, int toIndex) {
-            super.removeRange(fromIndex, toIndex);
-        }
-    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link DirectChunkAllocator} which uses {@link ByteBuffer#allocateDirect(int)}, or allocates the memory without a
+ * {@link sun.misc.Cleaner} if {@link PlatformDependent#useDirectBufferNoCleaner()} is {@code true}.
+ */
+final class DefaultDirectChunkAllocator implements DirectChunkAllocator {
+
+    static final DefaultDirectChunkAllocator INSTANCE = new DefaultDirectChunkAllocator();
+
+    private DefaultDirectChunkAllocator() { }
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+        return PlatformDependent.useDirectBufferNoCleaner() ?
+                PlatformDependent.allocateDirectNoCleaner(capacity) : ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    public void release(ByteBuffer memory) {
+        if (PlatformDependent.useDirectBufferNoCleaner()) {
+            PlatformDependent.freeDirectNoCleaner(memory);
+        } else {
+            PlatformDependent.freeDirectBuffer(memory);
+        }
+    }
+
+    @Override
+    public boolean discard(ByteBuffer memory, int offset, int length) {
+        // Neither the JDK nor malloc(3) allow to give back part of an allocation.
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the memory of the chunks of the direct arenas of a {@link PooledByteBufAllocator}, and of huge direct
+ * allocations which are too big to be pooled.
+ * <p>
+ * Implementations must be thread-safe as all arenas of an allocator share the same instance.
+ */
+public interface DirectChunkAllocator {
+
+    /**
+     * Allocate a direct {@link ByteBuffer} with a capacity of exactly {@code capacity} bytes.
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * Release the memory of a {@link ByteBuffer} which was returned by {@link #allocate(int)}. The buffer is not
+     * accessed anymore after this call.
+     */
+    void release(ByteBuffer memory);
+
+    /**
+     * Return the physical memory backing the given range of a {@link ByteBuffer} which was returned by
+     * {@link #allocate(int)} to the operating system, while keeping the range addressable. The content of the range
+     * is undefined afterwards. Returns {@code false} if this is not supported or failed.
+     */
+    boolean discard(ByteBuffer memory, int offset, int length);
+}
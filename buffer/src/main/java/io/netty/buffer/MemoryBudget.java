@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Tracks the direct memory handed out by the arenas of one or more {@link PooledByteBufAllocator}s against a soft
+ * and a hard watermark. Buffers held by the thread local caches count as used, memory of chunks which is not handed
+ * out does not.
+ * <p>
+ * Allocations are never failed because of the budget. Instead {@link MemoryBudgetListener}s are notified whenever
+ * the usage crosses a watermark, so the application can stop producing more data, for example by disabling
+ * {@code autoRead} on its channels, until the usage dropped below the soft watermark again. When the soft watermark
+ * is exceeded the allocator additionally frees the buffers held by the thread local caches and stops caching
+ * released buffers, so the usage drops below it once all buffers in flight were released.
+ */
+public final class MemoryBudget {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MemoryBudget.class);
+
+    private static final int STATE_NORMAL = 0;
+    private static final int STATE_SOFT_LIMIT_EXCEEDED = 1;
+    private static final int STATE_HARD_LIMIT_EXCEEDED = 2;
+
+    private static final AtomicIntegerFieldUpdater<MemoryBudget> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(MemoryBudget.class, "state");
+
+    private final long softLimit;
+    private final long hardLimit;
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final Set<MemoryBudgetListener> listeners =
+            Collections.newSetFromMap(PlatformDependent.<MemoryBudgetListener, Boolean>newConcurrentHashMap());
+    private volatile int state;
+
+    /**
+     * Create a new instance.
+     *
+     * @param softLimit the number of bytes above which the listeners are asked to apply backpressure.
+     * @param hardLimit the number of bytes above which the usage is considered critical.
+     */
+    public MemoryBudget(long softLimit, long hardLimit) {
+        if (softLimit <= 0) {
+            throw new IllegalArgumentException("softLimit: " + softLimit + " (expected: > 0)");
+        }
+        if (hardLimit < softLimit) {
+            throw new IllegalArgumentException(
+                    "hardLimit: " + hardLimit + " (expected: >= softLimit (" + softLimit + "))");
+        }
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+    }
+
+    /**
+     * Return the soft watermark in bytes.
+     */
+    public long softLimit() {
+        return softLimit;
+    }
+
+    /**
+     * Return the hard watermark in bytes.
+     */
+    public long hardLimit() {
+        return hardLimit;
+    }
+
+    /**
+     * Return the number of bytes currently accounted against this budget.
+     */
+    public long usedMemory() {
+        return usedMemory.get();
+    }
+
+    /**
+     * Return {@code true} if the usage is above the soft watermark, which is also the case if it is above the hard
+     * watermark.
+     */
+    public boolean isSoftLimitExceeded() {
+        return state != STATE_NORMAL;
+    }
+
+    /**
+     * Return {@code true} if the usage is above the hard watermark.
+     */
+    public boolean isHardLimitExceeded() {
+        return state == STATE_HARD_LIMIT_EXCEEDED;
+    }
+
+    /**
+     * Add a {@link MemoryBudgetListener} which is notified about watermark crossings.
+     */
+    public void addListener(MemoryBudgetListener listener) {
+        listeners.add(checkNotNull(listener, "listener"));
+    }
+
+    /**
+     * Remove a {@link MemoryBudgetListener} which was added via {@link #addListener(MemoryBudgetListener)}.
+     */
+    public void removeListener(MemoryBudgetListener listener) {
+        listeners.remove(checkNotNull(listener, "listener"));
+    }
+
+    /**
+     * Account newly allocated memory. This may be called while holding an arena lock so the listeners are not
+     * notified, {@link #updateState()} must be called once the lock was released.
+     */
+    void allocated(long bytes) {
+        usedMemory.addAndGet(bytes);
+    }
+
+    /**
+     * Account released memory, see {@link #allocated(long)}.
+     */
+    void released(long bytes) {
+        usedMemory.addAndGet(-bytes);
+    }
+
+    /**
+     * Notify the listeners if the usage crossed a watermark since the last call. Must not be called while holding an
+     * arena lock.
+     */
+    void updateState() {
+        for (;;) {
+            int oldState = state;
+            int newState = state(usedMemory.get());
+            if (oldState == newState) {
+                return;
+            }
+            if (STATE_UPDATER.compareAndSet(this, oldState, newState)) {
+                notifyListeners();
+                // Check again as the usage may have changed in the meantime and a concurrent call could have seen
+                // the old state.
+            }
+        }
+    }
+
+    private int state(long used) {
+        if (used > hardLimit) {
+            return STATE_HARD_LIMIT_EXCEEDED;
+        }
+        return used > softLimit ? STATE_SOFT_LIMIT_EXCEEDED : STATE_NORMAL;
+    }
+
+    private void notifyListeners() {
+        for (MemoryBudgetListener listener: listeners) {
+            try {
+                listener.memoryBudgetChanged(this);
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown by {}.memoryBudgetChanged().", listener.getClass().getName(), t);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(usedMemory: " + usedMemory() + ", softLimit: " + softLimit +
+                ", hardLimit: " + hardLimit + ')';
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import java.util.EventListener;
+
+/**
+ * Listens to the watermark crossings of a {@link MemoryBudget}.
+ */
+public interface MemoryBudgetListener extends EventListener {
+
+    /**
+     * Invoked when the usage of the {@link MemoryBudget} crossed one of its watermarks. The method is called by the
+     * thread which allocated or released the memory, so implementations must be fast and thread-safe. Notifications
+     * for concurrent crossings may be delivered out of order, so implementations should query the current state via
+     * {@link MemoryBudget#isSoftLimitExceeded()} and {@link MemoryBudget#isHardLimitExceeded()} instead of tracking
+     * the crossings.
+     */
+    void memoryBudgetChanged(MemoryBudget budget);
+}
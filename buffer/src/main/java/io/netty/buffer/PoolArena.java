@@ -24,8 +24,11 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static io.netty.buffer.PoolChunk.isSubpage;
 import static java.lang.Math.max;
 
 /**
@@ -46,28 +49,17 @@ import static java.lang.Math.max;
 
  内存泄露检测
  */
-abstract class PoolArena<T> implements PoolArenaMetric {
+abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
     enum SizeClass {
-        Tiny,
         Small,
         Normal
     }
 
-    static final int numTinySubpagePools = 512 >>> 4;//32
-
     final PooledByteBufAllocator parent;
 
-    private final int maxOrder;
-    final int pageSize;
-    final int pageShifts;
-    final int chunkSize;
-    final int subpageOverflowMask;
     final int numSmallSubpagePools;
-    final int directMemoryCacheAlignment;
-    final int directMemoryCacheAlignmentMask;
-    private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
     private final PoolChunkList<T> q050;
@@ -79,16 +71,16 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     private final PoolChunkList<T> q100;
 
     private final List<PoolChunkListMetric> chunkListMetrics;
+    private final SizeClassStats[] sizeClassStats;
+    private final List<PoolSizeClassMetric> sizeClassMetrics;
 
     // Metrics for allocations and deallocations分配和分配的度量
     private long allocationsNormal;
     // We need to use the LongCounter here as this is not guarded via synchronized block.我们需要使用这里的LongCounter，因为这不是通过synchronized块来保护的。
-    private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
 
-    private long deallocationsTiny;
     private long deallocationsSmall;
     private long deallocationsNormal;
 
@@ -98,29 +90,39 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     // Number of thread caches backed by this arena.这个舞台支持的线程缓存的数量。
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
+    // Guards the chunk lists and the runs of all chunks of this arena.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Frees that found the lock contended. They are applied by whichever thread holds the lock next, see unlock().
+    private final Queue<DeferredFree<T>> deferredFrees = PlatformDependent.newMpscQueue();
+    private final LongCounter deferredFreeCount = PlatformDependent.newLongCounter();
+    private final LongCounter spilledAllocations = PlatformDependent.newLongCounter();
+
+    // All arenas of the same kind of the parent allocator, used to spill allocations when this arena is contended.
+    private PoolArena<T>[] siblings;
+    private int siblingIndex;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize,
-          int maxOrder, int pageShifts, int chunkSize, int cacheAlignment) {
+          int pageShifts, int chunkSize, int cacheAlignment) {
+        super(pageSize, pageShifts, chunkSize, cacheAlignment);
         this.parent = parent;
-        this.pageSize = pageSize;
-        this.maxOrder = maxOrder;
-        this.pageShifts = pageShifts;
-        this.chunkSize = chunkSize;
-        directMemoryCacheAlignment = cacheAlignment;
-        directMemoryCacheAlignmentMask = cacheAlignment - 1;
-        subpageOverflowMask = ~(pageSize - 1);
-        tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
-        for (int i = 0; i < tinySubpagePools.length; i ++) {
-            tinySubpagePools[i] = newSubpagePoolHead(pageSize);
-        }
-
-        numSmallSubpagePools = pageShifts - 9;
+
+        numSmallSubpagePools = nSubpages;
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
-            smallSubpagePools[i] = newSubpagePoolHead(pageSize);
+            smallSubpagePools[i] = newSubpagePoolHead(i);
+        }
+
+        sizeClassStats = new SizeClassStats[nSizes];
+        List<PoolSizeClassMetric> sizeClassMetricList = new ArrayList<PoolSizeClassMetric>(nSizes);
+        for (int i = 0; i < sizeClassStats.length; i ++) {
+            sizeClassStats[i] = new SizeClassStats(i, sizeIdx2size(i), i <= smallMaxSizeIdx);
+            sizeClassMetricList.add(sizeClassStats[i]);
         }
+        sizeClassMetrics = Collections.unmodifiableList(sizeClassMetricList);
 
         q100 = new PoolChunkList<T>(this, null, 100, Integer.MAX_VALUE, chunkSize);
         q075 = new PoolChunkList<T>(this, q100, 75, 100, chunkSize);
@@ -146,8 +148,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         chunkListMetrics = Collections.unmodifiableList(metrics);
     }
 
-    private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
-        PoolSubpage<T> head = new PoolSubpage<T>(pageSize);
+    private PoolSubpage<T> newSubpagePoolHead(int sizeIdx) {
+        PoolSubpage<T> head = new PoolSubpage<T>(sizeIdx);
         head.prev = head;
         head.next = head;
         return head;
@@ -158,6 +160,76 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return new PoolSubpage[size];
     }
 
+    void siblings(PoolArena<T>[] siblings, int siblingIndex) {
+        this.siblings = siblings;
+        this.siblingIndex = siblingIndex;
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    /**
+     * Releases the lock after applying all frees that were deferred while it was held. The queue is checked again
+     * after releasing the lock so a free that was offered concurrently is never left behind.
+     */
+    void unlock() {
+        if (lock.getHoldCount() > 1) {
+            // Nested, the outermost unlock() will apply the deferred frees.
+            lock.unlock();
+            return;
+        }
+        List<PoolChunk<T>> toDestroy = null;
+        do {
+            toDestroy = drainDeferredFrees(toDestroy);
+            lock.unlock();
+        } while (!deferredFrees.isEmpty() && lock.tryLock());
+
+        if (toDestroy != null) {
+            // destroyChunk not need to be called while holding the lock.
+            for (int i = 0; i < toDestroy.size(); i ++) {
+                destroyChunk(toDestroy.get(i));
+            }
+        }
+    }
+
+    private List<PoolChunk<T>> drainDeferredFrees(List<PoolChunk<T>> toDestroy) {
+        for (;;) {
+            DeferredFree<T> deferred = deferredFrees.poll();
+            if (deferred == null) {
+                return toDestroy;
+            }
+            if (freeChunkLocked(deferred.chunk, deferred.handle, deferred.normCapacity, deferred.sizeClass)) {
+                if (toDestroy == null) {
+                    toDestroy = new ArrayList<PoolChunk<T>>(2);
+                }
+                toDestroy.add(deferred.chunk);
+            }
+        }
+    }
+
+    /**
+     * Locks an arena to allocate from. If the lock of this arena is contended the other arenas are tried before
+     * blocking, so a thread cache miss does not serialise all threads which share this arena.
+     */
+    private PoolArena<T> lockForAllocation() {
+        if (lock.tryLock()) {
+            return this;
+        }
+        final PoolArena<T>[] siblings = this.siblings;
+        if (siblings != null) {
+            for (int i = 1; i < siblings.length; i ++) {
+                PoolArena<T> arena = siblings[(siblingIndex + i) % siblings.length];
+                if (arena.lock.tryLock()) {
+                    spilledAllocations.increment();
+                    return arena;
+                }
+            }
+        }
+        lock.lock();
+        return this;
+    }
+
     abstract boolean isDirect();
 
     PooledByteBuf<T> allocate(PoolThreadCache cache, int reqCapacity, int maxCapacity) {
@@ -168,124 +240,106 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return buf;
     }
 
-    static int tinyIdx(int normCapacity) {
-        return normCapacity >>> 4;
-    }
+    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        final int sizeIdx = size2SizeIdx(reqCapacity);
 
-    static int smallIdx(int normCapacity) {
-        int tableIdx = 0;
-        int i = normCapacity >>> 10;
-        while (i != 0) {
-            i >>>= 1;
-            tableIdx ++;
+        if (sizeIdx <= smallMaxSizeIdx) {
+            tcacheAllocateSmall(cache, buf, reqCapacity, sizeIdx);
+        } else if (sizeIdx < nSizes) {
+            tcacheAllocateNormal(cache, buf, reqCapacity, sizeIdx);
+        } else {
+            // Huge allocations are never served via the cache so just call allocateHuge巨大的分配从来没有通过缓存服务，所以只需调用allocateHuge
+            allocateHuge(buf, reqCapacity);
         }
-        return tableIdx;
     }
 
-    // capacity < pageSize
-    boolean isTinyOrSmall(int normCapacity) {
-        return (normCapacity & subpageOverflowMask) == 0;
-    }
-
-    // normCapacity < 512
-    static boolean isTiny(int normCapacity) {
-        return (normCapacity & 0xFFFFFE00) == 0;
-    }
+    private void tcacheAllocateSmall(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity,
+                                     final int sizeIdx) {
+        if (cache.allocateSmall(this, buf, reqCapacity, sizeIdx)) {
+            // was able to allocate out of the cache so move on能够从缓存中进行分配吗
+            return;
+        }
 
-    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
-//        根据分配的内存计算正常内存容量，接近于512就分配512，内存预分配
-        final int normCapacity = normalizeCapacity(reqCapacity);
-//        初始化内存小于pageSize 8192
-        if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
-            int tableIdx;
-            PoolSubpage<T>[] table;
-//            初始化内存是否小于512
-            boolean tiny = isTiny(normCapacity);
-            if (tiny) { // < 512
-                if (cache.allocateTiny(this, buf, reqCapacity, normCapacity)) {
-                    // was able to allocate out of the cache so move on能够从缓存中进行分配吗
-                    return;
-                }
-                tableIdx = tinyIdx(normCapacity);
-                table = tinySubpagePools;
-            } else { //大于512
-                if (cache.allocateSmall(this, buf, reqCapacity, normCapacity)) {
-                    // was able to allocate out of the cache so move on能够从缓存中进行分配吗
-                    return;
-                }
-                tableIdx = smallIdx(normCapacity);
-                table = smallSubpagePools;
+        final PoolSubpage<T> head = smallSubpagePools[sizeIdx];
+        final boolean needsNormalAllocation;
+        /**
+         * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
+         * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
+         */
+        synchronized (head) {
+            final PoolSubpage<T> s = head.next;
+            needsNormalAllocation = s == head;
+            if (!needsNormalAllocation) {
+                assert s.doNotDestroy && s.elemSize == sizeIdx2size(sizeIdx);
+                long handle = s.allocate();
+                assert handle >= 0;
+                s.chunk.initBufWithSubpage(buf, handle, reqCapacity);
             }
+        }
 
-            final PoolSubpage<T> head = table[tableIdx];
-
-            /**
-             * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
-             * {@link PoolChunk#free(long)} may modify the doubly linked list as well.头部同步。这需要作为{@link PoolChunk#allocateSubpage(int)}和
-             * {@link PoolChunk#free(long)}也可以修改双链表。
-             */
-//            维护PoolSubpage链表
-            synchronized (head) {
-                final PoolSubpage<T> s = head.next;
-                if (s != head) {
-                    assert s.doNotDestroy && s.elemSize == normCapacity;
-                    long handle = s.allocate();
-                    assert handle >= 0;
-                    s.chunk.initBufWithSubpage(buf, handle, reqCapacity);
-                    incTinySmallAllocation(tiny);
-                    return;
-                }
-            }
-            synchronized (this) {
-//                分配正常的缓冲区
-                allocateNormal(buf, reqCapacity, normCapacity);
+        PoolArena<T> arena = this;
+        if (needsNormalAllocation) {
+            arena = lockForAllocation();
+            try {
+                arena.allocateNormal(buf, reqCapacity, sizeIdx);
+            } finally {
+                arena.unlock();
             }
+        }
 
-            incTinySmallAllocation(tiny);
+        arena.allocationsSmall.increment();
+        arena.sizeClassStats[sizeIdx].allocations.increment();
+        budgetAllocated(buf.maxLength);
+    }
+
+    private void tcacheAllocateNormal(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity,
+                                      final int sizeIdx) {
+        if (cache.allocateNormal(this, buf, reqCapacity, sizeIdx)) {
+            // was able to allocate out of the cache so move on能够从缓存中进行分配吗
             return;
         }
-        if (normCapacity <= chunkSize) {
-//            如果分配的正常内存大小小于chunkSize从本地线程缓存中分配
-            if (cache.allocateNormal(this, buf, reqCapacity, normCapacity)) {
-                // was able to allocate out of the cache so move on能够从缓存中进行分配吗
-                return;
-            }
-            synchronized (this) {
-//                不能从本地线程缓存中分配就直接分配
-                allocateNormal(buf, reqCapacity, normCapacity);
-                ++allocationsNormal;
-            }
-        } else {
-            // Huge allocations are never served via the cache so just call allocateHuge巨大的分配从来没有通过缓存服务，所以只需调用allocateHuge
-            allocateHuge(buf, reqCapacity);
+        final PoolArena<T> arena = lockForAllocation();
+        try {
+            arena.allocateNormal(buf, reqCapacity, sizeIdx);
+            ++arena.allocationsNormal;
+        } finally {
+            arena.unlock();
         }
+        arena.sizeClassStats[sizeIdx].allocations.increment();
+        budgetAllocated(buf.maxLength);
     }
 
-    // Method must be called inside synchronized(this) { ... } block
-    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+    // Method must be called while holding the lock
+    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx) {
+        assert lock.isHeldByCurrentThread();
 //        poolArea中每个poolChunkList中poolChunk存储是有顺序的
-        if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
-            q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
-            q075.allocate(buf, reqCapacity, normCapacity)) {
+        if (allocateFromChunkLists(buf, reqCapacity, sizeIdx)) {
             return;
         }
+        if (!deferredFrees.isEmpty()) {
+            // Apply the pending frees first, they may give back enough memory to avoid a new chunk.
+            List<PoolChunk<T>> toDestroy = drainDeferredFrees(null);
+            if (toDestroy != null) {
+                for (int i = 0; i < toDestroy.size(); i ++) {
+                    destroyChunk(toDestroy.get(i));
+                }
+            }
+            if (allocateFromChunkLists(buf, reqCapacity, sizeIdx)) {
+                return;
+            }
+        }
 
         // Add a new chunk. 添加一个chunk
-        PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
-//        内存分配
-        long handle = c.allocate(normCapacity);
-        assert handle > 0;
-//        初始化buffer
-        c.initBuf(buf, handle, reqCapacity);
+        PoolChunk<T> c = newChunk(pageSize, nPSizes, pageShifts, chunkSize);
+        boolean success = c.allocate(buf, reqCapacity, sizeIdx);
+        assert success;
         qInit.add(c);
     }
 
-    private void incTinySmallAllocation(boolean tiny) {
-        if (tiny) {
-            allocationsTiny.increment();
-        } else {
-            allocationsSmall.increment();
-        }
+    private boolean allocateFromChunkLists(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx) {
+        return q050.allocate(buf, reqCapacity, sizeIdx) || q025.allocate(buf, reqCapacity, sizeIdx) ||
+               q000.allocate(buf, reqCapacity, sizeIdx) || qInit.allocate(buf, reqCapacity, sizeIdx) ||
+               q075.allocate(buf, reqCapacity, sizeIdx);
     }
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
@@ -293,50 +347,53 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         activeBytesHuge.add(chunk.chunkSize());
         buf.initUnpooled(chunk, reqCapacity);
         allocationsHuge.increment();
+        budgetAllocated(chunk.chunkSize());
     }
 
     void free(PoolChunk<T> chunk, long handle, int normCapacity, PoolThreadCache cache) {
+        final MemoryBudget budget = memoryBudget();
         if (chunk.unpooled) {
             int size = chunk.chunkSize();
             destroyChunk(chunk);
             activeBytesHuge.add(-size);
             deallocationsHuge.increment();
+            budgetReleased(size);
         } else {
-            SizeClass sizeClass = sizeClass(normCapacity);
-            if (cache != null && cache.add(this, chunk, handle, normCapacity, sizeClass)) {
+            SizeClass sizeClass = sizeClass(handle);
+            // Do not cache while the soft limit of the budget is exceeded, so the memory counts as released.
+            if (cache != null && (budget == null || !budget.isSoftLimitExceeded()) &&
+                    cache.add(this, chunk, handle, normCapacity, sizeClass)) {
                 // cached so not free it.缓存，所以不能释放它。
                 return;
             }
 
-            freeChunk(chunk, handle, sizeClass);
+            freeChunk(chunk, handle, normCapacity, sizeClass);
+        }
+        if (budget != null) {
+            budget.updateState();
         }
     }
 
-    private SizeClass sizeClass(int normCapacity) {
-        if (!isTinyOrSmall(normCapacity)) {
-            return SizeClass.Normal;
-        }
-        return isTiny(normCapacity) ? SizeClass.Tiny : SizeClass.Small;
+    private static SizeClass sizeClass(long handle) {
+        return isSubpage(handle) ? SizeClass.Small : SizeClass.Normal;
     }
 
-    void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
-        final boolean destroyChunk;
-        synchronized (this) {
-            switch (sizeClass) {
-            case Normal:
-                ++deallocationsNormal;
-                break;
-            case Small:
-                ++deallocationsSmall;
-                break;
-            case Tiny:
-                ++deallocationsTiny;
-                break;
-            default:
-                throw new Error();
+    void freeChunk(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass) {
+        budgetReleased(normCapacity);
+        if (!lock.tryLock()) {
+            // Do not wait for the lock, the thread which holds it will apply the free before releasing it.
+            deferredFrees.offer(new DeferredFree<T>(chunk, handle, normCapacity, sizeClass));
+            deferredFreeCount.increment();
+            if (lock.tryLock()) {
+                unlock();
             }
-//            删除poolChunkList中的poolChunk
-            destroyChunk = !chunk.parent.free(chunk, handle);
+            return;
+        }
+        final boolean destroyChunk;
+        try {
+            destroyChunk = freeChunkLocked(chunk, handle, normCapacity, sizeClass);
+        } finally {
+            unlock();
         }
         if (destroyChunk) {
             // destroyChunk not need to be called while holding the synchronized lock.持有同步锁时不需要调用destroyChunk。
@@ -344,71 +401,25 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
-    PoolSubpage<T> findSubpagePoolHead(int elemSize) {
-        int tableIdx;
-        PoolSubpage<T>[] table;
-        if (isTiny(elemSize)) { // < 512
-            tableIdx = elemSize >>> 4;
-            table = tinySubpagePools;
-        } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx ++;
-            }
-            table = smallSubpagePools;
-        }
-
-        return table[tableIdx];
-    }
-
-    int normalizeCapacity(int reqCapacity) {
-        if (reqCapacity < 0) {
-            throw new IllegalArgumentException("capacity: " + reqCapacity + " (expected: 0+)");
-        }
-
-//        chunkSize 16777216 初始化内存大于16m初始化多少分配多少
-        if (reqCapacity >= chunkSize) {
-            return directMemoryCacheAlignment == 0 ? reqCapacity : alignCapacity(reqCapacity);
-        }
-
-//        如果分配内存大于512直接分配1024的倍数
-        if (!isTiny(reqCapacity)) { // >= 512
-            // Doubled
-
-            int normalizedCapacity = reqCapacity;
-            normalizedCapacity --;
-            normalizedCapacity |= normalizedCapacity >>>  1;
-            normalizedCapacity |= normalizedCapacity >>>  2;
-            normalizedCapacity |= normalizedCapacity >>>  4;
-            normalizedCapacity |= normalizedCapacity >>>  8;
-            normalizedCapacity |= normalizedCapacity >>> 16;
-            normalizedCapacity ++;
-
-            if (normalizedCapacity < 0) {
-                normalizedCapacity >>>= 1;
-            }
-            assert directMemoryCacheAlignment == 0 || (normalizedCapacity & directMemoryCacheAlignmentMask) == 0;
-
-            return normalizedCapacity;
-        }
-
-        if (directMemoryCacheAlignment > 0) {
-            return alignCapacity(reqCapacity);
+    // Returns true if the chunk is not used anymore and must be destroyed.
+    private boolean freeChunkLocked(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass) {
+        switch (sizeClass) {
+        case Normal:
+            ++deallocationsNormal;
+            break;
+        case Small:
+            ++deallocationsSmall;
+            break;
+        default:
+            throw new Error();
         }
-
-        // Quantum-spaced
-        if ((reqCapacity & 15) == 0) {
-            return reqCapacity;
-        }
-
-        return (reqCapacity & ~15) + 16;
+        sizeClassStats[size2SizeIdx(normCapacity)].deallocations.increment();
+//            删除poolChunkList中的poolChunk
+        return !chunk.parent.free(chunk, handle);
     }
 
-    int alignCapacity(int reqCapacity) {
-        int delta = reqCapacity & directMemoryCacheAlignmentMask;
-        return delta == 0 ? reqCapacity : reqCapacity + directMemoryCacheAlignment - delta;
+    PoolSubpage<T> findSubpagePoolHead(int sizeIdx) {
+        return smallSubpagePools[sizeIdx];
     }
 
     void reallocate(PooledByteBuf<T> buf, int newCapacity, boolean freeOldMemory) {
@@ -459,9 +470,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return numThreadCaches.get();
     }
 
+    @Deprecated
     @Override
     public int numTinySubpages() {
-        return tinySubpagePools.length;
+        return 0;
     }
 
     @Override
@@ -474,9 +486,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return chunkListMetrics.size();
     }
 
+    @Deprecated
     @Override
     public List<PoolSubpageMetric> tinySubpages() {
-        return subPageMetricList(tinySubpagePools);
+        return Collections.emptyList();
     }
 
     @Override
@@ -489,6 +502,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return chunkListMetrics;
     }
 
+    @Override
+    public List<PoolSizeClassMetric> sizeClasses() {
+        return sizeClassMetrics;
+    }
+
     private static List<PoolSubpageMetric> subPageMetricList(PoolSubpage<?>[] pages) {
         List<PoolSubpageMetric> metrics = new ArrayList<PoolSubpageMetric>();
         for (PoolSubpage<?> head : pages) {
@@ -510,15 +528,19 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     @Override
     public long numAllocations() {
         final long allocsNormal;
-        synchronized (this) {
+        lock();
+        try {
             allocsNormal = allocationsNormal;
+        } finally {
+            unlock();
         }
-        return allocationsTiny.value() + allocationsSmall.value() + allocsNormal + allocationsHuge.value();
+        return allocationsSmall.value() + allocsNormal + allocationsHuge.value();
     }
 
+    @Deprecated
     @Override
     public long numTinyAllocations() {
-        return allocationsTiny.value();
+        return 0;
     }
 
     @Override
@@ -527,32 +549,51 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numNormalAllocations() {
-        return allocationsNormal;
+    public long numNormalAllocations() {
+        lock();
+        try {
+            return allocationsNormal;
+        } finally {
+            unlock();
+        }
     }
 
     @Override
     public long numDeallocations() {
         final long deallocs;
-        synchronized (this) {
-            deallocs = deallocationsTiny + deallocationsSmall + deallocationsNormal;
+        lock();
+        try {
+            deallocs = deallocationsSmall + deallocationsNormal;
+        } finally {
+            unlock();
         }
         return deallocs + deallocationsHuge.value();
     }
 
+    @Deprecated
     @Override
-    public synchronized long numTinyDeallocations() {
-        return deallocationsTiny;
+    public long numTinyDeallocations() {
+        return 0;
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numSmallDeallocations() {
+        lock();
+        try {
+            return deallocationsSmall;
+        } finally {
+            unlock();
+        }
     }
 
     @Override
-    public synchronized long numNormalDeallocations() {
-        return deallocationsNormal;
+    public long numNormalDeallocations() {
+        lock();
+        try {
+            return deallocationsNormal;
+        } finally {
+            unlock();
+        }
     }
 
     @Override
@@ -567,17 +608,21 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public  long numActiveAllocations() {
-        long val = allocationsTiny.value() + allocationsSmall.value() + allocationsHuge.value()
+        long val = allocationsSmall.value() + allocationsHuge.value()
                 - deallocationsHuge.value();
-        synchronized (this) {
-            val += allocationsNormal - (deallocationsTiny + deallocationsSmall + deallocationsNormal);
+        lock();
+        try {
+            val += allocationsNormal - (deallocationsSmall + deallocationsNormal);
+        } finally {
+            unlock();
         }
         return max(val, 0);
     }
 
+    @Deprecated
     @Override
     public long numActiveTinyAllocations() {
-        return max(numTinyAllocations() - numTinyDeallocations(), 0);
+        return 0;
     }
 
     @Override
@@ -588,8 +633,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     @Override
     public long numActiveNormalAllocations() {
         final long val;
-        synchronized (this) {
+        lock();
+        try {
             val = allocationsNormal - deallocationsNormal;
+        } finally {
+            unlock();
         }
         return max(val, 0);
     }
@@ -602,24 +650,119 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     @Override
     public long numActiveBytes() {
         long val = activeBytesHuge.value();
-        synchronized (this) {
+        lock();
+        try {
             for (int i = 0; i < chunkListMetrics.size(); i++) {
                 for (PoolChunkMetric m: chunkListMetrics.get(i)) {
                     val += m.chunkSize();
                 }
             }
+        } finally {
+            unlock();
+        }
+        return max(0, val);
+    }
+
+    @Override
+    public long numUsedBytes() {
+        long val = activeBytesHuge.value();
+        lock();
+        try {
+            val += qInit.usedBytes() + q000.usedBytes() + q025.usedBytes() + q050.usedBytes() +
+                    q075.usedBytes() + q100.usedBytes();
+        } finally {
+            unlock();
         }
         return max(0, val);
     }
 
-    protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
+    @Override
+    public long numResidentBytes() {
+        long val = activeBytesHuge.value();
+        lock();
+        try {
+            val += qInit.residentBytes() + q000.residentBytes() + q025.residentBytes() + q050.residentBytes() +
+                    q075.residentBytes() + q100.residentBytes();
+        } finally {
+            unlock();
+        }
+        return max(0, val);
+    }
+
+    /**
+     * Return the memory of the free pages of all chunks to the operating system if the arena supports it, see
+     * {@link PoolChunk#purge(boolean)}. The chunks in q100 have no free pages.
+     *
+     * @return the number of purged bytes
+     */
+    long purge(boolean onlyIdle) {
+        lock();
+        try {
+            return qInit.purge(onlyIdle) + q000.purge(onlyIdle) + q025.purge(onlyIdle) + q050.purge(onlyIdle) +
+                    q075.purge(onlyIdle);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public long numDeferredFrees() {
+        return deferredFreeCount.value();
+    }
+
+    @Override
+    public long numSpilledAllocations() {
+        return spilledAllocations.value();
+    }
+
+    /**
+     * Return the {@link MemoryBudget} the memory handed out by this arena is accounted against, or {@code null} if
+     * there is none.
+     */
+    MemoryBudget memoryBudget() {
+        return null;
+    }
+
+    // The listeners of the budget are notified by the caller once no lock is held anymore.
+    private void budgetAllocated(int bytes) {
+        MemoryBudget budget = memoryBudget();
+        if (budget != null) {
+            budget.allocated(bytes);
+        }
+    }
+
+    private void budgetReleased(int bytes) {
+        MemoryBudget budget = memoryBudget();
+        if (budget != null) {
+            budget.released(bytes);
+        }
+    }
+
+    protected abstract PoolChunk<T> newChunk(int pageSize, int maxPageIdx, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
     protected abstract void memoryCopy(T src, int srcOffset, T dst, int dstOffset, int length);
     protected abstract void destroyChunk(PoolChunk<T> chunk);
 
+    /**
+     * Return the physical memory of the given range of a chunk to the operating system, see
+     * {@link DirectChunkAllocator#discard(ByteBuffer, int, int)}. Returns {@code false} if not supported.
+     */
+    protected boolean discard(T memory, int offset, int length) {
+        return false;
+    }
+
     @Override
-    public synchronized String toString() {
+    public String toString() {
+        lock();
+        try {
+            return toString0();
+        } finally {
+            unlock();
+        }
+    }
+
+    private String toString0() {
         StringBuilder buf = new StringBuilder()
             .append("Chunk(s) at 0~25%:")
             .append(StringUtil.NEWLINE)
@@ -645,10 +788,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             .append(StringUtil.NEWLINE)
             .append(q100)
             .append(StringUtil.NEWLINE)
-            .append("tiny subpages:");
-        appendPoolSubPages(buf, tinySubpagePools);
-        buf.append(StringUtil.NEWLINE)
-           .append("small subpages:");
+            .append("small subpages:");
         appendPoolSubPages(buf, smallSubpagePools);
         buf.append(StringUtil.NEWLINE);
 
@@ -682,7 +822,6 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             super.finalize();
         } finally {
             destroyPoolSubPages(smallSubpagePools);
-            destroyPoolSubPages(tinySubpagePools);
             destroyPoolChunkLists(qInit, q000, q025, q050, q075, q100);
         }
     }
@@ -699,11 +838,83 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    private static final class DeferredFree<T> {
+        final PoolChunk<T> chunk;
+        final long handle;
+        final int normCapacity;
+        final SizeClass sizeClass;
+
+        DeferredFree(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass) {
+            this.chunk = chunk;
+            this.handle = handle;
+            this.normCapacity = normCapacity;
+            this.sizeClass = sizeClass;
+        }
+    }
+
+    private static final class SizeClassStats implements PoolSizeClassMetric {
+        // We need to use the LongCounter here as this is not guarded via synchronized block.
+        final LongCounter allocations = PlatformDependent.newLongCounter();
+        final LongCounter deallocations = PlatformDependent.newLongCounter();
+        private final int sizeIdx;
+        private final int size;
+        private final boolean subpage;
+
+        SizeClassStats(int sizeIdx, int size, boolean subpage) {
+            this.sizeIdx = sizeIdx;
+            this.size = size;
+            this.subpage = subpage;
+        }
+
+        @Override
+        public int sizeIdx() {
+            return sizeIdx;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isSubpage() {
+            return subpage;
+        }
+
+        @Override
+        public long numAllocations() {
+            return allocations.value();
+        }
+
+        @Override
+        public long numDeallocations() {
+            return deallocations.value();
+        }
+
+        @Override
+        public long numActiveAllocations() {
+            return max(numAllocations() - numDeallocations(), 0);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder()
+                    .append("SizeClass(")
+                    .append(sizeIdx)
+                    .append(": ")
+                    .append(size)
+                    .append(", active: ")
+                    .append(numActiveAllocations())
+                    .append(')')
+                    .toString();
+        }
+    }
+
     static final class HeapArena extends PoolArena<byte[]> {
 
-        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder,
+        HeapArena(PooledByteBufAllocator parent, int pageSize,
                 int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+            super(parent, pageSize, pageShifts, chunkSize,
                     directMemoryCacheAlignment);
         }
 
@@ -717,8 +928,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         @Override
-        protected PoolChunk<byte[]> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            return new PoolChunk<byte[]>(this, newByteArray(chunkSize), pageSize, maxOrder, pageShifts, chunkSize, 0);
+        protected PoolChunk<byte[]> newChunk(int pageSize, int maxPageIdx, int pageShifts, int chunkSize) {
+            return new PoolChunk<byte[]>(this, newByteArray(chunkSize), pageSize, pageShifts, chunkSize, maxPageIdx, 0);
         }
 
         @Override
@@ -749,10 +960,22 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
-        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder,
+        private final DirectChunkAllocator chunkAllocator;
+        private final MemoryBudget memoryBudget;
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize,
                 int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment,
+                    DefaultDirectChunkAllocator.INSTANCE, null);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize,
+                int pageShifts, int chunkSize, int directMemoryCacheAlignment,
+                DirectChunkAllocator chunkAllocator, MemoryBudget memoryBudget) {
+            super(parent, pageSize, pageShifts, chunkSize,
                     directMemoryCacheAlignment);
+            this.chunkAllocator = chunkAllocator;
+            this.memoryBudget = memoryBudget;
         }
 
         @Override
@@ -760,6 +983,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             return true;
         }
 
+        @Override
+        MemoryBudget memoryBudget() {
+            return memoryBudget;
+        }
+
         private int offsetCacheLine(ByteBuffer memory) {
             // We can only calculate the offset if Unsafe is present as otherwise directBufferAddress(...) will
             // throw an NPE.//我们只能计算偏移，如果不安全的存在，否则directBufferAddress(…)将
@@ -769,17 +997,17 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         @Override
-        protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxOrder,
+        protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxPageIdx,
                 int pageShifts, int chunkSize) {
             if (directMemoryCacheAlignment == 0) {
                 return new PoolChunk<ByteBuffer>(this,
-                        allocateDirect(chunkSize), pageSize, maxOrder,
-                        pageShifts, chunkSize, 0);
+                        allocateDirect(chunkSize), pageSize,
+                        pageShifts, chunkSize, maxPageIdx, 0);
             }
             final ByteBuffer memory = allocateDirect(chunkSize
                     + directMemoryCacheAlignment);
             return new PoolChunk<ByteBuffer>(this, memory, pageSize,
-                    maxOrder, pageShifts, chunkSize,
+                    pageShifts, chunkSize, maxPageIdx,
                     offsetCacheLine(memory));
         }
 
@@ -795,18 +1023,18 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                     offsetCacheLine(memory));
         }
 
-        private static ByteBuffer allocateDirect(int capacity) {
-            return PlatformDependent.useDirectBufferNoCleaner() ?
-                    PlatformDependent.allocateDirectNoCleaner(capacity) : ByteBuffer.allocateDirect(capacity);
+        private ByteBuffer allocateDirect(int capacity) {
+            return chunkAllocator.allocate(capacity);
+        }
+
+        @Override
+        protected boolean discard(ByteBuffer memory, int offset, int length) {
+            return chunkAllocator.discard(memory, offset, length);
         }
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            if (PlatformDependent.useDirectBufferNoCleaner()) {
-                PlatformDependent.freeDirectNoCleaner(chunk.memory);
-            } else {
-                PlatformDependent.freeDirectBuffer(chunk.memory);
-            }
+            chunkAllocator.release(chunk.memory);
         }
 
         @Override
@@ -22,7 +22,7 @@ import java.util.List;
  * Expose metrics for an arena.公开竞技场的指标。
  */
 
-public interface PoolArenaMetric {
+public interface PoolArenaMetric extends SizeClassesMetric {
     /**
      * Returns the number of thread caches backed by this arena.返回此竞技场支持的线程缓存的数量。
      */
@@ -30,7 +30,10 @@ public interface PoolArenaMetric {
 
     /**
      * Returns the number of tiny sub-pages for the arena.返回竞技场的小子页面数。
+     *
+     * @deprecated Tiny sub-pages have been merged into small sub-pages.
      */
+    @Deprecated
     int numTinySubpages();
 
     /**
@@ -45,7 +48,10 @@ public interface PoolArenaMetric {
 
     /**
      * Returns an unmodifiable {@link List} which holds {@link PoolSubpageMetric}s for tiny sub-pages.返回一个不可修改的列表，其中包含用于小子页面的PoolSubpageMetrics。
+     *
+     * @deprecated Tiny sub-pages have been merged into small sub-pages.
      */
+    @Deprecated
     List<PoolSubpageMetric> tinySubpages();
 
     /**
@@ -58,6 +64,12 @@ public interface PoolArenaMetric {
      */
     List<PoolChunkListMetric> chunkLists();
 
+    /**
+     * Returns an unmodifiable {@link List} which holds a {@link PoolSizeClassMetric} for every size class of the
+     * arena, ordered by size. Huge allocations are not part of any size class.
+     */
+    List<PoolSizeClassMetric> sizeClasses();
+
     /**
      * Return the number of allocations done via the arena. This includes all sizes.返回通过竞技场完成的分配数量。这包括所有大小。
      */
@@ -65,7 +77,10 @@ public interface PoolArenaMetric {
 
     /**
      * Return the number of tiny allocations done via the arena.返回通过竞技场完成的微小分配的数量。
+     *
+     * @deprecated Tiny allocations have been merged into small allocations.
      */
+    @Deprecated
     long numTinyAllocations();
 
     /**
@@ -90,7 +105,10 @@ public interface PoolArenaMetric {
 
     /**
      * Return the number of tiny deallocations done via the arena.返回通过竞技场完成的微小交易数量。
+     *
+     * @deprecated Tiny deallocations have been merged into small deallocations.
      */
+    @Deprecated
     long numTinyDeallocations();
 
     /**
@@ -115,7 +133,10 @@ public interface PoolArenaMetric {
 
     /**
      * Return the number of currently active tiny allocations.返回当前活动的微小分配的数量。
+     *
+     * @deprecated Tiny allocations have been merged into small allocations.
      */
+    @Deprecated
     long numActiveTinyAllocations();
 
     /**
@@ -137,4 +158,27 @@ public interface PoolArenaMetric {
      * Return the number of active bytes that are currently allocated by the arena.返回竞技场当前分配的活动字节数。
      */
     long numActiveBytes();
+
+    /**
+     * Return the number of bytes of the chunks of the arena which are handed out to buffers, including the bytes
+     * held by the thread local caches.
+     */
+    long numUsedBytes();
+
+    /**
+     * Return the number of bytes of the chunks of the arena which are backed by physical memory. This is less than
+     * {@link #numActiveBytes()} if free pages were purged via {@link PooledByteBufAllocator#purgeFreeMemory()}.
+     */
+    long numResidentBytes();
+
+    /**
+     * Return the number of frees which found the arena contended and were handed over to the thread holding it
+     * instead of waiting.
+     */
+    long numDeferredFrees();
+
+    /**
+     * Return the number of allocations which found the arena contended and were served by another arena instead.
+     */
+    long numSpilledAllocations();
 }
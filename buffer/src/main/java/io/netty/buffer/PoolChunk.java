@@ -16,13 +16,16 @@
 
 package io.netty.buffer;
 
+import java.util.Arrays;
+
 /**
  * Description of algorithm for PageRun/PoolSubpage allocation from PoolChunk
  *
  * Notation: The following terms are important to understand the code
  * > page  - a page is the smallest unit of memory chunk that can be allocated
- * > chunk - a chunk is a collection of pages
- * > in this code chunkSize = 2^{maxOrder} * pageSize
+ * > run   - a run is a collection of contiguous pages
+ * > chunk - a chunk is a collection of runs
+ * > in this code chunkSize = maxPages * pageSize
  *
  * To begin we allocate a byte array of size = chunkSize
  * Whenever a ByteBuf of given size needs to be created we search for the first position
@@ -30,115 +33,118 @@ package io.netty.buffer;
  * return a (long) handle that encodes this offset information, (this memory segment is then
  * marked as reserved so it is always used by exactly one ByteBuf and no more)
  *
- * For simplicity all sizes are normalized according to PoolArena#normalizeCapacity method
- * This ensures that when we request for memory segments of size >= pageSize the normalizedCapacity
- * equals the next nearest power of 2
- *
- * To search for the first offset in chunk that has at least requested size available we construct a
- * complete balanced binary tree and store it in an array (just like heaps) - memoryMap
- *
- * The tree looks like this (the size of each node being mentioned in the parenthesis)
+ * For simplicity all sizes are normalized according to {@link SizeClasses#size2SizeIdx(int)}.
+ * This ensures that when we request for memory segments of size > pageSize the normalizedCapacity
+ * equals the next nearest size class, which is a multiple of pageSize.
  *
- * depth=0        1 node (chunkSize)
- * depth=1        2 nodes (chunkSize/2)
- * ..
- * ..
- * depth=d        2^d nodes (chunkSize/2^d)
- * ..
- * depth=maxOrder 2^maxOrder nodes (chunkSize/2^{maxOrder} = pageSize)
+ *  A chunk has the following layout:
  *
- * depth=maxOrder is the last level and the leafs consist of pages
+ *     /-----------------\
+ *     | run             |
+ *     |                 |
+ *     |                 |
+ *     |-----------------|
+ *     | run             |
+ *     |                 |
+ *     |-----------------|
+ *     | unallocated     |
+ *     | (freed)         |
+ *     |                 |
+ *     |-----------------|
+ *     | subpage         |
+ *     |-----------------|
+ *     | unallocated     |
+ *     | (freed)         |
+ *     | ...             |
+ *     | ...             |
+ *     | ...             |
+ *     |                 |
+ *     |                 |
+ *     |                 |
+ *     \-----------------/
  *
- * With this tree available searching in chunkArray translates like this:
- * To allocate a memory segment of size chunkSize/2^k we search for the first node (from left) at height k
- * which is unused
- *
- * Algorithm:
- * ----------
- * Encode the tree in memoryMap with the notation
- *   memoryMap[id] = x => in the subtree rooted at id, the first node that is free to be allocated
- *   is at depth x (counted from depth=0) i.e., at depths [depth_of_id, x), there is no node that is free
+ * handle:
+ * -------
+ * a handle is a long number, the bit layout of a run looks like:
  *
- *  As we allocate & free nodes, we update values stored in memoryMap so that the property is maintained
+ * oooooooo ooooooos ssssssss ssssssue bbbbbbbb bbbbbbbb bbbbbbbb bbbbbbbb
  *
- * Initialization -
- *   In the beginning we construct the memoryMap array by storing the depth of a node at each node
- *     i.e., memoryMap[id] = depth_of_id
+ * o: runOffset (page offset in the chunk), 15bit
+ * s: size (number of pages) of this run, 15bit
+ * u: isUsed?, 1bit
+ * e: isSubpage?, 1bit
+ * b: bitmapIdx of subpage, zero if it's not subpage, 32bit
  *
- * Observations:
- * -------------
- * 1) memoryMap[id] = depth_of_id  => it is free / unallocated
- * 2) memoryMap[id] > depth_of_id  => at least one of its child nodes is allocated, so we cannot allocate it, but
- *                                    some of its children can still be allocated based on their availability
- * 3) memoryMap[id] = maxOrder + 1 => the node is fully allocated & thus none of its children can be allocated, it
- *                                    is thus marked as unusable
+ * runsAvailMap:
+ * ------
+ * an array indexed by page offset which holds the handle of the free run that starts or ends at that page,
+ * or {@code -1} if there is none. It is used to coalesce a freed run with its free neighbours.
  *
- * Algorithm: [allocateNode(d) => we want to find the first node (from left) at height h that can be allocated]
+ * runsAvail:
  * ----------
- * 1) start at root (i.e., depth = 0 or id = 1)
- * 2) if memoryMap[1] > d => cannot be allocated from this chunk
- * 3) if left node value <= h; we can allocate from left subtree so move to left and repeat until found
- * 4) else try in right subtree
+ * an array of {@link LongPriorityQueue}.
+ * Each queue manages the free runs whose size falls into the same page size class, ordered by offset so we
+ * always allocate the run with the lowest offset.
  *
  * Algorithm: [allocateRun(size)]
  * ----------
- * 1) Compute d = log_2(chunkSize/size)
- * 2) Return allocateNode(d)
+ * 1) find the first queue in runsAvail with a page size class which can hold size
+ * 2) if the run is larger than the requested size, split it and save the tailing run for later use
  *
- * Algorithm: [allocateSubpage(size)]
+ * Algorithm: [allocateSubpage(sizeIdx)]
  * ----------
- * 1) use allocateNode(maxOrder) to find an empty (i.e., unused) leaf (i.e., page)
- * 2) use this handle to construct the PoolSubpage object or if it already exists just call init(normCapacity)
- *    note that this PoolSubpage object is added to subpagesPool in the PoolArena when we init() it
+ * 1) allocate a run which is a multiple of the element size, so that no memory is wasted at its end
+ * 2) create a PoolSubpage for it, which is added to the subpage pool of the owning PoolArena
  *
- * Note:
- * -----
- * In the implementation for improving cache coherence,
- * we store 2 pieces of information (i.e, 2 byte vals) as a short value in memoryMap
+ * Algorithm: [free(handle)]
+ * ----------
+ * 1) if it is a subpage, return the slab back into this subpage
+ * 2) if the subpage is not used or it is a run, then start free this run
+ * 3) merge continuous avail runs
+ * 4) save the merged run
  *
- * memoryMap[id]= (depth_of_id, x)
- * where as per convention defined above
- * the second value (i.e, x) indicates that the first node which is free to be allocated is at depth x (from root)
- * 从PoolChunk表示法中对PageRun/PoolSubpage分配算法的描述:以下术语是重要的理解>页面,页面的代码可以分配的内存块的最小单位>块,
- * 一块是一组页面>在这段代码中chunkSize = 2 ^ { maxOrder } *页大小开始我们分配一个字节数组的大小= chunkSize每当ByteBuf给定大小的需要创建我们寻找第一个
- * 位置的字节数组中有足够的空间来容纳并返回一个请求的大小(长)处理编码这个偏移量信息,(这个内存段标记为保留这总是一个ByteBuf和不再使用的)为简单起见大小都是根据
- * PoolArena # normalizeCapacity规范化方法这将确保当我们请求的内存段大小> =页大小normalizedCapacity =下一个最近的2的幂搜索第一抵消一部分,至少要求大小
- * 可用我们构建一个完整的平衡二叉树,并将它存储在一个数组(就像堆)memoryMap树看起来是这样的(括号中提到的每个节点的大小)深度=0 1节点(chunkSize)深度=12个节点
- * (chunkSize/2) .. ..深度= 2 ^ d节点(chunkSize / 2 ^ d). .深度= maxOrder 2 ^ maxOrder节点(chunkSize / 2 ^ { maxOrder } =页大小)深度= maxOrder是去年水平,
- * 这种树的树叶由页面可用搜索chunkArray翻译是这样的:分配的内存段大小chunkSize / 2 ^ k我们寻找第一个节点(从左)高k是未使用的算法:------在memoryMap中对树进行编码，在id为根的子树中，
- * 用memoryMap[id] = x =>表示，第一个可以自由分配的节点在depth x(从depth=0计数)，即。,深度[depth_of_id,x)没有节点,它是免费的,我们分配和释放节点,我们更新的值存储在memoryMap
- * 属性维护初始化——一开始我们构建memoryMap数组存储节点的深度即在每个节点。,memoryMap id = depth_of_id观察:- - - - - - - - - - - - - 1)memoryMap(id)= depth_of_id = >
- * 它是免费/未分配2)memoryMap[id]> depth_of_id = >至少一个分配的子节点,所以我们不能分配,但它的一些孩子们仍然可以分配基于可用性3)memoryMap[id]= maxOrder + 1 = >节点完全分配&
- * 因此没有孩子可以分配,因此标记为不可用的算法:[allocateNode(d) =>我们想要找到第一个节点(从左)在高度h处可以被分配]------- 1)从根(即。2)如果memoryMap[1] > d =>不能从该块中分配3)，
- * 如果左节点值< h;我们可以从左子树进行分配，所以向左移动，然后重复，直到找到右子树算法:[allocateRun(size)] ---------- - 1)计算d = log_2(chunkSize/size) 2)返回allocateNode(d)
- * 算法:[allocateSubpage(size)] ---------- ----- 1)使用allocateNode(maxOrder)找到一个空(即:树叶(即未使用)。,页面)2)使用这个句柄构造PoolSubpage对象或如果它已经存在就叫init
- * (normCapacity)注意这PoolSubpage对象添加到subpagesPool PoolArena当我们注意:init()——在实现提高缓存一致性,我们商店2条信息(我。在memoryMap memoryMap[id]= (depth_of_id, x)中，
- * 按照在第二个值(i)上定义的约定，将其作为一个短值。e, x)表示第一个可自由分配的节点位于深度x(从根开始)
+ * Algorithm: [purge(onlyIdle)]
+ * ----------
+ * 1) walk the avail runs via runsAvailMap
+ * 2) hand the pages of each run which are not purged yet back to the operating system via the arena
+ * 3) mark them in purgedPages, allocateRun() clears the marks again when a purged page is handed out
  */
 final class PoolChunk<T> implements PoolChunkMetric {
 
-    private static final int INTEGER_SIZE_MINUS_ONE = Integer.SIZE - 1;
+    private static final int SIZE_BIT_LENGTH = 15;
+    private static final int INUSED_BIT_LENGTH = 1;
+    private static final int SUBPAGE_BIT_LENGTH = 1;
+    private static final int BITMAP_IDX_BIT_LENGTH = 32;
+
+    static final int IS_SUBPAGE_SHIFT = BITMAP_IDX_BIT_LENGTH;
+    static final int IS_USED_SHIFT = SUBPAGE_BIT_LENGTH + IS_SUBPAGE_SHIFT;
+    static final int SIZE_SHIFT = INUSED_BIT_LENGTH + IS_USED_SHIFT;
+    static final int RUN_OFFSET_SHIFT = SIZE_BIT_LENGTH + SIZE_SHIFT;
 
     final PoolArena<T> arena;
     final T memory;
     final boolean unpooled;
     final int offset;
 
-    private final byte[] memoryMap;
-    private final byte[] depthMap;
+    /** Handle of the free run which starts or ends at the given page, or {@code -1}. */
+    private final long[] runsAvailMap;
+    /** Free runs, bucketed by the floor page size class of their size. */
+    private final LongPriorityQueue[] runsAvail;
+    /** Subpages, indexed by the page offset of their run. */
     private final PoolSubpage<T>[] subpages;
-    /** Used to determine if the requested capacity is equal to or greater than pageSize.用于确定请求的容量是否等于或大于pageSize */
-    private final int subpageOverflowMask;
+
     private final int pageSize;
     private final int pageShifts;
-    private final int maxOrder;
     private final int chunkSize;
-    private final int log2ChunkSize;
-    private final int maxSubpageAllocs;
-    /** Used to mark memory as unusable 用来标记内存不可用*/
-    private final byte unusable;
 
-    private int freeBytes;
+    int freeBytes;
+    /** Bytes of free pages which were returned to the operating system, they are not resident anymore. */
+    int purgedBytes;
+
+    /** One bit per page which is set while the page is purged, {@code null} for unpooled chunks. */
+    private final long[] purgedPages;
+    /** Whether a run was allocated or freed since the last call of {@link #purge(boolean)}. */
+    private boolean runsChanged;
 
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
@@ -147,38 +153,27 @@ final class PoolChunk<T> implements PoolChunkMetric {
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    PoolChunk(PoolArena<T> arena, T memory, int pageSize, int maxOrder, int pageShifts, int chunkSize, int offset) {
+    PoolChunk(PoolArena<T> arena, T memory, int pageSize, int pageShifts, int chunkSize, int maxPageIdx, int offset) {
         unpooled = false;
         this.arena = arena;
         this.memory = memory;
         this.pageSize = pageSize;
         this.pageShifts = pageShifts;
-        this.maxOrder = maxOrder;
         this.chunkSize = chunkSize;
         this.offset = offset;
-        unusable = (byte) (maxOrder + 1);
-        log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
-        assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
-        maxSubpageAllocs = 1 << maxOrder;
-
-        // Generate the memory map.
-        memoryMap = new byte[maxSubpageAllocs << 1];
-        depthMap = new byte[memoryMap.length];
-        int memoryMapIndex = 1;
-        for (int d = 0; d <= maxOrder; ++ d) { // move down the tree one level at a time沿着树一步一步向下移动
-            int depth = 1 << d;
-            for (int p = 0; p < depth; ++ p) {
-                // in each level traverse left to right and set value to the depth of subtree在每一层中，从左到右遍历，并将值设置为子树的深度
-                memoryMap[memoryMapIndex] = (byte) d;
-                depthMap[memoryMapIndex] = (byte) d;
-                memoryMapIndex ++;
-            }
-        }
-
-        subpages = newSubpageArray(maxSubpageAllocs);
+        int pages = chunkSize >> pageShifts;
+        assert pages < 1 << SIZE_BIT_LENGTH : "too many pages per chunk: " + pages;
+        runsAvail = newRunsAvailQueueArray(maxPageIdx);
+        runsAvailMap = new long[pages];
+        Arrays.fill(runsAvailMap, -1);
+        subpages = newSubpageArray(pages);
+        purgedPages = new long[(pages + Long.SIZE - 1) / Long.SIZE];
+
+        // Insert the initial run, which spans the whole chunk.
+        long initHandle = (long) pages << SIZE_SHIFT;
+        insertAvailRun(0, pages, initHandle);
     }
 
     /** Creates a special chunk that is not pooled. */
@@ -187,17 +182,21 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.arena = arena;
         this.memory = memory;
         this.offset = offset;
-        memoryMap = null;
-        depthMap = null;
-        subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
-        maxOrder = 0;
-        unusable = (byte) (maxOrder + 1);
+        runsAvailMap = null;
+        runsAvail = null;
+        subpages = null;
+        purgedPages = null;
         chunkSize = size;
-        log2ChunkSize = log2(chunkSize);
-        maxSubpageAllocs = 0;
+    }
+
+    private static LongPriorityQueue[] newRunsAvailQueueArray(int size) {
+        LongPriorityQueue[] queueArray = new LongPriorityQueue[size];
+        for (int i = 0; i < queueArray.length; i++) {
+            queueArray[i] = new LongPriorityQueue();
+        }
+        return queueArray;
     }
 
     @SuppressWarnings("unchecked")
@@ -205,11 +204,52 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return new PoolSubpage[size];
     }
 
+    private void insertAvailRun(int runOffset, int pages, long handle) {
+        int pageIdxFloor = arena.pages2pageIdxFloor(pages);
+        runsAvail[pageIdxFloor].offer(handle);
+
+        // Insert first page of run.
+        runsAvailMap[runOffset] = handle;
+        if (pages > 1) {
+            // Insert last page of run.
+            runsAvailMap[lastPage(runOffset, pages)] = handle;
+        }
+    }
+
+    private void removeAvailRun(long handle) {
+        int pageIdxFloor = arena.pages2pageIdxFloor(runPages(handle));
+        runsAvail[pageIdxFloor].remove(handle);
+        removeAvailRunFromMap(handle);
+    }
+
+    private void removeAvailRunFromMap(long handle) {
+        int runOffset = runOffset(handle);
+        int pages = runPages(handle);
+        runsAvailMap[runOffset] = -1;
+        if (pages > 1) {
+            runsAvailMap[lastPage(runOffset, pages)] = -1;
+        }
+    }
+
+    private static int lastPage(int runOffset, int pages) {
+        return runOffset + pages - 1;
+    }
+
+    private long getAvailRunByOffset(int runOffset) {
+        if (runOffset < 0 || runOffset >= runsAvailMap.length) {
+            return -1;
+        }
+        return runsAvailMap[runOffset];
+    }
+
     @Override
     public int usage() {
         final int freeBytes;
-        synchronized (arena) {
+        arena.lock();
+        try {
             freeBytes = this.freeBytes;
+        } finally {
+            arena.unlock();
         }
         return usage(freeBytes);
     }
@@ -226,256 +266,332 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return 100 - freePercentage;
     }
 
-    long allocate(int normCapacity) {
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize 直接分配叶子节点
-            return allocateRun(normCapacity);
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx) {
+        final long handle;
+        if (sizeIdx <= arena.smallMaxSizeIdx) {
+            // small
+            handle = allocateSubpage(sizeIdx);
+            if (handle < 0) {
+                return false;
+            }
+            assert isSubpage(handle);
         } else {
-//            小于8192 分配 subpage
-            return allocateSubpage(normCapacity);
+            // normal
+            // runSize must be a multiple of pageSize
+            int runSize = arena.sizeIdx2size(sizeIdx);
+            handle = allocateRun(runSize);
+            if (handle < 0) {
+                return false;
+            }
         }
+
+        initBuf(buf, handle, reqCapacity);
+        return true;
     }
 
-    /**
-     * Update method used by allocate
-     * This is triggered only when a successor is allocated and all its predecessors
-     * need to update their state
-     * The minimal depth at which subtree rooted at id has some free space更新方法使用的分配这是触发时，只有当一个后续是分配和所有的前身需要更新其状态最小深度的子树根在id有一些空闲空间
-     *
-     * @param id id
-     */
-    private void updateParentsAlloc(int id) {
-        while (id > 1) {
-            int parentId = id >>> 1;
-            byte val1 = value(id);
-            byte val2 = value(id ^ 1);
-            byte val = val1 < val2 ? val1 : val2;
-            setValue(parentId, val);
-            id = parentId;
+    private long allocateRun(int runSize) {
+        int pages = runSize >> pageShifts;
+        int pageIdx = arena.pages2pageIdx(pages);
+
+        // find first queue which has at least one big enough run
+        int queueIdx = runFirstBestFit(pageIdx);
+        if (queueIdx == -1) {
+            return -1;
         }
+
+        // get run with min offset in this queue
+        LongPriorityQueue queue = runsAvail[queueIdx];
+        long handle = queue.poll();
+
+        assert handle != LongPriorityQueue.NO_VALUE && !isUsed(handle) : "invalid handle: " + handle;
+
+        removeAvailRunFromMap(handle);
+
+        handle = splitLargeRun(handle, pages);
+
+        freeBytes -= runSize(pageShifts, handle);
+        runsChanged = true;
+        if (purgedBytes != 0) {
+            unmarkPurged(runOffset(handle), runPages(handle));
+        }
+        return handle;
     }
 
-    /**
-     * Update method used by free
-     * This needs to handle the special case when both children are completely free
-     * in which case parent be directly allocated on request of size = child-size * 2
-     * free使用的Update方法这需要处理两个子节点完全空闲时的特殊情况，在这种情况下，可以根据大小=子节点大小* 2的请求直接分配父节点
-     *
-     * @param id id
-     */
-    private void updateParentsFree(int id) {
-        int logChild = depth(id) + 1;
-        while (id > 1) {
-            int parentId = id >>> 1;
-            byte val1 = value(id);
-            byte val2 = value(id ^ 1);
-            logChild -= 1; // in first iteration equals log, subsequently reduce 1 from logChild as we traverse up在第一次迭代中等于log，当我们向上遍历时，从logChild中减少1
-
-            if (val1 == logChild && val2 == logChild) {
-                setValue(parentId, (byte) (logChild - 1));
-            } else {
-                byte val = val1 < val2 ? val1 : val2;
-                setValue(parentId, val);
-            }
+    private int calculateRunSize(int sizeIdx) {
+        int maxElements = 1 << pageShifts - SizeClasses.LOG2_QUANTUM;
+        int runSize = 0;
+        int nElements;
+
+        final int elemSize = arena.sizeIdx2size(sizeIdx);
 
-            id = parentId;
+        // find lowest common multiple of pageSize and elemSize, without exceeding the chunk
+        do {
+            runSize += pageSize;
+            nElements = runSize / elemSize;
+        } while (nElements < maxElements && runSize != nElements * elemSize && runSize < chunkSize);
+
+        while (nElements > maxElements) {
+            runSize -= pageSize;
+            nElements = runSize / elemSize;
         }
+
+        assert nElements > 0;
+        assert runSize <= chunkSize;
+        assert runSize >= elemSize;
+
+        return runSize;
     }
 
-    /**
-     * Algorithm to allocate an index in memoryMap when we query for a free node
-     * at depth d 在深度d为空闲节点时，在memoryMap中分配索引的算法
-     *
-     * @param d depth
-     * @return index in memoryMap
-     */
-    private int allocateNode(int d) {
-        int id = 1;
-        int initial = - (1 << d); // has last d bits = 0 and rest all = 1最后的d位是否为0，其余的都为1
-//        用byte数组维护叶子节点的索引，标识已分配内存或者未分配内存
-        byte val = value(id);
-        if (val > d) { // unusable
-            return -1;
+    private int runFirstBestFit(int pageIdx) {
+        if (freeBytes == chunkSize) {
+            return arena.nPSizes - 1;
         }
-        while (val < d || (id & initial) == 0) { // id & initial == 1 << d for all ids at depth d, for < d it is 0
-            id <<= 1;
-            val = value(id);
-            if (val > d) {
-                id ^= 1;
-                val = value(id);
+        for (int i = pageIdx; i < arena.nPSizes; i++) {
+            LongPriorityQueue queue = runsAvail[i];
+            if (queue != null && !queue.isEmpty()) {
+                return i;
             }
         }
-        byte value = value(id);
-        assert value == d && (id & initial) == 1 << d : String.format("val = %d, id & initial = %d, d = %d",
-                value, id & initial, d);
-        setValue(id, unusable); // mark as unusable
-//        更新树的父叶子节点在byte数组中的位置
-        updateParentsAlloc(id);
-        return id;
+        return -1;
     }
 
-    /**
-     * Allocate a run of pages (>=1)
-     *
-     * @param normCapacity normalized capacity
-     * @return index in memoryMap
-     */
-    private long allocateRun(int normCapacity) {
-        int d = maxOrder - (log2(normCapacity) - pageShifts);
-//        分配树的节点并修改树的结构
-        int id = allocateNode(d);
-        if (id < 0) {
-            return id;
+    private long splitLargeRun(long handle, int needPages) {
+        assert needPages > 0;
+
+        int totalPages = runPages(handle);
+        assert needPages <= totalPages;
+
+        int remPages = totalPages - needPages;
+
+        if (remPages > 0) {
+            int runOffset = runOffset(handle);
+
+            // keep track of trailing unused pages for later use
+            int availOffset = runOffset + needPages;
+            long availRun = toRunHandle(availOffset, remPages, 0);
+            insertAvailRun(availOffset, remPages, availRun);
+
+            // not avail
+            return toRunHandle(runOffset, needPages, 1);
         }
-        freeBytes -= runLength(id);
-        return id;
+
+        // mark it as used
+        handle |= 1L << IS_USED_SHIFT;
+        return handle;
     }
 
     /**
-     * Create/ initialize a new PoolSubpage of normCapacity
-     * Any PoolSubpage created/ initialized here is added to subpage pool in the PoolArena that owns this PoolChunk
-     * 创建/初始化normCapacity的新PoolSubpage这里创建/初始化的任何PoolSubpage都添加到拥有此PoolChunk的PoolArena的子页面池中
+     * Create a new PoolSubpage for the given size class.
+     * Any PoolSubpage created here is added to the subpage pool in the PoolArena that owns this PoolChunk.
+     *
+     * @param sizeIdx sizeIdx of normalized size
      *
-     * @param normCapacity normalized capacity
-     * @return index in memoryMap
+     * @return handle of the allocated element, or {@code -1} if the chunk has no room left
      */
-    private long allocateSubpage(int normCapacity) {
+    private long allocateSubpage(int sizeIdx) {
         // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
-        // This is need as we may add it back and so alter the linked-list structure.//获取PoolArena拥有的PoolSubPage池的头部并在其上进行同步。
-//这是必要的，因为我们可能会把它加回去，从而改变链表结构。
-        PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
+        // This is need as we may add it back and so alter the linked-list structure.
+        PoolSubpage<T> head = arena.findSubpagePoolHead(sizeIdx);
         synchronized (head) {
-            int d = maxOrder; // subpages are only be allocated from pages i.e., leaves子页面只能从页面中分配。、树叶
-            int id = allocateNode(d);
-            if (id < 0) {
-                return id;
+            // allocate a new run
+            int runSize = calculateRunSize(sizeIdx);
+            // runSize must be multiples of pageSize
+            long runHandle = allocateRun(runSize);
+            if (runHandle < 0) {
+                return -1;
             }
 
-            final PoolSubpage<T>[] subpages = this.subpages;
-            final int pageSize = this.pageSize;
+            int runOffset = runOffset(runHandle);
+            assert subpages[runOffset] == null;
+            int elemSize = arena.sizeIdx2size(sizeIdx);
 
-            freeBytes -= pageSize;
+            PoolSubpage<T> subpage = new PoolSubpage<T>(head, this, pageShifts, runOffset,
+                               runSize(pageShifts, runHandle), elemSize);
 
-//            计算子叶子节点的index
-            int subpageIdx = subpageIdx(id);
-            PoolSubpage<T> subpage = subpages[subpageIdx];
-            if (subpage == null) {
-                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), pageSize, normCapacity);
-                subpages[subpageIdx] = subpage;
-            } else {
-//                初始化subpage
-                subpage.init(head, normCapacity);
-            }
-//            子叶子节点分配
+            subpages[runOffset] = subpage;
             return subpage.allocate();
         }
     }
 
     /**
-     * Free a subpage or a run of pages
-     * When a subpage is freed from PoolSubpage, it might be added back to subpage pool of the owning PoolArena
-     * If the subpage pool in PoolArena has at least one other PoolSubpage of given elemSize, we can
-     * completely free the owning Page so it is available for subsequent allocations
+     * Free a subpage or a run of pages. When a subpage is freed from PoolSubpage, it might be added back to subpage
+     * pool of the owning PoolArena. If the subpage pool in PoolArena has at least one other PoolSubpage of given
+     * elemSize, we can completely free the owning run so it is available for subsequent allocations.
      *
      * @param handle handle to free
-     *               免费页或运行子页摆脱PoolSubpage子页时,它可能被添加回子页拥有PoolArena如果子页池的池PoolArena至少有一个其他PoolSubpage elemSize,我们可以完全免费拥有页面用于随后的分配
      */
     void free(long handle) {
-        int memoryMapIdx = memoryMapIdx(handle);
-        int bitmapIdx = bitmapIdx(handle);
+        int runOffset = runOffset(handle);
+        int pages = runPages(handle);
 
-        if (bitmapIdx != 0) { // free a subpage
-            PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
+        if (isSubpage(handle)) {
+            PoolSubpage<T> subpage = subpages[runOffset];
             assert subpage != null && subpage.doNotDestroy;
 
             // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
-            // This is need as we may add it back and so alter the linked-list structure.//获取PoolArena拥有的PoolSubPage池的头部并在其上进行同步。
-//这是必要的，因为我们可能会把它加回去，从而改变链表结构。
-            PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.elemSize);
+            // This is need as we may add it back and so alter the linked-list structure.
+            PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.sizeIdx);
             synchronized (head) {
-                if (subpage.free(head, bitmapIdx & 0x3FFFFFFF)) {
+                if (subpage.free(head, bitmapIdx(handle))) {
+                    // the subpage is still used, do not free it
                     return;
                 }
+                assert !subpage.doNotDestroy;
+                // Null out slot in the array as it was freed and we should not use it anymore.
+                subpages[runOffset] = null;
             }
         }
-        freeBytes += runLength(memoryMapIdx);
-        setValue(memoryMapIdx, depth(memoryMapIdx));
-        updateParentsFree(memoryMapIdx);
-    }
 
-    void initBuf(PooledByteBuf<T> buf, long handle, int reqCapacity) {
-        int memoryMapIdx = memoryMapIdx(handle);
-        int bitmapIdx = bitmapIdx(handle);
-        if (bitmapIdx == 0) {
-            byte val = value(memoryMapIdx);
-            assert val == unusable : String.valueOf(val);
-//            buffer初始化
-            buf.init(this, handle, runOffset(memoryMapIdx) + offset, reqCapacity, runLength(memoryMapIdx),
-                     arena.parent.threadCache());
-        } else {
-//            初始化subpage的buffer
-            initBufWithSubpage(buf, handle, bitmapIdx, reqCapacity);
-        }
-    }
+        // start free run
+        long finalRun = collapseRuns(toRunHandle(runOffset, pages, 0));
 
-    void initBufWithSubpage(PooledByteBuf<T> buf, long handle, int reqCapacity) {
-        initBufWithSubpage(buf, handle, bitmapIdx(handle), reqCapacity);
+        insertAvailRun(runOffset(finalRun), runPages(finalRun), finalRun);
+        freeBytes += pages << pageShifts;
+        runsChanged = true;
     }
 
-    private void initBufWithSubpage(PooledByteBuf<T> buf, long handle, int bitmapIdx, int reqCapacity) {
-        assert bitmapIdx != 0;
-
-//        subpage采用long数组管理空闲的空间，0标识可用，1标识不可用
-        int memoryMapIdx = memoryMapIdx(handle);
-
-//        找到可用的subpage
-        PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
-        assert subpage.doNotDestroy;
-        assert reqCapacity <= subpage.elemSize;
+    /**
+     * Return the memory of the free pages which are still resident to the operating system. If {@code onlyIdle} is
+     * {@code true} this is only done if no run was allocated or freed since the previous call, so pages which are
+     * likely to be reused soon are not purged. Must be called while holding the arena lock.
+     *
+     * @return the number of purged bytes
+     */
+    long purge(boolean onlyIdle) {
+        boolean changed = runsChanged;
+        runsChanged = false;
+        if ((onlyIdle && changed) || freeBytes == purgedBytes) {
+            return 0;
+        }
 
-        buf.init(
-            this, handle,
-            runOffset(memoryMapIdx) + (bitmapIdx & 0x3FFFFFFF) * subpage.elemSize + offset,
-                reqCapacity, subpage.elemSize, arena.parent.threadCache());
+        long purged = 0;
+        for (int page = 0; page < runsAvailMap.length;) {
+            long handle = runsAvailMap[page];
+            if (handle == -1 || runOffset(handle) != page) {
+                // Used page, or the last page of a run whose first page was visited already.
+                page ++;
+                continue;
+            }
+            int end = page + runPages(handle);
+            int start = -1;
+            for (int p = page; p <= end; p ++) {
+                if (p < end && !isPurged(p)) {
+                    if (start == -1) {
+                        start = p;
+                    }
+                } else if (start != -1) {
+                    int length = p - start << pageShifts;
+                    if (!arena.discard(memory, (start << pageShifts) + offset, length)) {
+                        return purged;
+                    }
+                    markPurged(start, p - start);
+                    purged += length;
+                    start = -1;
+                }
+            }
+            page = end;
+        }
+        return purged;
     }
 
-    private byte value(int id) {
-        return memoryMap[id];
+    private boolean isPurged(int page) {
+        return (purgedPages[page >>> 6] & 1L << page) != 0;
     }
 
-    private void setValue(int id, byte val) {
-        memoryMap[id] = val;
+    private void markPurged(int runOffset, int pages) {
+        for (int page = runOffset; page < runOffset + pages; page ++) {
+            purgedPages[page >>> 6] |= 1L << page;
+        }
+        purgedBytes += pages << pageShifts;
     }
 
-    private byte depth(int id) {
-        return depthMap[id];
+    private void unmarkPurged(int runOffset, int pages) {
+        for (int page = runOffset; page < runOffset + pages; page ++) {
+            long mask = 1L << page;
+            if ((purgedPages[page >>> 6] & mask) != 0) {
+                purgedPages[page >>> 6] &= ~mask;
+                purgedBytes -= pageSize;
+            }
+        }
     }
 
-    private static int log2(int val) {
-        // compute the (0-based, with lsb = 0) position of highest set bit i.e, log2计算(基于0的，lsb = 0)最高集第i位的位置。e, log2
-        return INTEGER_SIZE_MINUS_ONE - Integer.numberOfLeadingZeros(val);
+    private long collapseRuns(long handle) {
+        return collapseNext(collapsePast(handle));
     }
 
-    private int runLength(int id) {
-        // represents the size in #bytes supported by node 'id' in the tree表示树中的节点“id”支持的大小(以#字节为单位)
-        return 1 << log2ChunkSize - depth(id);
+    private long collapsePast(long handle) {
+        for (;;) {
+            int runOffset = runOffset(handle);
+            int runPages = runPages(handle);
+
+            long pastRun = getAvailRunByOffset(runOffset - 1);
+            if (pastRun == -1) {
+                return handle;
+            }
+
+            int pastOffset = runOffset(pastRun);
+            int pastPages = runPages(pastRun);
+
+            // is continuous
+            if (pastRun != handle && pastOffset + pastPages == runOffset) {
+                // remove past run
+                removeAvailRun(pastRun);
+                handle = toRunHandle(pastOffset, pastPages + runPages, 0);
+            } else {
+                return handle;
+            }
+        }
     }
 
-    private int runOffset(int id) {
-        // represents the 0-based offset in #bytes from start of the byte-array chunk表示从字节数组块开始的基于0的偏移量(以#字节为单位)
-        int shift = id ^ 1 << depth(id);
-        return shift * runLength(id);
+    private long collapseNext(long handle) {
+        for (;;) {
+            int runOffset = runOffset(handle);
+            int runPages = runPages(handle);
+
+            long nextRun = getAvailRunByOffset(runOffset + runPages);
+            if (nextRun == -1) {
+                return handle;
+            }
+
+            int nextOffset = runOffset(nextRun);
+            int nextPages = runPages(nextRun);
+
+            // is continuous
+            if (nextRun != handle && runOffset + runPages == nextOffset) {
+                // remove next run
+                removeAvailRun(nextRun);
+                handle = toRunHandle(runOffset, runPages + nextPages, 0);
+            } else {
+                return handle;
+            }
+        }
     }
 
-    private int subpageIdx(int memoryMapIdx) {
-        return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset删除最高设置位，以获得偏移量
+    private static long toRunHandle(int runOffset, int runPages, int inUsed) {
+        return (long) runOffset << RUN_OFFSET_SHIFT
+               | (long) runPages << SIZE_SHIFT
+               | (long) inUsed << IS_USED_SHIFT;
     }
 
-    private static int memoryMapIdx(long handle) {
-        return (int) handle;
+    void initBuf(PooledByteBuf<T> buf, long handle, int reqCapacity) {
+        if (isRun(handle)) {
+            buf.init(this, handle, (runOffset(handle) << pageShifts) + offset,
+                     reqCapacity, runSize(pageShifts, handle), arena.parent.threadCache());
+        } else {
+            initBufWithSubpage(buf, handle, reqCapacity);
+        }
     }
 
-    private static int bitmapIdx(long handle) {
-        return (int) (handle >>> Integer.SIZE);
+    void initBufWithSubpage(PooledByteBuf<T> buf, long handle, int reqCapacity) {
+        int runOffset = runOffset(handle);
+        int bitmapIdx = bitmapIdx(handle);
+
+        PoolSubpage<T> s = subpages[runOffset];
+        assert s.doNotDestroy;
+        assert reqCapacity <= s.elemSize;
+
+        buf.init(this, handle, (runOffset << pageShifts) + bitmapIdx * s.elemSize + offset,
+                 reqCapacity, s.elemSize, arena.parent.threadCache());
     }
 
     @Override
@@ -485,16 +601,32 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     @Override
     public int freeBytes() {
-        synchronized (arena) {
+        arena.lock();
+        try {
             return freeBytes;
+        } finally {
+            arena.unlock();
+        }
+    }
+
+    @Override
+    public int residentBytes() {
+        arena.lock();
+        try {
+            return chunkSize - purgedBytes;
+        } finally {
+            arena.unlock();
         }
     }
 
     @Override
     public String toString() {
         final int freeBytes;
-        synchronized (arena) {
+        arena.lock();
+        try {
             freeBytes = this.freeBytes;
+        } finally {
+            arena.unlock();
         }
 
         return new StringBuilder()
@@ -513,4 +645,32 @@ final class PoolChunk<T> implements PoolChunkMetric {
     void destroy() {
         arena.destroyChunk(this);
     }
+
+    static int runOffset(long handle) {
+        return (int) (handle >> RUN_OFFSET_SHIFT);
+    }
+
+    static int runSize(int pageShifts, long handle) {
+        return runPages(handle) << pageShifts;
+    }
+
+    static int runPages(long handle) {
+        return (int) (handle >> SIZE_SHIFT & (1 << SIZE_BIT_LENGTH) - 1);
+    }
+
+    static boolean isUsed(long handle) {
+        return (handle >> IS_USED_SHIFT & 1) == 1L;
+    }
+
+    static boolean isRun(long handle) {
+        return !isSubpage(handle);
+    }
+
+    static boolean isSubpage(long handle) {
+        return (handle >> IS_SUBPAGE_SHIFT & 1) == 1L;
+    }
+
+    static int bitmapIdx(long handle) {
+        return (int) handle;
+    }
 }
@@ -79,7 +79,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         this.prevList = prevList;
     }
 
-    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx) {
+        int normCapacity = arena.sizeIdx2size(sizeIdx);
         if (head == null || normCapacity > maxCapacity) {
             // Either this PoolChunkList is empty or the requested capacity is larger then the capacity which can
             // be handled by the PoolChunks that are contained in this PoolChunkList.//要么这个PoolChunkList是空的，要么请求的容量大于可能的容量
@@ -87,17 +88,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
             return false;
         }
 
-        for (PoolChunk<T> cur = head;;) {
-//           内存分配
-            long handle = cur.allocate(normCapacity);
-            if (handle < 0) {
-                cur = cur.next;
-                if (cur == null) {
-                    return false;
-                }
-            } else {
-//                初始化buffer
-                cur.initBuf(buf, handle, reqCapacity);
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            if (cur.allocate(buf, reqCapacity, sizeIdx)) {
                 if (cur.usage() >= maxUsage) {
                     remove(cur);
                     nextList.add(cur);
@@ -105,6 +97,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
                 return true;
             }
         }
+        return false;
     }
 
     boolean free(PoolChunk<T> chunk, long handle) {
@@ -203,7 +196,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
 
     @Override
     public Iterator<PoolChunkMetric> iterator() {
-        synchronized (arena) {
+        arena.lock();
+        try {
             if (head == null) {
                 return EMPTY_METRICS;
             }
@@ -216,13 +210,16 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
                 }
             }
             return metrics.iterator();
+        } finally {
+            arena.unlock();
         }
     }
 
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder();
-        synchronized (arena) {
+        arena.lock();
+        try {
             if (head == null) {
                 return "none";
             }
@@ -235,10 +232,46 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
                 }
                 buf.append(StringUtil.NEWLINE);
             }
+        } finally {
+            arena.unlock();
         }
         return buf.toString();
     }
 
+    /**
+     * Purges the free pages of all chunks, see {@link PoolChunk#purge(boolean)}. Must be called while holding the
+     * arena lock.
+     */
+    long purge(boolean onlyIdle) {
+        long purged = 0;
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            purged += cur.purge(onlyIdle);
+        }
+        return purged;
+    }
+
+    /**
+     * Must be called while holding the arena lock.
+     */
+    long usedBytes() {
+        long used = 0;
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            used += cur.chunkSize() - cur.freeBytes;
+        }
+        return used;
+    }
+
+    /**
+     * Must be called while holding the arena lock.
+     */
+    long residentBytes() {
+        long resident = 0;
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            resident += cur.chunkSize() - cur.purgedBytes;
+        }
+        return resident;
+    }
+
     void destroy(PoolArena<T> arena) {
         PoolChunk<T> chunk = head;
         while (chunk != null) {
@@ -34,4 +34,10 @@ public interface PoolChunkMetric {
      * Return the number of free bytes in the chunk.返回块中的空闲字节数。
      */
     int freeBytes();
+
+    /**
+     * Return the number of bytes of the chunk which are backed by physical memory. Free pages which were purged are
+     * not resident until they are allocated again.
+     */
+    int residentBytes();
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * Metrics for one size class of a {@link PoolArenaMetric}. Only allocations served by the arena itself are counted,
+ * allocations served by a thread cache are not.
+ */
+public interface PoolSizeClassMetric {
+
+    /**
+     * Returns the index of this size class.
+     */
+    int sizeIdx();
+
+    /**
+     * Returns the size in bytes of the buffers of this size class.
+     */
+    int size();
+
+    /**
+     * Returns {@code true} if buffers of this size class are served from a {@link PoolSubpageMetric sub-page}.
+     */
+    boolean isSubpage();
+
+    /**
+     * Return the number of allocations of this size class done via the arena.
+     */
+    long numAllocations();
+
+    /**
+     * Return the number of deallocations of this size class done via the arena.
+     */
+    long numDeallocations();
+
+    /**
+     * Return the number of currently active allocations of this size class.
+     */
+    long numActiveAllocations();
+}
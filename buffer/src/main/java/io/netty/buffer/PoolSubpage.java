@@ -16,73 +16,66 @@
 
 package io.netty.buffer;
 
+import static io.netty.buffer.PoolChunk.IS_SUBPAGE_SHIFT;
+import static io.netty.buffer.PoolChunk.IS_USED_SHIFT;
+import static io.netty.buffer.PoolChunk.RUN_OFFSET_SHIFT;
+import static io.netty.buffer.PoolChunk.SIZE_SHIFT;
+
+/**
+ * A run of pages split into elements of the same small size class.
+ */
 final class PoolSubpage<T> implements PoolSubpageMetric {
 
     final PoolChunk<T> chunk;
-    private final int memoryMapIdx;
+    final int sizeIdx;
+    private final int pageShifts;
     private final int runOffset;
-    private final int pageSize;
+    private final int runSize;
     private final long[] bitmap;
 
     PoolSubpage<T> prev;
     PoolSubpage<T> next;
 
     boolean doNotDestroy;
-    int elemSize;
-    private int maxNumElems;
-    private int bitmapLength;
+    final int elemSize;
+    private final int maxNumElems;
+    private final int bitmapLength;
     private int nextAvail;
     private int numAvail;
 
-    // TODO: Test if adding padding helps under contention
-    //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
-
     /** Special constructor that creates a linked list head */
-    PoolSubpage(int pageSize) {
+    PoolSubpage(int sizeIdx) {
         chunk = null;
-        memoryMapIdx = -1;
+        this.sizeIdx = sizeIdx;
+        pageShifts = -1;
         runOffset = -1;
         elemSize = -1;
-        this.pageSize = pageSize;
+        runSize = -1;
         bitmap = null;
+        maxNumElems = 0;
+        bitmapLength = 0;
     }
 
-    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int pageSize, int elemSize) {
+    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int pageShifts, int runOffset, int runSize, int elemSize) {
         this.chunk = chunk;
-        this.memoryMapIdx = memoryMapIdx;
+        sizeIdx = head.sizeIdx;
+        this.pageShifts = pageShifts;
         this.runOffset = runOffset;
-        this.pageSize = pageSize;
-        bitmap = new long[pageSize >>> 10]; // pageSize / 16 / 64
-        init(head, elemSize);
-    }
-
-    void init(PoolSubpage<T> head, int elemSize) {
-        doNotDestroy = true;
+        this.runSize = runSize;
         this.elemSize = elemSize;
-        if (elemSize != 0) {
-            maxNumElems = numAvail = pageSize / elemSize;
-            nextAvail = 0;
-            bitmapLength = maxNumElems >>> 6;
-            if ((maxNumElems & 63) != 0) {
-                bitmapLength ++;
-            }
 
-            for (int i = 0; i < bitmapLength; i ++) {
-                bitmap[i] = 0;
-            }
-        }
-//        添加到PoolSubpage中
+        doNotDestroy = true;
+        maxNumElems = numAvail = runSize / elemSize;
+        nextAvail = 0;
+        bitmapLength = maxNumElems + 63 >>> 6;
+        bitmap = new long[bitmapLength];
         addToPool(head);
     }
 
     /**
-     * Returns the bitmap index of the subpage allocation.返回子页面分配的位图索引。
+     * Returns the handle of the subpage allocation.
      */
     long allocate() {
-        if (elemSize == 0) {
-            return toHandle(0);
-        }
-
         if (numAvail == 0 || !doNotDestroy) {
             return -1;
         }
@@ -105,9 +98,6 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
      *         {@code false} if this subpage is not used by its chunk and thus it's OK to be released.
      */
     boolean free(PoolSubpage<T> head, int bitmapIdx) {
-        if (elemSize == 0) {
-            return true;
-        }
         int q = bitmapIdx >>> 6;
         int r = bitmapIdx & 63;
         assert (bitmap[q] >>> r & 1) != 0;
@@ -117,19 +107,25 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
 
         if (numAvail ++ == 0) {
             addToPool(head);
-            return true;
+            // When maxNumElems == 1, the maximum numAvail is also 1.
+            // Each of these PoolSubpages will go in here when they do free operation.
+            // If they return true directly from here, then the rest of the code will be unreachable
+            // and they will not actually be recycled. So return true only on maxNumElems > 1.
+            if (maxNumElems > 1) {
+                return true;
+            }
         }
 
         if (numAvail != maxNumElems) {
             return true;
         } else {
-            // Subpage not in use (numAvail == maxNumElems)未使用的子页面(numAvail == maxNumElems)
+            // Subpage not in use (numAvail == maxNumElems)
             if (prev == next) {
-                // Do not remove if this subpage is the only one left in the pool.如果此子页面是池中仅剩的一个，则不要删除它。
+                // Do not remove if this subpage is the only one left in the pool.
                 return true;
             }
 
-            // Remove this subpage from the pool if there are other subpages left in the pool.如果池中还剩下其他子页面，则从池中删除此子页面。
+            // Remove this subpage from the pool if there are other subpages left in the pool.
             doNotDestroy = false;
             removeFromPool();
             return false;
@@ -171,32 +167,20 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         for (int i = 0; i < bitmapLength; i ++) {
             long bits = bitmap[i];
             if (~bits != 0) {
-                return findNextAvail0(i, bits);
+                int val = i << 6 | Long.numberOfTrailingZeros(~bits);
+                return val < maxNumElems ? val : -1;
             }
         }
         return -1;
     }
 
-    private int findNextAvail0(int i, long bits) {
-        final int maxNumElems = this.maxNumElems;
-        final int baseVal = i << 6;
-
-        for (int j = 0; j < 64; j ++) {
-            if ((bits & 1) == 0) {
-                int val = baseVal | j;
-                if (val < maxNumElems) {
-                    return val;
-                } else {
-                    break;
-                }
-            }
-            bits >>>= 1;
-        }
-        return -1;
-    }
-
     private long toHandle(int bitmapIdx) {
-        return 0x4000000000000000L | (long) bitmapIdx << 32 | memoryMapIdx;
+        int pages = runSize >> pageShifts;
+        return (long) runOffset << RUN_OFFSET_SHIFT
+               | (long) pages << SIZE_SHIFT
+               | 1L << IS_USED_SHIFT
+               | 1L << IS_SUBPAGE_SHIFT
+               | bitmapIdx;
     }
 
     @Override
@@ -205,51 +189,65 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         final int maxNumElems;
         final int numAvail;
         final int elemSize;
-        synchronized (chunk.arena) {
-            if (!this.doNotDestroy) {
-                doNotDestroy = false;
-                // Not used for creating the String.
-                maxNumElems = numAvail = elemSize = -1;
-            } else {
-                doNotDestroy = true;
-                maxNumElems = this.maxNumElems;
-                numAvail = this.numAvail;
-                elemSize = this.elemSize;
+        if (chunk == null) {
+            // This is the head so there is no need to synchronize at all as these never change.
+            doNotDestroy = true;
+            maxNumElems = 0;
+            numAvail = 0;
+            elemSize = -1;
+        } else {
+            PoolSubpage<T> head = chunk.arena.findSubpagePoolHead(sizeIdx);
+            synchronized (head) {
+                if (!this.doNotDestroy) {
+                    doNotDestroy = false;
+                    // Not used for creating the String.
+                    maxNumElems = numAvail = elemSize = -1;
+                } else {
+                    doNotDestroy = true;
+                    maxNumElems = this.maxNumElems;
+                    numAvail = this.numAvail;
+                    elemSize = this.elemSize;
+                }
             }
         }
 
         if (!doNotDestroy) {
-            return "(" + memoryMapIdx + ": not in use)";
+            return "(" + runOffset + ": not in use)";
         }
 
-        return "(" + memoryMapIdx + ": " + (maxNumElems - numAvail) + '/' + maxNumElems +
-                ", offset: " + runOffset + ", length: " + pageSize + ", elemSize: " + elemSize + ')';
+        return "(" + runOffset + ": " + (maxNumElems - numAvail) + '/' + maxNumElems +
+                ", offset: " + runOffset + ", length: " + runSize + ", elemSize: " + elemSize + ')';
     }
 
     @Override
     public int maxNumElements() {
-        synchronized (chunk.arena) {
-            return maxNumElems;
+        if (chunk == null) {
+            // It's the head.
+            return 0;
         }
+        return maxNumElems;
     }
 
     @Override
     public int numAvailable() {
-        synchronized (chunk.arena) {
+        if (chunk == null) {
+            // It's the head.
+            return 0;
+        }
+        PoolSubpage<T> head = chunk.arena.findSubpagePoolHead(sizeIdx);
+        synchronized (head) {
             return numAvail;
         }
     }
 
     @Override
     public int elementSize() {
-        synchronized (chunk.arena) {
-            return elemSize;
-        }
+        return elemSize;
     }
 
     @Override
     public int pageSize() {
-        return pageSize;
+        return 1 << pageShifts;
     }
 
     void destroy() {
@@ -25,8 +25,13 @@ import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * Acts a Thread cache for allocations. This implementation is moduled after
@@ -35,96 +40,122 @@ import java.util.Queue;
  * <a href="https://www.facebook.com/notes/facebook-engineering/scalable-memory-allocation-using-jemalloc/480222803919">
  * Scalable memory allocation using jemalloc</a>.为分配执行线程缓存。这个实现是在jemalloc和使用jemalloc的可伸缩内存分配的描述技术之后进行模块化的。
  */
-final class PoolThreadCache {
+final class PoolThreadCache implements PoolThreadCacheMetric {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
 
+    // An adaptive cache may grow up to this factor times the configured cache size.
+    static final int ADAPTIVE_MAX_SIZE_FACTOR = 4;
+
+    private static final AtomicIntegerFieldUpdater<PoolThreadCache> CONSUMER_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PoolThreadCache.class, "consumer");
+    private static final AtomicLongFieldUpdater<PoolThreadCache> HITS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(PoolThreadCache.class, "hits");
+    private static final AtomicLongFieldUpdater<PoolThreadCache> MISSES_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(PoolThreadCache.class, "misses");
+
     final PoolArena<byte[]> heapArena;
     final PoolArena<ByteBuffer> directArena;
 
-    // Hold the caches for the different size classes, which are tiny, small and normal.为不同大小的类保存缓存，这些类非常小、正常。
-    private final MemoryRegionCache<byte[]>[] tinySubPageHeapCaches;
+    // Hold the caches for the different size classes, which are small and normal. The caches are indexed by the
+    // sizeIdx of the size class, normal caches start at the first normal size class.
     private final MemoryRegionCache<byte[]>[] smallSubPageHeapCaches;
-    private final MemoryRegionCache<ByteBuffer>[] tinySubPageDirectCaches;
     private final MemoryRegionCache<ByteBuffer>[] smallSubPageDirectCaches;
     private final MemoryRegionCache<byte[]>[] normalHeapCaches;
     private final MemoryRegionCache<ByteBuffer>[] normalDirectCaches;
 
-    // Used for bitshifting when calculate the index of normal caches later用于以后计算正常缓存的索引时的位移
-    private final int numShiftsNormalDirect;
-    private final int numShiftsNormalHeap;
     private final int freeSweepAllocationThreshold;
+    // Weak so the thread can still be collected, which frees the cache via the FastThreadLocal cleaner.
+    private final WeakReference<Thread> thread;
+    private final String threadName;
+    // If true other threads may trim this cache so polling the MemoryRegionCaches needs to be guarded by consumer.
+    private final boolean concurrentTrim;
+    @SuppressWarnings("unused")
+    private volatile int consumer;
+    private boolean freed;
 
     private int allocations;
 
+    // Written by the owning thread only and published with lazySet, read by the trimming thread and the metrics.
+    private volatile long hits;
+    private volatile long misses;
+    // Written by the trimming thread only.
+    private long lastIdleCheck = -1;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
-                    int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                    int smallCacheSize, int normalCacheSize,
                     int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
+        this(heapArena, directArena, smallCacheSize, normalCacheSize, maxCachedBufferCapacity,
+             freeSweepAllocationThreshold, false, false);
+    }
+
+    PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int smallCacheSize, int normalCacheSize,
+                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold,
+                    boolean adaptive, boolean concurrentTrim) {
         if (maxCachedBufferCapacity < 0) {
             throw new IllegalArgumentException("maxCachedBufferCapacity: "
                     + maxCachedBufferCapacity + " (expected: >= 0)");
         }
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
+        this.concurrentTrim = concurrentTrim;
+        Thread current = Thread.currentThread();
+        thread = new WeakReference<Thread>(current);
+        threadName = current.getName();
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
-            tinySubPageDirectCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
             smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, directArena, adaptive);
 
-            numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, directArena);
+                    normalCacheSize, maxCachedBufferCapacity, directArena, adaptive);
 
             directArena.numThreadCaches.getAndIncrement();
         } else {
             // No directArea is configured so just null out all caches没有directArea配置，所以只是空出所有的缓存
-            tinySubPageDirectCaches = null;
             smallSubPageDirectCaches = null;
             normalDirectCaches = null;
-            numShiftsNormalDirect = -1;
         }
         if (heapArena != null) {
             // Create the caches for the heap allocations为堆分配创建缓存
-            tinySubPageHeapCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
             smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small);
+                    smallCacheSize, heapArena, adaptive);
 
-            numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, heapArena);
+                    normalCacheSize, maxCachedBufferCapacity, heapArena, adaptive);
 
             heapArena.numThreadCaches.getAndIncrement();
         } else {
             // No heapArea is configured so just null out all caches没有堆区配置，所以只是空出所有缓存
-            tinySubPageHeapCaches = null;
             smallSubPageHeapCaches = null;
             normalHeapCaches = null;
-            numShiftsNormalHeap = -1;
         }
 
         // Only check if there are caches in use.只检查是否有缓存在使用。
-        if ((tinySubPageDirectCaches != null || smallSubPageDirectCaches != null || normalDirectCaches != null
-                || tinySubPageHeapCaches != null || smallSubPageHeapCaches != null || normalHeapCaches != null)
-                && freeSweepAllocationThreshold < 1) {
+        if (hasCaches() && freeSweepAllocationThreshold < 1) {
             throw new IllegalArgumentException("freeSweepAllocationThreshold: "
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
     }
 
+    boolean hasCaches() {
+        return smallSubPageDirectCaches != null || normalDirectCaches != null
+                || smallSubPageHeapCaches != null || normalHeapCaches != null;
+    }
+
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches, SizeClass sizeClass) {
+            int cacheSize, PoolArena<T> area, boolean adaptive) {
+        int numCaches = area.numSmallSubpagePools;
         if (cacheSize > 0 && numCaches > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
                 // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, sizeClass);
+                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, area.sizeIdx2size(i), adaptive);
             }
             return cache;
         } else {
@@ -133,50 +164,35 @@ final class PoolThreadCache {
     }
 
     private static <T> MemoryRegionCache<T>[] createNormalCaches(
-            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
+            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area, boolean adaptive) {
         if (cacheSize > 0 && maxCachedBufferCapacity > 0) {
             int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
 
-            @SuppressWarnings("unchecked")
-            MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
-            for (int i = 0; i < cache.length; i++) {
-                cache[i] = new NormalMemoryRegionCache<T>(cacheSize);
+            // Create as many normal caches as we have normal size classes up to the max size we want to cache.
+            List<MemoryRegionCache<T>> cache = new ArrayList<MemoryRegionCache<T>>();
+            for (int idx = area.numSmallSubpagePools; idx < area.nSizes && area.sizeIdx2size(idx) <= max; idx++) {
+                cache.add(new NormalMemoryRegionCache<T>(cacheSize, area.sizeIdx2size(idx), adaptive));
             }
-            return cache;
+            @SuppressWarnings("unchecked")
+            MemoryRegionCache<T>[] array = cache.toArray(new MemoryRegionCache[0]);
+            return array;
         } else {
             return null;
         }
     }
 
-    private static int log2(int val) {
-        int res = 0;
-        while (val > 1) {
-            val >>= 1;
-            res++;
-        }
-        return res;
-    }
-
-    /**
-     * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise 尝试从缓存中分配一个小的缓冲区。如果成功则返回true
-     */
-    boolean allocateTiny(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForTiny(area, normCapacity), buf, reqCapacity);
-    }
-
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise尝试从缓存中分配一个小缓冲区。如果成功则返回true，否则返回false
      */
-    boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForSmall(area, normCapacity), buf, reqCapacity);
+    boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int sizeIdx) {
+        return allocate(cacheForSmall(area, sizeIdx), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise尝试从缓存中分配一个小缓冲区。如果成功则返回true，否则返回false
      */
-    boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
+    boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int sizeIdx) {
+        return allocate(cacheForNormal(area, sizeIdx), buf, reqCapacity);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -185,36 +201,66 @@ final class PoolThreadCache {
             // no cache found so just return false here没有找到缓存，所以这里返回false
             return false;
         }
-        boolean allocated = cache.allocate(buf, reqCapacity);
+        if (!tryAcquireConsumer()) {
+            // Another thread trims this cache right now.
+            MISSES_UPDATER.lazySet(this, misses + 1);
+            return false;
+        }
+        boolean allocated;
+        try {
+            allocated = cache.allocate(buf, reqCapacity);
+            if (allocated) {
+                HITS_UPDATER.lazySet(this, hits + 1);
+            } else {
+                MISSES_UPDATER.lazySet(this, misses + 1);
+            }
 //        freeSweepAllocationThreshold 8192
-        if (++ allocations >= freeSweepAllocationThreshold) {
-            allocations = 0;
-            trim();
+            if (++ allocations >= freeSweepAllocationThreshold) {
+                allocations = 0;
+                trim0();
+            }
+        } finally {
+            releaseConsumer();
         }
         return allocated;
     }
 
+    private boolean tryAcquireConsumer() {
+        return !concurrentTrim || CONSUMER_UPDATER.compareAndSet(this, 0, 1);
+    }
+
+    private void acquireConsumer() {
+        while (!tryAcquireConsumer()) {
+            Thread.yield();
+        }
+    }
+
+    private void releaseConsumer() {
+        if (concurrentTrim) {
+            CONSUMER_UPDATER.lazySet(this, 0);
+        }
+    }
+
     /**
      * Add {@link PoolChunk} and {@code handle} to the cache if there is enough room.
      * Returns {@code true} if it fit into the cache {@code false} otherwise.
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     boolean add(PoolArena<?> area, PoolChunk chunk, long handle, int normCapacity, SizeClass sizeClass) {
-        MemoryRegionCache<?> cache = cache(area, normCapacity, sizeClass);
+        int sizeIdx = area.size2SizeIdx(normCapacity);
+        MemoryRegionCache<?> cache = cache(area, sizeIdx, sizeClass);
         if (cache == null) {
             return false;
         }
-        return cache.add(chunk, handle);
+        return cache.add(chunk, handle, normCapacity);
     }
 
-    private MemoryRegionCache<?> cache(PoolArena<?> area, int normCapacity, SizeClass sizeClass) {
+    private MemoryRegionCache<?> cache(PoolArena<?> area, int sizeIdx, SizeClass sizeClass) {
         switch (sizeClass) {
         case Normal:
-            return cacheForNormal(area, normCapacity);
+            return cacheForNormal(area, sizeIdx);
         case Small:
-            return cacheForSmall(area, normCapacity);
-        case Tiny:
-            return cacheForTiny(area, normCapacity);
+            return cacheForSmall(area, sizeIdx);
         default:
             throw new Error();
         }
@@ -225,12 +271,17 @@ final class PoolThreadCache {
      *  如果使用此缓存的线程即将存在并将资源释放到缓存之外，应该调用它吗
      */
     void free() {
-        int numFreed = free(tinySubPageDirectCaches) +
-                free(smallSubPageDirectCaches) +
-                free(normalDirectCaches) +
-                free(tinySubPageHeapCaches) +
-                free(smallSubPageHeapCaches) +
-                free(normalHeapCaches);
+        final int numFreed;
+        acquireConsumer();
+        try {
+            if (freed) {
+                return;
+            }
+            freed = true;
+            numFreed = freeAll();
+        } finally {
+            releaseConsumer();
+        }
 
         if (numFreed > 0 && logger.isDebugEnabled()) {
             logger.debug("Freed {} thread-local buffer(s) from thread: {}", numFreed, Thread.currentThread().getName());
@@ -245,6 +296,55 @@ final class PoolThreadCache {
         }
     }
 
+    private int freeAll() {
+        return free(smallSubPageDirectCaches) +
+                free(normalDirectCaches) +
+                free(smallSubPageHeapCaches) +
+                free(normalHeapCaches);
+    }
+
+    /**
+     * Returns {@code true} if the thread which owns this cache is still alive. Once it returned {@code false} the
+     * cache may be released from any thread via {@link #free()}.
+     */
+    boolean isThreadAlive() {
+        Thread thread = this.thread.get();
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * Called periodically from another thread. Frees all cached buffers if the owning thread did not allocate since
+     * the previous call.
+     */
+    void trimIfIdle() {
+        assert concurrentTrim;
+        long total = hits + misses;
+        if (total != lastIdleCheck) {
+            lastIdleCheck = total;
+            return;
+        }
+        int numFreed = freeCachedBuffers();
+        if (numFreed > 0 && logger.isDebugEnabled()) {
+            logger.debug("Freed {} thread-local buffer(s) of idle thread: {}", numFreed, threadName);
+        }
+    }
+
+    /**
+     * Called from another thread. Frees all cached buffers unless the owning thread is using the cache right now, and
+     * returns the number of freed buffers.
+     */
+    int freeCachedBuffers() {
+        assert concurrentTrim;
+        if (!tryAcquireConsumer()) {
+            return 0;
+        }
+        try {
+            return freed ? 0 : freeAll();
+        } finally {
+            releaseConsumer();
+        }
+    }
+
     private static int free(MemoryRegionCache<?>[] caches) {
         if (caches == null) {
             return 0;
@@ -265,17 +365,18 @@ final class PoolThreadCache {
     }
 
     void trim() {
-//        小于512的直接缓冲区缓存
-        trim(tinySubPageDirectCaches);
-//        大于521小于4096的直接缓冲区缓存
+        acquireConsumer();
+        try {
+            trim0();
+        } finally {
+            releaseConsumer();
+        }
+    }
+
+    private void trim0() {
         trim(smallSubPageDirectCaches);
-//        大于4096的直接缓冲区缓存
         trim(normalDirectCaches);
-//        小于512的堆缓冲区缓存
-        trim(tinySubPageHeapCaches);
-//        大于512小于4096的堆缓冲区缓存
         trim(smallSubPageHeapCaches);
-//        大于4096的堆缓冲区缓存
         trim(normalHeapCaches);
     }
 
@@ -296,28 +397,90 @@ final class PoolThreadCache {
         cache.trim();
     }
 
-    private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.tinyIdx(normCapacity);
-        if (area.isDirect()) {
-            return cache(tinySubPageDirectCaches, idx);
+    @Override
+    public String threadName() {
+        return threadName;
+    }
+
+    @Override
+    public long numHits() {
+        return hits;
+    }
+
+    @Override
+    public long numMisses() {
+        return misses;
+    }
+
+    @Override
+    public double hitRatio() {
+        long hits = this.hits;
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int numCachedBuffers() {
+        return numCachedBuffers(smallSubPageDirectCaches) + numCachedBuffers(normalDirectCaches) +
+                numCachedBuffers(smallSubPageHeapCaches) + numCachedBuffers(normalHeapCaches);
+    }
+
+    private static int numCachedBuffers(MemoryRegionCache<?>[] caches) {
+        if (caches == null) {
+            return 0;
+        }
+        int num = 0;
+        for (MemoryRegionCache<?> c: caches) {
+            num += c.numCached();
+        }
+        return num;
+    }
+
+    @Override
+    public long numCachedBytes() {
+        return numCachedBytes(smallSubPageDirectCaches) + numCachedBytes(normalDirectCaches) +
+                numCachedBytes(smallSubPageHeapCaches) + numCachedBytes(normalHeapCaches);
+    }
+
+    private static long numCachedBytes(MemoryRegionCache<?>[] caches) {
+        if (caches == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (MemoryRegionCache<?> c: caches) {
+            bytes += (long) c.numCached() * c.elemSize;
         }
-        return cache(tinySubPageHeapCaches, idx);
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+                .append("PoolThreadCache(")
+                .append(threadName())
+                .append(": hits: ")
+                .append(numHits())
+                .append(", misses: ")
+                .append(numMisses())
+                .append(", cachedBytes: ")
+                .append(numCachedBytes())
+                .append(')')
+                .toString();
     }
 
-    private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.smallIdx(normCapacity);
+    private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int sizeIdx) {
         if (area.isDirect()) {
-            return cache(smallSubPageDirectCaches, idx);
+            return cache(smallSubPageDirectCaches, sizeIdx);
         }
-        return cache(smallSubPageHeapCaches, idx);
+        return cache(smallSubPageHeapCaches, sizeIdx);
     }
 
-    private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int normCapacity) {
+    private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int sizeIdx) {
+        // Normal caches start after the small size classes.
+        int idx = sizeIdx - area.numSmallSubpagePools;
         if (area.isDirect()) {
-            int idx = log2(normCapacity >> numShiftsNormalDirect);
             return cache(normalDirectCaches, idx);
         }
-        int idx = log2(normCapacity >> numShiftsNormalHeap);
         return cache(normalHeapCaches, idx);
     }
 
@@ -329,11 +492,11 @@ final class PoolThreadCache {
     }
 
     /**
-     * Cache used for buffers which are backed by TINY or SMALL size.缓存用于支持较小大小的缓冲区。
+     * Cache used for buffers which are backed by SMALL size.缓存用于支持较小大小的缓冲区。
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size, SizeClass sizeClass) {
-            super(size, sizeClass);
+        SubPageMemoryRegionCache(int size, int elemSize, boolean adaptive) {
+            super(size, elemSize, SizeClass.Small, adaptive);
         }
 
         @Override
@@ -347,8 +510,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(int size, int elemSize, boolean adaptive) {
+            super(size, elemSize, SizeClass.Normal, adaptive);
         }
 
         @Override
@@ -360,14 +523,24 @@ final class PoolThreadCache {
 
     private abstract static class MemoryRegionCache<T> {
         private final int size;
+        final int elemSize;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        private final boolean adaptive;
+        // The number of entries the cache may hold right now. Equals size unless the cache is adaptive, in which
+        // case it is adjusted on every trim() within [1, size] based on the hits and misses since the last trim().
+        private volatile int limit;
         private int allocations;
+        private int misses;
 
-        MemoryRegionCache(int size, SizeClass sizeClass) {
-            this.size = MathUtil.safeFindNextPositivePowerOfTwo(size);
+        MemoryRegionCache(int size, int elemSize, SizeClass sizeClass, boolean adaptive) {
+            int initialSize = MathUtil.safeFindNextPositivePowerOfTwo(size);
+            this.size = adaptive ? initialSize * ADAPTIVE_MAX_SIZE_FACTOR : initialSize;
+            this.elemSize = elemSize;
             queue = PlatformDependent.newFixedMpscQueue(this.size);
             this.sizeClass = sizeClass;
+            this.adaptive = adaptive;
+            limit = initialSize;
         }
 
         /**
@@ -380,8 +553,11 @@ final class PoolThreadCache {
          * Add to cache if not already full.
          */
         @SuppressWarnings("unchecked")
-        public final boolean add(PoolChunk<T> chunk, long handle) {
-            Entry<T> entry = newEntry(chunk, handle);
+        public final boolean add(PoolChunk<T> chunk, long handle, int normCapacity) {
+            if (adaptive && queue.size() >= limit) {
+                return false;
+            }
+            Entry<T> entry = newEntry(chunk, handle, normCapacity);
             boolean queued = queue.offer(entry);
             if (!queued) {
                 // If it was not possible to cache the chunk, immediately recycle the entry如果无法缓存块，则立即回收该条目
@@ -397,6 +573,7 @@ final class PoolThreadCache {
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity) {
             Entry<T> entry = queue.poll();
             if (entry == null) {
+                ++ misses;
                 return false;
             }
             initBuf(entry.chunk, entry.handle, buf, reqCapacity);
@@ -435,8 +612,23 @@ final class PoolThreadCache {
          * Free up cached {@link PoolChunk}s if not allocated frequently enough.如果分配不够频繁，就释放缓存的池块。
          */
         public final void trim() {
-            int free = size - allocations;
+            int free;
+            if (adaptive) {
+                int limit = this.limit;
+                if (misses > allocations >>> 3) {
+                    // Missed more than 1/8 of the time, grow to the observed demand.
+                    limit = Math.min(size, Math.max(limit << 1, allocations + misses));
+                } else if (allocations < limit >>> 1) {
+                    // Less than half of the entries were used.
+                    limit = Math.max(1, limit >>> 1);
+                }
+                this.limit = limit;
+                free = Math.max(limit - allocations, queue.size() - limit);
+            } else {
+                free = size - allocations;
+            }
             allocations = 0;
+            misses = 0;
 
             // We not even allocated all the number that are我们甚至没有分配所有的数
             if (free > 0) {
@@ -444,22 +636,28 @@ final class PoolThreadCache {
             }
         }
 
+        int numCached() {
+            return queue.size();
+        }
+
         @SuppressWarnings({ "unchecked", "rawtypes" })
         private  void freeEntry(Entry entry) {
             PoolChunk chunk = entry.chunk;
             long handle = entry.handle;
+            int normCapacity = entry.normCapacity;
 
             // recycle now so PoolChunk can be GC'ed.现在就进行回收，这样PoolChunk就可以被GC了。
             entry.recycle();
 
 //            释放内存区域的内存块
-            chunk.arena.freeChunk(chunk, handle, sizeClass);
+            chunk.arena.freeChunk(chunk, handle, normCapacity, sizeClass);
         }
 
         static final class Entry<T> {
             final Handle<Entry<?>> recyclerHandle;
             PoolChunk<T> chunk;
             long handle = -1;
+            int normCapacity;
 
             Entry(Handle<Entry<?>> recyclerHandle) {
                 this.recyclerHandle = recyclerHandle;
@@ -468,16 +666,18 @@ final class PoolThreadCache {
             void recycle() {
                 chunk = null;
                 handle = -1;
+                normCapacity = 0;
 //                回收handler回收内存
                 recyclerHandle.recycle(this);
             }
         }
 
         @SuppressWarnings("rawtypes")
-        private static Entry newEntry(PoolChunk<?> chunk, long handle) {
+        private static Entry newEntry(PoolChunk<?> chunk, long handle, int normCapacity) {
             Entry entry = RECYCLER.get();
             entry.chunk = chunk;
             entry.handle = handle;
+            entry.normCapacity = normCapacity;
             return entry;
         }
 
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * Metrics for the thread local cache of a single thread. The counters are updated by the owning thread without
+ * synchronization, so values read from other threads may lag behind slightly.
+ */
+public interface PoolThreadCacheMetric {
+
+    /**
+     * Return the name of the thread which owns the cache.
+     */
+    String threadName();
+
+    /**
+     * Return the number of allocations which were served by the cache.
+     */
+    long numHits();
+
+    /**
+     * Return the number of allocations of a cacheable size which could not be served by the cache.
+     */
+    long numMisses();
+
+    /**
+     * Return the ratio of hits to all allocations of a cacheable size, or {@code 0} if there were none yet.
+     */
+    double hitRatio();
+
+    /**
+     * Return the number of buffers which are currently held by the cache.
+     */
+    int numCachedBuffers();
+
+    /**
+     * Return the number of bytes which are currently held by the cache.
+     */
+    long numCachedBytes();
+}
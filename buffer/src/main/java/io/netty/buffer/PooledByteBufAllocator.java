@@ -17,6 +17,7 @@
 package io.netty.buffer;
 
 import io.netty.util.NettyRuntime;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.PlatformDependent;
@@ -25,10 +26,18 @@ import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
 
@@ -38,11 +47,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     private static final int DEFAULT_PAGE_SIZE;
     private static final int DEFAULT_MAX_ORDER; // 8192 << 11 = 16 MiB per chunk
-    private static final int DEFAULT_TINY_CACHE_SIZE;
     private static final int DEFAULT_SMALL_CACHE_SIZE;
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    private static final boolean DEFAULT_ADAPTIVE_CACHE;
+    private static final long DEFAULT_MEMORY_BUDGET_SOFT_LIMIT;
+    private static final long DEFAULT_MEMORY_BUDGET_HARD_LIMIT;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
     private static final int DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT;
 
@@ -100,7 +112,6 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                                 PlatformDependent.maxDirectMemory() / defaultChunkSize / 2 / 3)));
 
         // cache sizes
-        DEFAULT_TINY_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.tinyCacheSize", 512);
         DEFAULT_SMALL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.smallCacheSize", 256);
         DEFAULT_NORMAL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.normalCacheSize", 64);
 
@@ -114,6 +125,18 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
 
+        // the interval after which the caches of threads that did not allocate in the meantime are freed, 0 disables it
+        DEFAULT_CACHE_TRIM_INTERVAL_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.cacheTrimIntervalMillis", 0));
+
+        DEFAULT_ADAPTIVE_CACHE = SystemPropertyUtil.getBoolean("io.netty.allocator.adaptiveCache", false);
+
+        // the direct memory watermarks of the memory budget in bytes, 0 disables the budget
+        DEFAULT_MEMORY_BUDGET_SOFT_LIMIT = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.memoryBudget.softLimit", 0));
+        DEFAULT_MEMORY_BUDGET_HARD_LIMIT = Math.max(DEFAULT_MEMORY_BUDGET_SOFT_LIMIT, SystemPropertyUtil.getLong(
+                "io.netty.allocator.memoryBudget.hardLimit", DEFAULT_MEMORY_BUDGET_SOFT_LIMIT));
+
         DEFAULT_USE_CACHE_FOR_ALL_THREADS = SystemPropertyUtil.getBoolean(
                 "io.netty.allocator.useCacheForAllThreads", true);
 
@@ -134,11 +157,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 logger.debug("-Dio.netty.allocator.maxOrder: {}", DEFAULT_MAX_ORDER, maxOrderFallbackCause);
             }
             logger.debug("-Dio.netty.allocator.chunkSize: {}", DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER);
-            logger.debug("-Dio.netty.allocator.tinyCacheSize: {}", DEFAULT_TINY_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.smallCacheSize: {}", DEFAULT_SMALL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.adaptiveCache: {}", DEFAULT_ADAPTIVE_CACHE);
+            logger.debug("-Dio.netty.allocator.memoryBudget.softLimit: {}", DEFAULT_MEMORY_BUDGET_SOFT_LIMIT);
+            logger.debug("-Dio.netty.allocator.memoryBudget.hardLimit: {}", DEFAULT_MEMORY_BUDGET_HARD_LIMIT);
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
         }
     }
@@ -148,9 +174,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     private final PoolArena<byte[]>[] heapArenas;
     private final PoolArena<ByteBuffer>[] directArenas;
-    private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final boolean adaptiveCache;
+    private final long cacheTrimIntervalMillis;
+    private final MemoryBudget memoryBudget;
+    // All thread caches which cache anything, used for metrics and to trim idle caches.
+    private final Set<PoolThreadCache> threadCaches =
+            Collections.newSetFromMap(PlatformDependent.<PoolThreadCache, Boolean>newConcurrentHashMap());
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
@@ -173,42 +204,122 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     /**
      * @deprecated use
-     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, int, boolean)}
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
      */
     @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder) {
         this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
-                DEFAULT_TINY_CACHE_SIZE, DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE);
+                DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE,
+                DEFAULT_USE_CACHE_FOR_ALL_THREADS, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
     /**
      * @deprecated use
-     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, int, boolean)}
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
      */
     @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
-        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize,
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize,
                 normalCacheSize, DEFAULT_USE_CACHE_FOR_ALL_THREADS, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
+     */
+    @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena,
                                   int nDirectArena, int pageSize, int maxOrder, int tinyCacheSize,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads) {
         this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
-                tinyCacheSize, smallCacheSize, normalCacheSize,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena,
+                                  int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
                 useCacheForAllThreads, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean, int)}
+     */
+    @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, DEFAULT_ADAPTIVE_CACHE,
+                DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param adaptiveCache if {@code true} the capacity of every thread local cache is adjusted to the observed hit
+     *                      and miss rates, between {@code 1} and four times the configured cache size.
+     * @param cacheTrimIntervalMillis if positive, the cached buffers of threads which did not allocate for this
+     *                                long are freed, and the caches of threads which died are released.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  boolean adaptiveCache, long cacheTrimIntervalMillis) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, adaptiveCache, cacheTrimIntervalMillis,
+                DefaultDirectChunkAllocator.INSTANCE);
+    }
+
+    /**
+     * @param directChunkAllocator provides the memory of the chunks of the direct arenas and of huge direct
+     *                             allocations.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  boolean adaptiveCache, long cacheTrimIntervalMillis,
+                                  DirectChunkAllocator directChunkAllocator) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, adaptiveCache, cacheTrimIntervalMillis,
+                directChunkAllocator, newDefaultMemoryBudget());
+    }
+
+    /**
+     * @param memoryBudget if not {@code null} the memory handed out by the direct arenas is accounted against this
+     *                     {@link MemoryBudget}, which notifies its listeners about watermark crossings. When its soft
+     *                     watermark is exceeded the buffers held by the thread local caches are freed and no buffers
+     *                     are cached until the usage dropped below it again.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  boolean adaptiveCache, long cacheTrimIntervalMillis,
+                                  DirectChunkAllocator directChunkAllocator, MemoryBudget memoryBudget) {
         super(preferDirect);
+        checkNotNull(directChunkAllocator, "directChunkAllocator");
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
-        this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
+        this.adaptiveCache = adaptiveCache;
+        this.memoryBudget = memoryBudget;
+        if (cacheTrimIntervalMillis < 0) {
+            throw new IllegalArgumentException("cacheTrimIntervalMillis: "
+                    + cacheTrimIntervalMillis + " (expected: >= 0)");
+        }
+        this.cacheTrimIntervalMillis = cacheTrimIntervalMillis;
         chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         if (nHeapArena < 0) {
@@ -238,9 +349,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
                 PoolArena.HeapArena arena = new PoolArena.HeapArena(this,
-                        pageSize, maxOrder, pageShifts, chunkSize,
+                        pageSize, pageShifts, chunkSize,
                         directMemoryCacheAlignment);
                 heapArenas[i] = arena;
+                arena.siblings(heapArenas, i);
                 metrics.add(arena);
             }
             heapArenaMetrics = Collections.unmodifiableList(metrics);
@@ -254,8 +366,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize, directMemoryCacheAlignment);
+                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, directChunkAllocator,
+                        memoryBudget);
                 directArenas[i] = arena;
+                arena.siblings(directArenas, i);
                 metrics.add(arena);
             }
             directArenaMetrics = Collections.unmodifiableList(metrics);
@@ -264,6 +378,25 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             directArenaMetrics = Collections.emptyList();
         }
         metric = new PooledByteBufAllocatorMetric(this);
+
+        if (cacheTrimIntervalMillis > 0) {
+            CacheTrimmer.schedule(this, cacheTrimIntervalMillis);
+        }
+        if (memoryBudget != null) {
+            memoryBudget.addListener(new MemoryBudgetListener() {
+                @Override
+                public void memoryBudgetChanged(MemoryBudget budget) {
+                    if (budget.isSoftLimitExceeded()) {
+                        freeThreadCaches();
+                    }
+                }
+            });
+        }
+    }
+
+    private static MemoryBudget newDefaultMemoryBudget() {
+        return DEFAULT_MEMORY_BUDGET_SOFT_LIMIT > 0 ?
+                new MemoryBudget(DEFAULT_MEMORY_BUDGET_SOFT_LIMIT, DEFAULT_MEMORY_BUDGET_HARD_LIMIT) : null;
     }
 
     @SuppressWarnings("unchecked")
@@ -332,6 +465,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         final ByteBuf buf;
         if (directArena != null) {
             buf = directArena.allocate(cache, initialCapacity, maxCapacity);
+            if (memoryBudget != null) {
+                memoryBudget.updateState();
+            }
         } else {
             buf = PlatformDependent.hasUnsafe() ?
                     UnsafeByteBufUtil.newUnsafeDirectByteBuf(this, initialCapacity, maxCapacity) :
@@ -386,10 +522,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     }
 
     /**
-     * Default tiny cache size - System Property: io.netty.allocator.tinyCacheSize - default 512
+     * Default tiny cache size - default 0
+     *
+     * @deprecated Tiny caches have been merged into small caches.
      */
+    @Deprecated
     public static int defaultTinyCacheSize() {
-        return DEFAULT_TINY_CACHE_SIZE;
+        return 0;
     }
 
     /**
@@ -418,6 +557,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return directArenas != null;
     }
 
+    /**
+     * Return the {@link MemoryBudget} the direct memory of this allocator is accounted against, or {@code null} if
+     * there is none.
+     */
+    public MemoryBudget memoryBudget() {
+        return memoryBudget;
+    }
+
     /**
      * Returns {@code true} if the calling {@link Thread} has a {@link ThreadLocal} cache for the allocated
      * buffers.如果调用线程有分配缓冲区的ThreadLocal缓存，则返回true。
@@ -449,17 +596,26 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
             Thread current = Thread.currentThread();
             if (useCacheForAllThreads || current instanceof FastThreadLocalThread) {
-                return new PoolThreadCache(
-                        heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
-                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+                PoolThreadCache cache = new PoolThreadCache(
+                        heapArena, directArena, smallCacheSize, normalCacheSize,
+                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL,
+                        adaptiveCache, cacheTrimIntervalMillis > 0 || memoryBudget != null);
+                if (cache.hasCaches()) {
+                    releaseDeadThreadCaches();
+                    threadCaches.add(cache);
+                }
+                return cache;
             }
             // No caching so just use 0 as sizes.没有缓存，所以只使用0作为大小。
-            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0, 0);
+            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0);
         }
 
         @Override
         protected void onRemoval(PoolThreadCache threadCache) {
-            threadCache.free();
+            // The cache was released already if releaseDeadThreadCaches() removed it.
+            if (threadCaches.remove(threadCache) || !threadCache.hasCaches()) {
+                threadCache.free();
+            }
         }
 
         private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
@@ -479,6 +635,108 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         }
     }
 
+    /**
+     * Releases the caches of threads which died without removing their {@link FastThreadLocal}s, which is the case
+     * for all threads but {@link FastThreadLocalThread}s.
+     */
+    private void releaseDeadThreadCaches() {
+        for (PoolThreadCache cache: threadCaches) {
+            // Only the thread which removes the cache from the set frees it.
+            if (!cache.isThreadAlive() && threadCaches.remove(cache)) {
+                cache.free();
+            }
+        }
+    }
+
+    private void freeThreadCaches() {
+        int numFreed = 0;
+        for (PoolThreadCache cache: threadCaches) {
+            numFreed += cache.freeCachedBuffers();
+        }
+        // Also give the memory which is free now back to the operating system if the chunk allocator supports it.
+        long purged = purgeDirectArenas(false);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Freed {} thread-local buffer(s) and purged {} bytes as the soft limit of the memory " +
+                    "budget was exceeded: {}", numFreed, purged, memoryBudget);
+        }
+    }
+
+    void trimIdleThreadCaches() {
+        releaseDeadThreadCaches();
+        for (PoolThreadCache cache: threadCaches) {
+            cache.trimIfIdle();
+        }
+    }
+
+    /**
+     * Return the physical memory of the free pages of all direct chunks to the operating system, so the resident
+     * memory shrinks again after a burst even though the chunks are still in use. This is only supported if the
+     * {@link DirectChunkAllocator} implements {@link DirectChunkAllocator#discard(ByteBuffer, int, int)}, purged
+     * pages are faulted in again once they are allocated the next time.
+     * <p>
+     * If {@code cacheTrimIntervalMillis} is positive this is also done periodically for the chunks which did not
+     * change since the previous run.
+     *
+     * @return the number of purged bytes
+     */
+    public long purgeFreeMemory() {
+        return purgeDirectArenas(false);
+    }
+
+    long purgeDirectArenas(boolean onlyIdle) {
+        if (directArenas == null) {
+            return 0;
+        }
+        long purged = 0;
+        for (PoolArena<ByteBuffer> arena: directArenas) {
+            purged += arena.purge(onlyIdle);
+        }
+        return purged;
+    }
+
+    /**
+     * Periodically trims the thread caches and purges the idle chunks of an allocator until the allocator is garbage
+     * collected.
+     */
+    private static final class CacheTrimmer implements Runnable {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("pooledByteBufAllocatorCacheTrimmer", true, Thread.MIN_PRIORITY));
+
+        private final WeakReference<PooledByteBufAllocator> allocatorRef;
+        private volatile ScheduledFuture<?> future;
+
+        private CacheTrimmer(PooledByteBufAllocator allocator) {
+            allocatorRef = new WeakReference<PooledByteBufAllocator>(allocator);
+        }
+
+        static void schedule(PooledByteBufAllocator allocator, long intervalMillis) {
+            CacheTrimmer trimmer = new CacheTrimmer(allocator);
+            trimmer.future = EXECUTOR.scheduleWithFixedDelay(
+                    trimmer, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            PooledByteBufAllocator allocator = allocatorRef.get();
+            if (allocator == null) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                allocator.trimIdleThreadCaches();
+                long purged = allocator.purgeDirectArenas(true);
+                if (purged > 0 && logger.isDebugEnabled()) {
+                    logger.debug("Purged {} bytes of free chunk memory.", purged);
+                }
+            } catch (Throwable t) {
+                logger.warn("Failed to trim the thread local caches.", t);
+            }
+        }
+    }
+
     @Override
     public PooledByteBufAllocatorMetric metric() {
         return metric;
@@ -547,11 +805,23 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     /**
      * Return the size of the tiny cache.返回小缓存的大小。
      *
-     * @deprecated use {@link PooledByteBufAllocatorMetric#tinyCacheSize()}.
+     * @deprecated Tiny caches have been merged into small caches.
      */
     @Deprecated
     public int tinyCacheSize() {
-        return tinyCacheSize;
+        return 0;
+    }
+
+    final boolean adaptiveCache() {
+        return adaptiveCache;
+    }
+
+    final long cacheTrimIntervalMillis() {
+        return cacheTrimIntervalMillis;
+    }
+
+    final List<PoolThreadCacheMetric> threadCacheMetrics() {
+        return new ArrayList<PoolThreadCacheMetric>(threadCaches);
     }
 
     /**
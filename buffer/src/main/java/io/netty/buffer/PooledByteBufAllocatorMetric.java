@@ -68,7 +68,10 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
 
     /**
      * Return the size of the tiny cache.返回小缓存的大小。
+     *
+     * @deprecated Tiny caches have been merged into small caches.
      */
+    @Deprecated
     public int tinyCacheSize() {
         return allocator.tinyCacheSize();
     }
@@ -87,6 +90,28 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.normalCacheSize();
     }
 
+    /**
+     * Return {@code true} if the capacity of the thread local caches adapts to their hit and miss rates.
+     */
+    public boolean adaptiveCache() {
+        return allocator.adaptiveCache();
+    }
+
+    /**
+     * Return the interval in milliseconds after which the caches of idle threads are freed, or {@code 0} if they
+     * are never freed based on time.
+     */
+    public long cacheTrimIntervalMillis() {
+        return allocator.cacheTrimIntervalMillis();
+    }
+
+    /**
+     * Return a snapshot of the {@link PoolThreadCacheMetric}s of all threads which currently cache buffers.
+     */
+    public List<PoolThreadCacheMetric> threadCaches() {
+        return allocator.threadCacheMetrics();
+    }
+
     /**
      * Return the chunk size for an arena.
      */
@@ -112,9 +137,9 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
                 .append("; usedDirectMemory: ").append(usedDirectMemory())
                 .append("; numHeapArenas: ").append(numHeapArenas())
                 .append("; numDirectArenas: ").append(numDirectArenas())
-                .append("; tinyCacheSize: ").append(tinyCacheSize())
                 .append("; smallCacheSize: ").append(smallCacheSize())
                 .append("; normalCacheSize: ").append(normalCacheSize())
+                .append("; adaptiveCache: ").append(adaptiveCache())
                 .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
                 .append("; chunkSize: ").append(chunkSize()).append(')');
         return sb.toString();
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * Size classes modeled after
+ * <a href="http://people.freebsd.org/~jasone/jemalloc/bsdcan2006/jemalloc.pdf">jemalloc</a>.
+ * <p>
+ * The first group holds the sizes {@code 16, 32, 48, 64}. Every following group doubles the size of the previous one
+ * and is split into 4 equally spaced size classes:
+ * <pre>
+ *   16, 32, 48, 64,
+ *   80, 96, 112, 128,
+ *   160, 192, 224, 256,
+ *   320, 384, 448, 512,
+ *   ...
+ *   10k, 12k, 14k, 16k,
+ *   20k, 24k, 28k, 32k,
+ *   ...
+ *   chunkSize
+ * </pre>
+ * So a request is never rounded up by more than 25%, while a power of two layout wastes up to 50%.
+ * <p>
+ * Size classes smaller than {@code pageSize * 4} are <em>small</em> and served from a {@link PoolSubpage}, which is a
+ * run of pages split into elements of the same size. All other size classes are multiples of the page size and are
+ * served by a run of pages. Size classes which are a multiple of the page size are also numbered separately as page
+ * size classes, which {@link PoolChunk} uses to bucket its free runs.
+ */
+abstract class SizeClasses implements SizeClassesMetric {
+
+    static final int LOG2_QUANTUM = 4;
+
+    private static final int LOG2_SIZE_CLASS_GROUP = 2;
+    private static final int LOG2_MAX_LOOKUP_SIZE = 12;
+
+    final int pageSize;
+    final int pageShifts;
+    final int chunkSize;
+    final int directMemoryCacheAlignment;
+    final int directMemoryCacheAlignmentMask;
+
+    /** Number of size classes, the largest is {@link #chunkSize}. */
+    final int nSizes;
+    /** Number of small size classes, which are served from subpages. */
+    final int nSubpages;
+    /** Number of size classes which are a multiple of {@link #pageSize}. */
+    final int nPSizes;
+    final int smallMaxSizeIdx;
+
+    private final int[] sizeIdx2sizeTab;
+    private final int[] pageIdx2sizeTab;
+    // Lookup table for sizes up to lookupMaxSize, indexed by (size - 1) >> LOG2_QUANTUM.
+    private final int[] size2idxTab;
+    private final int lookupMaxSize;
+
+    protected SizeClasses(int pageSize, int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
+        assert Integer.bitCount(chunkSize) == 1 && chunkSize >= pageSize : "chunkSize: " + chunkSize;
+        this.pageSize = pageSize;
+        this.pageShifts = pageShifts;
+        this.chunkSize = chunkSize;
+        this.directMemoryCacheAlignment = directMemoryCacheAlignment;
+        directMemoryCacheAlignmentMask = directMemoryCacheAlignment - 1;
+
+        int[] sizes = new int[log2(chunkSize) - LOG2_QUANTUM + 1 << LOG2_SIZE_CLASS_GROUP];
+        int n = 0;
+        int groupSize = 1 << LOG2_SIZE_CLASS_GROUP;
+        for (int nDelta = 1; nDelta <= groupSize; nDelta++) {
+            sizes[n++] = nDelta << LOG2_QUANTUM;
+        }
+        for (int log2Group = LOG2_QUANTUM + LOG2_SIZE_CLASS_GROUP; sizes[n - 1] < chunkSize; log2Group++) {
+            int log2Delta = log2Group - LOG2_SIZE_CLASS_GROUP;
+            for (int nDelta = 1; nDelta <= groupSize && sizes[n - 1] < chunkSize; nDelta++) {
+                sizes[n++] = (1 << log2Group) + (nDelta << log2Delta);
+            }
+        }
+        assert sizes[n - 1] == chunkSize;
+
+        nSizes = n;
+        sizeIdx2sizeTab = new int[nSizes];
+        System.arraycopy(sizes, 0, sizeIdx2sizeTab, 0, nSizes);
+
+        int subpages = 0;
+        int pSizes = 0;
+        for (int size : sizeIdx2sizeTab) {
+            if (size < pageSize << LOG2_SIZE_CLASS_GROUP) {
+                subpages++;
+            }
+            if ((size & pageSize - 1) == 0) {
+                pSizes++;
+            }
+        }
+        nSubpages = subpages;
+        smallMaxSizeIdx = nSubpages - 1;
+        nPSizes = pSizes;
+
+        pageIdx2sizeTab = new int[nPSizes];
+        int pageIdx = 0;
+        for (int size : sizeIdx2sizeTab) {
+            if ((size & pageSize - 1) == 0) {
+                pageIdx2sizeTab[pageIdx++] = size;
+            }
+        }
+
+        lookupMaxSize = Math.min(1 << LOG2_MAX_LOOKUP_SIZE, chunkSize);
+        size2idxTab = new int[lookupMaxSize >> LOG2_QUANTUM];
+        int sizeIdx = 0;
+        for (int i = 0; i < size2idxTab.length; i++) {
+            int size = i + 1 << LOG2_QUANTUM;
+            while (sizeIdx2sizeTab[sizeIdx] < size) {
+                sizeIdx++;
+            }
+            size2idxTab[i] = sizeIdx;
+        }
+    }
+
+    @Override
+    public int numSizeClasses() {
+        return nSizes;
+    }
+
+    @Override
+    public int sizeIdx2size(int sizeIdx) {
+        return sizeIdx2sizeTab[sizeIdx];
+    }
+
+    @Override
+    public int pageIdx2size(int pageIdx) {
+        return pageIdx2sizeTab[pageIdx];
+    }
+
+    @Override
+    public int size2SizeIdx(int size) {
+        if (size == 0) {
+            // Even an empty buffer occupies the smallest size class, which must be aligned as well.
+            size = 1;
+        }
+        if (size > chunkSize) {
+            return nSizes;
+        }
+        if (directMemoryCacheAlignment > 0) {
+            size = alignSize(size);
+        }
+        if (size <= lookupMaxSize) {
+            return size2idxTab[size - 1 >> LOG2_QUANTUM];
+        }
+        return sizeToIdx(size, LOG2_QUANTUM);
+    }
+
+    @Override
+    public int pages2pageIdx(int pages) {
+        return sizeToIdx(pages << pageShifts, pageShifts);
+    }
+
+    @Override
+    public int pages2pageIdxFloor(int pages) {
+        int size = pages << pageShifts;
+        int pageIdx = sizeToIdx(size, pageShifts);
+        if (pageIdx2sizeTab[pageIdx] > size) {
+            pageIdx--;
+        }
+        return pageIdx;
+    }
+
+    @Override
+    public int normalizeSize(int size) {
+        if (size == 0) {
+            size = 1;
+        }
+        if (directMemoryCacheAlignment > 0) {
+            size = alignSize(size);
+        }
+        if (size > chunkSize) {
+            return size;
+        }
+        return sizeIdx2sizeTab[size2SizeIdx(size)];
+    }
+
+    int alignSize(int size) {
+        int delta = size & directMemoryCacheAlignmentMask;
+        return delta == 0 ? size : size + directMemoryCacheAlignment - delta;
+    }
+
+    /**
+     * Computes the index of the smallest size class which can hold {@code size}, for the sequence of size classes
+     * which starts with {@code 1 << log2Quantum}. Used for the byte size classes and the page size classes, which
+     * follow the same pattern.
+     */
+    private static int sizeToIdx(int size, int log2Quantum) {
+        // x is the log2 of size rounded up to the next power of two.
+        int x = log2((size << 1) - 1);
+        boolean firstGroup = x < LOG2_SIZE_CLASS_GROUP + log2Quantum + 1;
+        int group = firstGroup ? 0 : x - LOG2_SIZE_CLASS_GROUP - log2Quantum << LOG2_SIZE_CLASS_GROUP;
+        int log2Delta = firstGroup ? log2Quantum : x - LOG2_SIZE_CLASS_GROUP - 1;
+        int mod = size - 1 >> log2Delta & (1 << LOG2_SIZE_CLASS_GROUP) - 1;
+        return group + mod;
+    }
+
+    private static int log2(int val) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(val);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * Expose the size classes of an arena. Every allocation up to the chunk size is rounded up to the next size class.
+ */
+public interface SizeClassesMetric {
+
+    /**
+     * Returns the number of size classes. The largest size class is the chunk size.
+     */
+    int numSizeClasses();
+
+    /**
+     * Returns the size of the size class with the given index.
+     *
+     * @return size
+     */
+    int sizeIdx2size(int sizeIdx);
+
+    /**
+     * Returns the size of the page size class with the given index. Page size classes are the size classes which are
+     * a multiple of the page size.
+     *
+     * @return size which is a multiple of the page size.
+     */
+    int pageIdx2size(int pageIdx);
+
+    /**
+     * Normalizes the request size up to the nearest size class.
+     *
+     * @param size request size
+     *
+     * @return sizeIdx of the size class, or {@link #numSizeClasses()} if the size is larger than the chunk size.
+     */
+    int size2SizeIdx(int size);
+
+    /**
+     * Normalizes the number of pages up to the nearest page size class.
+     *
+     * @param pages number of pages
+     *
+     * @return pageIdx of the page size class
+     */
+    int pages2pageIdx(int pages);
+
+    /**
+     * Normalizes the number of pages down to the nearest page size class.
+     *
+     * @param pages number of pages
+     *
+     * @return pageIdx of the page size class
+     */
+    int pages2pageIdxFloor(int pages);
+
+    /**
+     * Normalizes the usable size that would result from allocating an object with the specified size.
+     *
+     * @param size request size
+     *
+     * @return normalized size
+     */
+    int normalizeSize(int size);
+}
@@ -1116,6 +1116,93 @@ public abstract class AbstractCompositeByteBufTest extends AbstractByteBufTest {
         assertEquals(0, buffer.refCnt());
     }
 
+    @Test
+    public void testAddComponentsInMiddle() {
+        CompositeByteBuf cbuf = compositeBuffer();
+        cbuf.addComponents(true, wrappedBuffer(new byte[] { 1 }), wrappedBuffer(new byte[] { 5 }));
+        cbuf.addComponents(1, wrappedBuffer(new byte[] { 2, 3 }), EMPTY_BUFFER, wrappedBuffer(new byte[] { 4 }));
+        cbuf.writerIndex(cbuf.capacity());
+
+        assertEquals(5, cbuf.numComponents());
+        assertEquals(5, cbuf.readableBytes());
+        assertEquals(0, cbuf.toByteIndex(0));
+        assertEquals(1, cbuf.toByteIndex(1));
+        assertEquals(3, cbuf.toByteIndex(2));
+        assertEquals(3, cbuf.toByteIndex(3));
+        assertEquals(4, cbuf.toByteIndex(4));
+        assertEquals(3, cbuf.toComponentIndex(3));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, cbuf.getByte(i));
+        }
+        cbuf.release();
+    }
+
+    @Test
+    public void testAddComponentsStopsAtNull() {
+        ByteBuf buf1 = buffer().writeByte(1);
+        ByteBuf buf2 = buffer().writeByte(2);
+        ByteBuf buf3 = buffer().writeByte(3);
+        CompositeByteBuf cbuf = compositeBuffer();
+        cbuf.addComponent(true, buf1);
+        cbuf.addComponents(true, buf2, null, buf3);
+
+        assertEquals(2, cbuf.numComponents());
+        assertEquals(2, cbuf.readableBytes());
+        assertEquals(0, buf3.refCnt());
+        cbuf.release();
+        assertEquals(0, buf1.refCnt());
+        assertEquals(0, buf2.refCnt());
+    }
+
+    @Test
+    public void testComponentStartsAtReaderIndex() {
+        ByteBuf buf = buffer(8).writeBytes(new byte[] { 1, 2, 3, 4, 5, 6 });
+        buf.readerIndex(2);
+        CompositeByteBuf cbuf = compositeBuffer();
+        cbuf.addComponent(true, wrappedBuffer(new byte[] { 0 }));
+        cbuf.addComponent(true, buf);
+
+        assertEquals(5, cbuf.readableBytes());
+        assertEquals(3, cbuf.getByte(1));
+        assertEquals(0x03040506, cbuf.getInt(1));
+        ByteBuf component = cbuf.internalComponent(1);
+        assertEquals(4, component.readableBytes());
+        assertEquals(3, component.getByte(0));
+        assertSame(component, cbuf.internalComponentAtOffset(4));
+
+        cbuf.readerIndex(2);
+        cbuf.discardReadBytes();
+        assertEquals(3, cbuf.readableBytes());
+        assertEquals(4, cbuf.getByte(0));
+        cbuf.capacity(2);
+        assertEquals(2, cbuf.readableBytes());
+        assertEquals(0x0405, cbuf.getShort(0));
+        cbuf.release();
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testNioBuffersWithNestedComposite() {
+        CompositeByteBuf nested = compositeBuffer();
+        nested.addComponents(true, wrappedBuffer(new byte[] { 2 }), wrappedBuffer(new byte[] { 3, 4 }));
+        CompositeByteBuf cbuf = compositeBuffer();
+        cbuf.addComponents(true, wrappedBuffer(new byte[] { 1 }), nested, wrappedBuffer(new byte[] { 5 }));
+
+        ByteBuffer[] buffers = cbuf.nioBuffers();
+        assertEquals(4, buffers.length);
+        ByteBuffer merged = ByteBuffer.allocate(5);
+        for (ByteBuffer b: buffers) {
+            merged.put(b);
+        }
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, merged.array());
+
+        buffers = cbuf.nioBuffers(2, 2);
+        assertEquals(1, buffers.length);
+        assertEquals(3, buffers[0].get());
+        assertEquals(4, buffers[0].get());
+        cbuf.release();
+    }
+
     @Test
     public void testAllocatorIsSameWhenCopy() {
         testAllocatorIsSameWhenCopy(false);
@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.AsciiString;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
@@ -134,6 +135,84 @@ public class ByteBufUtilTest {
                 -1));
     }
 
+    @Test
+    public void equalsWordAtATime() {
+        byte[] bytes = new byte[67];
+        new Random().nextBytes(bytes);
+        ByteBuf heap = Unpooled.wrappedBuffer(bytes);
+        ByteBuf direct = Unpooled.directBuffer(bytes.length + 3).writerIndex(3).writeBytes(bytes);
+        ByteBuf swapped = Unpooled.directBuffer(bytes.length).order(ByteOrder.LITTLE_ENDIAN).writeBytes(bytes);
+        try {
+            for (int length = 0; length <= bytes.length; length++) {
+                assertTrue(ByteBufUtil.equals(heap, 0, direct, 3, length));
+                assertTrue(ByteBufUtil.equals(direct, 3, swapped, 0, length));
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                direct.setByte(3 + i, bytes[i] + 1);
+                assertFalse(ByteBufUtil.equals(heap, 0, direct, 3, bytes.length));
+                assertTrue(ByteBufUtil.equals(heap, 0, direct, 3, i));
+                direct.setByte(3 + i, bytes[i]);
+            }
+        } finally {
+            direct.release();
+            swapped.release();
+        }
+    }
+
+    @Test
+    public void indexOfWordAtATime() {
+        testIndexOfWordAtATime(Unpooled.buffer(67));
+        testIndexOfWordAtATime(Unpooled.directBuffer(67));
+        testIndexOfWordAtATime(Unpooled.wrappedBuffer(new byte[70]).slice(3, 67));
+        testIndexOfWordAtATime(Unpooled.wrappedBuffer(Unpooled.buffer(67).writerIndex(67)));
+    }
+
+    private static void testIndexOfWordAtATime(ByteBuf buffer) {
+        try {
+            int capacity = buffer.capacity();
+            buffer.setZero(0, capacity);
+            for (int i = 0; i < capacity; i++) {
+                buffer.setByte(i, '\n');
+                for (int from = 0; from <= i; from++) {
+                    assertEquals(i, ByteBufUtil.indexOf(buffer, from, capacity, (byte) '\n'));
+                    assertEquals(i, buffer.forEachByte(from, capacity - from, ByteProcessor.FIND_CRLF));
+                }
+                assertEquals(-1, ByteBufUtil.indexOf(buffer, i + 1, capacity, (byte) '\n'));
+                assertEquals(-1, ByteBufUtil.indexOf(buffer, 0, i, (byte) '\n'));
+                buffer.setByte(i, '\r');
+                assertEquals(i, buffer.forEachByte(0, capacity, ByteProcessor.FIND_CRLF));
+                assertEquals(i, buffer.forEachByte(0, capacity, ByteProcessor.FIND_CR));
+                assertEquals(-1, buffer.forEachByte(0, capacity, ByteProcessor.FIND_LF));
+                // Bytes with the high bit set must not be mistaken for a match.
+                buffer.setByte(i, 0x80 | '\n');
+                assertEquals(-1, buffer.forEachByte(0, capacity, ByteProcessor.FIND_CRLF));
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void indexOfNeedle() {
+        ByteBuf haystack = Unpooled.copiedBuffer("abcabdabcabcabe-abcabcabe", CharsetUtil.US_ASCII);
+        ByteBuf needle = Unpooled.copiedBuffer("abcabe", CharsetUtil.US_ASCII);
+        ByteBuf missing = Unpooled.copiedBuffer("abcabf", CharsetUtil.US_ASCII);
+        try {
+            assertEquals(9, ByteBufUtil.indexOf(needle, haystack));
+            assertEquals(-1, ByteBufUtil.indexOf(missing, haystack));
+            assertEquals(0, ByteBufUtil.indexOf(Unpooled.EMPTY_BUFFER, haystack));
+            assertEquals(-1, ByteBufUtil.indexOf(haystack, needle));
+            haystack.readerIndex(10);
+            assertEquals(19, ByteBufUtil.indexOf(needle, haystack));
+            haystack.writerIndex(24);
+            assertEquals(-1, ByteBufUtil.indexOf(needle, haystack));
+        } finally {
+            haystack.release();
+            needle.release();
+            missing.release();
+        }
+    }
+
     @SuppressWarnings("deprecation")
     @Test
     public void writeShortBE() {
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryBudgetTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHardLimitBelowSoftLimit() {
+        new MemoryBudget(2, 1);
+    }
+
+    @Test
+    public void testWatermarkCrossings() {
+        MemoryBudget budget = new MemoryBudget(100, 200);
+        final AtomicInteger notifications = new AtomicInteger();
+        budget.addListener(new MemoryBudgetListener() {
+            @Override
+            public void memoryBudgetChanged(MemoryBudget budget) {
+                notifications.incrementAndGet();
+            }
+        });
+
+        budget.allocated(100);
+        budget.updateState();
+        assertFalse(budget.isSoftLimitExceeded());
+        assertEquals(0, notifications.get());
+
+        budget.allocated(1);
+        // Listeners are only notified by updateState().
+        assertEquals(0, notifications.get());
+        budget.updateState();
+        assertTrue(budget.isSoftLimitExceeded());
+        assertFalse(budget.isHardLimitExceeded());
+        assertEquals(1, notifications.get());
+
+        budget.allocated(100);
+        budget.updateState();
+        assertTrue(budget.isHardLimitExceeded());
+        assertEquals(2, notifications.get());
+
+        budget.released(201);
+        budget.updateState();
+        assertFalse(budget.isSoftLimitExceeded());
+        assertFalse(budget.isHardLimitExceeded());
+        assertEquals(3, notifications.get());
+        assertEquals(0, budget.usedMemory());
+    }
+
+    @Test
+    public void testAllocatorAccountsHandedOutMemory() {
+        MemoryBudget budget = new MemoryBudget(1, Long.MAX_VALUE);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0,
+                false, 0, DefaultDirectChunkAllocator.INSTANCE, budget);
+        int chunkSize = allocator.metric().chunkSize();
+
+        ByteBuf normal = allocator.directBuffer(1024);
+        assertEquals(1024, budget.usedMemory());
+        assertTrue(budget.isSoftLimitExceeded());
+
+        ByteBuf huge = allocator.directBuffer(chunkSize + 1);
+        assertEquals(chunkSize + 1025L, budget.usedMemory());
+
+        huge.release();
+        normal.release();
+        // The chunk of the normal buffer is still allocated but does not count anymore.
+        assertEquals(0, budget.usedMemory());
+        assertFalse(budget.isSoftLimitExceeded());
+    }
+
+    @Test
+    public void testThreadCachesAreFreedWhenSoftLimitIsExceeded() {
+        MemoryBudget budget = new MemoryBudget(4096, Long.MAX_VALUE);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 256, 64, true, 0,
+                false, 0, DefaultDirectChunkAllocator.INSTANCE, budget);
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+
+        allocator.directBuffer(1024).release();
+        assertFalse(budget.isSoftLimitExceeded());
+        // The released buffer is held by the thread cache and so still counts as used.
+        assertEquals(1, arena.numActiveAllocations());
+        assertEquals(1024, budget.usedMemory());
+
+        ByteBuf buf = allocator.directBuffer(8192);
+        assertTrue(budget.isSoftLimitExceeded());
+        // The cached buffer was freed when the soft limit was exceeded.
+        assertEquals(1, arena.numActiveAllocations());
+        assertEquals(8192, budget.usedMemory());
+
+        // Buffers are not cached while the soft limit is exceeded, so releasing everything drops the usage to 0.
+        buf.release();
+        assertFalse(budget.isSoftLimitExceeded());
+        assertEquals(0, arena.numActiveAllocations());
+        assertEquals(0, budget.usedMemory());
+    }
+}
@@ -20,29 +20,117 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PoolArenaTest {
 
     @Test
     public void testNormalizeCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, 0);
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 13, 16777216, 0);
         int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 16, 512, 1024, 1024, 2048};
+        int[] expectedResult = {16, 16, 512, 1024, 1024, 1280};
         for (int i = 0; i < reqCapacities.length; i ++) {
-            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+            Assert.assertEquals(expectedResult[i], arena.sizeIdx2size(arena.size2SizeIdx(reqCapacities[i])));
         }
     }
 
     @Test
     public void testNormalizeAlignedCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, 64);
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 13, 16777216, 64);
         int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 64, 512, 1024, 1024, 2048};
+        int[] expectedResult = {64, 64, 512, 1024, 1024, 1280};
         for (int i = 0; i < reqCapacities.length; i ++) {
-            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+            Assert.assertEquals(expectedResult[i], arena.normalizeSize(reqCapacities[i]));
         }
     }
 
+    @Test
+    public void testSize2SizeIdx() {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 13, 16777216, 0);
+        Assert.assertEquals(16777216, arena.sizeIdx2size(arena.numSizeClasses() - 1));
+        for (int sz = 1; sz <= arena.chunkSize; sz = sz < 65536 ? sz + 1 : sz + 997) {
+            int sizeIdx = arena.size2SizeIdx(sz);
+            Assert.assertTrue(sz <= arena.sizeIdx2size(sizeIdx));
+            if (sizeIdx > 0) {
+                Assert.assertTrue(sz > arena.sizeIdx2size(sizeIdx - 1));
+            }
+        }
+        Assert.assertEquals(arena.numSizeClasses(), arena.size2SizeIdx(arena.chunkSize + 1));
+    }
+
+    @Test
+    public void testPages2PageIdx() {
+        int pageShifts = 13;
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, pageShifts, 16777216, 0);
+        int maxPages = arena.chunkSize >> pageShifts;
+        for (int pages = 1; pages <= maxPages; pages++) {
+            int pageIdxFloor = arena.pages2pageIdxFloor(pages);
+            Assert.assertTrue(pages << pageShifts >= arena.pageIdx2size(pageIdxFloor));
+            if (pageIdxFloor + 1 < arena.nPSizes) {
+                Assert.assertTrue(pages << pageShifts < arena.pageIdx2size(pageIdxFloor + 1));
+            }
+
+            int pageIdx = arena.pages2pageIdx(pages);
+            Assert.assertTrue(pages << pageShifts <= arena.pageIdx2size(pageIdx));
+            if (pageIdx > 0) {
+                Assert.assertTrue(pages << pageShifts > arena.pageIdx2size(pageIdx - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testSmallSizeClassesShareSubpage() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true);
+        // 80 and 96 bytes were both rounded up to 128 bytes before, now they have their own size classes.
+        ByteBuf b1 = allocator.directBuffer(80);
+        ByteBuf b2 = allocator.directBuffer(96);
+        Assert.assertEquals(80, ((PooledByteBuf<?>) b1).maxLength);
+        Assert.assertEquals(96, ((PooledByteBuf<?>) b2).maxLength);
+
+        // A 9000 bytes buffer is served from a subpage instead of a 16k run.
+        ByteBuf b3 = allocator.directBuffer(9000);
+        Assert.assertEquals(10240, ((PooledByteBuf<?>) b3).maxLength);
+
+        List<PoolSubpageMetric> subpages = allocator.directArenas().get(0).smallSubpages();
+        Assert.assertEquals(3, subpages.size());
+
+        b1.release();
+        b2.release();
+        b3.release();
+    }
+
+    @Test
+    public void testSizeClassMetrics() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true);
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        ByteBuf b1 = allocator.directBuffer(100);
+        ByteBuf b2 = allocator.directBuffer(100);
+        ByteBuf b3 = allocator.directBuffer(40000);
+
+        List<PoolSizeClassMetric> sizeClasses = metric.sizeClasses();
+        Assert.assertEquals(metric.numSizeClasses(), sizeClasses.size());
+
+        PoolSizeClassMetric small = sizeClasses.get(metric.size2SizeIdx(100));
+        Assert.assertEquals(112, small.size());
+        Assert.assertTrue(small.isSubpage());
+        Assert.assertEquals(2, small.numAllocations());
+        Assert.assertEquals(2, small.numActiveAllocations());
+
+        PoolSizeClassMetric normal = sizeClasses.get(metric.size2SizeIdx(40000));
+        Assert.assertEquals(40960, normal.size());
+        Assert.assertFalse(normal.isSubpage());
+        Assert.assertEquals(1, normal.numActiveAllocations());
+
+        b1.release();
+        b2.release();
+        b3.release();
+        Assert.assertEquals(2, small.numDeallocations());
+        Assert.assertEquals(0, small.numActiveAllocations());
+        Assert.assertEquals(0, normal.numActiveAllocations());
+    }
+
     @Test
     public final void testAllocationCounter() {
         final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
@@ -51,18 +139,17 @@ public class PoolArenaTest {
                 1,      // nDirectArena
                 8192,   // pageSize
                 11,     // maxOrder
-                0,      // tinyCacheSize
                 0,      // smallCacheSize
                 0,      // normalCacheSize
                 true    // useCacheForAllThreads
                 );
 
-        // create tiny buffer
+        // create small buffer
         final ByteBuf b1 = allocator.directBuffer(24);
         // create small buffer
         final ByteBuf b2 = allocator.directBuffer(800);
         // create normal buffer
-        final ByteBuf b3 = allocator.directBuffer(8192 * 2);
+        final ByteBuf b3 = allocator.directBuffer(8192 * 4);
 
         Assert.assertNotNull(b1);
         Assert.assertNotNull(b2);
@@ -80,11 +167,82 @@ public class PoolArenaTest {
         Assert.assertEquals(3, metric.numDeallocations());
         Assert.assertEquals(3, metric.numAllocations());
 
-        Assert.assertEquals(1, metric.numTinyDeallocations());
-        Assert.assertEquals(1, metric.numTinyAllocations());
-        Assert.assertEquals(1, metric.numSmallDeallocations());
-        Assert.assertEquals(1, metric.numSmallAllocations());
+        Assert.assertEquals(2, metric.numSmallDeallocations());
+        Assert.assertEquals(2, metric.numSmallAllocations());
         Assert.assertEquals(1, metric.numNormalDeallocations());
         Assert.assertEquals(1, metric.numNormalAllocations());
     }
+
+    @Test(timeout = 5000)
+    public void testFreeIsDeferredWhileArenaIsLocked() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true);
+        @SuppressWarnings("unchecked")
+        final PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) allocator.directArenas().get(0);
+        final ByteBuf buffer = allocator.directBuffer(8192 * 4);
+
+        arena.lock();
+        try {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    buffer.release();
+                }
+            });
+            thread.start();
+            // Must not block on the lock we hold.
+            thread.join();
+            Assert.assertEquals(1, arena.numDeferredFrees());
+            Assert.assertEquals(0, arena.numNormalDeallocations());
+        } finally {
+            arena.unlock();
+        }
+
+        // The free was applied when the lock was released.
+        Assert.assertEquals(1, arena.numNormalDeallocations());
+        Assert.assertEquals(0, arena.numActiveAllocations());
+    }
+
+    @Test(timeout = 5000)
+    public void testAllocationSpillsToOtherArenaWhileArenaIsLocked() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 2, 8192, 11, 0, 0, true);
+        final CountDownLatch bound = new CountDownLatch(1);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final AtomicReference<PoolArena<?>> firstArena = new AtomicReference<PoolArena<?>>();
+        final AtomicReference<PoolArena<?>> secondArena = new AtomicReference<PoolArena<?>>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                PooledByteBuf<?> first = (PooledByteBuf<?>) allocator.directBuffer(8192 * 4);
+                firstArena.set(first.chunk.arena);
+                bound.countDown();
+                try {
+                    locked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                PooledByteBuf<?> second = (PooledByteBuf<?>) allocator.directBuffer(8192 * 4);
+                secondArena.set(second.chunk.arena);
+                first.release();
+                second.release();
+            }
+        });
+        thread.start();
+        bound.await();
+
+        PoolArena<?> arena = firstArena.get();
+        arena.lock();
+        try {
+            locked.countDown();
+            thread.join();
+        } finally {
+            arena.unlock();
+        }
+
+        Assert.assertNotNull(secondArena.get());
+        Assert.assertNotSame(arena, secondArena.get());
+        Assert.assertEquals(1, arena.numSpilledAllocations());
+        Assert.assertEquals(0, arena.numActiveAllocations());
+        Assert.assertEquals(0, secondArena.get().numActiveAllocations());
+    }
 }
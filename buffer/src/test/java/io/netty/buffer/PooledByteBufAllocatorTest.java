@@ -23,12 +23,15 @@ import io.netty.util.internal.SystemPropertyUtil;
 import org.junit.Assume;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
@@ -87,7 +90,6 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
                 /*nDirectArena=*/ 1,
                 /*pageSize=*/8192,
                 /*maxOrder=*/ 11,
-                /*tinyCacheSize=*/ 0,
                 /*smallCacheSize=*/ 0,
                 /*normalCacheSize=*/ 0,
                 /*useCacheForAllThreads=*/ false);
@@ -184,7 +186,7 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         ByteBuf buffer = allocator.heapBuffer(1);
         try {
             PoolArenaMetric metric = allocator.metric().heapArenas().get(0);
-            PoolSubpageMetric subpageMetric = metric.tinySubpages().get(0);
+            PoolSubpageMetric subpageMetric = metric.smallSubpages().get(0);
             assertEquals(1, subpageMetric.maxNumElements() - subpageMetric.numAvailable());
         } finally {
             buffer.release();
@@ -408,6 +410,198 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         void destroy() throws InterruptedException;
     }
 
+    @Test
+    public void testThreadCacheHitRatioMetric() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 256, 64, true);
+        // The first allocation misses the cache, the release puts the memory into it.
+        allocator.directBuffer(1024).release();
+        allocator.directBuffer(1024).release();
+
+        PoolThreadCacheMetric metric = threadCacheMetric(allocator, Thread.currentThread());
+        assertNotNull(metric);
+        assertEquals(1, metric.numHits());
+        assertEquals(1, metric.numMisses());
+        assertEquals(0.5, metric.hitRatio(), 0);
+        assertEquals(1, metric.numCachedBuffers());
+        assertEquals(1024, metric.numCachedBytes());
+    }
+
+    @Test
+    public void testAdaptiveCacheGrowsOnMisses() {
+        int normalCacheSize = 2;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, normalCacheSize, true, 0, true, 0);
+        ByteBuf[] buffers = new ByteBuf[normalCacheSize * PoolThreadCache.ADAPTIVE_MAX_SIZE_FACTOR];
+        // Run long enough to trim the cache a few times.
+        for (int i = 0; i < 4 * 8192 / buffers.length; i++) {
+            for (int j = 0; j < buffers.length; j++) {
+                buffers[j] = allocator.directBuffer(32 * 1024);
+            }
+            for (ByteBuf buffer: buffers) {
+                buffer.release();
+            }
+        }
+
+        PoolThreadCacheMetric metric = threadCacheMetric(allocator, Thread.currentThread());
+        assertNotNull(metric);
+        assertEquals(buffers.length, metric.numCachedBuffers());
+        // A cache which is limited to normalCacheSize entries hits for at most a quarter of the allocations.
+        assertTrue(metric.hitRatio() > 0.5);
+    }
+
+    @Test(timeout = 5000)
+    public void testIdleThreadCacheIsTrimmed() throws InterruptedException {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 256, 64, true, 0, false, 10);
+        final CountDownLatch allocated = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread thread = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                allocator.directBuffer(1024).release();
+                allocated.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        allocated.await();
+
+        PoolThreadCacheMetric metric = threadCacheMetric(allocator, thread);
+        assertNotNull(metric);
+        while (metric.numCachedBuffers() != 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, allocator.metric().directArenas().get(0).numThreadCaches());
+        done.countDown();
+        thread.join();
+    }
+
+    @Test(timeout = 5000)
+    public void testCacheOfDeadThreadIsReleased() throws InterruptedException {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 256, 64, true, 0, false, 10);
+        // A plain Thread does not remove its FastThreadLocals when it terminates.
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                allocator.directBuffer(1024).release();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        while (threadCacheMetric(allocator, thread) != null || arena.numThreadCaches() != 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, arena.numActiveAllocations());
+    }
+
+    private static PoolThreadCacheMetric threadCacheMetric(PooledByteBufAllocator allocator, Thread thread) {
+        for (PoolThreadCacheMetric metric: allocator.metric().threadCaches()) {
+            if (metric.threadName().equals(thread.getName())) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testDirectChunkAllocator() {
+        final AtomicInteger allocated = new AtomicInteger();
+        final AtomicInteger released = new AtomicInteger();
+        DirectChunkAllocator chunkAllocator = new DirectChunkAllocator() {
+            @Override
+            public ByteBuffer allocate(int capacity) {
+                allocated.incrementAndGet();
+                return ByteBuffer.allocateDirect(capacity);
+            }
+
+            @Override
+            public void release(ByteBuffer memory) {
+                released.incrementAndGet();
+                PlatformDependent.freeDirectBuffer(memory);
+            }
+
+            @Override
+            public boolean discard(ByteBuffer memory, int offset, int length) {
+                return false;
+            }
+        };
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0,
+                false, 0, chunkAllocator);
+        int chunkSize = allocator.metric().chunkSize();
+
+        ByteBuf huge = allocator.directBuffer(chunkSize + 1);
+        ByteBuf normal = allocator.directBuffer(1024);
+        assertEquals(2, allocated.get());
+        assertEquals(0, released.get());
+
+        // Huge allocations are not pooled and so the memory must be released directly.
+        huge.release();
+        assertEquals(1, released.get());
+        normal.release();
+    }
+
+    @Test
+    public void testPurgeFreeMemory() {
+        final AtomicLong discarded = new AtomicLong();
+        DirectChunkAllocator chunkAllocator = new DirectChunkAllocator() {
+            @Override
+            public ByteBuffer allocate(int capacity) {
+                return ByteBuffer.allocateDirect(capacity);
+            }
+
+            @Override
+            public void release(ByteBuffer memory) {
+                PlatformDependent.freeDirectBuffer(memory);
+            }
+
+            @Override
+            public boolean discard(ByteBuffer memory, int offset, int length) {
+                discarded.addAndGet(length);
+                return true;
+            }
+        };
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0,
+                false, 0, chunkAllocator);
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        int chunkSize = allocator.metric().chunkSize();
+        int size = 64 * 1024;
+
+        ByteBuf[] buffers = new ByteBuf[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(size);
+        }
+        buffers[1].release();
+        buffers[3].release();
+        assertEquals(2 * size, arena.numUsedBytes());
+        assertEquals(chunkSize, arena.numResidentBytes());
+
+        // The chunk changed since the last run, so the first idle purge skips it.
+        assertEquals(0, allocator.purgeDirectArenas(true));
+        assertEquals(chunkSize - 2 * size, allocator.purgeDirectArenas(true));
+        assertEquals(chunkSize - 2 * size, discarded.get());
+        assertEquals(2 * size, arena.numResidentBytes());
+        assertEquals(0, allocator.purgeFreeMemory());
+
+        // Allocating a purged run makes it resident again.
+        buffers[1] = allocator.directBuffer(size);
+        assertEquals(3 * size, arena.numResidentBytes());
+        assertEquals(3 * size, arena.numUsedBytes());
+
+        buffers[1].release();
+        assertEquals(size, allocator.purgeFreeMemory());
+        assertEquals(2 * size, arena.numResidentBytes());
+        buffers[0].release();
+        buffers[2].release();
+        assertEquals(0, arena.numUsedBytes());
+    }
+
     @Test
     public void testConcurrentUsage() throws Throwable {
         long runningTime = MILLISECONDS.toNanos(SystemPropertyUtil.getLong(
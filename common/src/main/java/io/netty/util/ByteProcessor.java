@@ -33,6 +33,13 @@ public interface ByteProcessor {
             this.byteToFind = byteToFind;
         }
 
+        /**
+         * Returns the byte this processor finds.
+         */
+        public byte byteToFind() {
+            return byteToFind;
+        }
+
         @Override
         public boolean process(byte value) {
             return value != byteToFind;
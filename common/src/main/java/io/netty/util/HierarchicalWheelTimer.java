@@ -0,0 +1,772 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.StringUtil.simpleClassName;
+
+/**
+ * A {@link Timer} which, like {@link HashedWheelTimer}, is optimized for approximated I/O timeout scheduling but
+ * uses a hierarchy of wheels instead of a single one.
+ *
+ * <h3>Levels</h3>
+ *
+ * The lowest wheel has one bucket per tick. Each bucket of the next wheel covers a full rotation of the wheel
+ * below it, and so on. A {@link Timeout} is stored in the lowest wheel whose span covers its remaining delay, and
+ * is moved ('cascaded') to the wheel below once the bucket it lives in comes up. As a consequence a long timeout
+ * is only touched once per level instead of once per rotation, which is what {@link HashedWheelTimer} does with
+ * its {@code remainingRounds}. With the default of {@code 64} ticks per wheel and {@code 4} levels a tick of
+ * {@code 100} milliseconds covers about 19 days. Timeouts with a larger delay are parked in the top wheel and
+ * placed again whenever their bucket comes up.
+ *
+ * <h3>Cancellation</h3>
+ *
+ * Each bucket is a doubly linked list of its timeouts, so a cancelled {@link Timeout} is unlinked in constant
+ * time. A cancellation from within a {@link TimerTask} is applied immediately, any other cancellation is handed to
+ * the worker thread which applies it on its next tick.
+ *
+ * <h3>Expiry</h3>
+ *
+ * All timeouts of a bucket are expired in one batch: they are marked as expired before the first of their
+ * {@link TimerTask}s runs, so a {@link TimerTask} can not {@link Timeout#cancel() cancel} another
+ * {@link Timeout} which expires on the same tick.
+ *
+ * <h3>Do not create many instances.</h3>
+ *
+ * Like {@link HashedWheelTimer}, {@link HierarchicalWheelTimer} creates a new thread whenever it is instantiated
+ * and started, so make sure to create only one instance and share it across your application.
+ */
+public class HierarchicalWheelTimer implements Timer {
+
+    static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(HierarchicalWheelTimer.class);
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+    private static final AtomicBoolean WARNED_TOO_MANY_INSTANCES = new AtomicBoolean();
+    private static final int INSTANCE_COUNT_LIMIT = 64;
+    private static final ResourceLeakDetector<HierarchicalWheelTimer> leakDetector = ResourceLeakDetectorFactory
+            .instance().newResourceLeakDetector(HierarchicalWheelTimer.class, 1);
+
+    private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimer> WORKER_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimer.class, "workerState");
+
+    private final ResourceLeakTracker<HierarchicalWheelTimer> leak;
+    private final Worker worker = new Worker();
+    private final Thread workerThread;
+
+    public static final int WORKER_STATE_INIT = 0;
+    public static final int WORKER_STATE_STARTED = 1;
+    public static final int WORKER_STATE_SHUTDOWN = 2;
+    @SuppressWarnings({ "unused", "FieldMayBeFinal" })
+    private volatile int workerState; // 0 - init, 1 - started, 2 - shut down
+
+    private final long tickDuration;
+    // All wheels are stored one after another, the bucket of a tick is (level << wheelShift) | index.
+    private final WheelBucket[] buckets;
+    private final int wheelShift;
+    private final int mask;
+    private final int levels;
+    // Number of ticks covered by all levels together.
+    private final long span;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<WheelTimeout> timeouts = PlatformDependent.newMpscQueue();
+    private final Queue<WheelTimeout> cancelledTimeouts = PlatformDependent.newMpscQueue();
+    private final AtomicLong pendingTimeouts = new AtomicLong(0);
+    private final long maxPendingTimeouts;
+
+    private volatile long startTime;
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), default tick
+     * duration, and default number of ticks per wheel and levels.
+     */
+    public HierarchicalWheelTimer() {
+        this(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}) and default
+     * number of ticks per wheel and levels.
+     *
+     * @param tickDuration the duration between tick
+     * @param unit         the time unit of the {@code tickDuration}
+     */
+    public HierarchicalWheelTimer(long tickDuration, TimeUnit unit) {
+        this(Executors.defaultThreadFactory(), tickDuration, unit);
+    }
+
+    /**
+     * Creates a new timer with the default tick duration and default number of ticks per wheel and levels.
+     *
+     * @param threadFactory a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                      {@link TimerTask} execution.
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory) {
+        this(threadFactory, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new timer with the default number of ticks per wheel and levels.
+     *
+     * @param threadFactory a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                      {@link TimerTask} execution.
+     * @param tickDuration  the duration between tick
+     * @param unit          the time unit of the {@code tickDuration}
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit) {
+        this(threadFactory, tickDuration, unit, 64, 4);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                      {@link TimerTask} execution.
+     * @param tickDuration  the duration between tick
+     * @param unit          the time unit of the {@code tickDuration}
+     * @param ticksPerWheel the size of each wheel, rounded up to the next power of two
+     * @param levels        the number of wheels
+     */
+    public HierarchicalWheelTimer(
+            ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel, int levels) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, levels, true, -1);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory      a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated
+     *                           to {@link TimerTask} execution.
+     * @param tickDuration       the duration between tick
+     * @param unit               the time unit of the {@code tickDuration}
+     * @param ticksPerWheel      the size of each wheel, rounded up to the next power of two
+     * @param levels             the number of wheels
+     * @param leakDetection      {@code true} if leak detection should be enabled always, if false it will only be
+     *                           enabled if the worker thread is not a daemon thread.
+     * @param maxPendingTimeouts The maximum number of pending timeouts after which call to {@code newTimeout} will
+     *                           result in {@link RejectedExecutionException} being thrown. No maximum pending
+     *                           timeouts limit is assumed if this value is 0 or negative.
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration}, {@code ticksPerWheel} and
+     *                                  {@code levels} is &lt;= 0 or the wheels together cover more than
+     *                                  {@code 2^62} ticks
+     */
+    public HierarchicalWheelTimer(
+            ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel, int levels,
+            boolean leakDetection, long maxPendingTimeouts) {
+        if (threadFactory == null) {
+            throw new NullPointerException("threadFactory");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 1 || ticksPerWheel > 65536) {
+            throw new IllegalArgumentException("ticksPerWheel: " + ticksPerWheel + " (expected: 2-65536)");
+        }
+        if (levels <= 0) {
+            throw new IllegalArgumentException("levels must be greater than 0: " + levels);
+        }
+
+        // Normalize ticksPerWheel to power of two.
+        wheelShift = 32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1);
+        if (wheelShift * levels > 62) {
+            throw new IllegalArgumentException(
+                    "ticksPerWheel ^ levels must not exceed 2^62: " + ticksPerWheel + " ^ " + levels);
+        }
+        mask = (1 << wheelShift) - 1;
+        this.levels = levels;
+        span = 1L << (wheelShift * levels);
+        buckets = new WheelBucket[levels << wheelShift];
+        for (int i = 0; i < buckets.length; i ++) {
+            buckets[i] = new WheelBucket();
+        }
+
+        // Convert tickDuration to nanos.
+        this.tickDuration = unit.toNanos(tickDuration);
+
+        workerThread = threadFactory.newThread(worker);
+
+        leak = leakDetection || !workerThread.isDaemon() ? leakDetector.track(this) : null;
+
+        this.maxPendingTimeouts = maxPendingTimeouts;
+
+        if (INSTANCE_COUNTER.incrementAndGet() > INSTANCE_COUNT_LIMIT &&
+            WARNED_TOO_MANY_INSTANCES.compareAndSet(false, true)) {
+            reportTooManyInstances();
+        }
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        try {
+            super.finalize();
+        } finally {
+            // This object is going to be GCed and it is assumed the ship has sailed to do a proper shutdown. If
+            // we have not yet shutdown then we want to make sure we decrement the active instance count.
+            if (WORKER_STATE_UPDATER.getAndSet(this, WORKER_STATE_SHUTDOWN) != WORKER_STATE_SHUTDOWN) {
+                INSTANCE_COUNTER.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Starts the background thread explicitly.  The background thread will
+     * start automatically on demand even if you did not call this method.
+     *
+     * @throws IllegalStateException if this timer has been
+     *                               {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        switch (WORKER_STATE_UPDATER.get(this)) {
+            case WORKER_STATE_INIT:
+                if (WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+
+        // Wait until the startTime is initialized by the worker.
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // Ignore - it will be ready very soon.
+            }
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException(
+                    HierarchicalWheelTimer.class.getSimpleName() +
+                            ".stop() cannot be called from " +
+                            TimerTask.class.getSimpleName());
+        }
+
+        if (!WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+            // workerState can be 0 or 2 at this moment - let it always be 2.
+            if (WORKER_STATE_UPDATER.getAndSet(this, WORKER_STATE_SHUTDOWN) != WORKER_STATE_SHUTDOWN) {
+                INSTANCE_COUNTER.decrementAndGet();
+                if (leak != null) {
+                    boolean closed = leak.close(this);
+                    assert closed;
+                }
+            }
+
+            return Collections.emptySet();
+        }
+
+        try {
+            boolean interrupted = false;
+            while (workerThread.isAlive()) {
+                workerThread.interrupt();
+                try {
+                    workerThread.join(100);
+                } catch (InterruptedException ignored) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            INSTANCE_COUNTER.decrementAndGet();
+            if (leak != null) {
+                boolean closed = leak.close(this);
+                assert closed;
+            }
+        }
+        return worker.unprocessedTimeouts();
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+
+        long pendingTimeoutsCount = pendingTimeouts.incrementAndGet();
+
+        if (maxPendingTimeouts > 0 && pendingTimeoutsCount > maxPendingTimeouts) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException("Number of pending timeouts ("
+                + pendingTimeoutsCount + ") is greater than or equal to maximum allowed pending "
+                + "timeouts (" + maxPendingTimeouts + ")");
+        }
+
+        start();
+
+        // Add the timeout to the timeout queue which will be processed on the next tick.
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        // Guard against overflow.
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        WheelTimeout timeout = new WheelTimeout(this, task, deadline);
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of pending timeouts of this {@link Timer}.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    private static void reportTooManyInstances() {
+        String resourceType = simpleClassName(HierarchicalWheelTimer.class);
+        logger.error("You are creating too many " + resourceType + " instances. " +
+                resourceType + " is a shared resource that must be reused across the JVM," +
+                "so that only a few instances are created.");
+    }
+
+    private final class Worker implements Runnable {
+        private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+
+        private long tick;
+
+        @Override
+        public void run() {
+            // Initialize the startTime.
+            startTime = System.nanoTime();
+            if (startTime == 0) {
+                // We use 0 as an indicator for the uninitialized value here, so make sure it's not 0 when initialized.
+                startTime = 1;
+            }
+
+            // Notify the other threads waiting for the initialization at start().
+            startTimeInitialized.countDown();
+
+            do {
+                final long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancelledTasks();
+                    cascade();
+                    transferTimeoutsToBuckets();
+                    expireTimeouts(buckets[(int) (tick & mask)]);
+                    tick++;
+                }
+            } while (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_STARTED);
+
+            // Fill the unprocessedTimeouts so we can return them from stop() method.
+            for (WheelBucket bucket: buckets) {
+                bucket.clearTimeouts(unprocessedTimeouts);
+            }
+            for (;;) {
+                WheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+            processCancelledTasks();
+        }
+
+        /**
+         * Moves the timeouts of every upper level bucket whose span starts with the current tick one level down.
+         */
+        private void cascade() {
+            for (int level = 1; level < levels; level++) {
+                int shift = wheelShift * level;
+                if ((tick & ((1L << shift) - 1)) != 0) {
+                    // The wheel below did not complete a rotation, so neither did the ones above.
+                    break;
+                }
+                WheelBucket bucket = buckets[(level << wheelShift) | (int) ((tick >>> shift) & mask)];
+                for (;;) {
+                    WheelTimeout timeout = bucket.pollTimeout();
+                    if (timeout == null) {
+                        break;
+                    }
+                    // A cancelled timeout is dropped here and accounted for by processCancelledTasks().
+                    if (!timeout.isCancelled()) {
+                        addToBucket(timeout);
+                    }
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            // transfer only max. 100000 timeouts per tick to prevent a thread to stale the workerThread when it just
+            // adds new timeouts in a loop.
+            for (int i = 0; i < 100000; i++) {
+                WheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                if (timeout.state() == WheelTimeout.ST_CANCELLED) {
+                    // Was cancelled in the meantime.
+                    continue;
+                }
+                addToBucket(timeout);
+            }
+        }
+
+        private void addToBucket(WheelTimeout timeout) {
+            long ticks = timeout.deadline / tickDuration;
+            long remaining = ticks - tick;
+            if (remaining <= 0) {
+                // Ensure we don't schedule for past.
+                ticks = tick;
+                remaining = 0;
+            } else if (remaining >= span) {
+                // Park it in the top wheel, it will be placed again once the bucket comes up.
+                ticks = tick + span - 1;
+                remaining = span - 1;
+            }
+            // The lowest level whose wheel covers the remaining ticks.
+            int level = remaining == 0 ? 0 : (63 - Long.numberOfLeadingZeros(remaining)) / wheelShift;
+            int index = (int) ((ticks >>> (wheelShift * level)) & mask);
+            buckets[(level << wheelShift) | index].addTimeout(timeout);
+        }
+
+        private void expireTimeouts(WheelBucket bucket) {
+            // Mark the whole bucket as expired first so the pending count is only updated once.
+            WheelTimeout head = null;
+            WheelTimeout tail = null;
+            int expired = 0;
+            for (;;) {
+                WheelTimeout timeout = bucket.pollTimeout();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.compareAndSetState(WheelTimeout.ST_INIT, WheelTimeout.ST_EXPIRED)) {
+                    if (head == null) {
+                        head = timeout;
+                    } else {
+                        tail.next = timeout;
+                    }
+                    tail = timeout;
+                    expired++;
+                }
+            }
+            if (expired == 0) {
+                return;
+            }
+            pendingTimeouts.addAndGet(-expired);
+
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                timeout.next = null;
+                timeout.runTask();
+                timeout = next;
+            }
+        }
+
+        private void processCancelledTasks() {
+            for (;;) {
+                WheelTimeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                try {
+                    timeout.remove();
+                } catch (Throwable t) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("An exception was thrown while process a cancellation task", t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * calculate goal nanoTime from startTime and current tick number,
+         * then wait until that goal has been reached.
+         * @return Long.MIN_VALUE if received a shutdown request,
+         * current time otherwise (with Long.MIN_VALUE changed by +1)
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (;;) {
+                final long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                if (sleepTimeMs <= 0) {
+                    if (currentTime == Long.MIN_VALUE) {
+                        return -Long.MAX_VALUE;
+                    } else {
+                        return currentTime;
+                    }
+                }
+
+                // Check if we run on windows, as if thats the case we will need
+                // to round the sleepTime as workaround for a bug that only affect
+                // the JVM if it runs on windows.
+                //
+                // See https://github.com/netty/netty/issues/356
+                if (PlatformDependent.isWindows()) {
+                    sleepTimeMs = sleepTimeMs / 10 * 10;
+                }
+
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+
+        public Set<Timeout> unprocessedTimeouts() {
+            return Collections.unmodifiableSet(unprocessedTimeouts);
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final HierarchicalWheelTimer timer;
+        private final TimerTask task;
+        private final long deadline;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        private volatile int state = ST_INIT;
+
+        // This will be used to chain timeouts in WheelBucket via a double-linked-list.
+        // As only the workerThread will act on it there is no need for synchronization / volatile.
+        WheelTimeout next;
+        WheelTimeout prev;
+
+        // The bucket to which the timeout was added
+        WheelBucket bucket;
+
+        WheelTimeout(HierarchicalWheelTimer timer, TimerTask task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            // only update the state it will be removed from the WheelBucket on the next tick.
+            if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            if (Thread.currentThread() == timer.workerThread && bucket != null) {
+                // Called from a TimerTask, so we can unlink it right away.
+                bucket.remove(this);
+            } else {
+                // If a task should be cancelled we put this to another queue which will be processed on each tick.
+                // So this means that we will have a GC latency of max. 1 tick duration which is good enough. This way
+                // we can make again use of our MpscLinkedQueue and so minimize the locking / overhead as much as
+                // possible.
+                timer.cancelledTimeouts.add(this);
+            }
+            return true;
+        }
+
+        void remove() {
+            WheelBucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            } else {
+                timer.pendingTimeouts.decrementAndGet();
+            }
+        }
+
+        boolean compareAndSetState(int expected, int state) {
+            return STATE_UPDATER.compareAndSet(this, expected, state);
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state() == ST_EXPIRED;
+        }
+
+        void runTask() {
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long currentTime = System.nanoTime();
+            long remaining = deadline - currentTime + timer.startTime;
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+
+    /**
+     * Bucket that stores WheelTimeouts in a double-linked-list, so a WheelTimeout can be removed from the middle
+     * in constant time. The WheelTimeouts act as nodes themself so no extra object creation is needed.
+     */
+    private static final class WheelBucket {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        /**
+         * Add {@link WheelTimeout} to this bucket.
+         */
+        void addTimeout(WheelTimeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Unlink a cancelled {@link WheelTimeout} from this bucket.
+         */
+        void remove(WheelTimeout timeout) {
+            WheelTimeout next = timeout.next;
+            WheelTimeout prev = timeout.prev;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            timeout.timer.pendingTimeouts.decrementAndGet();
+        }
+
+        /**
+         * Clear this bucket and return all not expired / cancelled {@link Timeout}s.
+         */
+        void clearTimeouts(Set<Timeout> set) {
+            for (;;) {
+                WheelTimeout timeout = pollTimeout();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.isExpired() || timeout.isCancelled()) {
+                    continue;
+                }
+                set.add(timeout);
+            }
+        }
+
+        WheelTimeout pollTimeout() {
+            WheelTimeout head = this.head;
+            if (head == null) {
+                return null;
+            }
+            WheelTimeout next = head.next;
+            if (next == null) {
+                tail = this.head = null;
+            } else {
+                this.head = next;
+                next.prev = null;
+            }
+
+            head.next = null;
+            head.prev = null;
+            head.bucket = null;
+            return head;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package io.netty.util;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -24,6 +25,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -33,6 +35,14 @@ import static java.lang.Math.min;
 
 /**
  * Light-weight object pool based on a thread-local stack.基于线程本地堆栈的轻量级对象池。
+ * <p>
+ * Objects which are recycled by another thread than the one which created them are by default handed back through
+ * a {@link WeakOrderQueue} per recycling thread. If the MPSC queue is enabled ({@code io.netty.recycler.useMpscQueue}
+ * or the constructor) every thread-local stack instead owns a single bounded lock-free MPSC queue which all other
+ * threads offer to and which is drained by the owner once its stack is empty. This avoids the thread-local
+ * {@link WeakHashMap} lookup and the {@link WeakOrderQueue} allocation on the recycling side, and caps the memory used
+ * for cross-thread returns at {@code maxCapacityPerThread / maxSharedCapacityFactor} handles per stack no matter how
+ * many threads recycle. {@code maxDelayedQueuesPerThread} is not used in this mode.
  *
  * @param <T> the type of the pooled object
  */
@@ -49,6 +59,7 @@ public abstract class Recycler<T> {
     };
     private static final AtomicInteger ID_GENERATOR = new AtomicInteger(Integer.MIN_VALUE);
     private static final int OWN_THREAD_ID = ID_GENERATOR.getAndIncrement();
+    private static final int MPSC_QUEUE_ID = ID_GENERATOR.getAndIncrement();
     private static final int DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD = 4 * 1024; // Use 4k instances as default.
     private static final int DEFAULT_MAX_CAPACITY_PER_THREAD;
     private static final int INITIAL_CAPACITY;
@@ -56,6 +67,7 @@ public abstract class Recycler<T> {
     private static final int MAX_DELAYED_QUEUES_PER_THREAD;
     private static final int LINK_CAPACITY;
     private static final int RATIO;
+    private static final boolean USE_MPSC_QUEUE;
 
     static {
         // In the future, we might have different maxCapacity for different object types.
@@ -86,17 +98,21 @@ public abstract class Recycler<T> {
         // bursts.
         RATIO = safeFindNextPositivePowerOfTwo(SystemPropertyUtil.getInt("io.netty.recycler.ratio", 8));
 
+        USE_MPSC_QUEUE = SystemPropertyUtil.getBoolean("io.netty.recycler.useMpscQueue", false);
+
         if (logger.isDebugEnabled()) {
             if (DEFAULT_MAX_CAPACITY_PER_THREAD == 0) {
                 logger.debug("-Dio.netty.recycler.maxCapacityPerThread: disabled");
                 logger.debug("-Dio.netty.recycler.maxSharedCapacityFactor: disabled");
                 logger.debug("-Dio.netty.recycler.linkCapacity: disabled");
                 logger.debug("-Dio.netty.recycler.ratio: disabled");
+                logger.debug("-Dio.netty.recycler.useMpscQueue: disabled");
             } else {
                 logger.debug("-Dio.netty.recycler.maxCapacityPerThread: {}", DEFAULT_MAX_CAPACITY_PER_THREAD);
                 logger.debug("-Dio.netty.recycler.maxSharedCapacityFactor: {}", MAX_SHARED_CAPACITY_FACTOR);
                 logger.debug("-Dio.netty.recycler.linkCapacity: {}", LINK_CAPACITY);
                 logger.debug("-Dio.netty.recycler.ratio: {}", RATIO);
+                logger.debug("-Dio.netty.recycler.useMpscQueue: {}", USE_MPSC_QUEUE);
             }
         }
 
@@ -107,12 +123,13 @@ public abstract class Recycler<T> {
     private final int maxSharedCapacityFactor;
     private final int ratioMask;
     private final int maxDelayedQueuesPerThread;
+    private final boolean useMpscQueue;
 
     private final FastThreadLocal<Stack<T>> threadLocal = new FastThreadLocal<Stack<T>>() {
         @Override
         protected Stack<T> initialValue() {
             return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacityPerThread, maxSharedCapacityFactor,
-                    ratioMask, maxDelayedQueuesPerThread);
+                    ratioMask, maxDelayedQueuesPerThread, useMpscQueue);
         }
 
         @Override
@@ -140,6 +157,16 @@ public abstract class Recycler<T> {
 
     protected Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
                        int ratio, int maxDelayedQueuesPerThread) {
+        this(maxCapacityPerThread, maxSharedCapacityFactor, ratio, maxDelayedQueuesPerThread, USE_MPSC_QUEUE);
+    }
+
+    /**
+     * @param useMpscQueue {@code true} if objects recycled by other threads should be handed back through a bounded
+     *                     MPSC queue per thread-local stack instead of a {@link WeakOrderQueue} per recycling thread.
+     */
+    protected Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
+                       int ratio, int maxDelayedQueuesPerThread, boolean useMpscQueue) {
+        this.useMpscQueue = useMpscQueue;
         ratioMask = safeFindNextPositivePowerOfTwo(ratio) - 1;
         if (maxCapacityPerThread <= 0) {
             this.maxCapacityPerThread = 0;
@@ -447,9 +474,11 @@ public abstract class Recycler<T> {
         private int handleRecycleCount = -1; // Start with -1 so the first one will be recycled.
         private WeakOrderQueue cursor, prev;
         private volatile WeakOrderQueue head;
+        // Handles recycled by other threads if the MPSC queue is used, null otherwise.
+        private final Queue<DefaultHandle<?>> pendingHandles;
 
         Stack(Recycler<T> parent, Thread thread, int maxCapacity, int maxSharedCapacityFactor,
-              int ratioMask, int maxDelayedQueues) {
+              int ratioMask, int maxDelayedQueues, boolean useMpscQueue) {
             this.parent = parent;
             threadRef = new WeakReference<Thread>(thread);
             this.maxCapacity = maxCapacity;
@@ -457,6 +486,13 @@ public abstract class Recycler<T> {
             elements = new DefaultHandle[min(INITIAL_CAPACITY, maxCapacity)];
             this.ratioMask = ratioMask;
             this.maxDelayedQueues = maxDelayedQueues;
+            if (useMpscQueue) {
+                // The queue grows in chunks of half a Link, which must be smaller than its capacity.
+                int capacity = max(maxCapacity / maxSharedCapacityFactor, LINK_CAPACITY);
+                pendingHandles = PlatformDependent.newMpscQueue(LINK_CAPACITY >>> 1, capacity);
+            } else {
+                pendingHandles = null;
+            }
         }
 
         // Marked as synchronized to ensure this is serialized.
@@ -502,6 +538,10 @@ public abstract class Recycler<T> {
         }
 
         boolean scavenge() {
+            if (pendingHandles != null) {
+                return drainPendingHandles();
+            }
+
             // continue an existing scavenge, if any
             if (scavengeSome()) {
                 return true;
@@ -563,11 +603,43 @@ public abstract class Recycler<T> {
             return success;
         }
 
+        // Move as many handles as fit from the MPSC queue to the stack, returning true if any were moved.
+        private boolean drainPendingHandles() {
+            int size = this.size;
+            for (;;) {
+                if (size == elements.length && increaseCapacity(size + 1) == size) {
+                    // The stack is full, leave the rest in the queue.
+                    break;
+                }
+                DefaultHandle<?> handle = pendingHandles.poll();
+                if (handle == null) {
+                    break;
+                }
+                if (handle.recycleId == 0) {
+                    handle.recycleId = handle.lastRecycledId;
+                } else if (handle.recycleId != handle.lastRecycledId) {
+                    throw new IllegalStateException("recycled already");
+                }
+                if (dropHandle(handle)) {
+                    // Drop the object.
+                    continue;
+                }
+                elements[size ++] = handle;
+            }
+            if (this.size == size) {
+                return false;
+            }
+            this.size = size;
+            return true;
+        }
+
         void push(DefaultHandle<?> item) {
             Thread currentThread = Thread.currentThread();
             if (threadRef.get() == currentThread) {
                 // The current Thread is the thread that belongs to the Stack, we can try to push the object now.当前线程是属于堆栈的线程，我们现在可以尝试推送对象。
                 pushNow(item);
+            } else if (pendingHandles != null) {
+                pushToQueue(item);
             } else {
                 // The current Thread is not the one that belongs to the Stack
                 // (or the Thread that belonged to the Stack was collected already), we need to signal that the push
@@ -597,6 +669,15 @@ public abstract class Recycler<T> {
             this.size = size + 1;
         }
 
+        private void pushToQueue(DefaultHandle<?> item) {
+            if ((item.recycleId | item.lastRecycledId) != 0) {
+                throw new IllegalStateException("recycled already");
+            }
+            item.lastRecycledId = MPSC_QUEUE_ID;
+            // Drop the object if the queue is full; the offer publishes the handle to the owner thread.
+            pendingHandles.offer(item);
+        }
+
         private void pushLater(DefaultHandle<?> item, Thread thread) {
             // we don't want to have a ref to the queue as the value in our weak map
             // so we null it out; to ensure there are no races with restoring it later
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import java.util.NoSuchElementException;
+
+import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
+
+/**
+ * A double ended queue of {@code int}s backed by a circular {@code int[]} which grows as needed, the primitive
+ * counterpart of {@link java.util.ArrayDeque}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class IntArrayDeque {
+
+    /** Default initial capacity. Used if not specified in the constructor */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private int[] elements;
+    // Index of the first element.
+    private int head;
+    private int size;
+
+    public IntArrayDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntArrayDeque(int initialCapacity) {
+        elements = new int[safeFindNextPositivePowerOfTwo(initialCapacity)];
+    }
+
+    public void addFirst(int value) {
+        ensureCapacity();
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = value;
+        size++;
+    }
+
+    public void addLast(int value) {
+        ensureCapacity();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * Remove and return the first element.
+     *
+     * @throws NoSuchElementException if this deque is empty.
+     */
+    public int removeFirst() {
+        int value = first();
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * Remove and return the last element.
+     *
+     * @throws NoSuchElementException if this deque is empty.
+     */
+    public int removeLast() {
+        int value = last();
+        size--;
+        return value;
+    }
+
+    /**
+     * Return the first element without removing it.
+     *
+     * @throws NoSuchElementException if this deque is empty.
+     */
+    public int first() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[head];
+    }
+
+    /**
+     * Return the last element without removing it.
+     *
+     * @throws NoSuchElementException if this deque is empty.
+     */
+    public int last() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[(head + size - 1) & (elements.length - 1)];
+    }
+
+    /**
+     * Return the element at {@code index}, counted from the first element.
+     *
+     * @throws IndexOutOfBoundsException if {@code index} is negative or not smaller than {@link #size()}.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + " (expected: 0-" + (size - 1) + ')');
+        }
+        return elements[(head + index) & (elements.length - 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Return the elements in order from first to last.
+     */
+    public int[] toArray() {
+        int[] array = new int[size];
+        copyTo(array);
+        return array;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(4 * size + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    private void ensureCapacity() {
+        if (size == elements.length) {
+            if (size == 1 << 30) {
+                throw new IllegalStateException("Max capacity reached at size=" + size);
+            }
+            // Double the capacity and unwrap the elements so head starts at 0 again.
+            int[] newElements = new int[elements.length << 1];
+            copyTo(newElements);
+            elements = newElements;
+            head = 0;
+        }
+    }
+
+    private void copyTo(int[] dst) {
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, dst, 0, firstPart);
+        System.arraycopy(elements, 0, dst, firstPart, size - firstPart);
+    }
+}
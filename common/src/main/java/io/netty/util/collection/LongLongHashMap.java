@@ -0,0 +1,414 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
+
+/**
+ * A hash map from {@code long} keys to {@code long} values which never boxes. Like {@link LongObjectHashMap} it
+ * uses open addressing with linear probing and compacts on removal, so a small loadFactor is recommended.
+ * <p>
+ * Keys and values are stored next to each other in a {@code long[]} or, if {@code direct} is requested, in direct
+ * memory which keeps large maps out of the Java heap. Call {@link #free()} to release the direct memory once the
+ * map is no longer used.
+ * <p>
+ * As there is no {@code null} for primitives, {@link #get(long)}, {@link #put(long, long)} and {@link #remove(long)}
+ * return the {@link #noEntryValue()} given at construction time if the key was not mapped. Use
+ * {@link #containsKey(long)} if this value is also a legitimate value.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongLongHashMap {
+
+    /** Default initial capacity. Used if not specified in the constructor */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /** Default load factor. Used if not specified in the constructor */
+    public static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /** The maximum number of elements allowed without allocating more space. */
+    private int maxSize;
+
+    /** The load factor for the map. Used to calculate {@link #maxSize}. */
+    private final float loadFactor;
+    private final long noEntryValue;
+    private final boolean direct;
+
+    /**
+     * Entry {@code i} is stored in the slots {@code 2 * i} (key) and {@code 2 * i + 1} (value). A zero key marks an
+     * available entry, the mapping of the key {@code 0} is kept in {@link #zeroKeyValue} instead.
+     */
+    private LongStorage slots;
+    private boolean hasZeroKey;
+    private long zeroKeyValue;
+    private int size;
+    private int mask;
+
+    public LongLongHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongLongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongLongHashMap(int initialCapacity, float loadFactor) {
+        this(initialCapacity, loadFactor, 0, false);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param initialCapacity the initial capacity, rounded up to the next power of two.
+     * @param loadFactor the load factor which triggers a resize.
+     * @param noEntryValue the value returned by the lookup methods for keys which are not mapped.
+     * @param direct {@code true} if the entries should be stored in direct memory instead of on the heap.
+     */
+    public LongLongHashMap(int initialCapacity, float loadFactor, long noEntryValue, boolean direct) {
+        if (loadFactor <= 0.0f || loadFactor > 1.0f) {
+            // Cannot exceed 1 because we can never store more than capacity elements;
+            // using a bigger loadFactor would trigger rehashing before the desired load is reached.
+            throw new IllegalArgumentException("loadFactor must be > 0 and <= 1");
+        }
+
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        this.direct = direct;
+
+        // Adjust the initial capacity if necessary.
+        int capacity = safeFindNextPositivePowerOfTwo(initialCapacity);
+        mask = capacity - 1;
+        slots = new LongStorage(capacity << 1, direct);
+
+        // Initialize the maximum size value.
+        maxSize = calcMaxSize(capacity);
+    }
+
+    /**
+     * Return the value which is returned for keys that are not mapped.
+     */
+    public long noEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Return {@code true} if the entries are stored in direct memory.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Return the value mapped to {@code key} or {@link #noEntryValue()} if there is none.
+     */
+    public long get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroKeyValue : noEntryValue;
+        }
+        int index = indexOf(key);
+        return index == -1 ? noEntryValue : value(index);
+    }
+
+    /**
+     * Map {@code key} to {@code value} and return the previous value or {@link #noEntryValue()} if there was none.
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long previousValue = hasZeroKey ? zeroKeyValue : noEntryValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroKeyValue = value;
+            return previousValue;
+        }
+
+        int startIndex = hashIndex(key);
+        int index = startIndex;
+
+        for (;;) {
+            long existingKey = key(index);
+            if (existingKey == 0) {
+                // Found empty slot, use it.
+                set(index, key, value);
+                growSize();
+                return noEntryValue;
+            }
+            if (existingKey == key) {
+                // Found existing entry with this key, just replace the value.
+                long previousValue = value(index);
+                slots.set((index << 1) + 1, value);
+                return previousValue;
+            }
+
+            // Conflict, keep probing ...
+            if ((index = probeNext(index)) == startIndex) {
+                // Can only happen if the map was full at the maximum capacity and couldn't grow.
+                throw new IllegalStateException("Unable to insert");
+            }
+        }
+    }
+
+    /**
+     * Remove the mapping of {@code key} and return its value or {@link #noEntryValue()} if there was none.
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return noEntryValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroKeyValue;
+        }
+        int index = indexOf(key);
+        if (index == -1) {
+            return noEntryValue;
+        }
+
+        long prev = value(index);
+        removeAt(index);
+        return prev;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        slots.clear();
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Return the keys of all mappings, in no particular order.
+     */
+    public long[] keys() {
+        long[] keys = new long[size];
+        int i = 0;
+        if (hasZeroKey) {
+            keys[i++] = 0;
+        }
+        for (int index = 0; index <= mask; index++) {
+            long key = key(index);
+            if (key != 0) {
+                keys[i++] = key;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Release the direct memory which backs this map right away instead of waiting for the garbage collector.
+     * The map must not be used afterwards. Does nothing if the map is not {@link #isDirect() direct}.
+     */
+    public void free() {
+        slots.free();
+    }
+
+    @Override
+    public int hashCode() {
+        // Like LongObjectHashMap, only use terms which do not depend on the position of the entries.
+        int hash = size;
+        if (hasZeroKey) {
+            hash ^= hashCode(zeroKeyValue);
+        }
+        for (int index = 0; index <= mask; index++) {
+            hash ^= hashCode(key(index)) ^ hashCode(value(index));
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LongLongHashMap)) {
+            return false;
+        }
+        LongLongHashMap other = (LongLongHashMap) obj;
+        if (size != other.size()) {
+            return false;
+        }
+        if (hasZeroKey && (!other.hasZeroKey || zeroKeyValue != other.zeroKeyValue)) {
+            return false;
+        }
+        for (int index = 0; index <= mask; index++) {
+            long key = key(index);
+            if (key != 0 && (!other.containsKey(key) || other.get(key) != value(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "{}";
+        }
+        StringBuilder sb = new StringBuilder(4 * size);
+        sb.append('{');
+        if (hasZeroKey) {
+            sb.append("0=").append(zeroKeyValue);
+        }
+        for (int index = 0; index <= mask; index++) {
+            long key = key(index);
+            if (key != 0) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(key).append('=').append(value(index));
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    private long key(int index) {
+        return slots.get(index << 1);
+    }
+
+    private long value(int index) {
+        return slots.get((index << 1) + 1);
+    }
+
+    private void set(int index, long key, long value) {
+        slots.set(index << 1, key);
+        slots.set((index << 1) + 1, value);
+    }
+
+    private int indexOf(long key) {
+        int startIndex = hashIndex(key);
+        int index = startIndex;
+
+        for (;;) {
+            long existingKey = key(index);
+            if (existingKey == 0) {
+                // It's available, so no chance that this value exists anywhere in the map.
+                return -1;
+            }
+            if (key == existingKey) {
+                return index;
+            }
+
+            // Conflict, keep probing ...
+            if ((index = probeNext(index)) == startIndex) {
+                return -1;
+            }
+        }
+    }
+
+    private int hashIndex(long key) {
+        // The capacity is always a power of two, so we can use a bitmask to stay inside the bounds.
+        return hashCode(key) & mask;
+    }
+
+    private static int hashCode(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private int probeNext(int index) {
+        // The capacity is always a power of two, so we can use a bitmask to stay inside the bounds.
+        return (index + 1) & mask;
+    }
+
+    /**
+     * Grows the map size after an insertion. If necessary, performs a rehash of the map.
+     */
+    private void growSize() {
+        size++;
+
+        if (size - (hasZeroKey ? 1 : 0) > maxSize) {
+            // Double the capacity.
+            rehash((mask + 1) << 1);
+        }
+    }
+
+    /**
+     * Removes entry at the given index position. Also performs opportunistic, incremental rehashing
+     * if necessary to not break conflict chains.
+     */
+    private void removeAt(final int index) {
+        --size;
+        set(index, 0, 0);
+
+        // In the interval from index to the next available entry, the slots may have entries
+        // that are displaced from their base position due to prior conflicts. Iterate these
+        // entries and move them back if possible, optimizing future lookups.
+        // Knuth Section 6.4 Algorithm R, also used by the JDK's IdentityHashMap.
+
+        int nextFree = index;
+        int i = probeNext(index);
+        for (long key = key(i); key != 0; key = key(i = probeNext(i))) {
+            int bucket = hashIndex(key);
+            if (i < bucket && (bucket <= nextFree || nextFree <= i) ||
+                bucket <= nextFree && nextFree <= i) {
+                // Move the displaced entry "back" to the first available position.
+                set(nextFree, key, value(i));
+                // Put the first entry after the displaced entry
+                set(i, 0, 0);
+                nextFree = i;
+            }
+        }
+    }
+
+    /**
+     * Calculates the maximum size allowed before rehashing.
+     */
+    private int calcMaxSize(int capacity) {
+        // Clip the upper bound so that there will always be at least one available slot.
+        int upperBound = capacity - 1;
+        return Math.min(upperBound, (int) (capacity * loadFactor));
+    }
+
+    /**
+     * Rehashes the map for the given capacity.
+     *
+     * @param newCapacity the new capacity for the map.
+     */
+    private void rehash(int newCapacity) {
+        LongStorage oldSlots = slots;
+        slots = new LongStorage(newCapacity << 1, direct);
+        maxSize = calcMaxSize(newCapacity);
+        mask = newCapacity - 1;
+
+        // Insert to the new slots.
+        for (int i = 0; i < oldSlots.length(); i += 2) {
+            long key = oldSlots.get(i);
+            if (key != 0) {
+                // Inlined put(), but much simpler: we don't need to worry about
+                // duplicated keys, growing/rehashing, or failing to insert.
+                int index = hashIndex(key);
+                while (key(index) != 0) {
+                    // Conflict, keep probing. Can wrap around, but never reaches startIndex again.
+                    index = probeNext(index);
+                }
+                set(index, key, oldSlots.get(i + 1));
+            }
+        }
+        oldSlots.free();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A fixed number of {@code long} slots which are either stored in a {@code long[]} or in direct memory. Direct
+ * storage keeps large tables out of the Java heap, so they neither count against the heap size nor need to be
+ * copied by the garbage collector.
+ */
+final class LongStorage {
+
+    /** The maximum number of slots, direct storage is addressed by an {@code int} byte offset. */
+    static final int MAX_LENGTH = Integer.MAX_VALUE >> 3;
+
+    private final long[] array;
+    private final ByteBuffer memory;
+    private final int length;
+
+    LongStorage(int length, boolean direct) {
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IllegalStateException("length: " + length + " (expected: 0-" + MAX_LENGTH + ')');
+        }
+        this.length = length;
+        if (direct) {
+            // Direct memory is zeroed on allocation just like an array.
+            memory = ByteBuffer.allocateDirect(length << 3).order(ByteOrder.nativeOrder());
+            array = null;
+        } else {
+            array = new long[length];
+            memory = null;
+        }
+    }
+
+    int length() {
+        return length;
+    }
+
+    boolean isDirect() {
+        return memory != null;
+    }
+
+    long get(int index) {
+        return array != null ? array[index] : memory.getLong(index << 3);
+    }
+
+    void set(int index, long value) {
+        if (array != null) {
+            array[index] = value;
+        } else {
+            memory.putLong(index << 3, value);
+        }
+    }
+
+    void clear() {
+        if (array != null) {
+            Arrays.fill(array, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                memory.putLong(i << 3, 0);
+            }
+        }
+    }
+
+    /**
+     * Release the direct memory right away instead of waiting for the garbage collector. The storage must not be
+     * used afterwards.
+     */
+    void free() {
+        if (memory != null) {
+            PlatformDependent.freeDirectBuffer(memory);
+        }
+    }
+}
@@ -40,6 +40,9 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue;
 
+    private volatile long coarseTimerTickNanos = CoarseTimer.DEFAULT_TICK_NANOS;
+    private CoarseTimer coarseTimer;
+
     protected AbstractScheduledEventExecutor() {
     }
 
@@ -66,6 +69,33 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return queue == null || queue.isEmpty();
     }
 
+    /**
+     * Sets the tick of the {@link #coarseTimer()} of this executor. Must be called before the timer is used for the
+     * first time, the default is {@code 100} milliseconds or {@code -Dio.netty.eventexecutor.coarseTimerTickMillis}.
+     */
+    public void setCoarseTimerTick(long tick, TimeUnit unit) {
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (tick <= 0) {
+            throw new IllegalArgumentException("tick: " + tick + " (expected: > 0)");
+        }
+        if (coarseTimer != null) {
+            throw new IllegalStateException("coarse timer is in use already");
+        }
+        coarseTimerTickNanos = unit.toNanos(tick);
+    }
+
+    /**
+     * Returns the {@link CoarseTimer} of this executor, which must only be used from the thread of this executor.
+     */
+    public CoarseTimer coarseTimer() {
+        assert inEventLoop();
+        CoarseTimer coarseTimer = this.coarseTimer;
+        if (coarseTimer == null) {
+            this.coarseTimer = coarseTimer = new CoarseTimer(this, coarseTimerTickNanos);
+        }
+        return coarseTimer;
+    }
+
     /**
      * Cancel all scheduled tasks.
      *
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timer for coarse deadlines which is owned by a single {@link AbstractScheduledEventExecutor} and must only be
+ * used from its thread, see {@link AbstractScheduledEventExecutor#coarseTimer()}.
+ * <p>
+ * Deadlines are rounded up to the tick of the timer and stored in a wheel of buckets. Unlike a task passed to
+ * {@link EventExecutor#schedule(Runnable, long, TimeUnit)}, which is inserted into and removed from a heap, a
+ * {@link Deadline} is re-armed in place: moving it further into the future only updates a field, it is moved to
+ * the right bucket once its current bucket comes up. Moving it closer and cancelling it unlink it from its bucket
+ * in constant time. The timer itself schedules one task per tick on its executor as long as any deadline is armed.
+ * <p>
+ * A {@link Deadline} never runs before it is due but may run up to one tick late, so this is meant for timeouts
+ * like the ones of {@code IdleStateHandler} which are re-armed frequently but rarely fire.
+ */
+public final class CoarseTimer {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CoarseTimer.class);
+
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(1, SystemPropertyUtil.getLong("io.netty.eventexecutor.coarseTimerTickMillis", 100)));
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.coarseTimerTickMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(DEFAULT_TICK_NANOS));
+        }
+    }
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final AbstractScheduledEventExecutor executor;
+    private final long tickNanos;
+    // Head of the doubly linked list of each bucket.
+    private final Deadline[] wheel = new Deadline[WHEEL_SIZE];
+    private final Runnable tickTask = new Runnable() {
+        @Override
+        public void run() {
+            tickScheduled = false;
+            expireDeadlines();
+        }
+    };
+
+    // The last tick whose bucket was processed.
+    private long currentTick;
+    private int size;
+    private boolean tickScheduled;
+
+    CoarseTimer(AbstractScheduledEventExecutor executor, long tickNanos) {
+        this.executor = executor;
+        this.tickNanos = tickNanos;
+        currentTick = ScheduledFutureTask.nanoTime() / tickNanos;
+    }
+
+    /**
+     * Returns the tick of this timer in nanoseconds, which is the granularity of all its deadlines.
+     */
+    public long tickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns the number of armed deadlines.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new {@link Deadline} which runs {@code task} once it is armed via
+     * {@link Deadline#reschedule(long, TimeUnit)} and due.
+     */
+    public Deadline newDeadline(Runnable task) {
+        return new Deadline(ObjectUtil.checkNotNull(task, "task"));
+    }
+
+    private long tickOf(long deadlineNanos) {
+        // Round up so the deadline is never run early.
+        long tick = deadlineNanos / tickNanos;
+        return deadlineNanos % tickNanos == 0 ? tick : tick + 1;
+    }
+
+    private void link(Deadline deadline) {
+        long tick = deadline.deadlineTick;
+        if (tick <= currentTick) {
+            // Already due, run it on the next tick.
+            tick = currentTick + 1;
+        } else if (tick - currentTick > WHEEL_MASK) {
+            // Beyond the wheel, it will be linked again once this bucket comes up.
+            tick = currentTick + WHEEL_MASK;
+        }
+        deadline.bucketTick = tick;
+        int index = (int) (tick & WHEEL_MASK);
+        Deadline head = wheel[index];
+        deadline.next = head;
+        if (head != null) {
+            head.prev = deadline;
+        }
+        wheel[index] = deadline;
+    }
+
+    private void unlink(Deadline deadline) {
+        Deadline prev = deadline.prev;
+        Deadline next = deadline.next;
+        if (prev == null) {
+            wheel[(int) (deadline.bucketTick & WHEEL_MASK)] = next;
+        } else {
+            prev.next = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        deadline.prev = null;
+        deadline.next = null;
+    }
+
+    private void scheduleTick() {
+        if (!tickScheduled) {
+            tickScheduled = true;
+            long delay = (currentTick + 1) * tickNanos - ScheduledFutureTask.nanoTime();
+            executor.schedule(tickTask, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void expireDeadlines() {
+        long nowTick = ScheduledFutureTask.nanoTime() / tickNanos;
+        // If the executor was blocked for more than a rotation visiting each bucket once is enough.
+        long tick = Math.max(currentTick + 1, nowTick - WHEEL_MASK);
+        for (; tick <= nowTick; tick++) {
+            currentTick = tick;
+            int index = (int) (tick & WHEEL_MASK);
+            for (;;) {
+                Deadline deadline = wheel[index];
+                if (deadline == null) {
+                    break;
+                }
+                unlink(deadline);
+                if (deadline.deadlineTick <= tick) {
+                    deadline.scheduled = false;
+                    size--;
+                    deadline.run();
+                } else {
+                    // Was moved further into the future, link() never picks the current bucket.
+                    link(deadline);
+                }
+            }
+        }
+        if (size != 0) {
+            scheduleTick();
+        }
+    }
+
+    /**
+     * A re-armable deadline of a {@link CoarseTimer}.
+     */
+    public final class Deadline {
+        private final Runnable task;
+        private long deadlineNanos;
+        private long deadlineTick;
+        // The tick of the bucket this deadline is linked to, which may be before deadlineTick.
+        private long bucketTick;
+        private boolean scheduled;
+        private Deadline prev;
+        private Deadline next;
+
+        Deadline(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Arms this deadline to run its task after the given delay, replacing the previous delay if it was armed
+         * already. A delay which is not shorter than the previous one is applied in constant time without touching
+         * the wheel.
+         */
+        public void reschedule(long delay, TimeUnit unit) {
+            ObjectUtil.checkNotNull(unit, "unit");
+            assert executor.inEventLoop();
+            long deadlineNanos = ScheduledFutureTask.deadlineNanos(Math.max(0, unit.toNanos(delay)));
+            if (deadlineNanos < 0) {
+                // Guard against overflow.
+                deadlineNanos = Long.MAX_VALUE;
+            }
+            long tick = tickOf(deadlineNanos);
+            this.deadlineNanos = deadlineNanos;
+            deadlineTick = tick;
+            if (scheduled) {
+                if (tick >= bucketTick) {
+                    return;
+                }
+                unlink(this);
+            } else {
+                scheduled = true;
+                size++;
+            }
+            link(this);
+            scheduleTick();
+        }
+
+        /**
+         * Disarms this deadline. Returns {@code false} if it was not armed.
+         */
+        public boolean cancel() {
+            assert executor.inEventLoop();
+            if (!scheduled) {
+                return false;
+            }
+            scheduled = false;
+            size--;
+            unlink(this);
+            return true;
+        }
+
+        /**
+         * Returns {@code true} if this deadline is armed and its task did not run yet.
+         */
+        public boolean isScheduled() {
+            return scheduled;
+        }
+
+        /**
+         * Returns the remaining delay in nanoseconds, or {@code 0} if it is due or not armed.
+         */
+        public long delayNanos() {
+            return scheduled ? Math.max(0, deadlineNanos - ScheduledFutureTask.nanoTime()) : 0;
+        }
+
+        void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("A task raised an exception. Task: {}", task, t);
+            }
+        }
+    }
+}
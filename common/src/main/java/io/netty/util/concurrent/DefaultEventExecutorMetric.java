@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The {@link EventExecutorMetric} of a {@link SingleThreadEventExecutor}. It is only updated by the thread of the
+ * executor, which uses ordered stores so neither the executor nor the readers pay for a full memory barrier.
+ */
+final class DefaultEventExecutorMetric implements EventExecutorMetric {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DefaultEventExecutorMetric.class);
+
+    static final boolean DEFAULT_ENABLED = SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
+    static final long DEFAULT_SLOW_TASK_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(1, SystemPropertyUtil.getLong("io.netty.eventexecutor.slowTaskThresholdMillis", 100)));
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.metrics: {}", DEFAULT_ENABLED);
+            logger.debug("-Dio.netty.eventexecutor.slowTaskThresholdMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(DEFAULT_SLOW_TASK_THRESHOLD_NANOS));
+        }
+    }
+
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Upper bounds of all but the last bucket of the latency histogram.
+    private static final long[] LATENCY_BOUNDS_NANOS = {
+            TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.SECONDS.toNanos(1)
+    };
+
+    private static final AtomicLongFieldUpdater<DefaultEventExecutorMetric> COMPLETED_TASKS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventExecutorMetric.class, "completedTasks");
+    private static final AtomicLongFieldUpdater<DefaultEventExecutorMetric> TASK_TIME_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventExecutorMetric.class, "taskTimeNanos");
+    private static final AtomicLongFieldUpdater<DefaultEventExecutorMetric> SLOW_TASKS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventExecutorMetric.class, "slowTasks");
+
+    private final SingleThreadEventExecutor executor;
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BOUNDS_NANOS.length + 1);
+    private final LatencyProbe probe = new LatencyProbe();
+
+    @SuppressWarnings("unused")
+    private volatile long completedTasks;
+    @SuppressWarnings("unused")
+    private volatile long taskTimeNanos;
+    @SuppressWarnings("unused")
+    private volatile long slowTasks;
+    volatile long slowTaskThresholdNanos = DEFAULT_SLOW_TASK_THRESHOLD_NANOS;
+
+    // Only accessed by the thread of the executor.
+    private boolean probeQueued;
+    private long nextProbeNanos;
+
+    DefaultEventExecutorMetric(SingleThreadEventExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns {@code true} if {@code task} is the probe of this metric, which must not be recorded as a task.
+     */
+    boolean isProbe(Runnable task) {
+        return task == probe;
+    }
+
+    /**
+     * Records a task which ran for {@code taskNanos} and ended at {@code nowNanos}, and queues the probe to
+     * {@code taskQueue} if it is due.
+     */
+    void recordTask(long taskNanos, long nowNanos, Queue<Runnable> taskQueue) {
+        COMPLETED_TASKS_UPDATER.lazySet(this, completedTasks + 1);
+        TASK_TIME_UPDATER.lazySet(this, taskTimeNanos + taskNanos);
+        if (taskNanos >= slowTaskThresholdNanos) {
+            SLOW_TASKS_UPDATER.lazySet(this, slowTasks + 1);
+        }
+        // Only probe after a task ran, so an idle executor is never kept busy by its probe.
+        if (!probeQueued && nowNanos - nextProbeNanos >= 0) {
+            probe.queuedNanos = nowNanos;
+            probeQueued = taskQueue.offer(probe);
+        }
+    }
+
+    @Override
+    public int pendingTasks() {
+        // Never use pendingTasks(), some event loops override it to run on the loop.
+        return executor.pendingTasksEstimate();
+    }
+
+    @Override
+    public long completedTasks() {
+        return completedTasks;
+    }
+
+    @Override
+    public long taskTimeNanos() {
+        return taskTimeNanos;
+    }
+
+    @Override
+    public long slowTasks() {
+        return slowTasks;
+    }
+
+    @Override
+    public long slowTaskThresholdNanos() {
+        return slowTaskThresholdNanos;
+    }
+
+    @Override
+    public long[] taskQueueLatencyHistogram() {
+        long[] histogram = new long[latencyHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencyHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(128)
+                .append("EventExecutorMetric(pendingTasks: ").append(pendingTasks())
+                .append("; completedTasks: ").append(completedTasks())
+                .append("; taskTimeNanos: ").append(taskTimeNanos())
+                .append("; slowTasks: ").append(slowTasks())
+                .append(')').toString();
+    }
+
+    private final class LatencyProbe implements Runnable {
+        long queuedNanos;
+
+        @Override
+        public void run() {
+            long nowNanos = ScheduledFutureTask.nanoTime();
+            long latency = nowNanos - queuedNanos;
+            int bucket = 0;
+            while (bucket < LATENCY_BOUNDS_NANOS.length && latency >= LATENCY_BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            latencyHistogram.lazySet(bucket, latencyHistogram.get(bucket) + 1);
+            probeQueued = false;
+            nextProbeNanos = nowNanos + PROBE_INTERVAL_NANOS;
+        }
+    }
+}
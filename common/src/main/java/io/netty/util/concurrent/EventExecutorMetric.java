@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+/**
+ * Runtime metrics of an {@link EventExecutor}, which may be read from any thread.
+ * <p>
+ * Except for {@link #pendingTasks()} all values are accumulated since the executor was created, and only while
+ * metrics are enabled via {@link SingleThreadEventExecutor#setMetricsEnabled(boolean)} or
+ * {@code -Dio.netty.eventexecutor.metrics=true}. Exporters are expected to sample them periodically and report the
+ * differences.
+ */
+public interface EventExecutorMetric {
+
+    /**
+     * Returns the number of tasks which wait in the task queue. This reads the size of the queue directly, so it never
+     * blocks or submits a task to the executor.
+     */
+    int pendingTasks();
+
+    /**
+     * Returns the number of tasks which were run.
+     */
+    long completedTasks();
+
+    /**
+     * Returns the time in nanoseconds spent running tasks.
+     */
+    long taskTimeNanos();
+
+    /**
+     * Returns the number of tasks which ran for at least {@link #slowTaskThresholdNanos()}.
+     */
+    long slowTasks();
+
+    /**
+     * Returns the threshold in nanoseconds from which a task is counted by {@link #slowTasks()}.
+     */
+    long slowTaskThresholdNanos();
+
+    /**
+     * Returns a histogram of the time tasks wait in the task queue before they are run. The bucket at index
+     * {@code i} counts the samples below <code>10<sup>i</sup></code> microseconds which were not counted by a lower
+     * bucket, and the last bucket counts all samples of a second or more.
+     * <p>
+     * Timing every task would slow down the submitting threads, so this is sampled instead: while the executor is
+     * busy it queues a probe task at most once per millisecond and records how long the probe waited.
+     */
+    long[] taskQueueLatencyHistogram();
+}
@@ -15,9 +15,11 @@
  */
 package io.netty.util.concurrent;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
@@ -158,6 +160,32 @@ public abstract class MultithreadEventExecutorGroup extends AbstractEventExecuto
         return children.length;
     }
 
+    /**
+     * Returns the {@link EventExecutorMetric}s of the {@link EventExecutor}s of this group which provide one, in the
+     * order of {@link #iterator()}.
+     */
+    public List<? extends EventExecutorMetric> metrics() {
+        List<EventExecutorMetric> metrics = new ArrayList<EventExecutorMetric>(children.length);
+        for (EventExecutor e: children) {
+            if (e instanceof EventExecutorMetricProvider) {
+                metrics.add(((EventExecutorMetricProvider) e).metric());
+            }
+        }
+        return Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * Enables or disables the metrics of all {@link SingleThreadEventExecutor}s of this group, see
+     * {@link SingleThreadEventExecutor#setMetricsEnabled(boolean)}.
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        for (EventExecutor e: children) {
+            if (e instanceof SingleThreadEventExecutor) {
+                ((SingleThreadEventExecutor) e).setMetricsEnabled(metricsEnabled);
+            }
+        }
+    }
+
     /**
      * Create a new EventExecutor which will later then accessible via the {@link #next()}  method. This method will be
      * called for each thread that will serve this {@link MultithreadEventExecutorGroup}.
@@ -21,6 +21,7 @@ import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.jctools.queues.MessagePassingQueue;
 
 import java.lang.Thread.State;
 import java.util.ArrayList;
@@ -46,7 +47,8 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
  * Abstract base class for {@link OrderedEventExecutor}'s that execute all its submitted tasks in a single thread.OrderedEventExecutor的抽象基类，它在一个线程中执行所有提交的任务。
  *
  */
-public abstract class SingleThreadEventExecutor extends AbstractScheduledEventExecutor implements OrderedEventExecutor {
+public abstract class SingleThreadEventExecutor extends AbstractScheduledEventExecutor
+        implements OrderedEventExecutor, EventExecutorMetricProvider {
 
     static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
             SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
@@ -73,6 +75,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     };
 
+    // Number of tasks taken from the task queue at once, also the interval of the timeout check in runAllTasks(long).
+    private static final int TASK_BATCH_SIZE = 64;
+
     private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> STATE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "state");
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
@@ -80,6 +85,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
 
     private final Queue<Runnable> taskQueue;
+    private final TaskRunner taskRunner = new TaskRunner();
+    private final DefaultEventExecutorMetric metric = new DefaultEventExecutorMetric(this);
+    private volatile boolean metricsEnabled = DefaultEventExecutorMetric.DEFAULT_ENABLED;
 
     private volatile Thread thread;
     @SuppressWarnings("unused")
@@ -320,6 +328,15 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Return the number of tasks that are pending for processing without going through the executor, so it can be
+     * called from any thread even if the executor is busy or was shut down. The value may be slightly off while
+     * tasks are added or taken concurrently. Used by {@link EventExecutorMetric#pendingTasks()}.
+     */
+    protected int pendingTasksEstimate() {
+        return taskQueue.size();
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
      * before.
@@ -387,19 +404,35 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @return {@code true} if at least one task was executed.
      */
     protected final boolean runAllTasksFrom(Queue<Runnable> taskQueue) {
-//        从任务队列中查询定时任务
-        Runnable task = pollTaskFrom(taskQueue);
-        if (task == null) {
-            return false;
+        int ranBefore = taskRunner.ranTasks;
+        while (runTasksFrom(taskQueue) == TASK_BATCH_SIZE) {
+            // Keep on draining until the queue is empty.
         }
-        for (;;) {
-//            同步执行任务
-            safeExecute(task);
-            task = pollTaskFrom(taskQueue);
+        return taskRunner.ranTasks != ranBefore;
+    }
+
+    /**
+     * Takes up to {@code TASK_BATCH_SIZE} tasks from {@code taskQueue} and runs them. A {@link MessagePassingQueue}
+     * is drained as a whole batch which saves the per task overhead of {@link Queue#poll()}.
+     *
+     * @return the number of tasks taken from the queue, including wakeup markers.
+     */
+    @SuppressWarnings("unchecked")
+    private int runTasksFrom(Queue<Runnable> taskQueue) {
+        taskRunner.startBatch();
+        if (taskQueue instanceof MessagePassingQueue) {
+            return ((MessagePassingQueue<Runnable>) taskQueue).drain(taskRunner, TASK_BATCH_SIZE);
+        }
+        int taken = 0;
+        while (taken < TASK_BATCH_SIZE) {
+            Runnable task = taskQueue.poll();
             if (task == null) {
-                return true;
+                break;
             }
+            taskRunner.accept(task);
+            taken++;
         }
+        return taken;
     }
 
     /**
@@ -410,45 +443,32 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     protected boolean runAllTasks(long timeoutNanos) {
 //        从任务队列中查询任务
         fetchFromScheduledTaskQueue();
-//        拉取任务
-        Runnable task = pollTask();
-        if (task == null) {
+        if (taskQueue.isEmpty()) {
 //            如果没有拉取到任务就处理失败的任务
             afterRunningAllTasks();
             return false;
         }
 
         final long deadline = ScheduledFutureTask.nanoTime() + timeoutNanos;
-        long runTasks = 0;
         long lastExecutionTime;
+        int ranBefore = taskRunner.ranTasks;
         for (;;) {
-//            同步执行任务
-            safeExecute(task);
+            int taken = runTasksFrom(taskQueue);
 
-            runTasks ++;
-
-            // Check timeout every 64 tasks because nanoTime() is relatively expensive.
-            // XXX: Hard-coded value - will make it configurable if it is really a problem.
-            //检查每64个任务超时，因为nanoTime()相对比较昂贵。
-// XXX:硬编码的值——如果它确实是个问题，它将可配置。
-            if ((runTasks & 0x3F) == 0) {
-                lastExecutionTime = ScheduledFutureTask.nanoTime();
-//                任务超时丢弃
-                if (lastExecutionTime >= deadline) {
-                    break;
-                }
-            }
-
-//            从任务队列中拉取任务
-            task = pollTask();
-            if (task == null) {
-                lastExecutionTime = ScheduledFutureTask.nanoTime();
+            // Check timeout once per batch because nanoTime() is relatively expensive.
+            lastExecutionTime = ScheduledFutureTask.nanoTime();
+            if (taken < TASK_BATCH_SIZE || lastExecutionTime >= deadline) {
                 break;
             }
         }
 
 //        执行完任务队列中的任务去执行失败的任务
+        boolean ranAtLeastOne = taskRunner.ranTasks != ranBefore;
         afterRunningAllTasks();
+        if (!ranAtLeastOne) {
+            // Only wakeup markers were queued.
+            return false;
+        }
         this.lastExecutionTime = lastExecutionTime;
         return true;
     }
@@ -822,6 +842,103 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
+    /**
+     * Returns {@code true} if this executor records its {@link #metric()}.
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Enables or disables recording the {@link #metric()} of this executor. Recording costs one
+     * {@link System#nanoTime()} call per task and is disabled by default unless
+     * {@code -Dio.netty.eventexecutor.metrics=true} is set.
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * Sets the run time from which a task is counted by {@link EventExecutorMetric#slowTasks()}. The default is
+     * {@code -Dio.netty.eventexecutor.slowTaskThresholdMillis} or 100 milliseconds.
+     */
+    public void setSlowTaskThreshold(long threshold, TimeUnit unit) {
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold: " + threshold + " (expected: > 0)");
+        }
+        metric.slowTaskThresholdNanos = unit.toNanos(threshold);
+    }
+
+    @Override
+    public EventExecutorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Runs a task returned by {@link #takeTask()} and records it in the {@link #metric()} of this executor. Unlike
+     * {@link #runAllTasks()} an exception thrown by the task is propagated.
+     */
+    protected final void runTask(Runnable task) {
+        if (!metricsEnabled) {
+            task.run();
+            return;
+        }
+        long startNanos = ScheduledFutureTask.nanoTime();
+        try {
+            task.run();
+        } finally {
+            if (!metric.isProbe(task)) {
+                long nowNanos = ScheduledFutureTask.nanoTime();
+                metric.recordTask(nowNanos - startNanos, nowNanos, taskQueue);
+            }
+        }
+    }
+
+    /**
+     * Adds all {@code tasks} to the task queue in the given order. Unlike calling {@link #execute(Runnable)} for each
+     * of them, the thread of this executor is woken up at most once for the whole batch.
+     */
+    public void executeAll(Runnable... tasks) {
+        if (tasks == null) {
+            throw new NullPointerException("tasks");
+        }
+        boolean wakesUp = false;
+        for (Runnable task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("task");
+            }
+            wakesUp |= wakesUpForTask(task);
+        }
+        if (tasks.length == 0) {
+            return;
+        }
+
+        boolean inEventLoop = inEventLoop();
+        if (!inEventLoop) {
+            startThread();
+        }
+        try {
+            for (Runnable task : tasks) {
+                addTask(task);
+            }
+        } finally {
+            // Also wake up if a task was rejected so the ones added before it are not left waiting.
+            if (!addTaskWakesUp && wakesUp) {
+                wakeup(inEventLoop);
+            }
+        }
+        if (!inEventLoop && isShutdown()) {
+            boolean removed = false;
+            for (Runnable task : tasks) {
+                removed |= removeTask(task);
+            }
+            if (removed) {
+                reject();
+            }
+        }
+    }
+
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
         throwIfInEventLoop("invokeAny");
@@ -980,6 +1097,41 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         });
     }
 
+    /**
+     * Runs the tasks drained from a task queue and skips the wakeup markers.
+     */
+    private final class TaskRunner implements MessagePassingQueue.Consumer<Runnable> {
+        // Only ever compared to a previous value so it may overflow.
+        int ranTasks;
+        // End of the previous task while metrics are enabled, so each task costs only one nanoTime() call.
+        private long lastNanos;
+        private boolean recordMetrics;
+
+        void startBatch() {
+            recordMetrics = metricsEnabled;
+            if (recordMetrics) {
+                lastNanos = ScheduledFutureTask.nanoTime();
+            }
+        }
+
+        @Override
+        public void accept(Runnable task) {
+            if (task == WAKEUP_TASK) {
+                return;
+            }
+            safeExecute(task);
+            if (metric.isProbe(task)) {
+                return;
+            }
+            ranTasks++;
+            if (recordMetrics) {
+                long nowNanos = ScheduledFutureTask.nanoTime();
+                metric.recordTask(nowNanos - lastNanos, nowNanos, taskQueue);
+                lastNanos = nowNanos;
+            }
+        }
+    }
+
     private static final class DefaultThreadProperties implements ThreadProperties {
         private final Thread t;
 
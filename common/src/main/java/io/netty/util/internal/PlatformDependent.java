@@ -22,6 +22,7 @@ import org.jctools.queues.MpscChunkedArrayQueue;
 import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.jctools.queues.SpscLinkedQueue;
 import org.jctools.queues.atomic.MpscAtomicArrayQueue;
+import org.jctools.queues.atomic.MpscChunkedAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscGrowableAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
 import org.jctools.queues.atomic.SpscLinkedAtomicQueue;
@@ -420,6 +421,10 @@ public final class PlatformDependent {
         return PlatformDependent0.getInt(address);
     }
 
+    public static int getIntVolatile(long address) {
+        return PlatformDependent0.getIntVolatile(address);
+    }
+
     public static long getLong(long address) {
         return PlatformDependent0.getLong(address);
     }
@@ -548,6 +553,10 @@ public final class PlatformDependent {
         PlatformDependent0.putInt(address, value);
     }
 
+    public static void putIntOrdered(long address, int value) {
+        PlatformDependent0.putIntOrdered(address, value);
+    }
+
     public static void putLong(long address, long value) {
         PlatformDependent0.putLong(address, value);
     }
@@ -865,6 +874,11 @@ public final class PlatformDependent {
                                                 : new MpscGrowableAtomicArrayQueue<T>(MPSC_CHUNK_SIZE, capacity);
         }
 
+        static <T> Queue<T> newChunkedMpscQueue(final int chunkSize, final int maxCapacity) {
+            return USE_MPSC_CHUNKED_ARRAY_QUEUE ? new MpscChunkedArrayQueue<T>(chunkSize, maxCapacity)
+                                                : new MpscChunkedAtomicArrayQueue<T>(chunkSize, maxCapacity);
+        }
+
         static <T> Queue<T> newMpscQueue() {
             return USE_MPSC_CHUNKED_ARRAY_QUEUE ? new MpscUnboundedArrayQueue<T>(MPSC_CHUNK_SIZE)
                                                 : new MpscUnboundedAtomicArrayQueue<T>(MPSC_CHUNK_SIZE);
@@ -890,6 +904,15 @@ public final class PlatformDependent {
         return Mpsc.newMpscQueue(maxCapacity);
     }
 
+    /**
+     * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and a single
+     * consumer (one thread!). The queue grows in chunks of {@code chunkSize} elements up to {@code maxCapacity}, both
+     * rounded up to the next power of two, so an idle queue only occupies a single chunk.
+     */
+    public static <T> Queue<T> newMpscQueue(final int chunkSize, final int maxCapacity) {
+        return Mpsc.newChunkedMpscQueue(chunkSize, maxCapacity);
+    }
+
     /**
      * Create a new {@link Queue} which is safe to use for single producer (one thread!) and a single
      * consumer (one thread!).
@@ -496,6 +496,10 @@ final class PlatformDependent0 {
         return UNSAFE.getInt(address);
     }
 
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
     static long getLong(long address) {
         return UNSAFE.getLong(address);
     }
@@ -528,6 +532,10 @@ final class PlatformDependent0 {
         UNSAFE.putInt(address, value);
     }
 
+    static void putIntOrdered(long address, int value) {
+        UNSAFE.putOrderedInt(null, address, value);
+    }
+
     static void putLong(long address, long value) {
         UNSAFE.putLong(address, value);
     }
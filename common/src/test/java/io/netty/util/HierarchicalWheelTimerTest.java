@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HierarchicalWheelTimerTest {
+
+    @Test
+    public void testScheduleTimeoutShouldNotRunBeforeDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(createCountDownLatchTimerTask(barrier), 10, TimeUnit.SECONDS);
+        assertFalse(barrier.await(3, TimeUnit.SECONDS));
+        assertFalse("timer should not expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test(timeout = 3000)
+    public void testStopTimer() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Timer timerProcessed = new HierarchicalWheelTimer();
+        for (int i = 0; i < 3; i ++) {
+            timerProcessed.newTimeout(createCountDownLatchTimerTask(latch), 1, TimeUnit.MILLISECONDS);
+        }
+
+        latch.await();
+        assertEquals("Number of unprocessed timeouts should be 0", 0, timerProcessed.stop().size());
+
+        final Timer timerUnprocessed = new HierarchicalWheelTimer();
+        for (int i = 0; i < 5; i ++) {
+            timerUnprocessed.newTimeout(createNoOpTimerTask(), 5, TimeUnit.SECONDS);
+        }
+        Thread.sleep(1000L); // sleep for a second
+        assertEquals(5, timerUnprocessed.stop().size());
+
+        try {
+            timerProcessed.newTimeout(createNoOpTimerTask(), 1, TimeUnit.MILLISECONDS);
+            fail("Expected exception didn't occur.");
+        } catch (IllegalStateException ignored) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testExecutionOnTimeAcrossLevels() throws InterruptedException {
+        // 4 ticks per wheel and 3 levels cover 64 ticks, so the delays below are stored in every level and the
+        // largest ones even exceed the span of all wheels.
+        final int tickDuration = 10;
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), tickDuration, TimeUnit.MILLISECONDS, 4, 3);
+        final int[] delays = { 0, 5, 30, 45, 150, 170, 640, 700, 1300, 2000 };
+        final BlockingQueue<Long> queue = new LinkedBlockingQueue<Long>();
+        final AtomicReference<String> error = new AtomicReference<String>();
+        for (final int delay : delays) {
+            final long start = System.nanoTime();
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (elapsed < delay) {
+                        error.set("delay " + delay + " expired after " + elapsed);
+                    }
+                    queue.add(elapsed);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < delays.length; i++) {
+            queue.take();
+        }
+        assertNull(error.get());
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test(timeout = 5000)
+    public void testCancel() throws InterruptedException {
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 4, 3);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Timeout cancelled = timer.newTimeout(createCountDownLatchTimerTask(latch), 200, TimeUnit.MILLISECONDS);
+        final Timeout far = timer.newTimeout(createNoOpTimerTask(), 1, TimeUnit.HOURS);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+
+        // Cancel from the worker thread, which unlinks the timeout right away.
+        final CountDownLatch cancelledFromTask = new CountDownLatch(1);
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                if (far.cancel()) {
+                    cancelledFromTask.countDown();
+                }
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        cancelledFromTask.await();
+        assertEquals(0, timer.pendingTimeouts());
+        assertFalse(latch.await(300, TimeUnit.MILLISECONDS));
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testRejectedExecutionExceptionWhenTooManyTimeoutsAreAddedBackToBack() {
+        HierarchicalWheelTimer timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(), 100,
+            TimeUnit.MILLISECONDS, 32, 2, true, 2);
+        timer.newTimeout(createNoOpTimerTask(), 5, TimeUnit.SECONDS);
+        timer.newTimeout(createNoOpTimerTask(), 5, TimeUnit.SECONDS);
+        try {
+            timer.newTimeout(createNoOpTimerTask(), 1, TimeUnit.MILLISECONDS);
+            fail("Timer allowed adding 3 timeouts when maxPendingTimeouts was 2");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void reportPendingTimeouts() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer();
+        final Timeout t1 = timer.newTimeout(createNoOpTimerTask(), 100, TimeUnit.MINUTES);
+        final Timeout t2 = timer.newTimeout(createNoOpTimerTask(), 100, TimeUnit.MINUTES);
+        timer.newTimeout(createCountDownLatchTimerTask(latch), 90, TimeUnit.MILLISECONDS);
+
+        assertEquals(3, timer.pendingTimeouts());
+        t1.cancel();
+        t2.cancel();
+        latch.await();
+
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    private static TimerTask createNoOpTimerTask() {
+        return new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) throws Exception {
+            }
+        };
+    }
+
+    private static TimerTask createCountDownLatchTimerTask(final CountDownLatch latch) {
+        return new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        };
+    }
+}
@@ -15,6 +15,7 @@
 */
 package io.netty.util;
 
+import io.netty.util.internal.PlatformDependent;
 import org.junit.Test;
 
 import java.util.Random;
@@ -245,6 +246,101 @@ public class RecyclerTest {
                 " internally", array.length - maxCapacity / 2 <= instancesCount.get());
     }
 
+    private static Recycler<HandledObject> newMpscRecycler(int max, int maxSharedCapacityFactor, int ratio,
+                                                           final AtomicInteger instancesCount) {
+        return new Recycler<HandledObject>(max, maxSharedCapacityFactor, ratio, 0, true) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                instancesCount.incrementAndGet();
+                return new HandledObject(handle);
+            }
+        };
+    }
+
+    private static void recycleAtDifferentThread(final HandledObject... objects) throws Exception {
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (HandledObject object: objects) {
+                        object.recycle();
+                    }
+                } catch (Throwable t) {
+                    cause.set(t);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        if (cause.get() != null) {
+            PlatformDependent.throwException(cause.get());
+        }
+    }
+
+    @Test
+    public void testRecycleAtDifferentThreadWithMpscQueue() throws Exception {
+        Recycler<HandledObject> recycler = newMpscRecycler(256, 10, 2, new AtomicInteger());
+
+        HandledObject o = recycler.get();
+        HandledObject o2 = recycler.get();
+        recycleAtDifferentThread(o, o2);
+
+        assertSame(recycler.get(), o);
+        assertNotSame(recycler.get(), o2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycleAtDifferentThreadWithMpscQueue() throws Exception {
+        Recycler<HandledObject> recycler = newMpscRecycler(256, 2, 1, new AtomicInteger());
+        HandledObject object = recycler.get();
+        recycleAtDifferentThread(object, object);
+    }
+
+    @Test
+    public void testMpscQueueIsBounded() throws Exception {
+        final int maxCapacity = 64;
+        AtomicInteger instancesCount = new AtomicInteger();
+        Recycler<HandledObject> recycler = newMpscRecycler(maxCapacity, 2, 1, instancesCount);
+
+        HandledObject[] array = new HandledObject[maxCapacity * 2];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = recycler.get();
+        }
+        instancesCount.set(0);
+        recycleAtDifferentThread(array);
+
+        for (int i = 0; i < array.length; i++) {
+            recycler.get();
+        }
+        // The queue holds at most maxCapacity / maxSharedCapacityFactor handles, the rest was dropped.
+        assertEquals(array.length - maxCapacity / 2, instancesCount.get());
+    }
+
+    @Test
+    public void testMpscQueueKeepsHandlesWhileStackIsFull() throws Exception {
+        final int maxCapacity = 4;
+        AtomicInteger instancesCount = new AtomicInteger();
+        Recycler<HandledObject> recycler = newMpscRecycler(maxCapacity, 1, 1, instancesCount);
+
+        HandledObject[] array = new HandledObject[maxCapacity * 3];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = recycler.get();
+        }
+        instancesCount.set(0);
+        recycleAtDifferentThread(array);
+
+        recycler.get();
+        assertEquals(maxCapacity, recycler.threadLocalCapacity());
+        assertEquals(maxCapacity - 1, recycler.threadLocalSize());
+
+        // The handles which did not fit into the stack are drained once it is empty again.
+        for (int i = 1; i < array.length; i++) {
+            recycler.get();
+        }
+        assertEquals(0, instancesCount.get());
+    }
+
     static final class HandledObject {
         Recycler.Handle<HandledObject> handle;
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntArrayDequeTest {
+
+    @Test
+    public void testAddAndRemove() {
+        IntArrayDeque deque = new IntArrayDeque(2);
+        deque.addLast(2);
+        deque.addFirst(1);
+        deque.addLast(3);
+        assertEquals(3, deque.size());
+        assertEquals(1, deque.first());
+        assertEquals(3, deque.last());
+        assertEquals(2, deque.get(1));
+        assertArrayEquals(new int[] { 1, 2, 3 }, deque.toArray());
+        assertEquals("[1, 2, 3]", deque.toString());
+
+        assertEquals(1, deque.removeFirst());
+        assertEquals(3, deque.removeLast());
+        assertEquals(2, deque.removeFirst());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testRemoveFirstEmpty() {
+        new IntArrayDeque().removeFirst();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testRemoveLastEmpty() {
+        new IntArrayDeque().removeLast();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        IntArrayDeque deque = new IntArrayDeque();
+        deque.addLast(1);
+        deque.get(1);
+    }
+
+    @Test
+    public void fuzzTest() {
+        Random rnd = new Random(0);
+        IntArrayDeque deque = new IntArrayDeque(1);
+        // Reference implementation which mirrors all operations.
+        ArrayDeque<Integer> goodDeque = new ArrayDeque<Integer>();
+        for (int i = 0; i < 100000; i++) {
+            int value = rnd.nextInt();
+            switch (rnd.nextInt(4)) {
+            case 0:
+                deque.addFirst(value);
+                goodDeque.addFirst(value);
+                break;
+            case 1:
+                deque.addLast(value);
+                goodDeque.addLast(value);
+                break;
+            case 2:
+                if (!goodDeque.isEmpty()) {
+                    assertEquals(goodDeque.removeFirst().intValue(), deque.removeFirst());
+                }
+                break;
+            default:
+                if (!goodDeque.isEmpty()) {
+                    assertEquals(goodDeque.removeLast().intValue(), deque.removeLast());
+                }
+                break;
+            }
+            assertEquals(goodDeque.size(), deque.size());
+        }
+        int[] expected = new int[goodDeque.size()];
+        int i = 0;
+        for (Integer value : goodDeque) {
+            expected[i++] = value;
+        }
+        assertArrayEquals(expected, deque.toArray());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntIntHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        testPutGetRemove(false);
+        testPutGetRemove(true);
+    }
+
+    private static void testPutGetRemove(boolean direct) {
+        IntIntHashMap map = new IntIntHashMap(4, 0.5f, -1, direct);
+        try {
+            assertEquals(direct, map.isDirect());
+            assertEquals(-1, map.get(1));
+            assertEquals(-1, map.put(1, 10));
+            assertEquals(-1, map.put(0, 0));
+            assertEquals(-1, map.put(-1, Integer.MIN_VALUE));
+            assertEquals(3, map.size());
+            assertEquals(10, map.put(1, 11));
+            assertEquals(11, map.get(1));
+            assertEquals(0, map.get(0));
+            assertEquals(Integer.MIN_VALUE, map.get(-1));
+            assertTrue(map.containsKey(0));
+            assertFalse(map.containsKey(2));
+
+            assertEquals(0, map.remove(0));
+            assertFalse(map.containsKey(0));
+            assertEquals(-1, map.remove(0));
+            assertEquals(11, map.remove(1));
+            assertEquals(-1, map.remove(1));
+            assertEquals(1, map.size());
+
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertEquals(-1, map.get(-1));
+        } finally {
+            map.free();
+        }
+    }
+
+    @Test
+    public void testKeysAndEquals() {
+        IntIntHashMap heap = new IntIntHashMap();
+        IntIntHashMap direct = new IntIntHashMap(2, 0.5f, 0, true);
+        try {
+            for (int i = 100; i >= 0; i--) {
+                heap.put(i, i * 2);
+                direct.put(i, i * 2);
+            }
+            assertEquals(heap, direct);
+            assertEquals(heap.hashCode(), direct.hashCode());
+
+            int[] keys = direct.keys();
+            Arrays.sort(keys);
+            int[] expected = new int[101];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = i;
+            }
+            assertArrayEquals(expected, keys);
+
+            direct.put(50, 0);
+            assertNotEquals(heap, direct);
+        } finally {
+            direct.free();
+        }
+    }
+
+    @Test
+    public void testToString() {
+        IntIntHashMap map = new IntIntHashMap();
+        assertEquals("{}", map.toString());
+        map.put(0, 1);
+        map.put(2, 3);
+        assertEquals("{0=1, 2=3}", map.toString());
+    }
+
+    @Test
+    public void fuzzTest() {
+        fuzzTest(false);
+        fuzzTest(true);
+    }
+
+    private static void fuzzTest(boolean direct) {
+        // The RNG algorithm is specified and stable, so this will cause the same exact dataset
+        // to be used in every run and every JVM implementation.
+        Random rnd = new Random(0);
+        int baseSize = 1000;
+        IntIntHashMap map = new IntIntHashMap(8, 0.5f, Integer.MIN_VALUE, direct);
+        // Reference map which implementation we trust to be correct, will mirror all operations.
+        Map<Integer, Integer> goodMap = new HashMap<Integer, Integer>();
+        try {
+            for (int i = 0; i < baseSize * 100; ++i) {
+                // 50% of the keys are multiples of 16 which causes many conflicts.
+                int key = rnd.nextBoolean() ? rnd.nextInt(baseSize) : rnd.nextInt(baseSize) * 16;
+                if (rnd.nextDouble() >= 0.2) {
+                    int value = rnd.nextInt();
+                    assertEquals(valueOf(goodMap.put(key, value)), map.put(key, value));
+                } else {
+                    assertEquals(valueOf(goodMap.remove(key)), map.remove(key));
+                }
+                assertEquals(goodMap.size(), map.size());
+            }
+            for (Map.Entry<Integer, Integer> entry : goodMap.entrySet()) {
+                assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+            }
+            for (int key : map.keys()) {
+                assertEquals(valueOf(goodMap.remove(key)), map.remove(key));
+            }
+            assertTrue(map.isEmpty());
+            assertTrue(goodMap.isEmpty());
+        } finally {
+            map.free();
+        }
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? Integer.MIN_VALUE : value;
+    }
+}
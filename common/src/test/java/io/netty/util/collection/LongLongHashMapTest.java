@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LongLongHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        testPutGetRemove(false);
+        testPutGetRemove(true);
+    }
+
+    private static void testPutGetRemove(boolean direct) {
+        LongLongHashMap map = new LongLongHashMap(4, 0.5f, -1, direct);
+        try {
+            assertEquals(direct, map.isDirect());
+            assertEquals(-1, map.get(1));
+            assertEquals(-1, map.put(1, 10));
+            assertEquals(-1, map.put(0, 0));
+            assertEquals(-1, map.put(Long.MIN_VALUE, Long.MAX_VALUE));
+            assertEquals(3, map.size());
+            assertEquals(10, map.put(1, 11));
+            assertEquals(11, map.get(1));
+            assertEquals(0, map.get(0));
+            assertEquals(Long.MAX_VALUE, map.get(Long.MIN_VALUE));
+            assertTrue(map.containsKey(0));
+            assertFalse(map.containsKey(1L << 32));
+
+            assertEquals(0, map.remove(0));
+            assertFalse(map.containsKey(0));
+            assertEquals(11, map.remove(1));
+            assertEquals(-1, map.remove(1));
+            assertEquals(1, map.size());
+
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertEquals(-1, map.get(Long.MIN_VALUE));
+        } finally {
+            map.free();
+        }
+    }
+
+    @Test
+    public void testEquals() {
+        LongLongHashMap heap = new LongLongHashMap();
+        LongLongHashMap direct = new LongLongHashMap(2, 0.5f, 0, true);
+        try {
+            for (long i = 100; i >= 0; i--) {
+                heap.put(i << 32, i);
+                direct.put(i << 32, i);
+            }
+            assertEquals(heap, direct);
+            assertEquals(heap.hashCode(), direct.hashCode());
+            assertEquals(101, direct.keys().length);
+
+            direct.remove(50L << 32);
+            assertNotEquals(heap, direct);
+        } finally {
+            direct.free();
+        }
+    }
+
+    @Test
+    public void fuzzTest() {
+        fuzzTest(false);
+        fuzzTest(true);
+    }
+
+    private static void fuzzTest(boolean direct) {
+        // The RNG algorithm is specified and stable, so this will cause the same exact dataset
+        // to be used in every run and every JVM implementation.
+        Random rnd = new Random(0);
+        int baseSize = 1000;
+        LongLongHashMap map = new LongLongHashMap(8, 0.5f, Long.MIN_VALUE, direct);
+        // Reference map which implementation we trust to be correct, will mirror all operations.
+        Map<Long, Long> goodMap = new HashMap<Long, Long>();
+        try {
+            for (int i = 0; i < baseSize * 100; ++i) {
+                // 50% of the keys only differ in the high bits which causes many conflicts.
+                long key = rnd.nextBoolean() ? rnd.nextInt(baseSize) : (long) rnd.nextInt(baseSize) << 32;
+                if (rnd.nextDouble() >= 0.2) {
+                    long value = rnd.nextLong();
+                    assertEquals(valueOf(goodMap.put(key, value)), map.put(key, value));
+                } else {
+                    assertEquals(valueOf(goodMap.remove(key)), map.remove(key));
+                }
+                assertEquals(goodMap.size(), map.size());
+            }
+            for (Map.Entry<Long, Long> entry : goodMap.entrySet()) {
+                assertEquals(entry.getValue().longValue(), map.get(entry.getKey()));
+            }
+            for (long key : map.keys()) {
+                assertEquals(valueOf(goodMap.remove(key)), map.remove(key));
+            }
+            assertTrue(map.isEmpty());
+            assertTrue(goodMap.isEmpty());
+        } finally {
+            map.free();
+        }
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? Long.MIN_VALUE : value;
+    }
+}
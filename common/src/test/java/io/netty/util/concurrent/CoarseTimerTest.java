@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoarseTimerTest {
+
+    private DefaultEventExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new DefaultEventExecutor();
+        executor.setCoarseTimerTick(10, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testDeadlineNeverRunsEarly() throws Exception {
+        final BlockingQueue<String> errors = new LinkedBlockingQueue<String>();
+        final int count = 1000;
+        final BlockingQueue<Object> done = new LinkedBlockingQueue<Object>();
+        // A full rotation of the wheel takes 512 ms.
+        executor.setCoarseTimerTick(1, TimeUnit.MILLISECONDS);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                CoarseTimer timer = executor.coarseTimer();
+                Random random = new Random(0);
+                for (int i = 0; i < count; i++) {
+                    // Some deadlines are beyond a full rotation of the wheel.
+                    final long delayMillis = i % 10 == 0 ? 600 + random.nextInt(300) : random.nextInt(300);
+                    final long start = System.nanoTime();
+                    timer.newDeadline(new Runnable() {
+                        @Override
+                        public void run() {
+                            long elapsed = System.nanoTime() - start;
+                            if (elapsed < TimeUnit.MILLISECONDS.toNanos(delayMillis)) {
+                                errors.add("delay " + delayMillis + " ran after " + elapsed + " ns");
+                            }
+                            done.add(Boolean.TRUE);
+                        }
+                    }).reschedule(delayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }).sync();
+        for (int i = 0; i < count; i++) {
+            done.take();
+        }
+        assertNull(errors.poll());
+        assertEquals(0, (int) executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return executor.coarseTimer().size();
+            }
+        }).get());
+    }
+
+    @Test(timeout = 10000)
+    public void testRescheduleAndCancel() throws Exception {
+        final BlockingQueue<String> fired = new LinkedBlockingQueue<String>();
+        final List<CoarseTimer.Deadline> deadlines = new ArrayList<CoarseTimer.Deadline>();
+        final long[] start = new long[1];
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                CoarseTimer timer = executor.coarseTimer();
+                for (final String name : new String[] { "later", "earlier", "cancelled" }) {
+                    CoarseTimer.Deadline deadline = timer.newDeadline(new Runnable() {
+                        @Override
+                        public void run() {
+                            fired.add(name);
+                        }
+                    });
+                    deadline.reschedule(200, TimeUnit.MILLISECONDS);
+                    deadlines.add(deadline);
+                }
+                start[0] = System.nanoTime();
+                // Moving a deadline further only updates it in place.
+                deadlines.get(0).reschedule(400, TimeUnit.MILLISECONDS);
+                deadlines.get(1).reschedule(50, TimeUnit.MILLISECONDS);
+                assertTrue(deadlines.get(2).cancel());
+                assertFalse(deadlines.get(2).cancel());
+                assertEquals(2, timer.size());
+            }
+        }).sync();
+
+        assertEquals("earlier", fired.take());
+        assertEquals("later", fired.take());
+        assertTrue(System.nanoTime() - start[0] >= TimeUnit.MILLISECONDS.toNanos(400));
+        assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+        for (CoarseTimer.Deadline deadline : deadlines) {
+            assertFalse(deadline.isScheduled());
+        }
+    }
+
+    @Test
+    public void testTickCanNotBeChangedOnceUsed() throws Exception {
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(TimeUnit.MILLISECONDS.toNanos(10), executor.coarseTimer().tickNanos());
+            }
+        }).sync();
+        try {
+            executor.setCoarseTimerTick(1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+}
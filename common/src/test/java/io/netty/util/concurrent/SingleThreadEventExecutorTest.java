@@ -15,17 +15,24 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.PlatformDependent;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class SingleThreadEventExecutorTest {
@@ -170,4 +177,125 @@ public class SingleThreadEventExecutorTest {
             executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
         }
     }
+
+    @Test(timeout = 5000)
+    public void testExecuteAllWakesUpOnce() throws Exception {
+        final AtomicInteger wakeups = new AtomicInteger();
+        final Semaphore semaphore = new Semaphore(0);
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(
+                null, Executors.defaultThreadFactory(), false) {
+            @Override
+            protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+                return PlatformDependent.newMpscQueue();
+            }
+
+            @Override
+            protected void wakeup(boolean inEventLoop) {
+                if (!inEventLoop) {
+                    wakeups.incrementAndGet();
+                    semaphore.release();
+                }
+            }
+
+            @Override
+            protected void run() {
+                do {
+                    runAllTasks();
+                    try {
+                        semaphore.tryAcquire(10, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ignore) {
+                        // Ignore
+                    }
+                } while (!confirmShutdown());
+            }
+        };
+        try {
+            final List<Integer> ran = new ArrayList<Integer>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            Runnable[] tasks = new Runnable[1000];
+            for (int i = 0; i < tasks.length; i++) {
+                final int index = i;
+                tasks[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        ran.add(index);
+                        if (ran.size() == 1000) {
+                            latch.countDown();
+                        }
+                    }
+                };
+            }
+            executor.executeAll(tasks);
+            latch.await();
+            Assert.assertEquals(1, wakeups.get());
+            for (int i = 0; i < tasks.length; i++) {
+                Assert.assertEquals(i, (int) ran.get(i));
+            }
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+
+        try {
+            executor.executeAll(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            });
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testMetrics() throws Exception {
+        DefaultEventExecutorGroup group = new DefaultEventExecutorGroup(1);
+        try {
+            group.setMetricsEnabled(true);
+            EventExecutor executor = group.next();
+            ((SingleThreadEventExecutor) executor).setSlowTaskThreshold(50, TimeUnit.MILLISECONDS);
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException ignore) {
+                        // Ignore
+                    }
+                }
+            }).sync();
+            Future<?> future = null;
+            for (int i = 0; i < 100; i++) {
+                future = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                });
+            }
+            future.sync();
+            // The metric of a task is recorded after it completed its future, so run one more.
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).sync();
+
+            Assert.assertEquals(1, group.metrics().size());
+            EventExecutorMetric metric = group.metrics().get(0);
+            Assert.assertSame(((EventExecutorMetricProvider) executor).metric(), metric);
+            Assert.assertTrue(metric.completedTasks() >= 101);
+            Assert.assertEquals(1, metric.slowTasks());
+            Assert.assertTrue(metric.taskTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+            long samples = 0;
+            for (long count : metric.taskQueueLatencyHistogram()) {
+                samples += count;
+            }
+            Assert.assertTrue(samples > 0);
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
 }
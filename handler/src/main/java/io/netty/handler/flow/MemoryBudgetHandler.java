@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.flow;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.MemoryBudget;
+import io.netty.buffer.MemoryBudgetListener;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Disables {@code autoRead} while the soft limit of a {@link MemoryBudget} is exceeded and enables it again once
+ * the memory usage dropped below the soft limit, so a load spike slows down reading instead of exhausting the
+ * direct memory.
+ *
+ * <pre>{@code
+ * PooledByteBufAllocator allocator = new PooledByteBufAllocator(..., new MemoryBudget(softLimit, hardLimit));
+ *
+ * bootstrap.childOption(ChannelOption.ALLOCATOR, allocator);
+ * bootstrap.childHandler(new ChannelInitializer<Channel>() {
+ *     protected void initChannel(Channel ch) {
+ *         ch.pipeline().addLast(new MemoryBudgetHandler());
+ *         ...
+ *     }
+ * });
+ * }</pre>
+ *
+ * If no {@link MemoryBudget} is given the one of the {@link PooledByteBufAllocator} of the channel is used, the
+ * handler does nothing if there is none. {@code autoRead} is only enabled again if it was disabled by this handler.
+ * <p>
+ * All handlers which share the same {@link EventExecutor} and {@link MemoryBudget} are notified via one
+ * {@link MemoryBudgetListener}, so a watermark crossing results in one task per {@link EventExecutor} instead of one
+ * per channel.
+ *
+ * @see ChannelConfig#setAutoRead(boolean)
+ */
+public class MemoryBudgetHandler extends ChannelInboundHandlerAdapter {
+
+    // The listeners of the executor the current thread belongs to, only accessed by that thread.
+    private static final FastThreadLocal<Map<MemoryBudget, ExecutorListener>> LISTENERS =
+            new FastThreadLocal<Map<MemoryBudget, ExecutorListener>>() {
+                @Override
+                protected Map<MemoryBudget, ExecutorListener> initialValue() {
+                    return new IdentityHashMap<MemoryBudget, ExecutorListener>();
+                }
+            };
+
+    private final MemoryBudget budget;
+
+    private ChannelHandlerContext ctx;
+    private MemoryBudget registeredBudget;
+    private boolean paused;
+
+    /**
+     * Create a new instance which uses the {@link MemoryBudget} of the {@link PooledByteBufAllocator} of the channel.
+     */
+    public MemoryBudgetHandler() {
+        this(null);
+    }
+
+    /**
+     * Create a new instance which uses the given {@link MemoryBudget}, or the one of the
+     * {@link PooledByteBufAllocator} of the channel if {@code null}.
+     */
+    public MemoryBudgetHandler(MemoryBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Return {@code true} if {@code autoRead} is currently disabled by this handler.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        if (ctx.channel().isActive()) {
+            register();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        unregister();
+        if (paused) {
+            paused = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        register();
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        unregister();
+        ctx.fireChannelInactive();
+    }
+
+    private void register() {
+        if (registeredBudget != null) {
+            return;
+        }
+        MemoryBudget budget = this.budget != null ? this.budget : budget(ctx.alloc());
+        if (budget == null) {
+            return;
+        }
+        registeredBudget = budget;
+        Map<MemoryBudget, ExecutorListener> listeners = LISTENERS.get();
+        ExecutorListener listener = listeners.get(budget);
+        if (listener == null) {
+            listener = new ExecutorListener(ctx.executor());
+            listeners.put(budget, listener);
+            budget.addListener(listener);
+        }
+        listener.handlers.add(this);
+        update();
+    }
+
+    private void unregister() {
+        if (registeredBudget == null) {
+            return;
+        }
+        Map<MemoryBudget, ExecutorListener> listeners = LISTENERS.get();
+        ExecutorListener listener = listeners.get(registeredBudget);
+        if (listener != null && listener.handlers.remove(this) && listener.handlers.isEmpty()) {
+            listeners.remove(registeredBudget);
+            registeredBudget.removeListener(listener);
+        }
+        registeredBudget = null;
+    }
+
+    private static MemoryBudget budget(ByteBufAllocator allocator) {
+        return allocator instanceof PooledByteBufAllocator ? ((PooledByteBufAllocator) allocator).memoryBudget() : null;
+    }
+
+    private void update() {
+        if (registeredBudget == null) {
+            return;
+        }
+        ChannelConfig config = ctx.channel().config();
+        if (registeredBudget.isSoftLimitExceeded()) {
+            if (!paused && config.isAutoRead()) {
+                paused = true;
+                config.setAutoRead(false);
+            }
+        } else if (paused) {
+            paused = false;
+            config.setAutoRead(true);
+        }
+    }
+
+    /**
+     * Notifies all {@link MemoryBudgetHandler}s of one {@link EventExecutor} about the changes of a
+     * {@link MemoryBudget}.
+     */
+    private static final class ExecutorListener implements MemoryBudgetListener, Runnable {
+        private final EventExecutor executor;
+        // Only accessed by the executor.
+        private final List<MemoryBudgetHandler> handlers = new ArrayList<MemoryBudgetHandler>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        ExecutorListener(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void memoryBudgetChanged(MemoryBudget budget) {
+            // Called by the thread which allocated or released the memory, which is often the executor itself.
+            if (executor.inEventLoop()) {
+                run();
+            } else if (scheduled.compareAndSet(false, true)) {
+                // The handlers query the current state, so one pending task is enough.
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            scheduled.set(false);
+            // Copy as changing autoRead may trigger events which add or remove handlers.
+            MemoryBudgetHandler[] handlers = this.handlers.toArray(new MemoryBudgetHandler[0]);
+            for (MemoryBudgetHandler handler: handlers) {
+                handler.update();
+            }
+        }
+    }
+}
@@ -25,6 +25,9 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.AbstractScheduledEventExecutor;
+import io.netty.util.concurrent.CoarseTimer;
+import io.netty.util.concurrent.EventExecutor;
 
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -92,6 +95,13 @@ import java.util.concurrent.TimeUnit;
  * ...
  * </pre>
  *
+ * <h3>Coarse timer</h3>
+ *
+ * By default each idle timeout is a task scheduled on the {@link EventExecutor} of the handler, which is inserted into
+ * and removed from its scheduled task queue every time it is re-armed. If {@code useCoarseTimer} is given the
+ * timeouts use the {@link AbstractScheduledEventExecutor#coarseTimer() coarse timer} of the executor instead, so
+ * re-arming them mostly only updates a field. The events may then be triggered up to one tick of that timer late.
+ *
  * @see ReadTimeoutHandler
  * @see WriteTimeoutHandler
  * 当通道暂时没有执行读、写或同时执行两个操作时，触发IdleStateEvent。
@@ -118,19 +128,23 @@ public class IdleStateHandler extends ChannelDuplexHandler {
     };
 
     private final boolean observeOutput;
+    private final boolean useCoarseTimer;
     private final long readerIdleTimeNanos;
     private final long writerIdleTimeNanos;
     private final long allIdleTimeNanos;
 
     private ScheduledFuture<?> readerIdleTimeout;
+    private CoarseTimer.Deadline readerIdleDeadline;
     private long lastReadTime;
     private boolean firstReaderIdleEvent = true;
 
     private ScheduledFuture<?> writerIdleTimeout;
+    private CoarseTimer.Deadline writerIdleDeadline;
     private long lastWriteTime;
     private boolean firstWriterIdleEvent = true;
 
     private ScheduledFuture<?> allIdleTimeout;
+    private CoarseTimer.Deadline allIdleDeadline;
     private boolean firstAllIdleEvent = true;
 
     private byte state; // 0 - none, 1 - initialized, 2 - destroyed
@@ -199,11 +213,43 @@ public class IdleStateHandler extends ChannelDuplexHandler {
     public IdleStateHandler(boolean observeOutput,
             long readerIdleTime, long writerIdleTime, long allIdleTime,
             TimeUnit unit) {
+        this(observeOutput, readerIdleTime, writerIdleTime, allIdleTime, unit, false);
+    }
+
+    /**
+     * Creates a new instance firing {@link IdleStateEvent}s.
+     *
+     * @param observeOutput
+     *        whether or not the consumption of {@code bytes} should be taken into
+     *        consideration when assessing write idleness. The default is {@code false}.
+     * @param readerIdleTime
+     *        an {@link IdleStateEvent} whose state is {@link IdleState#READER_IDLE}
+     *        will be triggered when no read was performed for the specified
+     *        period of time.  Specify {@code 0} to disable.
+     * @param writerIdleTime
+     *        an {@link IdleStateEvent} whose state is {@link IdleState#WRITER_IDLE}
+     *        will be triggered when no write was performed for the specified
+     *        period of time.  Specify {@code 0} to disable.
+     * @param allIdleTime
+     *        an {@link IdleStateEvent} whose state is {@link IdleState#ALL_IDLE}
+     *        will be triggered when neither read nor write was performed for
+     *        the specified period of time.  Specify {@code 0} to disable.
+     * @param unit
+     *        the {@link TimeUnit} of {@code readerIdleTime},
+     *        {@code writeIdleTime}, and {@code allIdleTime}
+     * @param useCoarseTimer
+     *        whether or not the timeouts should use the {@link AbstractScheduledEventExecutor#coarseTimer()
+     *        coarse timer} of the executor if it has one. The default is {@code false}.
+     */
+    public IdleStateHandler(boolean observeOutput,
+            long readerIdleTime, long writerIdleTime, long allIdleTime,
+            TimeUnit unit, boolean useCoarseTimer) {
         if (unit == null) {
             throw new NullPointerException("unit");
         }
 
         this.observeOutput = observeOutput;
+        this.useCoarseTimer = useCoarseTimer;
 
         if (readerIdleTime <= 0) {
             readerIdleTimeNanos = 0;
@@ -328,6 +374,23 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         initOutputChanged(ctx);
 
         lastReadTime = lastWriteTime = ticksInNanos();
+        EventExecutor executor = ctx.executor();
+        if (useCoarseTimer && executor instanceof AbstractScheduledEventExecutor) {
+            CoarseTimer timer = ((AbstractScheduledEventExecutor) executor).coarseTimer();
+            if (readerIdleTimeNanos > 0) {
+                readerIdleDeadline = timer.newDeadline(new ReaderIdleTimeoutTask(ctx));
+                readerIdleDeadline.reschedule(readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+            }
+            if (writerIdleTimeNanos > 0) {
+                writerIdleDeadline = timer.newDeadline(new WriterIdleTimeoutTask(ctx));
+                writerIdleDeadline.reschedule(writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+            }
+            if (allIdleTimeNanos > 0) {
+                allIdleDeadline = timer.newDeadline(new AllIdleTimeoutTask(ctx));
+                allIdleDeadline.reschedule(allIdleTimeNanos, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
         if (readerIdleTimeNanos > 0) {
             readerIdleTimeout = schedule(ctx, new ReaderIdleTimeoutTask(ctx),
                     readerIdleTimeNanos, TimeUnit.NANOSECONDS);
@@ -356,6 +419,18 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         return ctx.executor().schedule(task, delay, unit);
     }
 
+    /**
+     * Re-arms the {@code deadline} of {@code task} if the coarse timer is used or schedules it again otherwise.
+     */
+    private ScheduledFuture<?> reschedule(
+            ChannelHandlerContext ctx, Runnable task, CoarseTimer.Deadline deadline, long delayNanos) {
+        if (deadline != null) {
+            deadline.reschedule(delayNanos, TimeUnit.NANOSECONDS);
+            return null;
+        }
+        return schedule(ctx, task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
     private void destroy() {
         state = 2;
 
@@ -371,6 +446,18 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             allIdleTimeout.cancel(false);
             allIdleTimeout = null;
         }
+        if (readerIdleDeadline != null) {
+            readerIdleDeadline.cancel();
+            readerIdleDeadline = null;
+        }
+        if (writerIdleDeadline != null) {
+            writerIdleDeadline.cancel();
+            writerIdleDeadline = null;
+        }
+        if (allIdleDeadline != null) {
+            allIdleDeadline.cancel();
+            allIdleDeadline = null;
+        }
     }
 
     /**
@@ -496,7 +583,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
 
             if (nextDelay <= 0) {
                 // Reader is idle - set a new timeout and notify the callback.
-                readerIdleTimeout = schedule(ctx, this, readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                readerIdleTimeout = reschedule(ctx, this, readerIdleDeadline, readerIdleTimeNanos);
 
                 boolean first = firstReaderIdleEvent;
                 firstReaderIdleEvent = false;
@@ -509,7 +596,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
                 }
             } else {
                 // Read occurred before the timeout - set a new timeout with shorter delay.
-                readerIdleTimeout = schedule(ctx, this, nextDelay, TimeUnit.NANOSECONDS);
+                readerIdleTimeout = reschedule(ctx, this, readerIdleDeadline, nextDelay);
             }
         }
     }
@@ -527,7 +614,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             long nextDelay = writerIdleTimeNanos - (ticksInNanos() - lastWriteTime);
             if (nextDelay <= 0) {
                 // Writer is idle - set a new timeout and notify the callback.
-                writerIdleTimeout = schedule(ctx, this, writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                writerIdleTimeout = reschedule(ctx, this, writerIdleDeadline, writerIdleTimeNanos);
 
                 boolean first = firstWriterIdleEvent;
                 firstWriterIdleEvent = false;
@@ -544,7 +631,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
                 }
             } else {
                 // Write occurred before the timeout - set a new timeout with shorter delay.
-                writerIdleTimeout = schedule(ctx, this, nextDelay, TimeUnit.NANOSECONDS);
+                writerIdleTimeout = reschedule(ctx, this, writerIdleDeadline, nextDelay);
             }
         }
     }
@@ -565,7 +652,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             if (nextDelay <= 0) {
                 // Both reader and writer are idle - set a new timeout and
                 // notify the callback.
-                allIdleTimeout = schedule(ctx, this, allIdleTimeNanos, TimeUnit.NANOSECONDS);
+                allIdleTimeout = reschedule(ctx, this, allIdleDeadline, allIdleTimeNanos);
 
                 boolean first = firstAllIdleEvent;
                 firstAllIdleEvent = false;
@@ -583,7 +670,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             } else {
                 // Either read or write occurred before the timeout - set a new
                 // timeout with shorter delay.
-                allIdleTimeout = schedule(ctx, this, nextDelay, TimeUnit.NANOSECONDS);
+                allIdleTimeout = reschedule(ctx, this, allIdleDeadline, nextDelay);
             }
         }
     }
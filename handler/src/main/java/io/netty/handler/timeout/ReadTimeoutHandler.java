@@ -82,7 +82,22 @@ public class ReadTimeoutHandler extends IdleStateHandler {
      *        the {@link TimeUnit} of {@code timeout}
      */
     public ReadTimeoutHandler(long timeout, TimeUnit unit) {
-        super(timeout, 0, 0, unit);
+        this(timeout, unit, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param timeout
+     *        read timeout
+     * @param unit
+     *        the {@link TimeUnit} of {@code timeout}
+     * @param useCoarseTimer
+     *        whether or not the timeout should use the coarse timer of the executor,
+     *        see {@link IdleStateHandler#IdleStateHandler(boolean, long, long, long, TimeUnit, boolean)}
+     */
+    public ReadTimeoutHandler(long timeout, TimeUnit unit, boolean useCoarseTimer) {
+        super(false, timeout, 0, 0, unit, useCoarseTimer);
     }
 
     @Override
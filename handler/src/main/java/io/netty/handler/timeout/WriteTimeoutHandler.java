@@ -24,6 +24,9 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.AbstractScheduledEventExecutor;
+import io.netty.util.concurrent.CoarseTimer;
+import io.netty.util.concurrent.EventExecutor;
 
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -69,6 +72,7 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
     private static final long MIN_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     private final long timeoutNanos;
+    private final boolean useCoarseTimer;
 
     /**
      * A doubly-linked list to track all WriteTimeoutTasks
@@ -97,9 +101,26 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
      *        the {@link TimeUnit} of {@code timeout}
      */
     public WriteTimeoutHandler(long timeout, TimeUnit unit) {
+        this(timeout, unit, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param timeout
+     *        write timeout
+     * @param unit
+     *        the {@link TimeUnit} of {@code timeout}
+     * @param useCoarseTimer
+     *        whether or not the timeouts should use the {@link AbstractScheduledEventExecutor#coarseTimer()
+     *        coarse timer} of the executor if it has one, which makes scheduling and cancelling them a constant
+     *        time operation but may raise the {@link WriteTimeoutException} up to one tick of that timer late.
+     */
+    public WriteTimeoutHandler(long timeout, TimeUnit unit, boolean useCoarseTimer) {
         if (unit == null) {
             throw new NullPointerException("unit");
         }
+        this.useCoarseTimer = useCoarseTimer;
 
         if (timeout <= 0) {
             timeoutNanos = 0;
@@ -122,7 +143,7 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
         WriteTimeoutTask task = lastTask;
         lastTask = null;
         while (task != null) {
-            task.scheduledFuture.cancel(false);
+            task.cancel();
             WriteTimeoutTask prev = task.prev;
             task.prev = null;
             task.next = null;
@@ -133,9 +154,15 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
     private void scheduleTimeout(final ChannelHandlerContext ctx, final ChannelPromise promise) {
         // Schedule a timeout.
         final WriteTimeoutTask task = new WriteTimeoutTask(ctx, promise);
-        task.scheduledFuture = ctx.executor().schedule(task, timeoutNanos, TimeUnit.NANOSECONDS);
+        EventExecutor executor = ctx.executor();
+        if (useCoarseTimer && executor instanceof AbstractScheduledEventExecutor) {
+            task.deadline = ((AbstractScheduledEventExecutor) executor).coarseTimer().newDeadline(task);
+            task.deadline.reschedule(timeoutNanos, TimeUnit.NANOSECONDS);
+        } else {
+            task.scheduledFuture = executor.schedule(task, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
 
-        if (!task.scheduledFuture.isDone()) {
+        if (!task.isDone()) {
             addWriteTimeoutTask(task);
 
             // Cancel the scheduled timeout if the flush promise is complete.
@@ -197,6 +224,8 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
         WriteTimeoutTask next;
 
         ScheduledFuture<?> scheduledFuture;
+        // Used instead of scheduledFuture if the coarse timer of the executor is used.
+        CoarseTimer.Deadline deadline;
 
         WriteTimeoutTask(ChannelHandlerContext ctx, ChannelPromise promise) {
             this.ctx = ctx;
@@ -220,9 +249,29 @@ public class WriteTimeoutHandler extends ChannelOutboundHandlerAdapter {
 
         @Override
         public void operationComplete(ChannelFuture future) throws Exception {
-            // scheduledFuture has already be set when reaching here
-            scheduledFuture.cancel(false);
+            // scheduledFuture or deadline has already be set when reaching here
+            cancel();
             removeWriteTimeoutTask(this);
         }
+
+        boolean isDone() {
+            return deadline != null ? !deadline.isScheduled() : scheduledFuture.isDone();
+        }
+
+        void cancel() {
+            if (deadline == null) {
+                scheduledFuture.cancel(false);
+            } else if (ctx.executor().inEventLoop()) {
+                deadline.cancel();
+            } else {
+                // The coarse timer must only be used from its executor.
+                ctx.executor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deadline.cancel();
+                    }
+                });
+            }
+        }
     }
 }
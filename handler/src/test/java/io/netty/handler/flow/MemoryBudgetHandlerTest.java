@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.flow;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DirectChunkAllocator;
+import io.netty.buffer.MemoryBudget;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryBudgetHandlerTest {
+
+    private static final int HUGE = 32 * 1024 * 1024;
+
+    private static final DirectChunkAllocator CHUNK_ALLOCATOR = new DirectChunkAllocator() {
+        @Override
+        public ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+
+        @Override
+        public void release(ByteBuffer memory) {
+            PlatformDependent.freeDirectBuffer(memory);
+        }
+
+        @Override
+        public boolean discard(ByteBuffer memory, int offset, int length) {
+            return false;
+        }
+    };
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void init() {
+        group = new DefaultEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testAutoReadIsPausedWhileSoftLimitIsExceeded() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1024, Long.MAX_VALUE);
+        PooledByteBufAllocator allocator = newAllocator(budget);
+        final MemoryBudgetHandler handler = new MemoryBudgetHandler();
+        Channel channel = connect(allocator, handler);
+        try {
+            assertTrue(channel.config().isAutoRead());
+
+            // Huge allocations get their own chunk which is released directly.
+            ByteBuf buf = allocator.directBuffer(HUGE);
+            assertTrue(budget.isSoftLimitExceeded());
+            assertFalse(budget.isHardLimitExceeded());
+            awaitAutoRead(channel, false);
+            assertTrue(isPaused(channel, handler));
+
+            buf.release();
+            assertFalse(budget.isSoftLimitExceeded());
+            awaitAutoRead(channel, true);
+            assertFalse(isPaused(channel, handler));
+        } finally {
+            channel.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testHandlerAddedWhileSoftLimitIsExceeded() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1024, Long.MAX_VALUE);
+        PooledByteBufAllocator allocator = newAllocator(budget);
+        ByteBuf buf = allocator.directBuffer(HUGE);
+        Channel channel = connect(allocator, new MemoryBudgetHandler(budget));
+        try {
+            awaitAutoRead(channel, false);
+            buf.release();
+            awaitAutoRead(channel, true);
+        } finally {
+            channel.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testAutoReadIsEnabledWhenHandlerIsRemoved() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1024, Long.MAX_VALUE);
+        PooledByteBufAllocator allocator = newAllocator(budget);
+        final MemoryBudgetHandler handler = new MemoryBudgetHandler(budget);
+        final Channel channel = connect(allocator, handler);
+        ByteBuf buf = allocator.directBuffer(HUGE);
+        try {
+            awaitAutoRead(channel, false);
+            channel.pipeline().remove(handler);
+            awaitAutoRead(channel, true);
+        } finally {
+            buf.release();
+            channel.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testAutoReadIsResumedWhenCachedBuffersExceededSoftLimit() throws Exception {
+        MemoryBudget budget = new MemoryBudget(256 * 1024, Long.MAX_VALUE);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 256, 64, true, 0, false, 0, CHUNK_ALLOCATOR, budget);
+        Channel channel = connect(allocator, new MemoryBudgetHandler(budget));
+        try {
+            // Fill the thread cache of this thread.
+            List<ByteBuf> buffers = allocate(allocator, 12, 16 * 1024);
+            release(buffers);
+            assertEquals(12 * 16 * 1024, budget.usedMemory());
+            assertTrue(channel.config().isAutoRead());
+
+            // The cached buffers are still counted until the soft limit is exceeded.
+            buffers = allocate(allocator, 12, 32 * 1024);
+            assertTrue(budget.isSoftLimitExceeded());
+            awaitAutoRead(channel, false);
+
+            // Nothing is in flight anymore, so reading must be resumed even though the chunk is still allocated.
+            release(buffers);
+            assertFalse(budget.isSoftLimitExceeded());
+            awaitAutoRead(channel, true);
+        } finally {
+            channel.close().syncUninterruptibly();
+        }
+    }
+
+    private static List<ByteBuf> allocate(PooledByteBufAllocator allocator, int count, int capacity) {
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>(count);
+        for (int i = 0; i < count; i++) {
+            buffers.add(allocator.directBuffer(capacity));
+        }
+        return buffers;
+    }
+
+    private static void release(List<ByteBuf> buffers) {
+        for (ByteBuf buf: buffers) {
+            buf.release();
+        }
+    }
+
+    private static PooledByteBufAllocator newAllocator(MemoryBudget budget) {
+        return new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0, false, 0, CHUNK_ALLOCATOR, budget);
+    }
+
+    private static Channel connect(PooledByteBufAllocator allocator, final ChannelHandler handler)
+            throws Exception {
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        LocalAddress address = new LocalAddress(MemoryBudgetHandlerTest.class.getName());
+        Channel server = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(handler);
+                        accepted.add(ch);
+                    }
+                })
+                .bind(address).syncUninterruptibly().channel();
+        try {
+            // Closing the accepted channel closes the client as well.
+            new Bootstrap()
+                    .group(group)
+                    .channel(LocalChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(address).syncUninterruptibly();
+            Channel child = accepted.poll(5, TimeUnit.SECONDS);
+            assertNotNull(child);
+            return child;
+        } finally {
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    private static void awaitAutoRead(Channel channel, boolean autoRead) throws InterruptedException {
+        while (channel.config().isAutoRead() != autoRead) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static boolean isPaused(Channel channel, final MemoryBudgetHandler handler) throws Exception {
+        return channel.eventLoop().submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return handler.isPaused();
+            }
+        }).get();
+    }
+}
@@ -22,16 +22,27 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
 import io.netty.util.ReferenceCountUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -67,6 +78,46 @@ public class IdleStateHandlerTest {
                 IdleStateEvent.ALL_IDLE_STATE_EVENT, IdleStateEvent.ALL_IDLE_STATE_EVENT);
     }
 
+    @Test(timeout = 10000)
+    public void testCoarseTimer() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            ((DefaultEventLoop) group.next()).setCoarseTimerTick(10, TimeUnit.MILLISECONDS);
+            final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+            LocalAddress address = new LocalAddress(getClass().getName());
+            sc = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter()).bind(address).sync().channel();
+            final long start = System.nanoTime();
+            cc = new Bootstrap().group(group).channel(LocalChannel.class)
+                    .handler(new IdleStateHandler(false, 100, 0, 0, TimeUnit.MILLISECONDS, true))
+                    .connect(address).sync().channel();
+            cc.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                    events.add(evt);
+                }
+            });
+
+            assertSame(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT, events.take());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertSame(IdleStateEvent.READER_IDLE_STATE_EVENT, events.take());
+
+            cc.pipeline().remove(IdleStateHandler.class);
+            events.clear();
+            assertNull(events.poll(300, TimeUnit.MILLISECONDS));
+        } finally {
+            if (cc != null) {
+                cc.close().sync();
+            }
+            if (sc != null) {
+                sc.close().sync();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
     private static void anyIdle(TestableIdleStateHandler idleStateHandler, Object... expected) throws Exception {
 
         assertTrue("The number of expected events must be >= 1", expected.length >= 1);
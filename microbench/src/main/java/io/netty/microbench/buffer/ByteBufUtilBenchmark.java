@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Measurement;
@@ -28,6 +29,8 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
+import java.util.Arrays;
+
 
 @State(Scope.Benchmark)
 @Warmup(iterations = 5)
@@ -39,6 +42,13 @@ public class
     private ByteBuf asciiBuffer;
     private ByteBuf utf8Buffer;
 
+    // A header line of SEARCH_LENGTH bytes terminated by CRLF, the needle and an equal copy of the line.
+    private static final int SEARCH_LENGTH = 1024;
+    private ByteBuf searchBuffer;
+    private ByteBuf searchHeapBuffer;
+    private ByteBuf searchBufferCopy;
+    private ByteBuf needle;
+
     private StringBuilder asciiSequence;
     private String ascii;
 
@@ -67,6 +77,18 @@ public class
 
         asciiBuffer = Unpooled.copiedBuffer(ascii, CharsetUtil.US_ASCII);
         utf8Buffer = Unpooled.copiedBuffer(utf8, CharsetUtil.UTF_8);
+
+        byte[] line = new byte[SEARCH_LENGTH + 2];
+        for (int i = 0; i < SEARCH_LENGTH; i++) {
+            line[i] = (byte) ('a' + i % 26);
+        }
+        line[SEARCH_LENGTH] = '\r';
+        line[SEARCH_LENGTH + 1] = '\n';
+        searchBuffer = Unpooled.directBuffer(line.length).writeBytes(line);
+        searchHeapBuffer = Unpooled.buffer(line.length).writeBytes(line);
+        searchBufferCopy = Unpooled.directBuffer(line.length).writeBytes(line);
+        // Matches at the end of the line only, the first byte matches every 26 bytes.
+        needle = Unpooled.copiedBuffer(Arrays.copyOfRange(line, SEARCH_LENGTH - 14, SEARCH_LENGTH + 2));
     }
 
     @TearDown
@@ -75,6 +97,10 @@ public class
         wrapped.release();
         asciiBuffer.release();
         utf8Buffer.release();
+        searchBuffer.release();
+        searchHeapBuffer.release();
+        searchBufferCopy.release();
+        needle.release();
     }
 
     @Benchmark
@@ -182,4 +208,39 @@ public class
     public String decodeStringUtf8() {
         return utf8Buffer.toString(CharsetUtil.UTF_8);
     }
+
+    @Benchmark
+    public int indexOfByte() {
+        return ByteBufUtil.indexOf(searchBuffer, 0, searchBuffer.writerIndex(), (byte) '\r');
+    }
+
+    @Benchmark
+    public int indexOfByteHeap() {
+        return ByteBufUtil.indexOf(searchHeapBuffer, 0, searchHeapBuffer.writerIndex(), (byte) '\r');
+    }
+
+    @Benchmark
+    public int forEachByteFindCrlf() {
+        return searchBuffer.forEachByte(ByteProcessor.FIND_CRLF);
+    }
+
+    @Benchmark
+    public int forEachByteFindCrlfHeap() {
+        return searchHeapBuffer.forEachByte(ByteProcessor.FIND_CRLF);
+    }
+
+    @Benchmark
+    public int indexOfNeedle() {
+        return ByteBufUtil.indexOf(needle, searchBuffer);
+    }
+
+    @Benchmark
+    public boolean equalsDirect() {
+        return ByteBufUtil.equals(searchBuffer, searchBufferCopy);
+    }
+
+    @Benchmark
+    public boolean equalsHeapAndDirect() {
+        return ByteBufUtil.equals(searchHeapBuffer, searchBufferCopy);
+    }
 }
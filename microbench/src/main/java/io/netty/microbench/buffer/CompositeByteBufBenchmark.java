@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Aggregates many small frames into a {@link CompositeByteBuf} the way {@code HttpObjectAggregator} does and
+ * reads them back. Run it on the commits before and after a change to {@link CompositeByteBuf} to compare both
+ * implementations, {@code -prof gc} shows the garbage produced per operation.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class CompositeByteBufBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "8", "64", "1024" })
+    public int components;
+
+    @Param({ "32" })
+    public int componentSize;
+
+    private ByteBuf[] frames;
+    private CompositeByteBuf composite;
+    private int[] randomIndexes;
+    private int randomIndex;
+
+    @Setup
+    public void setup() {
+        frames = new ByteBuf[components];
+        for (int i = 0; i < components; i++) {
+            // Never released as the benchmarks only add retained duplicates.
+            frames[i] = Unpooled.directBuffer(componentSize).writeZero(componentSize);
+        }
+        composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (ByteBuf frame : frames) {
+            composite.addComponent(true, frame.retainedDuplicate());
+        }
+        randomIndexes = new int[1024];
+        for (int i = 0; i < randomIndexes.length; i++) {
+            randomIndexes[i] = (int) (Math.random() * composite.capacity());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        composite.release();
+        for (ByteBuf frame : frames) {
+            frame.release();
+        }
+    }
+
+    @Benchmark
+    public CompositeByteBuf addComponent() {
+        CompositeByteBuf buf = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (ByteBuf frame : frames) {
+            buf.addComponent(true, frame.retainedDuplicate());
+        }
+        buf.release();
+        return buf;
+    }
+
+    @Benchmark
+    public CompositeByteBuf addComponentsBulk() {
+        ByteBuf[] duplicates = new ByteBuf[frames.length];
+        for (int i = 0; i < duplicates.length; i++) {
+            duplicates[i] = frames[i].retainedDuplicate();
+        }
+        CompositeByteBuf buf = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        buf.addComponents(true, duplicates);
+        buf.release();
+        return buf;
+    }
+
+    @Benchmark
+    public CompositeByteBuf addComponentsInFront() {
+        CompositeByteBuf buf = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        for (ByteBuf frame : frames) {
+            buf.addComponent(true, 0, frame.retainedDuplicate());
+        }
+        buf.release();
+        return buf;
+    }
+
+    @Benchmark
+    public long sequentialGetLong() {
+        CompositeByteBuf buf = composite;
+        long sum = 0;
+        for (int i = 0, capacity = buf.capacity() - 7; i < capacity; i += 8) {
+            sum += buf.getLong(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public byte randomGetByte() {
+        int i = randomIndex;
+        randomIndex = (i + 1) & (randomIndexes.length - 1);
+        return composite.getByte(randomIndexes[i]);
+    }
+
+    @Benchmark
+    public ByteBuffer[] nioBuffers() {
+        return composite.nioBuffers();
+    }
+
+    @Benchmark
+    public ByteBuf copy() {
+        ByteBuf copy = composite.copy();
+        copy.release();
+        return copy;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+
+/**
+ * Measures how {@link PooledByteBufAllocator} scales when the thread caches miss and all threads hit a small number
+ * of shared arenas. The benchmark is run once for every entry of {@link #THREADS}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PooledByteBufAllocatorScalingBenchmark extends AbstractMicrobenchmark {
+
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    @Param({ "1", "4" })
+    public int arenas;
+
+    @Param({ "00256", "08192", "40000" })
+    public int size;
+
+    private PooledByteBufAllocator allocator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Disable the thread-local caches so every operation hits the arenas.
+        allocator = new PooledByteBufAllocator(true, 0, arenas, 8192, 11, 0, 0, true);
+    }
+
+    @Benchmark
+    public boolean allocateRelease() {
+        return allocator.directBuffer(size).release();
+    }
+
+    @Test
+    @Override
+    public void run() throws Exception {
+        for (int threads : THREADS) {
+            new Runner(newOptionsBuilder().threads(threads).build()).run();
+        }
+    }
+}
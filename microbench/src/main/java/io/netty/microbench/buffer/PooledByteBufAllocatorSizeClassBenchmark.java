@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.MathUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares alloc/free throughput and memory footprint of the size class based arena layout with the power of two
+ * layout that was used before. The {@code POW2} layout is emulated by rounding every request up to the next power of
+ * two, which is what the old arena did for all sizes of 512 bytes and more.
+ * <p>
+ * The footprint is reported as the {@code chunkBytesPerBuffer} secondary result: the memory of all chunks of the
+ * arena divided by the number of live buffers.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PooledByteBufAllocatorSizeClassBenchmark extends AbstractMicrobenchmark {
+
+    public enum Layout {
+        SIZE_CLASSES,
+        POW2
+    }
+
+    private static final int LIVE_BUFFERS = 4096;
+    private static final int LIVE_BUFFERS_MASK = LIVE_BUFFERS - 1;
+
+    // 16413 is the maximum size of a TLS record including its header and MAC.
+    @Param({ "00900", "09000", "16413", "17000", "40000" })
+    public int size;
+
+    @Param
+    public Layout layout;
+
+    private PooledByteBufAllocator allocator;
+    private PoolArenaMetric arena;
+    private ByteBuf[] buffers;
+    private int requestSize;
+    private int idx;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long chunkBytesPerBuffer;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Disable the thread-local caches so every operation hits the arena.
+        allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true);
+        arena = allocator.metric().directArenas().get(0);
+        requestSize = layout == Layout.POW2 ? MathUtil.safeFindNextPositivePowerOfTwo(size) : size;
+        buffers = new ByteBuf[LIVE_BUFFERS];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(requestSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public ByteBuf allocAndFree(Footprint footprint) {
+        int i = idx++ & LIVE_BUFFERS_MASK;
+        buffers[i].release();
+        ByteBuf buffer = allocator.directBuffer(requestSize);
+        buffers[i] = buffer;
+        if (i == 0) {
+            footprint.chunkBytesPerBuffer = arena.numActiveBytes() / LIVE_BUFFERS;
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DirectChunkAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.epoll.MmapDirectChunkAllocator;
+import io.netty.channel.epoll.MmapDirectChunkAllocator.HugePages;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random access over a large pool of direct buffers, comparing the chunk backing of the
+ * {@link PooledByteBufAllocator}. The working set is far larger than what the TLB can cover with 4 KiB pages, so the
+ * huge page backed variants should show a higher throughput. Run with {@code -prof perfnorm} to see the difference
+ * in {@code dTLB-load-misses} per operation.
+ * <p>
+ * The {@code MMAP_*} variants need the native epoll transport.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PooledDirectChunkAllocatorBenchmark extends AbstractMicrobenchmark {
+
+    public enum Backing {
+        ALLOCATE_DIRECT,
+        MMAP,
+        MMAP_THP,
+        MMAP_HUGETLB
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 512 MiB in total.
+    private static final int BUFFERS = 8192;
+
+    @Param
+    public Backing backing;
+
+    private PooledByteBufAllocator allocator;
+    private ByteBuf[] buffers;
+    private long seed = 42;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DirectChunkAllocator chunkAllocator;
+        switch (backing) {
+            case ALLOCATE_DIRECT:
+                chunkAllocator = null;
+                break;
+            case MMAP:
+                chunkAllocator = new MmapDirectChunkAllocator(HugePages.NONE);
+                break;
+            case MMAP_THP:
+                chunkAllocator = new MmapDirectChunkAllocator(HugePages.TRANSPARENT);
+                break;
+            case MMAP_HUGETLB:
+                chunkAllocator = new MmapDirectChunkAllocator(HugePages.HUGETLB);
+                break;
+            default:
+                throw new Error();
+        }
+        allocator = chunkAllocator == null ? new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0) :
+                new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0, false, 0, chunkAllocator);
+        buffers = new ByteBuf[BUFFERS];
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuf buffer = allocator.directBuffer(BUFFER_SIZE, BUFFER_SIZE);
+            // Touch every page so the page faults are not part of the measurement.
+            buffer.setZero(0, BUFFER_SIZE);
+            buffers[i] = buffer;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+    }
+
+    @Benchmark
+    public long randomGetSetLong() {
+        // xorshift64, cheap enough to not dominate the memory access.
+        long x = seed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed = x;
+
+        ByteBuf buffer = buffers[(int) (x >>> 40) & (BUFFERS - 1)];
+        int index = (int) x & (BUFFER_SIZE - 8);
+        long value = buffer.getLong(index);
+        buffer.setLong(index, value + 1);
+        return value;
+    }
+}
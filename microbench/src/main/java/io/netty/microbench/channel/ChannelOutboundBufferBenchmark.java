@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds many small buffers to a {@link ChannelOutboundBuffer}, flushes them at once and drains them the way a
+ * gathering write does: {@link ChannelOutboundBuffer#nioBuffers(int, long)} followed by
+ * {@link ChannelOutboundBuffer#removeBytes(long)} for everything that was returned. Each operation is one write.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ChannelOutboundBufferBenchmark extends AbstractMicrobenchmark {
+
+    private static final int WRITES = 10000;
+    // IOV_MAX on Linux.
+    private static final int MAX_GATHER = 1024;
+
+    @Param({ "8", "128" })
+    public int messageSize;
+
+    private EmbeddedChannel channel;
+    private ChannelOutboundBuffer buffer;
+    private ChannelPromise promise;
+    private ByteBuf[] messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channel = new EmbeddedChannel();
+        // Keep the channel writable so only the buffer itself is measured.
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+        buffer = channel.unsafe().outboundBuffer();
+        promise = channel.voidPromise();
+        messages = new ByteBuf[WRITES];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = Unpooled.directBuffer(messageSize).writeZero(messageSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (ByteBuf message : messages) {
+            message.release();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITES)
+    public int writeAndFlush() {
+        ChannelOutboundBuffer buffer = this.buffer;
+        for (ByteBuf message : messages) {
+            // Released again once it was written.
+            buffer.addMessage(message.retain(), messageSize, promise);
+        }
+        buffer.addFlush();
+        int gathered = 0;
+        while (!buffer.isEmpty()) {
+            buffer.nioBuffers(MAX_GATHER, Integer.MAX_VALUE);
+            gathered += buffer.nioBufferCount();
+            buffer.removeBytes(buffer.nioBufferSize());
+        }
+        return gathered;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fires events through a deep pipeline whose handlers either only inherit the pass-through methods of the adapters,
+ * and so are skipped during traversal, or override them to forward the event themselves.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
+
+    private static final Object MESSAGE = new Object();
+
+    @Param({ "4", "16" })
+    public int depth;
+
+    @Param({ "true", "false" })
+    public boolean skippable;
+
+    private EmbeddedChannel channel;
+    private ChannelPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channel = new EmbeddedChannel();
+        pipeline = channel.pipeline();
+        // Consumes what is written so nothing reaches the channel itself.
+        pipeline.addLast(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                // NOOP
+            }
+
+            @Override
+            public void flush(ChannelHandlerContext ctx) {
+                // NOOP
+            }
+        });
+        for (int i = 0; i < depth; i++) {
+            pipeline.addLast(newHandler(i));
+        }
+        // Consumes what is read so nothing reaches the tail of the pipeline.
+        pipeline.addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                // NOOP
+            }
+
+            @Override
+            public void channelReadComplete(ChannelHandlerContext ctx) {
+                // NOOP
+            }
+        });
+    }
+
+    private ChannelHandler newHandler(int index) {
+        if (skippable) {
+            switch (index % 3) {
+            case 0:
+                return new ChannelInboundHandlerAdapter();
+            case 1:
+                return new ChannelOutboundHandlerAdapter();
+            default:
+                return new ChannelDuplexHandler();
+            }
+        }
+        return new ForwardingHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.close();
+    }
+
+    @Benchmark
+    public void readAndReadComplete() {
+        pipeline.fireChannelRead(MESSAGE);
+        pipeline.fireChannelReadComplete();
+    }
+
+    @Benchmark
+    public void writeAndFlush() {
+        pipeline.write(MESSAGE, channel.voidPromise());
+        pipeline.flush();
+    }
+
+    private static final class ForwardingHandler extends ChannelDuplexHandler {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.fireChannelReadComplete();
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+}
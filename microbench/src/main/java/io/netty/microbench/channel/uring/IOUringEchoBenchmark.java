@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.uring;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.uring.IOUringEventLoopGroup;
+import io.netty.channel.uring.IOUringServerSocketChannel;
+import io.netty.channel.uring.IOUringSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Compares {@link IOUringSocketChannel} with {@link EpollSocketChannel} on a loopback echo workload. Each invocation
+ * writes {@code messagesPerFlush} messages of {@code messageSize} bytes with a single flush and waits until the
+ * server echoed all of them back.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class IOUringEchoBenchmark extends AbstractMicrobenchmark {
+
+    public enum TransportType {
+        EPOLL, IO_URING
+    }
+
+    @Param
+    public TransportType transport;
+
+    @Param({ "64", "1024", "16384" })
+    public int messageSize;
+
+    @Param({ "1", "16" })
+    public int messagesPerFlush;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private ByteBuf message;
+    private EchoClientHandler clientHandler;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final Class<? extends ServerChannel> serverChannelClass;
+        final Class<? extends Channel> channelClass;
+        if (transport == TransportType.EPOLL) {
+            group = new EpollEventLoopGroup(2);
+            serverChannelClass = EpollServerSocketChannel.class;
+            channelClass = EpollSocketChannel.class;
+        } else {
+            group = new IOUringEventLoopGroup(2);
+            serverChannelClass = IOUringServerSocketChannel.class;
+            channelClass = IOUringSocketChannel.class;
+        }
+
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(serverChannelClass)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new EchoServerHandler())
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+        clientHandler = new EchoClientHandler();
+        clientChannel = new Bootstrap()
+                .group(group)
+                .channel(channelClass)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(clientHandler)
+                .connect(serverChannel.localAddress()).sync().channel();
+
+        message = clientChannel.alloc().directBuffer(messageSize).writeZero(messageSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        message.release();
+        clientChannel.close().sync();
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public Object echo() throws Exception {
+        Promise<Void> promise = clientHandler.expect(messageSize * messagesPerFlush);
+        for (int i = 0; i < messagesPerFlush; i++) {
+            clientChannel.write(message.retainedDuplicate(), clientChannel.voidPromise());
+        }
+        clientChannel.flush();
+        return promise.sync();
+    }
+
+    @ChannelHandler.Sharable
+    private static final class EchoServerHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg, ctx.voidPromise());
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    private static final class EchoClientHandler extends ChannelInboundHandlerAdapter {
+        private ChannelHandlerContext ctx;
+        private volatile Promise<Void> promise;
+        private int remaining;
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        /**
+         * Must be called before the messages are written. The writes are handed to the event loop after this, so the
+         * state is visible once the echoed bytes are read.
+         */
+        Promise<Void> expect(int bytes) {
+            Promise<Void> promise = ctx.executor().newPromise();
+            remaining = bytes;
+            this.promise = promise;
+            return promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            remaining -= buf.readableBytes();
+            buf.release();
+            if (remaining <= 0) {
+                promise.trySuccess(null);
+            }
+        }
+    }
+}
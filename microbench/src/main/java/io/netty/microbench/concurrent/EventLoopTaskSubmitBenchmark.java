@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many producer threads submitting batches of tasks to a single {@code NioEventLoop}, either one by one via
+ * {@code execute(Runnable)} or all at once via {@link SingleThreadEventExecutor#executeAll(Runnable...)}. Each
+ * operation is one batch of {@code batchSize} tasks.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EventLoopTaskSubmitBenchmark extends AbstractMicrobenchmark {
+
+    // Bounds the tasks a producer may have queued so the event loop is not flooded.
+    private static final int MAX_IN_FLIGHT = 4096;
+
+    private EventLoopGroup group;
+    private SingleThreadEventExecutor loop;
+
+    @State(Scope.Thread)
+    public static class Producer {
+
+        @Param({ "1", "16", "128" })
+        public int batchSize;
+
+        // Only written by the event loop.
+        final AtomicLong completed = new AtomicLong();
+        Runnable[] tasks;
+        long submitted;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            tasks = new Runnable[batchSize];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        completed.lazySet(completed.get() + 1);
+                    }
+                };
+            }
+        }
+
+        void awaitCapacity() {
+            while (submitted - completed.get() > MAX_IN_FLIGHT) {
+                Thread.yield();
+            }
+            submitted += tasks.length;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        group = new NioEventLoopGroup(1);
+        loop = (SingleThreadEventExecutor) group.next();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void execute(Producer producer) {
+        producer.awaitCapacity();
+        for (Runnable task : producer.tasks) {
+            loop.execute(task);
+        }
+    }
+
+    @Benchmark
+    public void executeAll(Producer producer) {
+        producer.awaitCapacity();
+        loop.executeAll(producer.tasks);
+    }
+}
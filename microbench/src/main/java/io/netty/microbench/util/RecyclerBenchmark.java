@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+
+/**
+ * Compares the throughput of the {@link Recycler} when objects are recycled by the thread which obtained them and
+ * when they are handed to another thread first, as happens if a buffer is allocated on one event loop and released
+ * on another. {@code useMpscQueue} selects between the {@code WeakOrderQueue} handoff and the bounded MPSC queue.
+ * Run with {@code -prof gc} to compare the allocation rate, every object the {@link Recycler} fails to reuse shows up
+ * there.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RecyclerBenchmark extends AbstractMicrobenchmark {
+
+    private static Recycler<DummyObject> newRecycler(boolean useMpscQueue) {
+        return new Recycler<DummyObject>(4 * 1024, 2, 8, 16, useMpscQueue) {
+            @Override
+            protected DummyObject newObject(Handle<DummyObject> handle) {
+                return new DummyObject(handle);
+            }
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class SameThreadState {
+        @Param({ "false", "true" })
+        public boolean useMpscQueue;
+
+        Recycler<DummyObject> recycler;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            recycler = newRecycler(useMpscQueue);
+        }
+    }
+
+    @State(Scope.Group)
+    public static class CrossThreadState {
+        @Param({ "false", "true" })
+        public boolean useMpscQueue;
+
+        Recycler<DummyObject> recycler;
+        Queue<DummyObject> handoff;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            recycler = newRecycler(useMpscQueue);
+            handoff = PlatformDependent.newFixedMpscQueue(1024);
+        }
+
+        @TearDown(Level.Iteration)
+        public void drain() {
+            // Do not let objects pile up between iterations if the recycling thread fell behind.
+            handoff.clear();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DummyObject sameThread(SameThreadState state) {
+        DummyObject object = state.recycler.get();
+        object.recycle();
+        return object;
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public DummyObject crossThreadGet(CrossThreadState state) {
+        DummyObject object = state.recycler.get();
+        if (!state.handoff.offer(object)) {
+            // The recycling thread fell behind, recycle here so the benchmark does not block.
+            object.recycle();
+        }
+        return object;
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public DummyObject crossThreadRecycle(CrossThreadState state) {
+        DummyObject object = state.handoff.poll();
+        if (object != null) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    static final class DummyObject {
+        private final Recycler.Handle<DummyObject> handle;
+
+        DummyObject(Recycler.Handle<DummyObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+}
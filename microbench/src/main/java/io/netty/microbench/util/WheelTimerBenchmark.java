@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.HierarchicalWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HashedWheelTimer} and {@link HierarchicalWheelTimer} while they hold millions of pending
+ * timeouts of several minutes, like the idle and read timeouts of a busy server. {@code scheduleAndCancel} is the
+ * pattern of a timeout which is replaced on every read, {@code expire} measures how fast short timeouts expire
+ * next to the long ones.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class WheelTimerBenchmark extends AbstractMicrobenchmark {
+
+    private static final int EXPIRE_BATCH = 1000;
+
+    private static final TimerTask NO_OP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+            // NOOP
+        }
+    };
+
+    @Param({ "HASHED", "HIERARCHICAL" })
+    public String timerType;
+
+    @Param({ "1000000", "4000000" })
+    public int pending;
+
+    private Timer timer;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("HASHED".equals(timerType)) {
+            timer = new HashedWheelTimer(Executors.defaultThreadFactory(), 1, TimeUnit.MILLISECONDS, 512);
+        } else {
+            timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(), 1, TimeUnit.MILLISECONDS, 64, 4);
+        }
+        random = new Random(42);
+        for (int i = 0; i < pending; i++) {
+            timer.newTimeout(NO_OP, longDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.stop();
+    }
+
+    private long longDelay() {
+        // Between 10 and 60 minutes.
+        return TimeUnit.MINUTES.toMillis(10) + random.nextInt((int) TimeUnit.MINUTES.toMillis(50));
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return timer.newTimeout(NO_OP, longDelay(), TimeUnit.MILLISECONDS).cancel();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXPIRE_BATCH)
+    public void expire() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(EXPIRE_BATCH);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < EXPIRE_BATCH; i++) {
+            timer.newTimeout(task, 1, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+    }
+}
@@ -15,6 +15,7 @@
 package io.netty.microbenchmark.common;
 
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.collection.IntIntHashMap;
 import io.netty.util.collection.IntObjectHashMap;
 import org.agrona.collections.Int2ObjectHashMap;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -23,6 +24,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
 
 import java.util.HashSet;
@@ -34,7 +36,9 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
 
     public enum MapType {
         AGRONA,
-        NETTY
+        NETTY,
+        NETTY_INT_INT,
+        NETTY_INT_INT_DIRECT
     }
 
     public enum KeyDistribution {
@@ -64,12 +68,25 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
                 environment = new NettyEnvironment();
                 break;
             }
+            case NETTY_INT_INT: {
+                environment = new NettyIntIntEnvironment(false);
+                break;
+            }
+            case NETTY_INT_INT_DIRECT: {
+                environment = new NettyIntIntEnvironment(true);
+                break;
+            }
             default: {
                 throw new IllegalStateException("Invalid mapType: " + mapType);
             }
         }
     }
 
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.Throughput)
     public void put(Blackhole bh) {
@@ -120,6 +137,9 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
         abstract void put(Blackhole bh);
         abstract void lookup(Blackhole bh);
         abstract void remove(Blackhole bh);
+        void close() {
+            // Nothing to release by default.
+        }
     }
 
     private class AgronaEnvironment extends Environment {
@@ -189,4 +209,54 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
             }
         }
     }
+
+    private class NettyIntIntEnvironment extends Environment {
+        private final boolean direct;
+        private final IntIntHashMap map;
+
+        NettyIntIntEnvironment(boolean direct) {
+            this.direct = direct;
+            map = newMap();
+            for (int key : keys) {
+                map.put(key, key);
+            }
+        }
+
+        private IntIntHashMap newMap() {
+            return new IntIntHashMap(IntIntHashMap.DEFAULT_CAPACITY, IntIntHashMap.DEFAULT_LOAD_FACTOR, 0, direct);
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            IntIntHashMap map = newMap();
+            for (int key : keys) {
+                bh.consume(map.put(key, key));
+            }
+            map.free();
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            IntIntHashMap copy = newMap();
+            for (int key : keys) {
+                copy.put(key, key);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+            copy.free();
+        }
+
+        @Override
+        void close() {
+            map.free();
+        }
+    }
 }
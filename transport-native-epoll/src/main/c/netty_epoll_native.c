@@ -27,6 +27,7 @@
 #include <sys/types.h>
 #include <sys/socket.h>
 #include <sys/timerfd.h>
+#include <sys/mman.h>
 #include <unistd.h>
 #include <arpa/inet.h>
 #include <fcntl.h>
@@ -50,11 +51,27 @@
 #define TCP_FASTOPEN 23
 #endif
 
+// SOL_UDP is not defined by all libc versions. We define this here so older systems can compile.
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+// UDP_SEGMENT is defined in linux 4.18. We define this here so older kernels can compile.
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif
+
+// UDP_GRO is defined in linux 5.0. We define this here so older kernels can compile.
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
 // optional
 extern int epoll_create1(int flags) __attribute__((weak));
 
 #ifdef IO_NETTY_SENDMMSG_NOT_FOUND
 extern int sendmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, unsigned int flags) __attribute__((weak));
+extern int recvmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, int flags, struct timespec* timeout) __attribute__((weak));
 
 #ifndef __USE_GNU
 struct mmsghdr {
@@ -70,6 +87,14 @@ jfieldID packetScopeIdFieldId = NULL;
 jfieldID packetPortFieldId = NULL;
 jfieldID packetMemoryAddressFieldId = NULL;
 jfieldID packetCountFieldId = NULL;
+jfieldID packetSenderAddrFieldId = NULL;
+jfieldID packetSenderAddrLenFieldId = NULL;
+jfieldID packetSenderScopeIdFieldId = NULL;
+jfieldID packetSenderPortFieldId = NULL;
+jfieldID packetReceivedBytesFieldId = NULL;
+jfieldID packetSegmentSizeFieldId = NULL;
+jfieldID packetReceivedSegmentSizeFieldId = NULL;
+jfieldID packetReceivedTruncatedFieldId = NULL;
 
 // util methods
 static int getSysctlValue(const char * property, int* returnValue) {
@@ -236,6 +261,7 @@ static jint netty_epoll_native_epollCtlDel0(JNIEnv* env, jclass clazz, jint efd,
 static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
     struct mmsghdr msg[len];
     struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(uint16_t))];
     socklen_t addrSize;
     int i;
 
@@ -257,6 +283,20 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
 
         msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
         msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);;
+
+        jint segmentSize = (*env)->GetIntField(env, packet, packetSegmentSizeFieldId);
+        if (segmentSize > 0) {
+            // Let the kernel split the buffer into datagrams of segmentSize bytes (UDP GSO).
+            msg[i].msg_hdr.msg_control = control[i];
+            msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+            memset(control[i], 0, sizeof(control[i]));
+
+            struct cmsghdr* cm = CMSG_FIRSTHDR(&msg[i].msg_hdr);
+            cm->cmsg_level = SOL_UDP;
+            cm->cmsg_type = UDP_SEGMENT;
+            cm->cmsg_len = CMSG_LEN(sizeof(uint16_t));
+            *((uint16_t*) CMSG_DATA(cm)) = (uint16_t) segmentSize;
+        }
     }
 
     ssize_t res;
@@ -272,6 +312,87 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
     return (jint) res;
 }
 
+static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(int))];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = (socklen_t) sizeof(struct sockaddr_storage);
+
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        // Used to receive the segment size if UDP_GRO is enabled.
+        msg[i].msg_hdr.msg_control = control[i];
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+        (*env)->DeleteLocalRef(env, packet);
+    }
+
+    int res;
+    int err;
+    do {
+       res = recvmmsg(fd, msg, len, 0, NULL);
+       // keep on reading if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetSenderAddrFieldId);
+        jint addrLen;
+        jint scopeId = 0;
+        jint port;
+        jint segmentSize = 0;
+        struct cmsghdr* cm;
+
+        for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+            if (cm->cmsg_level == SOL_UDP && cm->cmsg_type == UDP_GRO) {
+                segmentSize = *((int*) CMSG_DATA(cm));
+                break;
+            }
+        }
+
+        if (addr[i].ss_family == AF_INET) {
+            struct sockaddr_in* s = (struct sockaddr_in*) &addr[i];
+            addrLen = 4;
+            port = ntohs(s->sin_port);
+            (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) &s->sin_addr.s_addr);
+        } else {
+            struct sockaddr_in6* s = (struct sockaddr_in6*) &addr[i];
+            port = ntohs(s->sin6_port);
+            if (IN6_IS_ADDR_V4MAPPED(&s->sin6_addr)) {
+                // IPv4-mapped-on-IPv6, only expose the IPv4 part.
+                addrLen = 4;
+                (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) &s->sin6_addr.s6_addr[12]);
+            } else {
+                addrLen = 16;
+                scopeId = s->sin6_scope_id;
+                (*env)->SetByteArrayRegion(env, address, 0, addrLen, (jbyte*) &s->sin6_addr.s6_addr);
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSenderAddrLenFieldId, addrLen);
+        (*env)->SetIntField(env, packet, packetSenderScopeIdFieldId, scopeId);
+        (*env)->SetIntField(env, packet, packetSenderPortFieldId, port);
+        (*env)->SetIntField(env, packet, packetReceivedBytesFieldId, (jint) msg[i].msg_len);
+        (*env)->SetIntField(env, packet, packetReceivedSegmentSizeFieldId, segmentSize);
+        (*env)->SetBooleanField(env, packet, packetReceivedTruncatedFieldId,
+                                (msg[i].msg_hdr.msg_flags & MSG_TRUNC) != 0 ? JNI_TRUE : JNI_FALSE);
+        (*env)->DeleteLocalRef(env, address);
+        (*env)->DeleteLocalRef(env, packet);
+    }
+    return (jint) res;
+}
+
 static jstring netty_epoll_native_kernelVersion(JNIEnv* env, jclass clazz) {
     struct utsname name;
 
@@ -292,6 +413,27 @@ static jboolean netty_epoll_native_isSupportingSendmmsg(JNIEnv* env, jclass claz
     return JNI_FALSE;
 }
 
+static jboolean netty_epoll_native_isSupportingRecvmmsg(JNIEnv* env, jclass clazz) {
+    // Use & to avoid warnings with -Wtautological-pointer-compare when recvmmsg is
+    // not weakly defined.
+    if (&recvmmsg != NULL) {
+        return JNI_TRUE;
+    }
+    return JNI_FALSE;
+}
+
+static jboolean netty_epoll_native_isSupportingUdpSegment(JNIEnv* env, jclass clazz) {
+    int fd = socket(AF_INET, SOCK_DGRAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    int gso = 0;
+    socklen_t len = sizeof(gso);
+    int res = getsockopt(fd, SOL_UDP, UDP_SEGMENT, &gso, &len);
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
 static jboolean netty_epoll_native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
@@ -321,6 +463,10 @@ static jint netty_epoll_native_epollerr(JNIEnv* env, jclass clazz) {
     return EPOLLERR;
 }
 
+static jint netty_epoll_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
 static jint netty_epoll_native_sizeofEpollEvent(JNIEnv* env, jclass clazz) {
     return sizeof(struct epoll_event);
 }
@@ -359,6 +505,53 @@ static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
 
     return TCP_MD5SIG_MAXKEYLEN;
 }
+
+static jlong netty_epoll_native_mmap0(JNIEnv* env, jclass clazz, jlong length, jboolean hugeTlb) {
+    int flags = MAP_PRIVATE | MAP_ANONYMOUS;
+    void* addr;
+
+    if (hugeTlb == JNI_TRUE) {
+#ifdef MAP_HUGETLB
+        flags |= MAP_HUGETLB;
+#else
+        return -EINVAL;
+#endif
+    }
+    addr = mmap(NULL, (size_t) length, PROT_READ | PROT_WRITE, flags, -1, 0);
+    if (addr == MAP_FAILED) {
+        return -errno;
+    }
+    return (jlong) addr;
+}
+
+static jint netty_epoll_native_munmap0(JNIEnv* env, jclass clazz, jlong address, jlong length) {
+    if (munmap((void*) address, (size_t) length) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_epoll_native_madviseHugePage0(JNIEnv* env, jclass clazz, jlong address, jlong length) {
+#ifdef MADV_HUGEPAGE
+    if (madvise((void*) address, (size_t) length, MADV_HUGEPAGE) == -1) {
+        return -errno;
+    }
+    return 0;
+#else
+    return -EINVAL;
+#endif
+}
+
+static jint netty_epoll_native_madviseDontNeed0(JNIEnv* env, jclass clazz, jlong address, jlong length) {
+    if (madvise((void*) address, (size_t) length, MADV_DONTNEED) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_epoll_native_pageSize(JNIEnv* env, jclass clazz) {
+    return (jint) sysconf(_SC_PAGESIZE);
+}
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
@@ -368,8 +561,11 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "epollout", "()I", (void *) netty_epoll_native_epollout },
   { "epollrdhup", "()I", (void *) netty_epoll_native_epollrdhup },
   { "epollerr", "()I", (void *) netty_epoll_native_epollerr },
+  { "errnoENOBUFS", "()I", (void *) netty_epoll_native_errnoENOBUFS },
   { "tcpMd5SigMaxKeyLen", "()I", (void *) netty_epoll_native_tcpMd5SigMaxKeyLen },
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
+  { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
+  { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
   { "isSupportingTcpFastopen", "()Z", (void *) netty_epoll_native_isSupportingTcpFastopen },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
@@ -385,15 +581,20 @@ static const JNINativeMethod fixed_method_table[] = {
   { "epollCtlAdd0", "(III)I", (void *) netty_epoll_native_epollCtlAdd0 },
   { "epollCtlMod0", "(III)I", (void *) netty_epoll_native_epollCtlMod0 },
   { "epollCtlDel0", "(II)I", (void *) netty_epoll_native_epollCtlDel0 },
-  // "sendmmsg0" has a dynamic signature
+  // "sendmmsg0" and "recvmmsg0" have a dynamic signature
   { "sizeofEpollEvent", "()I", (void *) netty_epoll_native_sizeofEpollEvent },
   { "offsetofEpollData", "()I", (void *) netty_epoll_native_offsetofEpollData },
-  { "splice0", "(IJIJJ)I", (void *) netty_epoll_native_splice0 }
+  { "splice0", "(IJIJJ)I", (void *) netty_epoll_native_splice0 },
+  { "mmap0", "(JZ)J", (void *) netty_epoll_native_mmap0 },
+  { "munmap0", "(JJ)I", (void *) netty_epoll_native_munmap0 },
+  { "madviseHugePage0", "(JJ)I", (void *) netty_epoll_native_madviseHugePage0 },
+  { "madviseDontNeed0", "(JJ)I", (void *) netty_epoll_native_madviseDontNeed0 },
+  { "pageSize", "()I", (void *) netty_epoll_native_pageSize }
 };
 static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
 
 static jint dynamicMethodsTableSize() {
-    return fixed_method_table_size + 1; // 1 is for the dynamic method signatures.
+    return fixed_method_table_size + 2; // 2 is for the dynamic method signatures.
 }
 
 static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
@@ -404,6 +605,11 @@ static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
     dynamicMethod->name = "sendmmsg0";
     dynamicMethod->signature = netty_unix_util_prepend("(I[L", dynamicTypeName);
     dynamicMethod->fnPtr = (void *) netty_epoll_native_sendmmsg0;
+
+    dynamicMethod = &dynamicMethods[fixed_method_table_size + 1];
+    dynamicMethod->name = "recvmmsg0";
+    dynamicMethod->signature = netty_unix_util_prepend("(I[L", dynamicTypeName);
+    dynamicMethod->fnPtr = (void *) netty_epoll_native_recvmmsg0;
     free(dynamicTypeName);
     return dynamicMethods;
 }
@@ -493,6 +699,48 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
         return JNI_ERR;
     }
 
+    packetSenderAddrFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderAddr", "[B");
+    if (packetSenderAddrFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderAddr");
+        return JNI_ERR;
+    }
+    packetSenderAddrLenFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderAddrLen", "I");
+    if (packetSenderAddrLenFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderAddrLen");
+        return JNI_ERR;
+    }
+    packetSenderScopeIdFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderScopeId", "I");
+    if (packetSenderScopeIdFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderScopeId");
+        return JNI_ERR;
+    }
+    packetSenderPortFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderPort", "I");
+    if (packetSenderPortFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderPort");
+        return JNI_ERR;
+    }
+    packetReceivedBytesFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "receivedBytes", "I");
+    if (packetReceivedBytesFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.receivedBytes");
+        return JNI_ERR;
+    }
+    packetSegmentSizeFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "segmentSize", "I");
+    if (packetSegmentSizeFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.segmentSize");
+        return JNI_ERR;
+    }
+    packetReceivedSegmentSizeFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "receivedSegmentSize", "I");
+    if (packetReceivedSegmentSizeFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env,
+                "failed to get field ID: NativeDatagramPacket.receivedSegmentSize");
+        return JNI_ERR;
+    }
+    packetReceivedTruncatedFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "receivedTruncated", "Z");
+    if (packetReceivedTruncatedFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.receivedTruncated");
+        return JNI_ERR;
+    }
+
     return NETTY_JNI_VERSION;
 }
 
@@ -392,6 +392,13 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
          */
         abstract void epollInReady();
 
+        /**
+         * Called once EPOLLERR was received, before {@link #epollOutReady()} and {@link #epollInReady()} are called.
+         */
+        void epollErrReady() {
+            // NOOP
+        }
+
         final void epollInBefore() { maybeMoreDataToRead = false; }
 //
         final void epollInFinally(ChannelConfig config) {
@@ -28,7 +28,10 @@ import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.EventLoop;
 import io.netty.channel.FileRegion;
+import io.netty.channel.PredictiveRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.ScratchRecvByteBufAllocator;
+import io.netty.channel.WriteCoalescer;
 import io.netty.channel.internal.ChannelUtils;
 import io.netty.channel.socket.DuplexChannel;
 import io.netty.channel.unix.FileDescriptor;
@@ -70,6 +73,8 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private static final ClosedChannelException FAIL_SPLICE_IF_CLOSED_CLOSED_CHANNEL_EXCEPTION =
             ThrowableUtil.unknownStackTrace(new ClosedChannelException(),
             AbstractEpollStreamChannel.class, "failSpliceIfClosed(...)");
+    private static final ClosedChannelException ZEROCOPY_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), AbstractEpollStreamChannel.class, "doClose()");
 //
     private final Runnable flushTask = new Runnable() {
         @Override
@@ -85,6 +90,10 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     private WritableByteChannel byteChannel;
 
+    // Lazy init these if we write with MSG_ZEROCOPY
+    private ZeroCopyWriteQueue zeroCopyQueue;
+    private ZeroCopyAwareMessageProcessor zeroCopyAwareProcessor;
+
     protected AbstractEpollStreamChannel(Channel parent, int fd) {
         this(parent, new LinuxSocket(fd));
     }
@@ -269,6 +278,9 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return 0;
         }
 
+        if (isZeroCopyWrite(buf)) {
+            return writeZeroCopy(in, buf);
+        }
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
             return doWriteBytes(in, buf);
         } else {
@@ -278,6 +290,67 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Returns the minimal number of readable bytes of a buffer which is written with {@code MSG_ZEROCOPY}, or
+     * {@code -1} if {@code MSG_ZEROCOPY} must not be used.
+     */
+    int zeroCopyThreshold() {
+        return -1;
+    }
+
+    /**
+     * Returns the {@link WriteCoalescer} which merges small buffers before they are written, or {@code null}.
+     */
+    WriteCoalescer writeCoalescer() {
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if the given {@link ByteBuf} needs to be written via
+     * {@link #writeZeroCopy(ChannelOutboundBuffer, ByteBuf)}.
+     */
+    private boolean isZeroCopyWrite(ByteBuf buf) {
+        if (zeroCopyQueue != null && zeroCopyQueue.isCurrent(buf)) {
+            return true;
+        }
+        int threshold = zeroCopyThreshold();
+        return threshold >= 0 && buf.hasMemoryAddress() && buf.readableBytes() >= threshold;
+    }
+
+    /**
+     * Write a {@link ByteBuf} with {@code MSG_ZEROCOPY}. Its promise is notified once the kernel no longer uses the
+     * memory of the buffer.
+     * @param in the collection which contains objects to write.
+     * @param buf the {@link ByteBuf} from which the bytes should be written
+     * @return The value that should be decremented from the write quantum which starts at
+     * {@link ChannelConfig#getWriteSpinCount()}. The typical use cases are as follows:
+     * <ul>
+     *     <li>1 - if a single call to write data was made to the OS</li>
+     *     <li>{@link ChannelUtils#WRITE_STATUS_SNDBUF_FULL} - if an attempt to write data was made to the OS, but
+     *     no data was accepted</li>
+     * </ul>
+     */
+    private int writeZeroCopy(ChannelOutboundBuffer in, ByteBuf buf) throws IOException {
+        if (zeroCopyQueue == null) {
+            zeroCopyQueue = new ZeroCopyWriteQueue();
+        }
+        return zeroCopyQueue.write(socket, in, buf, zeroCopyThreshold() >= 0);
+    }
+
+    /**
+     * Returns the number of sends done with {@code MSG_ZEROCOPY} for which the kernel did not need to copy the data.
+     */
+    long zeroCopiedSends() {
+        return zeroCopyQueue == null ? 0 : zeroCopyQueue.zeroCopiedSends();
+    }
+
+    /**
+     * Returns the number of sends which should have been done with {@code MSG_ZEROCOPY} but fell back to copying.
+     */
+    long copiedSends() {
+        return zeroCopyQueue == null ? 0 : zeroCopyQueue.copiedSends();
+    }
+
     private void adjustMaxBytesPerGatheringWrite(long attempted, long written, long oldMaxBytesPerGatheringWrite) {
         // By default we track the SO_SNDBUF when ever it is explicitly set. However some OSes may dynamically change
         // SO_SNDBUF (and other characteristics that determine how much data can be written at once) so we should try
@@ -426,6 +499,10 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
         int writeSpinCount = config().getWriteSpinCount();
+        WriteCoalescer coalescer = writeCoalescer();
+        if (coalescer != null) {
+            coalescer.coalesce(in, alloc());
+        }
         do {
             final int msgCount = in.size();
             // Do gathering write if the outbound buffer entries start with more than one ByteBuf.
@@ -515,7 +592,20 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         if (PlatformDependent.hasUnsafe()) {
             IovArray array = ((EpollEventLoop) eventLoop()).cleanArray();
             array.maxBytes(maxBytesPerGatheringWrite);
-            in.forEachFlushedMessage(array);
+            if (zeroCopyQueue != null || zeroCopyThreshold() >= 0) {
+                ByteBuf buf = (ByteBuf) in.current();
+                if (isZeroCopyWrite(buf)) {
+                    return writeZeroCopy(in, buf);
+                }
+                // Stop gathering at the first buffer which should be written with MSG_ZEROCOPY.
+                if (zeroCopyAwareProcessor == null) {
+                    zeroCopyAwareProcessor = new ZeroCopyAwareMessageProcessor();
+                }
+                zeroCopyAwareProcessor.array = array;
+                in.forEachFlushedMessage(zeroCopyAwareProcessor);
+            } else {
+                in.forEachFlushedMessage(array);
+            }
 
             if (array.count() >= 1) {
                 // TODO: Handle the case where cnt == 1 specially.
@@ -687,6 +777,14 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     protected void doClose() throws Exception {
+        if (zeroCopyQueue != null && socket.isOpen()) {
+            try {
+                // Collect the completions that arrived so far, no more can be received once the socket is closed.
+                zeroCopyQueue.processCompletions(socket);
+            } catch (IOException e) {
+                logger.debug("Failed to read the MSG_ZEROCOPY completions before closing.", e);
+            }
+        }
         try {
             // Calling super.doClose() first so spliceTo(...) will fail on next call.
             super.doClose();
@@ -694,6 +792,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            if (zeroCopyQueue != null) {
+                int dropped = zeroCopyQueue.abandon(ZEROCOPY_CLOSED_CHANNEL_EXCEPTION);
+                if (dropped > 0 && logger.isDebugEnabled()) {
+                    logger.debug("Dropped {} buffer(s) without releasing them as they may still be referenced by " +
+                            "the kernel: {}", dropped, this);
+                }
+            }
         }
     }
 
@@ -722,6 +827,15 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    private final class ZeroCopyAwareMessageProcessor implements ChannelOutboundBuffer.MessageProcessor {
+        IovArray array;
+
+        @Override
+        public boolean processMessage(Object msg) throws Exception {
+            return !(msg instanceof ByteBuf && isZeroCopyWrite((ByteBuf) msg)) && array.processMessage(msg);
+        }
+    }
+
     class EpollStreamUnsafe extends AbstractEpollUnsafe {
         // Overridden here just to be able to access this method from AbstractEpollStreamChannel
         @Override
@@ -751,6 +865,19 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         EpollRecvByteAllocatorHandle newEpollHandle(RecvByteBufAllocator.ExtendedHandle handle) {
             return new EpollRecvByteAllocatorStreamingHandle(handle);
         }
+
+        @Override
+        void epollErrReady() {
+            if (zeroCopyQueue == null) {
+                return;
+            }
+            try {
+                zeroCopyQueue.processCompletions(socket);
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+            }
+        }
 //
         @Override
         void epollInReady() {
@@ -760,6 +887,8 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 return;
             }
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            final ScratchRecvByteBufAllocator.ScratchHandle scratchHandle = allocHandle.scratchHandle();
+            final PredictiveRecvByteBufAllocator.PredictiveHandle predictiveHandle = allocHandle.predictiveHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
 
             final ChannelPipeline pipeline = pipeline();
@@ -789,7 +918,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
                     // we use a direct buffer here as the native implementations only be able
                     // to handle direct buffers.
-                    byteBuf = allocHandle.allocate(allocator);
+                    if (predictiveHandle != null && predictiveHandle.wantsBytesAvailable()) {
+                        // The last read filled its buffer, size the next one for what is queued on the socket.
+                        predictiveHandle.bytesAvailable(socket.bytesAvailable());
+                    }
+                    byteBuf = scratchHandle != null ? scratchHandle.allocateScratch(allocator)
+                            : allocHandle.allocate(allocator);
                     allocHandle.lastBytesRead(doReadBytes(byteBuf));
                     if (allocHandle.lastBytesRead() <= 0) {
                         // nothing was read, release the buffer.
@@ -804,6 +938,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                     }
                     allocHandle.incMessagesRead(1);
                     readPending = false;
+                    if (scratchHandle != null) {
+                        // The scratch buffer must never reach the pipeline, not even from handleReadException.
+                        ByteBuf scratch = byteBuf;
+                        byteBuf = null;
+                        byteBuf = scratchHandle.copyOut(allocator, scratch);
+                    }
                     pipeline.fireChannelRead(byteBuf);
                     byteBuf = null;
 
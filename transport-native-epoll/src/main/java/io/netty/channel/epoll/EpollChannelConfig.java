@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.util.Map;
 
 import static io.netty.channel.unix.Limits.SSIZE_MAX;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 //
 public class EpollChannelConfig extends DefaultChannelConfig {
     final AbstractEpollChannel channel;
@@ -39,7 +40,7 @@ public class EpollChannelConfig extends DefaultChannelConfig {
 
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
-        return getOptions(super.getOptions(), EpollChannelOption.EPOLL_MODE);
+        return getOptions(super.getOptions(), EpollChannelOption.EPOLL_MODE, EpollChannelOption.SO_BUSY_POLL);
     }
 
     @SuppressWarnings("unchecked")
@@ -48,6 +49,9 @@ public class EpollChannelConfig extends DefaultChannelConfig {
         if (option == EpollChannelOption.EPOLL_MODE) {
             return (T) getEpollMode();
         }
+        if (option == EpollChannelOption.SO_BUSY_POLL) {
+            return (T) Integer.valueOf(getSoBusyPoll());
+        }
         return super.getOption(option);
     }
 
@@ -56,6 +60,8 @@ public class EpollChannelConfig extends DefaultChannelConfig {
         validate(option, value);
         if (option == EpollChannelOption.EPOLL_MODE) {
             setEpollMode((EpollMode) value);
+        } else if (option == EpollChannelOption.SO_BUSY_POLL) {
+            setSoBusyPoll((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -172,6 +178,33 @@ public class EpollChannelConfig extends DefaultChannelConfig {
         }
         return this;
     }
+
+    /**
+     * Returns the number of microseconds the kernel busy polls for new packets, see
+     * <a href="http://man7.org/linux/man-pages/man7/socket.7.html">SO_BUSY_POLL</a>. {@code 0} means disabled.
+     */
+    public int getSoBusyPoll() {
+        try {
+            return channel.socket.getSoBusyPoll();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Sets the number of microseconds the kernel busy polls for new packets, see
+     * <a href="http://man7.org/linux/man-pages/man7/socket.7.html">SO_BUSY_POLL</a>. {@code 0} disables busy polling,
+     * which is the default.
+     */
+    public EpollChannelConfig setSoBusyPoll(int loopMicros) {
+        checkPositiveOrZero(loopMicros, "loopMicros");
+        try {
+            channel.socket.setSoBusyPoll(loopMicros);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
 //
     private void checkChannelNotRegistered() {
         if (channel.isRegistered()) {
@@ -38,6 +38,55 @@ public final class EpollChannelOption<T> extends UnixChannelOption<T> {
             ChannelOption.valueOf(EpollChannelOption.class, "TCP_DEFER_ACCEPT");
     public static final ChannelOption<Boolean> TCP_QUICKACK = valueOf(EpollChannelOption.class, "TCP_QUICKACK");
 
+    /**
+     * The maximal number of datagrams an {@link EpollDatagramChannel} receives with one
+     * <a href="http://man7.org/linux/man-pages/man2/recvmmsg.2.html">recvmmsg(...)</a> call. A value of {@code 1}
+     * (the default) reads one datagram per syscall.
+     */
+    public static final ChannelOption<Integer> RECVMMSG_BATCH_SIZE =
+            valueOf(EpollChannelOption.class, "RECVMMSG_BATCH_SIZE");
+
+    /**
+     * Enables UDP_GRO on an {@link EpollDatagramChannel}, which allows the kernel to coalesce datagrams of the same
+     * flow into one buffer. The channel splits them again before they are passed through the pipeline.
+     */
+    public static final ChannelOption<Boolean> UDP_GRO = valueOf(EpollChannelOption.class, "UDP_GRO");
+
+    /**
+     * Enables <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">SO_ZEROCOPY</a> on an
+     * {@link EpollSocketChannel}. Direct buffers of at least {@link #ZEROCOPY_THRESHOLD} bytes are then written with
+     * {@code MSG_ZEROCOPY}, and the promise of such a write is only completed once the kernel no longer references the
+     * memory of the buffer.
+     */
+    public static final ChannelOption<Boolean> SO_ZEROCOPY = valueOf(EpollChannelOption.class, "SO_ZEROCOPY");
+
+    /**
+     * The minimal number of readable bytes a buffer needs to be written with {@code MSG_ZEROCOPY} once
+     * {@link #SO_ZEROCOPY} is enabled. Smaller writes are copied as usual because pinning the pages and processing the
+     * completion notification costs more than the copy.
+     */
+    public static final ChannelOption<Integer> ZEROCOPY_THRESHOLD =
+            valueOf(EpollChannelOption.class, "ZEROCOPY_THRESHOLD");
+
+    /**
+     * The number of microseconds the kernel busy polls the device queue for new packets on blocking reads and polls of
+     * the socket, see <a href="http://man7.org/linux/man-pages/man7/socket.7.html">SO_BUSY_POLL</a>. Values above
+     * {@code net.core.busy_read} require {@code CAP_NET_ADMIN}. Best combined with
+     * {@link io.netty.channel.BusyPollSelectStrategyFactory}.
+     */
+    public static final ChannelOption<Integer> SO_BUSY_POLL = valueOf(EpollChannelOption.class, "SO_BUSY_POLL");
+
+    /**
+     * Attaches a classic BPF program via
+     * <a href="http://man7.org/linux/man-pages/man7/socket.7.html">SO_ATTACH_REUSEPORT_CBPF</a> which hands a new
+     * connection to socket {@code cpu % value} of the {@code SO_REUSEPORT} group, where {@code cpu} is the CPU which
+     * processes the incoming packet. The value is the number of sockets in the group. Combined with
+     * {@link io.netty.bootstrap.ServerBootstrap#bindPerChildLoop(java.net.SocketAddress)} and event loop threads
+     * pinned to CPUs this keeps a connection on the CPU that received it.
+     */
+    public static final ChannelOption<Integer> REUSEPORT_CPU_STEERING =
+            valueOf(EpollChannelOption.class, "REUSEPORT_CPU_STEERING");
+
     public static final ChannelOption<EpollMode> EPOLL_MODE =
             ChannelOption.valueOf(EpollChannelOption.class, "EPOLL_MODE");
 
@@ -17,6 +17,7 @@ package io.netty.channel.epoll;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.AddressedEnvelope;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelMetadata;
@@ -39,6 +40,7 @@ import java.net.NetworkInterface;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import static io.netty.channel.epoll.LinuxSocket.newSocketDgram;
 
@@ -54,9 +56,15 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             StringUtil.simpleClassName(ByteBuf.class) + ", " +
             StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
             StringUtil.simpleClassName(ByteBuf.class) + ')';
+    // The kernel coalesces at most 64KB of datagrams into one buffer when UDP_GRO is used.
+    private static final int UDP_GRO_MAX_SIZE = 64 * 1024;
+    private static final AtomicLongFieldUpdater<EpollDatagramChannel> TRUNCATED_DATAGRAMS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(EpollDatagramChannel.class, "truncatedDatagrams");
 
     private final EpollDatagramChannelConfig config;
     private volatile boolean connected;
+    // Only written by the EventLoop.
+    private volatile long truncatedDatagrams;
 
     public EpollDatagramChannel() {
         super(newSocketDgram(), Native.EPOLLIN);
@@ -77,6 +85,15 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         return (InetSocketAddress) super.remoteAddress();
     }
 
+    /**
+     * Returns the number of datagrams that were dropped because they were truncated while UDP_GRO was enabled, see
+     * {@link EpollDatagramChannelConfig#setUdpGro(boolean)}. Without UDP_GRO truncated datagrams are passed through
+     * the pipeline, like with {@link java.nio.channels.DatagramChannel}.
+     */
+    public long truncatedDatagrams() {
+        return truncatedDatagrams;
+    }
+
     @Override
     public InetSocketAddress localAddress() {
         return (InetSocketAddress) super.localAddress();
@@ -268,8 +285,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
-                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
+                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+.
+                // A SegmentedDatagramPacket always needs to go through sendmmsg(...) as it carries the UDP_SEGMENT
+                // control message.
+                if (Native.IS_SUPPORTING_SENDMMSG && (in.size() > 1 || msg instanceof SegmentedDatagramPacket)) {
                     NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance(in);
                     int cnt = array.count();
 
@@ -373,6 +392,17 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof SegmentedDatagramPacket) {
+            if (!SegmentedDatagramPacket.isSupported()) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+            }
+            SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                    packet.replace(newDirectBuffer(packet, content)) : msg;
+        }
+
         if (msg instanceof DatagramPacket) {
             DatagramPacket packet = (DatagramPacket) msg;
             ByteBuf content = packet.content();
@@ -429,6 +459,8 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
     }
 
     final class EpollDatagramChannelUnsafe extends AbstractEpollUnsafe {
+        // Buffers handed to recvmmsg(...), only accessed from the EventLoop.
+        private ByteBuf[] readBuffers;
 
         @Override
         void epollInReady() {
@@ -448,11 +480,28 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
             Throwable exception = null;
             try {
+                final EpollDatagramChannelConfig epollConfig = (EpollDatagramChannelConfig) config;
+                // UDP_GRO passes the segment size as control message which is only read via recvmmsg(...), so when
+                // enabled we always use it. EpollDatagramChannelConfig.setUdpGro(...) ensures it is supported.
+                final boolean udpGro = epollConfig.isUdpGro();
+                final boolean useRecvmmsg = udpGro ||
+                        Native.IS_SUPPORTING_RECVMMSG && epollConfig.getRecvmmsgBatchSize() > 1;
+                final int batchSize = epollConfig.getRecvmmsgBatchSize();
                 ByteBuf data = null;
                 try {
                     do {
-                        data = allocHandle.allocate(allocator);
+                        data = allocate(allocHandle, allocator, udpGro);
                         allocHandle.attemptedBytesRead(data.writableBytes());
+                        if (useRecvmmsg && isBatchable(data)) {
+                            // Ownership of data is transferred to recvmmsg(...)
+                            ByteBuf first = data;
+                            data = null;
+                            if (!recvmmsg(allocHandle, allocator, pipeline, first, batchSize, udpGro)) {
+                                break;
+                            }
+                            continue;
+                        }
+
                         final DatagramSocketAddress remoteAddress;
                         if (data.hasMemoryAddress()) {
                             // has a memory address so use optimized call
@@ -497,5 +546,129 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 epollInFinally(config);
             }
         }
+
+        private boolean isBatchable(ByteBuf data) {
+            return data.hasMemoryAddress() && data.nioBufferCount() == 1;
+        }
+
+        /**
+         * Allocate the next buffer to read into. If UDP_GRO is enabled the buffer must be able to hold the coalesced
+         * datagrams and must be batchable, as otherwise the kernel would truncate them or we could not read the
+         * segment size, so in this case a direct buffer of at least {@link #UDP_GRO_MAX_SIZE} bytes is used.
+         */
+        private ByteBuf allocate(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator,
+                                 boolean udpGro) {
+            if (!udpGro) {
+                return allocHandle.allocate(allocator);
+            }
+            int capacity = Math.max(allocHandle.guess(), UDP_GRO_MAX_SIZE);
+            ByteBuf buf = allocator.directBuffer(capacity);
+            if (isBatchable(buf)) {
+                return buf;
+            }
+            buf.release();
+            return UnpooledByteBufAllocator.DEFAULT.directBuffer(capacity);
+        }
+
+        /**
+         * Read up to {@code batchSize} datagrams with one recvmmsg(...) call. The first datagram is read into
+         * {@code first}, all others into buffers obtained from the {@code allocHandle}. Returns {@code false} if the
+         * socket was drained and so reading should stop.
+         */
+        private boolean recvmmsg(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator,
+                                 ChannelPipeline pipeline, ByteBuf first, int batchSize, boolean udpGro)
+                throws IOException {
+            NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance();
+            ByteBuf[] buffers = readBuffers(batchSize);
+            int count = 0;
+            try {
+                ByteBuf buf = first;
+                for (;;) {
+                    if (!array.addReadable(buf)) {
+                        buf.release();
+                        break;
+                    }
+                    buffers[count++] = buf;
+                    if (count == batchSize) {
+                        break;
+                    }
+                    buf = allocate(allocHandle, allocator, udpGro);
+                    if (!isBatchable(buf)) {
+                        buf.release();
+                        break;
+                    }
+                }
+                if (count == 0) {
+                    return false;
+                }
+
+                int received = Native.recvmmsg(socket.intValue(), array.packets(), 0, count);
+                InetSocketAddress localAddress = EpollDatagramChannel.this.localAddress();
+                NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+                for (int i = 0; i < received; i++) {
+                    ByteBuf data = buffers[i];
+                    buffers[i] = null;
+                    int bytes = packets[i].receivedBytes();
+
+                    allocHandle.incMessagesRead(1);
+                    allocHandle.attemptedBytesRead(data.writableBytes());
+                    allocHandle.lastBytesRead(bytes);
+                    data.writerIndex(data.writerIndex() + bytes);
+
+                    readPending = false;
+                    if (udpGro && packets[i].receivedTruncated()) {
+                        // Coalesced datagrams that were cut off can not be split correctly, so drop them.
+                        data.release();
+                        TRUNCATED_DATAGRAMS_UPDATER.lazySet(EpollDatagramChannel.this, truncatedDatagrams + 1);
+                        continue;
+                    }
+                    int segmentSize = packets[i].receivedSegmentSize();
+                    if (segmentSize > 0 && bytes > segmentSize) {
+                        fireSegments(pipeline, data, segmentSize, localAddress, packets[i].sender());
+                    } else {
+                        pipeline.fireChannelRead(new DatagramPacket(data, localAddress, packets[i].sender()));
+                    }
+                }
+
+                if (received < count) {
+                    // recvmmsg(...) only returns less datagrams than requested if there is nothing left to read.
+                    allocHandle.lastBytesRead(-1);
+                    return false;
+                }
+                return true;
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    ByteBuf buf = buffers[i];
+                    if (buf != null) {
+                        buf.release();
+                        buffers[i] = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Split a buffer that was coalesced by UDP_GRO back into the individual datagrams. Each datagram is a retained
+         * slice of {@code data}, so no bytes are copied.
+         */
+        private void fireSegments(ChannelPipeline pipeline, ByteBuf data, int segmentSize,
+                                  InetSocketAddress localAddress, InetSocketAddress sender) {
+            try {
+                while (data.isReadable()) {
+                    ByteBuf segment = data.readRetainedSlice(Math.min(data.readableBytes(), segmentSize));
+                    pipeline.fireChannelRead(new DatagramPacket(segment, localAddress, sender));
+                }
+            } finally {
+                data.release();
+            }
+        }
+
+        private ByteBuf[] readBuffers(int batchSize) {
+            ByteBuf[] buffers = readBuffers;
+            if (buffers == null || buffers.length < batchSize) {
+                buffers = readBuffers = new ByteBuf[batchSize];
+            }
+            return buffers;
+        }
     }
 }
@@ -28,10 +28,14 @@ import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.util.Map;
 
+import static io.netty.channel.unix.Limits.UIO_MAX_IOV;
+
 public final class EpollDatagramChannelConfig extends EpollChannelConfig implements DatagramChannelConfig {
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private final EpollDatagramChannel datagramChannel;
     private boolean activeOnOpen;
+    private volatile int recvmmsgBatchSize = 1;
+    private volatile boolean udpGro;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -48,7 +52,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.SO_REUSEADDR, ChannelOption.IP_MULTICAST_LOOP_DISABLED,
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
-                EpollChannelOption.SO_REUSEPORT);
+                EpollChannelOption.SO_REUSEPORT, EpollChannelOption.RECVMMSG_BATCH_SIZE, EpollChannelOption.UDP_GRO);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -87,6 +91,12 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.SO_REUSEPORT) {
             return (T) Boolean.valueOf(isReusePort());
         }
+        if (option == EpollChannelOption.RECVMMSG_BATCH_SIZE) {
+            return (T) Integer.valueOf(getRecvmmsgBatchSize());
+        }
+        if (option == EpollChannelOption.UDP_GRO) {
+            return (T) Boolean.valueOf(isUdpGro());
+        }
         return super.getOption(option);
     }
 
@@ -117,6 +127,10 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setActiveOnOpen((Boolean) value);
         } else if (option == EpollChannelOption.SO_REUSEPORT) {
             setReusePort((Boolean) value);
+        } else if (option == EpollChannelOption.RECVMMSG_BATCH_SIZE) {
+            setRecvmmsgBatchSize((Integer) value);
+        } else if (option == EpollChannelOption.UDP_GRO) {
+            setUdpGro((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -371,4 +385,57 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             throw new ChannelException(e);
         }
     }
+
+    /**
+     * Returns the maximal number of datagrams that are received with one recvmmsg(...) call.
+     */
+    public int getRecvmmsgBatchSize() {
+        return recvmmsgBatchSize;
+    }
+
+    /**
+     * Set the maximal number of datagrams that are received with one
+     * <a href="http://man7.org/linux/man-pages/man2/recvmmsg.2.html">recvmmsg(...)</a> call. Each datagram is read
+     * into its own buffer obtained from the {@link RecvByteBufAllocator}, so every buffer must be large enough to hold
+     * a full datagram. A value of {@code 1} disables the use of recvmmsg(...).
+     */
+    public EpollDatagramChannelConfig setRecvmmsgBatchSize(int recvmmsgBatchSize) {
+        if (recvmmsgBatchSize < 1 || recvmmsgBatchSize > UIO_MAX_IOV) {
+            throw new IllegalArgumentException("recvmmsgBatchSize: " + recvmmsgBatchSize +
+                    " (expected: 1-" + UIO_MAX_IOV + ')');
+        }
+        this.recvmmsgBatchSize = recvmmsgBatchSize;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if UDP_GRO is enabled.
+     */
+    public boolean isUdpGro() {
+        return udpGro;
+    }
+
+    /**
+     * Enable / disable <a href="https://lwn.net/Articles/768995/">UDP_GRO</a>. If enabled the kernel may hand out
+     * multiple datagrams of the same flow as one coalesced buffer, which is split into separate
+     * {@link io.netty.channel.socket.DatagramPacket}s sharing the same memory before they are passed through the
+     * pipeline. While enabled datagrams are always read via recvmmsg(...) into direct buffers that are large enough
+     * to hold the coalesced datagrams (up to 64KB), independent of the configured {@link RecvByteBufAllocator}.
+     * Coalesced datagrams which were truncated anyway are dropped and counted, see
+     * {@link EpollDatagramChannel#truncatedDatagrams()}.
+     *
+     * @throws UnsupportedOperationException if UDP_GRO should be enabled but recvmmsg(...) is not supported.
+     */
+    public EpollDatagramChannelConfig setUdpGro(boolean udpGro) {
+        if (udpGro && !Native.IS_SUPPORTING_RECVMMSG) {
+            throw new UnsupportedOperationException("UDP_GRO requires recvmmsg(...) which is not supported");
+        }
+        try {
+            datagramChannel.socket.setUdpGro(udpGro);
+            this.udpGro = udpGro;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
 }
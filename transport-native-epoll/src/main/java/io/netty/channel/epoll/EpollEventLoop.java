@@ -254,9 +254,20 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
+                        // The strategy keeps polling without blocking, e.g. BusyPollSelectStrategy. Other threads
+                        // need not write to the eventFd then, as the next calculateStrategy(...) sees their tasks.
+                        if (wakenUp == 0) {
+                            wakenUp = 1;
+                        }
                         continue;
                     case SelectStrategy.SELECT:
-                        strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        if (isMetricsEnabled()) {
+                            final long waitStartTime = System.nanoTime();
+                            strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                            recordIoWait(System.nanoTime() - waitStartTime);
+                        } else {
+                            strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -296,9 +307,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 final int ioRatio = this.ioRatio;
                 if (ioRatio == 100) {
                     try {
-                        if (strategy > 0) {
-                            processReady(events, strategy);
-                        }
+                        processReady(strategy);
                     } finally {
                         // Ensure we always run tasks.
                         runAllTasks();
@@ -307,9 +316,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                     final long ioStartTime = System.nanoTime();
 
                     try {
-                        if (strategy > 0) {
-                            processReady(events, strategy);
-                        }
+                        processReady(strategy);
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
@@ -368,6 +375,24 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    private void processReady(int ready) {
+        if (!isMetricsEnabled()) {
+            if (ready > 0) {
+                processReady(events, ready);
+            }
+            return;
+        }
+        final long ioStartTime = System.nanoTime();
+        try {
+            if (ready > 0) {
+                processReady(events, ready);
+            }
+        } finally {
+            // Also counts the eventfd and timerfd of this loop if they were ready.
+            recordIo(ready, System.nanoTime() - ioStartTime);
+        }
+    }
+
     private void processReady(EpollEventArray events, int ready) {
         for (int i = 0; i < ready; i ++) {
             final int fd = events.fd(i);
@@ -388,6 +413,11 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                     // past.
                     AbstractEpollUnsafe unsafe = (AbstractEpollUnsafe) ch.unsafe();
 
+                    if ((ev & Native.EPOLLERR) != 0) {
+                        // Give the channel a chance to drain its error queue, e.g. MSG_ZEROCOPY completions.
+                        unsafe.epollErrReady();
+                    }
+
                     // First check for EPOLLOUT as we may need to fail the connect ChannelPromise before try
                     // to read from the file descriptor.
                     // See https://github.com/netty/netty/issues/3785
@@ -18,7 +18,9 @@ package io.netty.channel.epoll;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelConfig;
+import io.netty.channel.PredictiveRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.ScratchRecvByteBufAllocator;
 import io.netty.util.UncheckedBooleanSupplier;
 import io.netty.util.internal.ObjectUtil;
 //
@@ -66,6 +68,24 @@ class EpollRecvByteAllocatorHandle implements RecvByteBufAllocator.ExtendedHandl
         return isEdgeTriggered;
     }
 
+    /**
+     * Returns the handle this handle delegates to if it reads into the scratch buffer of the event loop, otherwise
+     * {@code null}.
+     */
+    final ScratchRecvByteBufAllocator.ScratchHandle scratchHandle() {
+        return delegate instanceof ScratchRecvByteBufAllocator.ScratchHandle ?
+                (ScratchRecvByteBufAllocator.ScratchHandle) delegate : null;
+    }
+
+    /**
+     * Returns the handle this handle delegates to if it wants to know the bytes queued on the socket, otherwise
+     * {@code null}.
+     */
+    final PredictiveRecvByteBufAllocator.PredictiveHandle predictiveHandle() {
+        return delegate instanceof PredictiveRecvByteBufAllocator.PredictiveHandle ?
+                (PredictiveRecvByteBufAllocator.PredictiveHandle) delegate : null;
+    }
+
     @Override
     public final ByteBuf allocate(ByteBufAllocator alloc) {
         return delegate.allocate(alloc);
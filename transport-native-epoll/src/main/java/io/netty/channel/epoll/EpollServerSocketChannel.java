@@ -73,6 +73,10 @@ public final class EpollServerSocketChannel extends AbstractEpollServerChannel i
             socket.setTcpFastOpen(config.getTcpFastopen());
         }
         socket.listen(config.getBacklog());
+        if (config.getReusePortCpuSteering() > 0) {
+            // The program is attached to the SO_REUSEPORT group, which only exists once the socket is bound.
+            socket.attachReusePortCpuFilter(config.getReusePortCpuSteering());
+        }
         active = true;
     }
 
@@ -26,9 +26,12 @@ import io.netty.channel.socket.ServerSocketChannelConfig;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Map;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
 //
 public final class EpollServerSocketChannelConfig extends EpollServerChannelConfig
         implements ServerSocketChannelConfig {
+    private volatile int reusePortCpuSteering;
 
     EpollServerSocketChannelConfig(EpollServerSocketChannel channel) {
         super(channel);
@@ -42,7 +45,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
         return getOptions(super.getOptions(), EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND,
-            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT);
+            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT,
+            EpollChannelOption.REUSEPORT_CPU_STEERING);
     }
 
     @SuppressWarnings("unchecked")
@@ -60,6 +64,9 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             return (T) Integer.valueOf(getTcpDeferAccept());
         }
+        if (option == EpollChannelOption.REUSEPORT_CPU_STEERING) {
+            return (T) Integer.valueOf(getReusePortCpuSteering());
+        }
         return super.getOption(option);
     }
 
@@ -79,6 +86,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             setTcpDeferAccept((Integer) value);
+        } else if (option == EpollChannelOption.REUSEPORT_CPU_STEERING) {
+            setReusePortCpuSteering((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -215,6 +224,28 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         }
     }
 
+    /**
+     * Returns the number of sockets in the {@code SO_REUSEPORT} group the CPU steering program is attached for, or
+     * {@code 0} if none is attached.
+     */
+    public int getReusePortCpuSteering() {
+        return reusePortCpuSteering;
+    }
+
+    /**
+     * Attach a classic BPF program to the {@code SO_REUSEPORT} group of the underlying Channel which hands a new
+     * connection to socket {@code cpu % groupSize} of the group, where {@code cpu} is the CPU which processes the
+     * incoming packet. Sockets are numbered in the order they were bound. Requires {@link #setReusePort(boolean)} and
+     * Linux 4.5 or newer.
+     *
+     * Be aware this method needs be called before {@link EpollServerSocketChannel#bind(java.net.SocketAddress)}, the
+     * program is attached once the socket is bound.
+     */
+    public EpollServerSocketChannelConfig setReusePortCpuSteering(int groupSize) {
+        reusePortCpuSteering = checkPositive(groupSize, "groupSize");
+        return this;
+    }
+
     /**
      * Returns {@code true} if <a href="http://man7.org/linux/man-pages/man7/ip.7.html">IP_FREEBIND</a> is enabled,
      * {@code false} otherwise.
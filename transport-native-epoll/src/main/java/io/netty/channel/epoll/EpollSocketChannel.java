@@ -17,6 +17,7 @@ package io.netty.channel.epoll;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
+import io.netty.channel.WriteCoalescer;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.util.concurrent.GlobalEventExecutor;
@@ -66,6 +67,33 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         }
     }
 
+    /**
+     * Returns the number of writes done with {@code MSG_ZEROCOPY} for which the kernel did not need to copy the data.
+     * See {@link EpollChannelOption#SO_ZEROCOPY}.
+     */
+    public long zeroCopiedWrites() {
+        return zeroCopiedSends();
+    }
+
+    /**
+     * Returns the number of writes which should have been done with {@code MSG_ZEROCOPY} but fell back to copying the
+     * data, either because the kernel could not pin the memory or because it copied the data anyway, e.g. for
+     * loopback connections. See {@link EpollChannelOption#SO_ZEROCOPY}.
+     */
+    public long copiedWrites() {
+        return copiedSends();
+    }
+
+    @Override
+    int zeroCopyThreshold() {
+        return config.isZeroCopyEnabled() ? config.getZeroCopyThreshold() : -1;
+    }
+
+    @Override
+    WriteCoalescer writeCoalescer() {
+        return config.getWriteCoalescer();
+    }
+
     /**
      * Returns the {@code TCP_INFO} for the current socket. See <a href="http://linux.die.net/man/7/tcp">man 7 tcp</a>.
      */
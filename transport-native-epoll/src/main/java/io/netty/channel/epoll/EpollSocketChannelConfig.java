@@ -21,6 +21,7 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.WriteCoalescer;
 import io.netty.channel.socket.SocketChannelConfig;
 import io.netty.util.internal.PlatformDependent;
 
@@ -36,10 +37,17 @@ import static io.netty.channel.ChannelOption.SO_RCVBUF;
 import static io.netty.channel.ChannelOption.SO_REUSEADDR;
 import static io.netty.channel.ChannelOption.SO_SNDBUF;
 import static io.netty.channel.ChannelOption.TCP_NODELAY;
+import static io.netty.channel.ChannelOption.WRITE_COALESCER;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
 //
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
     private final EpollSocketChannel channel;
+    private static final int DEFAULT_ZEROCOPY_THRESHOLD = 16 * 1024;
+
     private volatile boolean allowHalfClosure;
+    private volatile boolean zeroCopy;
+    private volatile int zeroCopyThreshold = DEFAULT_ZEROCOPY_THRESHOLD;
+    private volatile WriteCoalescer writeCoalescer;
 
     /**
      * Creates a new instance.
@@ -62,7 +70,8 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
                 EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.IP_TRANSPARENT,
-                EpollChannelOption.TCP_FASTOPEN_CONNECT);
+                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_ZEROCOPY,
+                EpollChannelOption.ZEROCOPY_THRESHOLD, WRITE_COALESCER);
     }
 
     @SuppressWarnings("unchecked")
@@ -119,6 +128,15 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.TCP_FASTOPEN_CONNECT) {
             return (T) Boolean.valueOf(isTcpFastOpenConnect());
         }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isZeroCopy());
+        }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
+        if (option == WRITE_COALESCER) {
+            return (T) getWriteCoalescer();
+        }
         return super.getOption(option);
     }
 
@@ -164,6 +182,12 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpQuickAck((Boolean) value);
         } else if (option == EpollChannelOption.TCP_FASTOPEN_CONNECT) {
             setTcpFastOpenConnect((Boolean) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setZeroCopy((Boolean) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
+        } else if (option == WRITE_COALESCER) {
+            setWriteCoalescer((WriteCoalescer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -484,6 +508,75 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Returns {@code true} if <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">
+     * SO_ZEROCOPY</a> is enabled, {@code false} otherwise.
+     */
+    public boolean isZeroCopy() {
+        try {
+            return channel.socket.isZeroCopy();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the value set via {@link #setZeroCopy(boolean)} without a system call, used on every write.
+     */
+    boolean isZeroCopyEnabled() {
+        return zeroCopy;
+    }
+
+    /**
+     * If {@code true} is used <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">
+     * SO_ZEROCOPY</a> is enabled and direct buffers of at least {@link #getZeroCopyThreshold()} bytes are written with
+     * {@code MSG_ZEROCOPY}. Requires Linux kernel 4.14 or later. Default is disabled.
+     * Buffers the kernel did not report as completed when the channel is closed are never released, as their memory
+     * may still be transmitted, so they are left to the garbage collector.
+     */
+    public EpollSocketChannelConfig setZeroCopy(boolean zeroCopy) {
+        try {
+            channel.socket.setZeroCopy(zeroCopy);
+            this.zeroCopy = zeroCopy;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the minimal number of readable bytes a buffer needs to be written with {@code MSG_ZEROCOPY}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Sets the minimal number of readable bytes a buffer needs to be written with {@code MSG_ZEROCOPY} once
+     * {@link #setZeroCopy(boolean)} is enabled. The default is {@code 16384}.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        this.zeroCopyThreshold = checkPositive(zeroCopyThreshold, "zeroCopyThreshold");
+        return this;
+    }
+
+    /**
+     * Returns the {@link WriteCoalescer} which merges small buffers before they are written, or {@code null} if
+     * they are written as they are.
+     */
+    public WriteCoalescer getWriteCoalescer() {
+        return writeCoalescer;
+    }
+
+    /**
+     * Sets the {@link WriteCoalescer} which merges small buffers before they are written, or {@code null} to write
+     * them as they are. The default is {@code null}.
+     */
+    public EpollSocketChannelConfig setWriteCoalescer(WriteCoalescer writeCoalescer) {
+        this.writeCoalescer = writeCoalescer;
+        return this;
+    }
+
     /**
      * Set the {@code TCP_MD5SIG} option on the socket. See {@code linux/tcp.h} for more details.
      * Keys can only be set on, not read to prevent a potential leak, as they are confidential.
@@ -29,6 +29,7 @@ import java.nio.channels.ClosedChannelException;
 import static io.netty.channel.unix.Errors.ERRNO_EPIPE_NEGATIVE;
 import static io.netty.channel.unix.Errors.ioResult;
 import static io.netty.channel.unix.Errors.newConnectionResetException;
+import static io.netty.channel.unix.Errors.newIOException;
 
 /**
  * A socket which provides access Linux native methods.提供访问Linux本机方法的套接字。
@@ -40,6 +41,10 @@ final class LinuxSocket extends Socket {
             newConnectionResetException("syscall:sendfile(...)", ERRNO_EPIPE_NEGATIVE);
     private static final ClosedChannelException SENDFILE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "sendfile(...)");
+    private static final NativeIoException SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION =
+            newConnectionResetException("syscall:send(...)", ERRNO_EPIPE_NEGATIVE);
+    private static final ClosedChannelException SEND_ZEROCOPY_CLOSED_CHANNEL_EXCEPTION =
+            ThrowableUtil.unknownStackTrace(new ClosedChannelException(), Native.class, "send(...)");
 
     public LinuxSocket(int fd) {
         super(fd);
@@ -96,10 +101,26 @@ final class LinuxSocket extends Socket {
         setIpFreeBind(intValue(), enabled ? 1 : 0);
     }
 
+    void setUdpGro(boolean enabled) throws IOException {
+        setUdpGro(intValue(), enabled ? 1 : 0);
+    }
+
     void setIpTransparent(boolean enabled) throws IOException {
         setIpTransparent(intValue(), enabled ? 1 : 0);
     }
 
+    void setZeroCopy(boolean enabled) throws IOException {
+        setZeroCopy(intValue(), enabled ? 1 : 0);
+    }
+
+    void setSoBusyPoll(int loopMicros) throws IOException {
+        setSoBusyPoll(intValue(), loopMicros);
+    }
+
+    void attachReusePortCpuFilter(int groupSize) throws IOException {
+        attachReusePortCpuFilter(intValue(), groupSize);
+    }
+
     void getTcpInfo(EpollTcpInfo info) throws IOException {
         getTcpInfo(intValue(), info.info);
     }
@@ -145,10 +166,59 @@ final class LinuxSocket extends Socket {
         return isIpFreeBind(intValue()) != 0;
     }
 
+    boolean isUdpGro() throws IOException {
+        return isUdpGro(intValue()) != 0;
+    }
+
     boolean isIpTransparent() throws IOException {
         return isIpTransparent(intValue()) != 0;
     }
 
+    int getSoBusyPoll() throws IOException {
+        return getSoBusyPoll(intValue());
+    }
+
+    boolean isZeroCopy() throws IOException {
+        return isZeroCopy(intValue()) != 0;
+    }
+
+    /**
+     * Returns the number of bytes queued on the socket which can be read without blocking, via {@code FIONREAD}.
+     */
+    int bytesAvailable() throws IOException {
+        return bytesAvailable(intValue());
+    }
+
+    /**
+     * Writes the bytes between {@code pos} and {@code limit} of the memory at {@code address} with
+     * {@code MSG_ZEROCOPY}. Returns the number of written bytes, {@code 0} if the socket is not writable or {@code -1}
+     * if the kernel could not pin the memory ({@code ENOBUFS}) and the caller should fall back to a copying write.
+     */
+    int sendZeroCopy(long address, int pos, int limit) throws IOException {
+        int res = sendZeroCopy(intValue(), address, pos, limit);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("send", res, SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION, SEND_ZEROCOPY_CLOSED_CHANNEL_EXCEPTION);
+    }
+
+    /**
+     * Drains the {@code MSG_ZEROCOPY} completion notifications from the error queue of the socket. Each notification
+     * is stored as three consecutive ints in {@code completions}: the first and last id of the completed range of
+     * sends and {@code 1} if the kernel had to copy the data, {@code 0} otherwise. Returns the number of stored
+     * notifications.
+     */
+    int readZeroCopyCompletions(int[] completions) throws IOException {
+        int res = readZeroCopyCompletions(intValue(), completions);
+        if (res >= 0) {
+            return res;
+        }
+        throw newIOException("recvmsg", res);
+    }
+
     PeerCredentials getPeerCredentials() throws IOException {
         return getPeerCredentials(intValue());
     }
@@ -189,7 +259,13 @@ final class LinuxSocket extends Socket {
     private static native int getTcpKeepCnt(int fd) throws IOException;
     private static native int getTcpUserTimeout(int fd) throws IOException;
     private static native int isIpFreeBind(int fd) throws IOException;
+    private static native int isUdpGro(int fd) throws IOException;
     private static native int isIpTransparent(int fd) throws IOException;
+    private static native int isZeroCopy(int fd) throws IOException;
+    private static native int getSoBusyPoll(int fd) throws IOException;
+    private static native int bytesAvailable(int fd) throws IOException;
+    private static native int sendZeroCopy(int fd, long address, int pos, int limit);
+    private static native int readZeroCopyCompletions(int fd, int[] completions);
     private static native void getTcpInfo(int fd, long[] array) throws IOException;
     private static native PeerCredentials getPeerCredentials(int fd) throws IOException;
     private static native int isTcpFastOpenConnect(int fd) throws IOException;
@@ -205,6 +281,10 @@ final class LinuxSocket extends Socket {
     private static native void setTcpKeepCnt(int fd, int probes) throws IOException;
     private static native void setTcpUserTimeout(int fd, int milliseconds)throws IOException;
     private static native void setIpFreeBind(int fd, int freeBind) throws IOException;
+    private static native void setUdpGro(int fd, int gro) throws IOException;
     private static native void setIpTransparent(int fd, int transparent) throws IOException;
+    private static native void setZeroCopy(int fd, int zeroCopy) throws IOException;
+    private static native void setSoBusyPoll(int fd, int loopMicros) throws IOException;
+    private static native void attachReusePortCpuFilter(int fd, int groupSize) throws IOException;
     private static native void setTcpMd5Sig(int fd, byte[] address, int scopeId, byte[] key) throws IOException;
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.DirectChunkAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.unix.Errors;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.nio.ByteBuffer;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * {@link DirectChunkAllocator} which backs the chunks of a {@link PooledByteBufAllocator} with anonymous memory
+ * mappings, optionally using huge pages to reduce TLB pressure for large pools.
+ * <p>
+ * The memory is not accounted against {@code -XX:MaxDirectMemorySize} and is returned to the operating system with
+ * {@code munmap(2)} once the chunk is destroyed. Free pages of live chunks can be given back with
+ * {@code madvise(MADV_DONTNEED)} via {@link PooledByteBufAllocator#purgeFreeMemory()}.
+ */
+public final class MmapDirectChunkAllocator implements DirectChunkAllocator {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MmapDirectChunkAllocator.class);
+
+    /**
+     * The size of a huge page on x86_64 and aarch64 with 4 KiB base pages.
+     */
+    static final int HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+    /**
+     * How the mappings are backed.
+     */
+    public enum HugePages {
+        /**
+         * Use normal pages.
+         */
+        NONE,
+        /**
+         * Align the mappings to the huge page size and advise the kernel to back them with transparent huge pages
+         * via {@code madvise(MADV_HUGEPAGE)}. This requires {@code /sys/kernel/mm/transparent_hugepage/enabled} to be
+         * {@code always} or {@code madvise}.
+         */
+        TRANSPARENT,
+        /**
+         * Map the memory with {@code MAP_HUGETLB} from the pre-reserved huge page pool
+         * ({@code /proc/sys/vm/nr_hugepages}). Falls back to {@link #TRANSPARENT} if the pool is exhausted.
+         */
+        HUGETLB
+    }
+
+    private final HugePages hugePages;
+    private final int pageSize;
+
+    /**
+     * Create a new instance which uses normal pages.
+     */
+    public MmapDirectChunkAllocator() {
+        this(HugePages.NONE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param hugePages how the mappings are backed.
+     */
+    public MmapDirectChunkAllocator(HugePages hugePages) {
+        Epoll.ensureAvailability();
+        if (!PlatformDependent.hasDirectBufferNoCleanerConstructor()) {
+            throw new UnsupportedOperationException(
+                    "wrapping native memory in a ByteBuffer is not supported on this platform");
+        }
+        this.hugePages = checkNotNull(hugePages, "hugePages");
+        pageSize = Native.pageSize();
+    }
+
+    /**
+     * Return how the mappings are backed.
+     */
+    public HugePages hugePages() {
+        return hugePages;
+    }
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+        long length = mappedLength(capacity);
+        long address;
+        if (hugePages == HugePages.HUGETLB) {
+            address = Native.mmap0(length, true);
+            if (address < 0) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("mmap(MAP_HUGETLB) of {} bytes failed, falling back to transparent huge pages: {}",
+                            length, Errors.newIOException("mmap", (int) address).getMessage());
+                }
+                address = mmapTransparent(length);
+            }
+        } else if (hugePages == HugePages.TRANSPARENT) {
+            address = mmapTransparent(length);
+        } else {
+            address = mmap(length);
+        }
+        return PlatformDependent.directBuffer(address, capacity);
+    }
+
+    @Override
+    public void release(ByteBuffer memory) {
+        int res = Native.munmap0(PlatformDependent.directBufferAddress(memory), mappedLength(memory.capacity()));
+        if (res < 0) {
+            logger.warn("Failed to release a chunk of {} bytes: {}", memory.capacity(),
+                    Errors.newIOException("munmap", res).getMessage());
+        }
+    }
+
+    @Override
+    public boolean discard(ByteBuffer memory, int offset, int length) {
+        long address = PlatformDependent.directBufferAddress(memory);
+        // madvise(2) only accepts whole pages, so shrink the range to the pages it fully covers.
+        long mask = pageSize - 1;
+        long start = (address + offset + mask) & ~mask;
+        long end = (address + offset + length) & ~mask;
+        if (end <= start) {
+            return true;
+        }
+        int res = Native.madviseDontNeed0(start, end - start);
+        if (res < 0) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("madvise(MADV_DONTNEED) of {} bytes failed: {}",
+                        end - start, Errors.newIOException("madvise", res).getMessage());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    long mappedLength(int capacity) {
+        return hugePages == HugePages.NONE ? capacity : alignToHugePage(capacity);
+    }
+
+    private static long mmapTransparent(long length) {
+        // Over-allocate by one huge page so the start of the mapping can be aligned, then trim the excess.
+        long raw = mmap(length + HUGE_PAGE_SIZE);
+        long address = alignToHugePage(raw);
+        long head = address - raw;
+        if (head != 0) {
+            Native.munmap0(raw, head);
+        }
+        Native.munmap0(address + length, HUGE_PAGE_SIZE - head);
+
+        int res = Native.madviseHugePage0(address, length);
+        if (res < 0 && logger.isDebugEnabled()) {
+            logger.debug("madvise(MADV_HUGEPAGE) of {} bytes failed: {}",
+                    length, Errors.newIOException("madvise", res).getMessage());
+        }
+        return address;
+    }
+
+    private static long mmap(long length) {
+        long address = Native.mmap0(length, false);
+        if (address < 0) {
+            throw new OutOfMemoryError(Errors.newIOException("mmap", (int) address).getMessage());
+        }
+        return address;
+    }
+
+    private static long alignToHugePage(long value) {
+        return (value + HUGE_PAGE_SIZE - 1) & ~(long) (HUGE_PAGE_SIZE - 1);
+    }
+}
@@ -23,12 +23,14 @@ import io.netty.util.concurrent.FastThreadLocal;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 
 import static io.netty.channel.unix.Limits.UIO_MAX_IOV;
 import static io.netty.channel.unix.NativeInetAddress.ipv4MappedIpv6Address;
 
 /**
- * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+
+ * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+ and
+ * <a href="http://man7.org/linux/man-pages/man2/recvmmsg.2.html">recvmmsg(...)</a> on linux with GLIBC 2.12+
  */
 final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessageProcessor {
 
@@ -74,7 +76,9 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         }
         NativeDatagramPacket p = packets[count];
         InetSocketAddress recipient = packet.recipient();
-        if (!p.init(content, recipient)) {
+        int segmentSize = packet instanceof SegmentedDatagramPacket ?
+                ((SegmentedDatagramPacket) packet).segmentSize() : 0;
+        if (!p.init(content, recipient, segmentSize)) {
             return false;
         }
 
@@ -112,6 +116,31 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return array;
     }
 
+    /**
+     * Returns an empty {@link NativeDatagramPacketArray} which can be filled via {@link #addReadable(ByteBuf)} and
+     * passed to {@link Native#recvmmsg(int, NativeDatagramPacket[], int, int)}.
+     */
+    static NativeDatagramPacketArray getInstance() {
+        NativeDatagramPacketArray array = ARRAY.get();
+        array.count = 0;
+        return array;
+    }
+
+    /**
+     * Try to add the writable bytes of the given {@link ByteBuf} as the target of one datagram that will be received.
+     * Returns {@code true} on success, {@code false} otherwise.
+     */
+    boolean addReadable(ByteBuf buf) {
+        if (count == packets.length) {
+            return false;
+        }
+        if (!packets[count].initForReceive(buf)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
     /**
      * Used to pass needed data to JNI.
      */
@@ -129,6 +158,16 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         private byte[] addr;
         private int scopeId;
         private int port;
+        private int segmentSize;
+
+        // Filled by recvmmsg(...)
+        private final byte[] senderAddr = new byte[16];
+        private int senderAddrLen;
+        private int senderScopeId;
+        private int senderPort;
+        private int receivedBytes;
+        private int receivedSegmentSize;
+        private boolean receivedTruncated;
 
         private void release() {
             array.release();
@@ -137,7 +176,7 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         /**
          * Init this instance and return {@code true} if the init was successful.
          */
-        private boolean init(ByteBuf buf, InetSocketAddress recipient) {
+        private boolean init(ByteBuf buf, InetSocketAddress recipient, int segmentSize) {
             array.clear();
             if (!array.add(buf)) {
                 return false;
@@ -155,7 +194,66 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
                 scopeId = 0;
             }
             port = recipient.getPort();
+            this.segmentSize = segmentSize;
             return true;
         }
+
+        /**
+         * Init this instance to receive into the writable bytes of the given {@link ByteBuf} and return {@code true}
+         * if the init was successful.
+         */
+        private boolean initForReceive(ByteBuf buf) {
+            array.clear();
+            if (!array.add(buf, buf.writerIndex(), buf.writableBytes())) {
+                return false;
+            }
+            memoryAddress = array.memoryAddress(0);
+            count = array.count();
+            segmentSize = 0;
+            receivedBytes = 0;
+            receivedSegmentSize = 0;
+            receivedTruncated = false;
+            return true;
+        }
+
+        /**
+         * Returns the number of bytes that were received for this packet by the last recvmmsg(...) call.
+         */
+        int receivedBytes() {
+            return receivedBytes;
+        }
+
+        /**
+         * Returns the size of the segments the kernel coalesced into the datagram received by the last
+         * recvmmsg(...) call or {@code 0} if the datagram was not coalesced via UDP_GRO.
+         */
+        int receivedSegmentSize() {
+            return receivedSegmentSize;
+        }
+
+        /**
+         * Returns {@code true} if the datagram received by the last recvmmsg(...) call did not fit into the buffer
+         * and so was truncated by the kernel (MSG_TRUNC).
+         */
+        boolean receivedTruncated() {
+            return receivedTruncated;
+        }
+
+        /**
+         * Returns the address of the sender of the datagram received by the last recvmmsg(...) call.
+         */
+        InetSocketAddress sender() throws UnknownHostException {
+            final InetAddress address;
+            if (senderAddrLen == 4) {
+                byte[] ipv4 = new byte[4];
+                System.arraycopy(senderAddr, 0, ipv4, 0, 4);
+                address = InetAddress.getByAddress(ipv4);
+            } else {
+                byte[] ipv6 = new byte[16];
+                System.arraycopy(senderAddr, 0, ipv6, 0, 16);
+                address = Inet6Address.getByAddress(null, ipv6, senderScopeId);
+            }
+            return new InetSocketAddress(address, senderPort);
+        }
     }
 }
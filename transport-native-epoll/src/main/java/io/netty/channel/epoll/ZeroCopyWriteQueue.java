@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+import static io.netty.channel.internal.ChannelUtils.WRITE_STATUS_SNDBUF_FULL;
+
+/**
+ * Keeps track of the {@link ByteBuf}s which were written with {@code MSG_ZEROCOPY}. The kernel keeps referencing the
+ * memory of such a buffer after the send call returned, so the buffer must neither be released nor its promise be
+ * notified before the kernel signals the completion through the error queue of the socket.
+ * <p>
+ * The kernel numbers every successful {@code MSG_ZEROCOPY} send of a socket, starting at {@code 0}, and notifies about
+ * ranges of these ids. This class mirrors the counter and maps the ids back to the buffers.
+ * <p>
+ * This class is not thread-safe and must only be used from the {@link io.netty.channel.EventLoop} of the channel,
+ * except for the counters.
+ */
+final class ZeroCopyWriteQueue {
+    // Number of completions which are read from the error queue of the socket at once.
+    private static final int COMPLETIONS_PER_READ = 16;
+
+    private final ArrayDeque<PendingWrite> pending = new ArrayDeque<PendingWrite>();
+    private final int[] completions = new int[COMPLETIONS_PER_READ * 3];
+    // The buffer which is currently written and still owned by the ChannelOutboundBuffer.
+    private PendingWrite current;
+    private int nextId;
+
+    // Only written by the EventLoop.
+    private volatile long zeroCopiedSends;
+    private volatile long copiedSends;
+
+    /**
+     * Returns {@code true} if {@code buf} must be written via {@link #write(LinuxSocket, ChannelOutboundBuffer,
+     * ByteBuf, boolean)} as parts of it were written with {@code MSG_ZEROCOPY} already.
+     */
+    boolean isCurrent(ByteBuf buf) {
+        return current != null && current.buf == buf;
+    }
+
+    /**
+     * Writes the readable bytes of {@code buf}, which is the current message of {@code in} and has a memory address.
+     * If {@code zeroCopy} is {@code false} the bytes are copied, which is used to finish a buffer after
+     * {@code SO_ZEROCOPY} was disabled.
+     *
+     * @return the value that should be decremented from the write quantum, see
+     * {@link AbstractEpollChannel#doWriteBytes(ChannelOutboundBuffer, ByteBuf)}.
+     */
+    int write(LinuxSocket socket, ChannelOutboundBuffer in, ByteBuf buf, boolean zeroCopy) throws IOException {
+        if (current != null && current.buf != buf) {
+            // The buffer was failed and released by the ChannelOutboundBuffer, we still need to wait for the kernel
+            // before we can drop our reference.
+            current.detached = true;
+            current = null;
+            notifyCompleted();
+        }
+
+        final int readableBytes = buf.readableBytes();
+        int localFlushedAmount = -1;
+        if (zeroCopy) {
+            localFlushedAmount = socket.sendZeroCopy(buf.memoryAddress(), buf.readerIndex(), buf.writerIndex());
+            if (localFlushedAmount > 0) {
+                if (current == null) {
+                    current = new PendingWrite(buf.retain(), nextId);
+                    pending.add(current);
+                }
+                current.lastId = nextId++;
+                current.outstanding++;
+            } else if (localFlushedAmount < 0) {
+                // The kernel was not able to pin the pages.
+                copiedSends++;
+            }
+        }
+        if (localFlushedAmount < 0) {
+            localFlushedAmount = socket.writeAddress(buf.memoryAddress(), buf.readerIndex(), buf.writerIndex());
+        }
+        if (localFlushedAmount <= 0) {
+            return WRITE_STATUS_SNDBUF_FULL;
+        }
+
+        if (current == null || localFlushedAmount < readableBytes) {
+            // Either nothing of this buffer is referenced by the kernel or the buffer was not fully written yet.
+            in.removeBytes(localFlushedAmount);
+        } else {
+            in.progress(localFlushedAmount);
+            buf.readerIndex(buf.writerIndex());
+            current.promise = in.removeAndDetach();
+            // We own the buffer now and still hold the reference we retained above.
+            buf.release();
+            current.detached = true;
+            current = null;
+            notifyCompleted();
+        }
+        return 1;
+    }
+
+    /**
+     * Reads all completion notifications from the error queue of the socket and notifies the promises of the buffers
+     * which are no longer referenced by the kernel.
+     */
+    void processCompletions(LinuxSocket socket) throws IOException {
+        int count;
+        do {
+            count = socket.readZeroCopyCompletions(completions);
+            for (int i = 0; i < count; i++) {
+                complete(completions[i * 3], completions[i * 3 + 1], completions[i * 3 + 2] != 0);
+            }
+        } while (count == COMPLETIONS_PER_READ);
+        notifyCompleted();
+    }
+
+    private void complete(int firstId, int lastId, boolean copied) {
+        int sends = lastId - firstId + 1;
+        if (copied) {
+            copiedSends += sends;
+        } else {
+            zeroCopiedSends += sends;
+        }
+        // The ids are unsigned 32-bit values which may wrap around, so compare them via their difference.
+        for (PendingWrite write : pending) {
+            int first = firstId - write.firstId > 0 ? firstId : write.firstId;
+            int last = lastId - write.lastId < 0 ? lastId : write.lastId;
+            if (last - first >= 0) {
+                write.outstanding -= last - first + 1;
+            }
+        }
+    }
+
+    private void notifyCompleted() {
+        // Notify in the order the buffers were written.
+        for (;;) {
+            PendingWrite write = pending.peek();
+            if (write == null || !write.detached || write.outstanding > 0) {
+                break;
+            }
+            pending.remove();
+            write.buf.release();
+            if (write.promise != null) {
+                write.promise.trySuccess();
+            }
+        }
+    }
+
+    /**
+     * Called once the channel was closed, as no more completions will be received then. Buffers of which all sends
+     * were completed are released, all others may still be referenced by the kernel: their promises are failed but
+     * the buffers are dropped without releasing them, so their memory is never handed out by an allocator again while
+     * it may still be transmitted. Returns the number of dropped buffers.
+     */
+    int abandon(Throwable cause) {
+        current = null;
+        int dropped = 0;
+        for (;;) {
+            PendingWrite write = pending.poll();
+            if (write == null) {
+                break;
+            }
+            if (write.outstanding > 0) {
+                dropped++;
+                if (write.promise != null) {
+                    write.promise.tryFailure(cause);
+                }
+                continue;
+            }
+            write.buf.release();
+            if (write.promise != null) {
+                if (write.detached) {
+                    write.promise.trySuccess();
+                } else {
+                    write.promise.tryFailure(cause);
+                }
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the number of {@code MSG_ZEROCOPY} sends for which the kernel did not need to copy the data.
+     */
+    long zeroCopiedSends() {
+        return zeroCopiedSends;
+    }
+
+    /**
+     * Returns the number of sends which fell back to copying the data, either because the kernel was not able to pin
+     * the memory or because it decided to copy the data anyway, e.g. for loopback traffic.
+     */
+    long copiedSends() {
+        return copiedSends;
+    }
+
+    private static final class PendingWrite {
+        final ByteBuf buf;
+        final int firstId;
+        int lastId;
+        // Number of sends of this buffer which were not completed yet.
+        int outstanding;
+        // true once the ChannelOutboundBuffer no longer references the buffer.
+        boolean detached;
+        ChannelPromise promise;
+
+        PendingWrite(ByteBuf buf, int firstId) {
+            this.buf = buf;
+            this.firstId = firstId;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.BusyPollSelectStrategy;
+import io.netty.channel.BusyPollSelectStrategyFactory;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollBusyPollTest {
+
+    @Test(timeout = 10000)
+    public void testTasksAreExecutedWhileSpinning() throws Exception {
+        BusyPollSelectStrategyFactory factory =
+                new BusyPollSelectStrategyFactory(Integer.MAX_VALUE, 100, TimeUnit.MICROSECONDS);
+        EventLoopGroup group = new EpollEventLoopGroup(1, factory);
+        try {
+            EventLoop loop = group.next();
+            for (int i = 0; i < 100; i++) {
+                final CountDownLatch latch = new CountDownLatch(1);
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                });
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+                if (i % 10 == 0) {
+                    // Give the loop time to use up its budget and block.
+                    Thread.sleep(1);
+                }
+            }
+
+            // Scheduled tasks are still picked up once the loop blocks again.
+            assertEquals(Boolean.TRUE, loop.schedule(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return Boolean.TRUE;
+                }
+            }, 10, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+
+            assertEquals(1, factory.strategies().size());
+            BusyPollSelectStrategy strategy = factory.strategies().get(0);
+            assertTrue(strategy.idleSpins() > 0);
+            assertTrue(strategy.parks() > 0);
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+public class EpollDatagramSegmentationTest {
+
+    private static final int SEGMENT_SIZE = 100;
+    private static final int SEGMENTS = 10;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedSend() throws Throwable {
+        testSegmented(false, ByteBufAllocator.DEFAULT, new FixedRecvByteBufAllocator(64 * 1024));
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedSendWithGro() throws Throwable {
+        testSegmented(true, ByteBufAllocator.DEFAULT, new FixedRecvByteBufAllocator(64 * 1024));
+    }
+
+    @Test(timeout = 10000)
+    public void testSegmentedSendWithGroAndHeapAllocator() throws Throwable {
+        // Neither heap buffers nor the small default buffers can hold the coalesced datagrams, the channel must
+        // still read them in one piece and split them.
+        testSegmented(true, new HeapIoBufferAllocator(), new FixedRecvByteBufAllocator(2048));
+    }
+
+    private static void testSegmented(boolean gro, ByteBufAllocator allocator,
+                                      RecvByteBufAllocator recvAllocator) throws Throwable {
+        assumeTrue(SegmentedDatagramPacket.isSupported());
+
+        final BlockingQueue<DatagramPacket> received = new LinkedBlockingQueue<DatagramPacket>();
+        Bootstrap receiverBootstrap = new Bootstrap().group(group)
+                .channel(EpollDatagramChannel.class)
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, recvAllocator)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        received.add((DatagramPacket) msg);
+                    }
+                });
+        if (gro) {
+            receiverBootstrap.option(EpollChannelOption.UDP_GRO, true);
+        }
+        Channel receiver = receiverBootstrap.bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+        Channel sender = new Bootstrap().group(group)
+                .channel(EpollDatagramChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+        try {
+            ByteBuf content = Unpooled.directBuffer(SEGMENT_SIZE * SEGMENTS);
+            for (int i = 0; i < SEGMENTS; i++) {
+                for (int j = 0; j < SEGMENT_SIZE; j++) {
+                    content.writeByte(i);
+                }
+            }
+            sender.writeAndFlush(new SegmentedDatagramPacket(
+                    content, SEGMENT_SIZE, (InetSocketAddress) receiver.localAddress())).sync();
+
+            for (int i = 0; i < SEGMENTS; i++) {
+                DatagramPacket packet = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(packet);
+                try {
+                    assertEquals(sender.localAddress(), packet.sender());
+                    ByteBuf data = packet.content();
+                    assertEquals(SEGMENT_SIZE, data.readableBytes());
+                    for (int j = 0; j < SEGMENT_SIZE; j++) {
+                        assertEquals(i, data.getByte(data.readerIndex() + j));
+                    }
+                } finally {
+                    packet.release();
+                }
+            }
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            sender.close().sync();
+            receiver.close().sync();
+        }
+    }
+
+    private static final class HeapIoBufferAllocator extends AbstractByteBufAllocator {
+        @Override
+        public ByteBuf ioBuffer(int initialCapacity) {
+            return heapBuffer(initialCapacity);
+        }
+
+        @Override
+        protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+            return Unpooled.buffer(initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+            return Unpooled.directBuffer(initialCapacity, maxCapacity);
+        }
+
+        @Override
+        public boolean isDirectBufferPooled() {
+            return false;
+        }
+    }
+}
@@ -23,6 +23,8 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
 import io.netty.util.NetUtil;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ResourceLeakDetector;
@@ -36,10 +38,16 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EpollReuseAddrTest {
     private static final int MAJOR;
@@ -114,6 +122,67 @@ public class EpollReuseAddrTest {
         future2.channel().close().syncUninterruptibly();
     }
 
+    @Test(timeout = 10000)
+    public void testBindPerChildLoop() throws Exception {
+        Assume.assumeTrue(versionEqOrGt(3, 9, 0));
+        testBindPerChildLoop0(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testBindPerChildLoopWithCpuSteering() throws Exception {
+        Assume.assumeTrue(versionEqOrGt(4, 5, 0));
+        testBindPerChildLoop0(true);
+    }
+
+    private static void testBindPerChildLoop0(boolean cpuSteering) throws Exception {
+        int loops = 4;
+        int connections = 32;
+        EventLoopGroup group = new EpollEventLoopGroup(loops);
+        List<ChannelFuture> futures = Collections.emptyList();
+        try {
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            bootstrap.group(group);
+            bootstrap.channel(EpollServerSocketChannel.class);
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            if (cpuSteering) {
+                bootstrap.option(EpollChannelOption.REUSEPORT_CPU_STEERING, loops);
+            }
+            CountDownLatch latch = new CountDownLatch(connections);
+            AtomicInteger handedOff = new AtomicInteger();
+            bootstrap.childHandler(new SameLoopTestHandler(latch, handedOff));
+            futures = bootstrap.bindPerChildLoop(new InetSocketAddress(NetUtil.LOCALHOST, 0));
+            Assert.assertEquals(loops, futures.size());
+
+            Set<EventLoop> serverLoops = new HashSet<EventLoop>();
+            InetSocketAddress address = null;
+            for (ChannelFuture future : futures) {
+                future.syncUninterruptibly();
+                serverLoops.add(future.channel().eventLoop());
+                if (address == null) {
+                    address = (InetSocketAddress) future.channel().localAddress();
+                } else {
+                    Assert.assertEquals(address, future.channel().localAddress());
+                }
+                if (cpuSteering) {
+                    Assert.assertEquals(loops,
+                            ((EpollServerSocketChannel) future.channel()).config().getReusePortCpuSteering());
+                }
+            }
+            Assert.assertEquals(loops, serverLoops.size());
+
+            for (int i = 0; i < connections; i++) {
+                new Socket(address.getAddress(), address.getPort()).close();
+            }
+            latch.await();
+            Assert.assertEquals(0, handedOff.get());
+        } finally {
+            for (ChannelFuture future : futures) {
+                future.channel().close().syncUninterruptibly();
+            }
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
     @Test(timeout = 10000)
     @Ignore // TODO: Unignore after making it pass on centos6-1 and debian7-1
     public void testMultipleBindDatagramChannel() throws Exception {
@@ -217,6 +286,26 @@ public class EpollReuseAddrTest {
         }
     }
 
+    @ChannelHandler.Sharable
+    private static class SameLoopTestHandler extends ChannelInboundHandlerAdapter {
+        private final CountDownLatch latch;
+        private final AtomicInteger handedOff;
+
+        SameLoopTestHandler(CountDownLatch latch, AtomicInteger handedOff) {
+            this.latch = latch;
+            this.handedOff = handedOff;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            if (ctx.channel().eventLoop() != ctx.channel().parent().eventLoop()) {
+                handedOff.incrementAndGet();
+            }
+            latch.countDown();
+            ctx.close();
+        }
+    }
+
     @ChannelHandler.Sharable
     private static class DatagramSocketTestHandler extends ChannelInboundHandlerAdapter {
         private final AtomicBoolean received;
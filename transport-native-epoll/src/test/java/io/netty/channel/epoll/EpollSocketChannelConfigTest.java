@@ -134,6 +134,19 @@ public class EpollSocketChannelConfigTest {
         assertTrue(ch.config().isTcpQuickAck());
     }
 
+    @Test
+    public void testSoBusyPoll() {
+        try {
+            ch.config().setSoBusyPoll(50);
+        } catch (ChannelException e) {
+            // Setting a value above net.core.busy_read requires CAP_NET_ADMIN.
+            assumeNoException(e);
+        }
+        assertEquals(50, ch.config().getSoBusyPoll());
+        ch.config().setSoBusyPoll(0);
+        assertEquals(0, ch.config().getSoBusyPoll());
+    }
+
     @Test
     public void testSetOptionWhenClosed() {
         ch.close().syncUninterruptibly();
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+public class EpollSocketZeroCopyTest {
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new EpollEventLoopGroup(2);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 30000)
+    public void testZeroCopyWrites() throws Throwable {
+        final int bufferSize = 1024 * 1024;
+        final int buffers = 8;
+        final int total = buffers * (bufferSize + 1);
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Channel server = new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        try {
+                            int offset = received.get();
+                            for (int i = buf.readerIndex(); i < buf.writerIndex(); i++, offset++) {
+                                if (buf.getByte(i) != expected(offset, bufferSize)) {
+                                    error.compareAndSet(null, new AssertionError("Mismatch at " + offset));
+                                }
+                            }
+                            if (received.addAndGet(buf.readableBytes()) == total) {
+                                latch.countDown();
+                            }
+                        } finally {
+                            buf.release();
+                        }
+                    }
+                })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+        EpollSocketChannel client = (EpollSocketChannel) new Bootstrap().group(group)
+                .channel(EpollSocketChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(server.localAddress()).sync().channel();
+        try {
+            try {
+                client.config().setZeroCopy(true);
+            } catch (ChannelException e) {
+                assumeNoException(e);
+            }
+            // Queried from the socket.
+            assertTrue(client.config().getOption(EpollChannelOption.SO_ZEROCOPY));
+
+            List<ByteBuf> written = new ArrayList<ByteBuf>();
+            List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+            int offset = 0;
+            for (int i = 0; i < buffers; i++) {
+                ByteBuf large = Unpooled.directBuffer(bufferSize);
+                for (int j = 0; j < bufferSize; j++) {
+                    large.writeByte(expected(offset++, bufferSize));
+                }
+                // Mix in small writes which are gathered and copied as usual.
+                ByteBuf small = Unpooled.directBuffer(1).writeByte(expected(offset++, bufferSize));
+                written.add(large);
+                futures.add(client.write(large));
+                futures.add(client.write(small));
+            }
+            client.flush();
+
+            for (ChannelFuture future : futures) {
+                future.sync();
+            }
+            // The kernel no longer references the memory, so the buffers must have been released.
+            for (ByteBuf buf : written) {
+                assertEquals(0, buf.refCnt());
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertNull(error.get());
+            assertEquals(total, received.get());
+            assertTrue(client.zeroCopiedWrites() + client.copiedWrites() > 0);
+        } finally {
+            client.close().sync();
+            server.close().sync();
+        }
+    }
+
+    private static byte expected(int offset, int bufferSize) {
+        return (byte) (offset % 251 + offset / (bufferSize + 1));
+    }
+}
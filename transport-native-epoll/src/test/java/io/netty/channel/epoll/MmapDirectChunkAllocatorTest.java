@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.epoll.MmapDirectChunkAllocator.HugePages;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MmapDirectChunkAllocatorTest {
+
+    private static final int CAPACITY = 3 * 1024 * 1024 + 17;
+
+    @Test
+    public void testNormalPages() {
+        testAllocateAndRelease(HugePages.NONE);
+    }
+
+    @Test
+    public void testTransparentHugePages() {
+        testAllocateAndRelease(HugePages.TRANSPARENT);
+    }
+
+    @Test
+    public void testHugeTlb() {
+        // Falls back to transparent huge pages if no huge pages are reserved.
+        testAllocateAndRelease(HugePages.HUGETLB);
+    }
+
+    @Test
+    public void testMappedLength() {
+        assertEquals(CAPACITY, new MmapDirectChunkAllocator(HugePages.NONE).mappedLength(CAPACITY));
+        assertEquals(4 * 1024 * 1024, new MmapDirectChunkAllocator(HugePages.TRANSPARENT).mappedLength(CAPACITY));
+        assertEquals(MmapDirectChunkAllocator.HUGE_PAGE_SIZE,
+                new MmapDirectChunkAllocator(HugePages.HUGETLB).mappedLength(1));
+    }
+
+    @Test
+    public void testDiscard() {
+        MmapDirectChunkAllocator allocator = new MmapDirectChunkAllocator(HugePages.NONE);
+        ByteBuffer memory = allocator.allocate(CAPACITY);
+        try {
+            memory.put(0, (byte) 1);
+            memory.put(1024 * 1024, (byte) 2);
+            // The range is shrunk to whole pages, so the first page is not discarded.
+            assertTrue(allocator.discard(memory, 1, CAPACITY - 1));
+            assertEquals(1, memory.get(0));
+            // Discarded anonymous memory reads back as zero.
+            assertEquals(0, memory.get(1024 * 1024));
+        } finally {
+            allocator.release(memory);
+        }
+    }
+
+    @Test
+    public void testPooledAllocatorPurge() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0,
+                false, 0, new MmapDirectChunkAllocator(HugePages.NONE));
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        ByteBuf buf = allocator.directBuffer(1024 * 1024);
+        try {
+            buf.setLong(0, 1);
+            assertEquals(allocator.metric().chunkSize() - 1024 * 1024, allocator.purgeFreeMemory());
+            assertEquals(1024 * 1024, arena.numResidentBytes());
+            assertEquals(1, buf.getLong(0));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testPooledAllocator() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false, 0,
+                false, 0, new MmapDirectChunkAllocator(HugePages.TRANSPARENT));
+        ByteBuf small = allocator.directBuffer(256);
+        ByteBuf huge = allocator.directBuffer(32 * 1024 * 1024);
+        try {
+            small.writeLong(1);
+            huge.setLong(huge.capacity() - 8, 2);
+            assertEquals(1, small.readLong());
+            assertEquals(2, huge.getLong(huge.capacity() - 8));
+        } finally {
+            small.release();
+            huge.release();
+        }
+    }
+
+    private static void testAllocateAndRelease(HugePages hugePages) {
+        MmapDirectChunkAllocator allocator = new MmapDirectChunkAllocator(hugePages);
+        ByteBuffer memory = allocator.allocate(CAPACITY);
+        try {
+            assertTrue(memory.isDirect());
+            assertEquals(CAPACITY, memory.capacity());
+            if (hugePages != HugePages.NONE) {
+                assertEquals(0, PlatformDependent.directBufferAddress(memory) %
+                        MmapDirectChunkAllocator.HUGE_PAGE_SIZE);
+            }
+            memory.putLong(0, 1);
+            memory.putLong(CAPACITY - 8, 2);
+            assertEquals(1, memory.getLong(0));
+            assertEquals(2, memory.getLong(CAPACITY - 8));
+        } finally {
+            allocator.release(memory);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <errno.h>
+#include <sys/eventfd.h>
+#include <sys/mman.h>
+#include <sys/socket.h>
+#include <sys/syscall.h>
+#include <sys/types.h>
+#include <sys/uio.h>
+#include <sys/utsname.h>
+#include <netinet/in.h>
+#include <unistd.h>
+#include <stddef.h>
+#include <link.h>
+#include <linux/io_uring.h>
+
+#include "netty_unix_errors.h"
+#include "netty_unix_filedescriptor.h"
+#include "netty_unix_jni.h"
+#include "netty_unix_limits.h"
+#include "netty_unix_socket.h"
+#include "netty_unix_util.h"
+
+// The syscall numbers are the same on all architectures since linux 5.1, but older libc headers may not define them.
+#ifndef __NR_io_uring_setup
+#define __NR_io_uring_setup 425
+#endif
+#ifndef __NR_io_uring_enter
+#define __NR_io_uring_enter 426
+#endif
+
+// Offsets into the long[] returned by ioUringSetup0(...). Must be kept in sync with Native.java.
+#define RING_FD                     0
+#define SQ_HEAD                     1
+#define SQ_TAIL                     2
+#define SQ_RING_MASK                3
+#define SQ_RING_ENTRIES             4
+#define SQ_FLAGS                    5
+#define SQ_DROPPED                  6
+#define SQ_ARRAY                    7
+#define SQ_SQES                     8
+#define SQ_RING_SIZE                9
+#define SQ_RING_ADDRESS            10
+#define CQ_HEAD                    11
+#define CQ_TAIL                    12
+#define CQ_RING_MASK               13
+#define CQ_RING_ENTRIES            14
+#define CQ_OVERFLOW                15
+#define CQ_CQES                    16
+#define CQ_RING_SIZE               17
+#define CQ_RING_ADDRESS            18
+#define RING_SETUP_ARRAY_LENGTH    19
+
+static int sys_io_uring_setup(unsigned int entries, struct io_uring_params* p) {
+    return (int) syscall(__NR_io_uring_setup, entries, p);
+}
+
+static int sys_io_uring_enter(int fd, unsigned int toSubmit, unsigned int minComplete, unsigned int flags) {
+    return (int) syscall(__NR_io_uring_enter, fd, toSubmit, minComplete, flags, NULL, 0);
+}
+
+static jlongArray netty_io_uring_native_ioUringSetup0(JNIEnv* env, jclass clazz, jint entries) {
+    struct io_uring_params p;
+    memset(&p, 0, sizeof(p));
+
+    int ringFd = sys_io_uring_setup((unsigned int) entries, &p);
+    if (ringFd < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "io_uring_setup() failed: ", errno);
+        return NULL;
+    }
+
+    size_t sqRingSize = p.sq_off.array + p.sq_entries * sizeof(unsigned int);
+    size_t cqRingSize = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+    int singleMmap = (p.features & IORING_FEAT_SINGLE_MMAP) != 0;
+    if (singleMmap) {
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd, IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(ringFd);
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "mmap() of submission ring failed: ", err);
+        return NULL;
+    }
+
+    void* cqRing = sqRing;
+    if (!singleMmap) {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd, IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(ringFd);
+            netty_unix_errors_throwChannelExceptionErrorNo(env, "mmap() of completion ring failed: ", err);
+            return NULL;
+        }
+    }
+
+    size_t sqesSize = p.sq_entries * sizeof(struct io_uring_sqe);
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd, IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (!singleMmap) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "mmap() of submission entries failed: ", err);
+        return NULL;
+    }
+
+    // We never reorder submissions, so the indirection array is filled once with the identity mapping and the
+    // submission entry at index i is always referenced by slot i.
+    unsigned int* array = (unsigned int*) ((char*) sqRing + p.sq_off.array);
+    unsigned int i;
+    for (i = 0; i < p.sq_entries; ++i) {
+        array[i] = i;
+    }
+
+    jlong values[RING_SETUP_ARRAY_LENGTH];
+    values[RING_FD] = ringFd;
+    values[SQ_HEAD] = (jlong) (intptr_t) ((char*) sqRing + p.sq_off.head);
+    values[SQ_TAIL] = (jlong) (intptr_t) ((char*) sqRing + p.sq_off.tail);
+    values[SQ_RING_MASK] = (jlong) (intptr_t) ((char*) sqRing + p.sq_off.ring_mask);
+    values[SQ_RING_ENTRIES] = (jlong) (intptr_t) ((char*) sqRing + p.sq_off.ring_entries);
+    values[SQ_FLAGS] = (jlong) (intptr_t) ((char*) sqRing + p.sq_off.flags);
+    values[SQ_DROPPED] = (jlong) (intptr_t) ((char*) sqRing + p.sq_off.dropped);
+    values[SQ_ARRAY] = (jlong) (intptr_t) array;
+    values[SQ_SQES] = (jlong) (intptr_t) sqes;
+    values[SQ_RING_SIZE] = (jlong) sqRingSize;
+    values[SQ_RING_ADDRESS] = (jlong) (intptr_t) sqRing;
+    values[CQ_HEAD] = (jlong) (intptr_t) ((char*) cqRing + p.cq_off.head);
+    values[CQ_TAIL] = (jlong) (intptr_t) ((char*) cqRing + p.cq_off.tail);
+    values[CQ_RING_MASK] = (jlong) (intptr_t) ((char*) cqRing + p.cq_off.ring_mask);
+    values[CQ_RING_ENTRIES] = (jlong) (intptr_t) ((char*) cqRing + p.cq_off.ring_entries);
+    values[CQ_OVERFLOW] = (jlong) (intptr_t) ((char*) cqRing + p.cq_off.overflow);
+    values[CQ_CQES] = (jlong) (intptr_t) ((char*) cqRing + p.cq_off.cqes);
+    values[CQ_RING_SIZE] = singleMmap ? 0 : (jlong) cqRingSize;
+    values[CQ_RING_ADDRESS] = (jlong) (intptr_t) cqRing;
+
+    jlongArray result = (*env)->NewLongArray(env, RING_SETUP_ARRAY_LENGTH);
+    if (result == NULL) {
+        // pending exception...
+        munmap(sqes, sqesSize);
+        if (!singleMmap) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        return NULL;
+    }
+    (*env)->SetLongArrayRegion(env, result, 0, RING_SETUP_ARRAY_LENGTH, values);
+    return result;
+}
+
+static jint netty_io_uring_native_ioUringEnter(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit, jint minComplete, jint flags) {
+    int result;
+    int err;
+    do {
+        result = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete, (unsigned int) flags);
+        if (result >= 0) {
+            return result;
+        }
+    } while ((err = errno) == EINTR);
+    return -err;
+}
+
+static void netty_io_uring_native_ioUringExit(JNIEnv* env, jclass clazz, jlong sqRingAddress, jint sqRingSize,
+        jlong cqRingAddress, jint cqRingSize, jlong sqesAddress, jint sqesSize, jint ringFd) {
+    munmap((void*) (intptr_t) sqesAddress, (size_t) sqesSize);
+    if (cqRingSize > 0) {
+        munmap((void*) (intptr_t) cqRingAddress, (size_t) cqRingSize);
+    }
+    munmap((void*) (intptr_t) sqRingAddress, (size_t) sqRingSize);
+    close(ringFd);
+}
+
+static jint netty_io_uring_native_eventFd(JNIEnv* env, jclass clazz) {
+    jint eventFD = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+
+    if (eventFD < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd() failed: ", errno);
+    }
+    return eventFD;
+}
+
+static void netty_io_uring_native_eventFdWrite(JNIEnv* env, jclass clazz, jint fd, jlong value) {
+    uint64_t val;
+
+    for (;;) {
+        jint ret = eventfd_write(fd, (eventfd_t) value);
+
+        if (ret < 0) {
+            // We need to read before we can write again, let's try to read and then write again and if this
+            // fails we will bail out.
+            //
+            // See http://man7.org/linux/man-pages/man2/eventfd.2.html.
+            if (errno == EAGAIN) {
+                if (eventfd_read(fd, &val) == 0 || errno == EAGAIN) {
+                    // Try again
+                    continue;
+                }
+                netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd_read(...) failed: ", errno);
+            } else {
+                netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd_write(...) failed: ", errno);
+            }
+        }
+        break;
+    }
+}
+
+static jint netty_io_uring_native_initAddress(JNIEnv* env, jclass clazz, jbyteArray address, jint scopeId, jint port,
+        jlong memoryAddress) {
+    socklen_t addrSize;
+    if (netty_unix_socket_initSockaddr(env, address, scopeId, port,
+            (const struct sockaddr_storage*) (intptr_t) memoryAddress, &addrSize) == -1) {
+        return -1;
+    }
+    return (jint) addrSize;
+}
+
+static jint netty_io_uring_native_sizeofSockaddrStorage(JNIEnv* env, jclass clazz) {
+    return sizeof(struct sockaddr_storage);
+}
+
+static jint netty_io_uring_native_sizeofIovec(JNIEnv* env, jclass clazz) {
+    return sizeof(struct iovec);
+}
+
+static jint netty_io_uring_native_sizeofMsghdr(JNIEnv* env, jclass clazz) {
+    return sizeof(struct msghdr);
+}
+
+static jint netty_io_uring_native_offsetofMsghdrName(JNIEnv* env, jclass clazz) {
+    return offsetof(struct msghdr, msg_name);
+}
+
+static jint netty_io_uring_native_offsetofMsghdrNamelen(JNIEnv* env, jclass clazz) {
+    return offsetof(struct msghdr, msg_namelen);
+}
+
+static jint netty_io_uring_native_offsetofMsghdrIov(JNIEnv* env, jclass clazz) {
+    return offsetof(struct msghdr, msg_iov);
+}
+
+static jint netty_io_uring_native_offsetofMsghdrIovlen(JNIEnv* env, jclass clazz) {
+    return offsetof(struct msghdr, msg_iovlen);
+}
+
+static jint netty_io_uring_native_afInet(JNIEnv* env, jclass clazz) {
+    return AF_INET;
+}
+
+static jint netty_io_uring_native_afInet6(JNIEnv* env, jclass clazz) {
+    return AF_INET6;
+}
+
+static jint netty_io_uring_native_sockNonblock(JNIEnv* env, jclass clazz) {
+    return SOCK_NONBLOCK;
+}
+
+static jint netty_io_uring_native_sockCloexec(JNIEnv* env, jclass clazz) {
+    return SOCK_CLOEXEC;
+}
+
+static jint netty_io_uring_native_etime(JNIEnv* env, jclass clazz) {
+    return ETIME;
+}
+
+static jint netty_io_uring_native_ecanceled(JNIEnv* env, jclass clazz) {
+    return ECANCELED;
+}
+
+static jint netty_io_uring_native_ebusy(JNIEnv* env, jclass clazz) {
+    return EBUSY;
+}
+
+static jint netty_io_uring_native_ioringEnterGetevents(JNIEnv* env, jclass clazz) {
+    return IORING_ENTER_GETEVENTS;
+}
+
+static jbyte netty_io_uring_native_ioringOpTimeout(JNIEnv* env, jclass clazz) {
+    return IORING_OP_TIMEOUT;
+}
+
+static jbyte netty_io_uring_native_ioringOpAccept(JNIEnv* env, jclass clazz) {
+    return IORING_OP_ACCEPT;
+}
+
+static jbyte netty_io_uring_native_ioringOpAsyncCancel(JNIEnv* env, jclass clazz) {
+    return IORING_OP_ASYNC_CANCEL;
+}
+
+static jbyte netty_io_uring_native_ioringOpConnect(JNIEnv* env, jclass clazz) {
+    return IORING_OP_CONNECT;
+}
+
+static jbyte netty_io_uring_native_ioringOpRead(JNIEnv* env, jclass clazz) {
+    return IORING_OP_READ;
+}
+
+static jbyte netty_io_uring_native_ioringOpWrite(JNIEnv* env, jclass clazz) {
+    return IORING_OP_WRITE;
+}
+
+static jbyte netty_io_uring_native_ioringOpWritev(JNIEnv* env, jclass clazz) {
+    return IORING_OP_WRITEV;
+}
+
+static jbyte netty_io_uring_native_ioringOpSendmsg(JNIEnv* env, jclass clazz) {
+    return IORING_OP_SENDMSG;
+}
+
+static jbyte netty_io_uring_native_ioringOpRecvmsg(JNIEnv* env, jclass clazz) {
+    return IORING_OP_RECVMSG;
+}
+
+static jstring netty_io_uring_native_kernelVersion(JNIEnv* env, jclass clazz) {
+    struct utsname name;
+
+    int res = uname(&name);
+    if (res == 0) {
+        return (*env)->NewStringUTF(env, name.release);
+    }
+    netty_unix_errors_throwRuntimeExceptionErrorNo(env, "uname() failed: ", errno);
+    return NULL;
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod statically_referenced_fixed_method_table[] = {
+  { "sizeofSockaddrStorage", "()I", (void *) netty_io_uring_native_sizeofSockaddrStorage },
+  { "sizeofIovec", "()I", (void *) netty_io_uring_native_sizeofIovec },
+  { "sizeofMsghdr", "()I", (void *) netty_io_uring_native_sizeofMsghdr },
+  { "offsetofMsghdrName", "()I", (void *) netty_io_uring_native_offsetofMsghdrName },
+  { "offsetofMsghdrNamelen", "()I", (void *) netty_io_uring_native_offsetofMsghdrNamelen },
+  { "offsetofMsghdrIov", "()I", (void *) netty_io_uring_native_offsetofMsghdrIov },
+  { "offsetofMsghdrIovlen", "()I", (void *) netty_io_uring_native_offsetofMsghdrIovlen },
+  { "afInet", "()I", (void *) netty_io_uring_native_afInet },
+  { "afInet6", "()I", (void *) netty_io_uring_native_afInet6 },
+  { "sockNonblock", "()I", (void *) netty_io_uring_native_sockNonblock },
+  { "sockCloexec", "()I", (void *) netty_io_uring_native_sockCloexec },
+  { "etime", "()I", (void *) netty_io_uring_native_etime },
+  { "ecanceled", "()I", (void *) netty_io_uring_native_ecanceled },
+  { "ebusy", "()I", (void *) netty_io_uring_native_ebusy },
+  { "ioringEnterGetevents", "()I", (void *) netty_io_uring_native_ioringEnterGetevents },
+  { "ioringOpTimeout", "()B", (void *) netty_io_uring_native_ioringOpTimeout },
+  { "ioringOpAccept", "()B", (void *) netty_io_uring_native_ioringOpAccept },
+  { "ioringOpAsyncCancel", "()B", (void *) netty_io_uring_native_ioringOpAsyncCancel },
+  { "ioringOpConnect", "()B", (void *) netty_io_uring_native_ioringOpConnect },
+  { "ioringOpRead", "()B", (void *) netty_io_uring_native_ioringOpRead },
+  { "ioringOpWrite", "()B", (void *) netty_io_uring_native_ioringOpWrite },
+  { "ioringOpWritev", "()B", (void *) netty_io_uring_native_ioringOpWritev },
+  { "ioringOpSendmsg", "()B", (void *) netty_io_uring_native_ioringOpSendmsg },
+  { "ioringOpRecvmsg", "()B", (void *) netty_io_uring_native_ioringOpRecvmsg },
+  { "kernelVersion", "()Ljava/lang/String;", (void *) netty_io_uring_native_kernelVersion }
+};
+static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
+static const JNINativeMethod fixed_method_table[] = {
+  { "ioUringSetup0", "(I)[J", (void *) netty_io_uring_native_ioUringSetup0 },
+  { "ioUringEnter", "(IIII)I", (void *) netty_io_uring_native_ioUringEnter },
+  { "ioUringExit", "(JIJIJII)V", (void *) netty_io_uring_native_ioUringExit },
+  { "eventFd", "()I", (void *) netty_io_uring_native_eventFd },
+  { "eventFdWrite", "(IJ)V", (void *) netty_io_uring_native_eventFdWrite },
+  { "initAddress", "([BIIJ)I", (void *) netty_io_uring_native_initAddress }
+};
+static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
+// JNI Method Registration Table End
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    // We must register the statically referenced methods first!
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/NativeStaticallyReferencedJniMethods",
+            statically_referenced_fixed_method_table,
+            statically_referenced_fixed_method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    // Register the methods which are not referenced by static member variables
+    if (netty_unix_util_register_natives(env,
+            packagePrefix,
+            "io/netty/channel/uring/Native",
+            fixed_method_table,
+            fixed_method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    // Load all c modules that we depend upon
+    if (netty_unix_limits_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        return JNI_ERR;
+    }
+    if (netty_unix_errors_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        return JNI_ERR;
+    }
+    if (netty_unix_filedescriptor_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        return JNI_ERR;
+    }
+    if (netty_unix_socket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        return JNI_ERR;
+    }
+    return NETTY_JNI_VERSION;
+}
+
+static void netty_io_uring_native_JNI_OnUnLoad(JNIEnv* env) {
+    netty_unix_limits_JNI_OnUnLoad(env);
+    netty_unix_errors_JNI_OnUnLoad(env);
+    netty_unix_filedescriptor_JNI_OnUnLoad(env);
+    netty_unix_socket_JNI_OnUnLoad(env);
+}
+
+// Invoked by the JVM when statically linked
+jint JNI_OnLoad_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, NETTY_JNI_VERSION) != JNI_OK) {
+        return JNI_ERR;
+    }
+    char* packagePrefix = NULL;
+#ifndef NETTY_BUILD_STATIC
+    Dl_info dlinfo;
+    jint status = 0;
+    // We need to use an address of a function that is uniquely part of this library, so choose a static
+    // function. See https://github.com/netty/netty/issues/4840.
+    if (!dladdr((void*) netty_io_uring_native_JNI_OnUnLoad, &dlinfo)) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI call to dladdr failed!\n");
+        return JNI_ERR;
+    }
+    packagePrefix = netty_unix_util_parse_package_prefix(dlinfo.dli_fname, "netty_transport_native_io_uring", &status);
+    if (status == JNI_ERR) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI encountered unexpected dlinfo.dli_fname: %s\n", dlinfo.dli_fname);
+        return JNI_ERR;
+    }
+#endif /* NETTY_BUILD_STATIC */
+    jint ret = netty_io_uring_native_JNI_OnLoad(env, packagePrefix);
+
+    if (packagePrefix != NULL) {
+      free(packagePrefix);
+      packagePrefix = NULL;
+    }
+
+    return ret;
+}
+
+#ifndef NETTY_BUILD_STATIC
+JNIEXPORT jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    return JNI_OnLoad_netty_transport_native_io_uring(vm, reserved);
+}
+#endif /* NETTY_BUILD_STATIC */
+
+// Invoked by the JVM when statically linked
+void JNI_OnUnload_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, NETTY_JNI_VERSION) != JNI_OK) {
+        // Something is wrong but nothing we can do about this :(
+        return;
+    }
+    netty_io_uring_native_JNI_OnUnLoad(env);
+}
+
+#ifndef NETTY_BUILD_STATIC
+JNIEXPORT void JNI_OnUnload(JavaVM* vm, void* reserved) {
+  JNI_OnUnload_netty_transport_native_io_uring(vm, reserved);
+}
+#endif /* NETTY_BUILD_STATIC */
@@ -0,0 +1,527 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.NativeInetAddress;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThrowableUtil;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.channel.unix.UnixChannelUtil.computeRemoteAddr;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ClosedChannelException DO_CLOSE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), AbstractIOUringChannel.class, "doClose()");
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+
+    // Bits of ioState, one for each kind of operation which may be in flight for this channel.
+    static final int READ_SCHEDULED = 1;
+    static final int WRITE_SCHEDULED = 1 << 1;
+    static final int CONNECT_SCHEDULED = 1 << 2;
+
+    final Socket socket;
+
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+    private long remoteAddressMemoryAddress;
+
+    private volatile SocketAddress local;
+    private volatile SocketAddress remote;
+
+    // Only accessed from the EventLoop.
+    int ioState;
+    byte readOp;
+    byte writeOp;
+    private boolean closeDeferred;
+    private boolean removeDeferred;
+
+    private volatile boolean open = true;
+    protected volatile boolean active;
+
+    AbstractIOUringChannel(Socket fd) {
+        this(null, fd, false);
+    }
+
+    AbstractIOUringChannel(Channel parent, Socket fd, boolean active) {
+        super(parent);
+        socket = checkNotNull(fd, "fd");
+        this.active = active;
+        if (active) {
+            local = fd.localAddress();
+            remote = fd.remoteAddress();
+        }
+    }
+
+    AbstractIOUringChannel(Channel parent, Socket fd, SocketAddress remote) {
+        super(parent);
+        socket = checkNotNull(fd, "fd");
+        active = true;
+        this.remote = remote;
+        local = fd.localAddress();
+    }
+
+    @Override
+    public final FileDescriptor fd() {
+        return socket;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    final IOUringSubmissionQueue submissionQueue() {
+        return ((IOUringEventLoop) eventLoop()).submissionQueue();
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        removeDeferred = false;
+        ((IOUringEventLoop) eventLoop()).add(this);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        if (ioState == 0) {
+            ((IOUringEventLoop) eventLoop()).remove(this);
+        } else {
+            // Completions are dispatched via the registration, keep it until all of them arrived.
+            removeDeferred = true;
+            cancelScheduledOperations();
+        }
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        AbstractUringUnsafe unsafe = (AbstractUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        if ((ioState & READ_SCHEDULED) == 0) {
+            unsafe.recvBufAllocHandle().reset(config());
+            unsafe.scheduleRead();
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        open = false;
+        active = false;
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(DO_CLOSE_CLOSED_CHANNEL_EXCEPTION);
+            connectPromise = null;
+        }
+
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+            connectTimeoutFuture = null;
+        }
+
+        if (isRegistered()) {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                closeOrDefer();
+            } else {
+                try {
+                    loop.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            closeOrDefer();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    closeFd();
+                }
+            }
+        } else {
+            closeFd();
+        }
+    }
+
+    /**
+     * The kernel may still use the file descriptor and the memory of in-flight operations, so these are only
+     * released once every operation completed. This also ensures the fd number is not re-used while completions
+     * for it are pending.
+     */
+    private void closeOrDefer() {
+        if (ioState == 0) {
+            closeFd();
+        } else {
+            closeDeferred = true;
+            cancelScheduledOperations();
+        }
+    }
+
+    private void cancelScheduledOperations() {
+        IOUringSubmissionQueue submissionQueue = submissionQueue();
+        int fd = socket.intValue();
+        if ((ioState & READ_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, IOUringSubmissionQueue.encode(fd, readOp, (short) 0));
+        }
+        if ((ioState & WRITE_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, IOUringSubmissionQueue.encode(fd, writeOp, (short) 0));
+        }
+        if ((ioState & CONNECT_SCHEDULED) != 0) {
+            submissionQueue.addCancel(fd, IOUringSubmissionQueue.encode(fd, Native.IORING_OP_CONNECT, (short) 0));
+        }
+    }
+
+    private void closeFd() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            pipeline().fireExceptionCaught(e);
+        } finally {
+            freeResources();
+        }
+    }
+
+    /**
+     * Releases the memory that was handed to the kernel by this channel, called once the fd was closed.
+     */
+    void freeResources() {
+        if (remoteAddressMemoryAddress != 0) {
+            PlatformDependent.freeMemory(remoteAddressMemoryAddress);
+            remoteAddressMemoryAddress = 0;
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected abstract AbstractUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.release(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractUringUnsafe extends AbstractUnsafe {
+        boolean readPending;
+
+        /**
+         * Adds the next read of this channel to the submission queue.
+         */
+        abstract void scheduleRead();
+
+        /**
+         * Called once the scheduled read completed with the given result.
+         */
+        abstract void readComplete(int res);
+
+        /**
+         * Called once the scheduled write completed with the given result.
+         */
+        void writeComplete(int res) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Called by the {@link IOUringEventLoop} for every completion of an operation of this channel.
+         */
+        final void handle(int res, int flags, byte op, short data) {
+            try {
+                if (op == Native.IORING_OP_CONNECT) {
+                    ioState &= ~CONNECT_SCHEDULED;
+                    connectComplete(res);
+                } else if (op == readOp) {
+                    ioState &= ~READ_SCHEDULED;
+                    readComplete(res);
+                } else if (op == writeOp) {
+                    ioState &= ~WRITE_SCHEDULED;
+                    writeComplete(res);
+                }
+            } finally {
+                if (ioState == 0) {
+                    if (closeDeferred) {
+                        closeDeferred = false;
+                        closeFd();
+                    }
+                    if (removeDeferred) {
+                        removeDeferred = false;
+                        ((IOUringEventLoop) eventLoop()).remove(AbstractIOUringChannel.this);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new ConnectionPendingException();
+                }
+
+                doConnect(remoteAddress, localAddress);
+                connectPromise = promise;
+                requestedRemoteAddress = remoteAddress;
+
+                // Schedule connect timeout.
+                int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                if (connectTimeoutMillis > 0) {
+                    connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            ChannelPromise connectPromise = AbstractIOUringChannel.this.connectPromise;
+                            ConnectTimeoutException cause =
+                                    new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                            if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                close(voidPromise());
+                            }
+                        }
+                    }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+
+                promise.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (future.isCancelled()) {
+                            if (connectTimeoutFuture != null) {
+                                connectTimeoutFuture.cancel(false);
+                            }
+                            connectPromise = null;
+                            close(voidPromise());
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void connectComplete(int res) {
+            ChannelPromise promise = connectPromise;
+            if (promise == null) {
+                // The connect attempt was already failed by close() or the connect timeout.
+                return;
+            }
+            try {
+                if (res < 0) {
+                    if (res == Errors.ERROR_ECONNREFUSED_NEGATIVE) {
+                        throw new ConnectException(Errors.newIOException("connect", res).getMessage());
+                    }
+                    throw Errors.newIOException("connect", res);
+                }
+                boolean wasActive = isActive();
+                if (requestedRemoteAddress instanceof InetSocketAddress) {
+                    remote = computeRemoteAddr((InetSocketAddress) requestedRemoteAddress, socket.remoteAddress());
+                }
+                local = socket.localAddress();
+                fulfillConnectPromise(promise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(promise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (connectTimeoutFuture != null) {
+                    connectTimeoutFuture.cancel(false);
+                }
+                connectPromise = null;
+                requestedRemoteAddress = null;
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            // Set active before trying to notify the promise, as the listener may check isActive().
+            active = true;
+
+            // Get the state as trySuccess() may trigger an ChannelFutureListener that will close the Channel.
+            // We still need to ensure we call fireChannelActive() in this case.
+            boolean active = isActive();
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && active) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        if (local instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) local);
+        }
+        socket.bind(local);
+        this.local = socket.localAddress();
+    }
+
+    /**
+     * Adds the connect to the remote peer to the submission queue, the attempt is finished once it completed.
+     */
+    protected void doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+        if (!(remoteAddress instanceof InetSocketAddress)) {
+            throw new UnsupportedOperationException("unsupported address type: " + remoteAddress);
+        }
+        InetSocketAddress remoteSocketAddr = (InetSocketAddress) remoteAddress;
+        checkResolvable(remoteSocketAddr);
+
+        if (remote != null) {
+            // Check if already connected before trying to connect. This is needed as connect(...) will not return
+            // -1 and set errno to EISCONN if a previous connect(...) attempt was setting errno to EINPROGRESS and
+            // finished later.
+            throw new AlreadyConnectedException();
+        }
+
+        if (localAddress != null) {
+            socket.bind(localAddress);
+        }
+
+        if (remoteAddressMemoryAddress == 0) {
+            remoteAddressMemoryAddress = PlatformDependent.allocateMemory(Native.SIZEOF_SOCKADDR_STORAGE);
+        }
+        NativeInetAddress address = NativeInetAddress.newInstance(remoteSocketAddr.getAddress());
+        int addressLength = Native.initAddress(
+                address.address(), address.scopeId(), remoteSocketAddr.getPort(), remoteAddressMemoryAddress);
+        submissionQueue().addConnect(socket.intValue(), remoteAddressMemoryAddress, addressLength, (short) 0);
+        ioState |= CONNECT_SCHEDULED;
+        local = socket.localAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    final void local(SocketAddress local) {
+        this.local = local;
+    }
+
+    final void remote(SocketAddress remote) {
+        this.remote = remote;
+    }
+}
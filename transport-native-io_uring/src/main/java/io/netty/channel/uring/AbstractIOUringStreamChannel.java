@@ -0,0 +1,405 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.NotYetConnectedException;
+
+abstract class AbstractIOUringStreamChannel extends AbstractIOUringChannel implements DuplexChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractIOUringStreamChannel.class);
+
+    // Owned by the kernel while a write is in flight.
+    private final IovArray iovArray = new IovArray();
+    private ByteBuf readBuffer;
+    private IOException writeException;
+
+    AbstractIOUringStreamChannel(Channel parent, Socket fd) {
+        this(parent, fd, true);
+    }
+
+    AbstractIOUringStreamChannel(Socket fd, boolean active) {
+        this(null, fd, active);
+    }
+
+    AbstractIOUringStreamChannel(Channel parent, Socket fd, boolean active) {
+        super(parent, fd, active);
+        readOp = Native.IORING_OP_READ;
+    }
+
+    AbstractIOUringStreamChannel(Channel parent, Socket fd, SocketAddress remote) {
+        super(parent, fd, remote);
+        readOp = Native.IORING_OP_READ;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected AbstractUringUnsafe newUnsafe() {
+        return new IOUringStreamUnsafe();
+    }
+
+    /**
+     * Adds the flushed messages to the submission queue. Only one write is in flight at a time, once it completed
+     * the written bytes are removed from the {@link ChannelOutboundBuffer} and the next write is added.
+     */
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOException cause = writeException;
+        if (cause != null) {
+            writeException = null;
+            throw cause;
+        }
+        if ((ioState & WRITE_SCHEDULED) != 0) {
+            return;
+        }
+
+        // Skip empty buffers as a write of 0 bytes would complete without progress.
+        Object msg;
+        while ((msg = in.current()) != null && ((ByteBuf) msg).readableBytes() == 0) {
+            in.remove();
+        }
+        if (msg == null) {
+            return;
+        }
+
+        int fd = socket.intValue();
+        if (in.size() > 1) {
+            iovArray.clear();
+            in.forEachFlushedMessage(iovArray);
+            if (iovArray.count() > 1) {
+                writeOp = Native.IORING_OP_WRITEV;
+                submissionQueue().addWritev(fd, iovArray.memoryAddress(0), iovArray.count(), (short) 0);
+                ioState |= WRITE_SCHEDULED;
+                return;
+            }
+        }
+        ByteBuf buf = (ByteBuf) msg;
+        writeOp = Native.IORING_OP_WRITE;
+        submissionQueue().addWrite(fd, buf.memoryAddress(), buf.readerIndex(), buf.writerIndex(), (short) 0);
+        ioState |= WRITE_SCHEDULED;
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return UnixChannelUtil.isBufferCopyNeededForWrite(buf) || !buf.hasMemoryAddress() ?
+                    newDirectBuffer(buf) : buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected final void doShutdownOutput() throws Exception {
+        socket.shutdown(false, true);
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        try {
+            socket.shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return socket.isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return socket.isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return socket.isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+                }
+            });
+        }
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownInput0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        ChannelFuture shutdownOutputFuture = shutdownOutput();
+        if (shutdownOutputFuture.isDone()) {
+            shutdownOutputDone(shutdownOutputFuture, promise);
+        } else {
+            shutdownOutputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final ChannelFuture shutdownOutputFuture) throws Exception {
+                    shutdownOutputDone(shutdownOutputFuture, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownOutputDone(final ChannelFuture shutdownOutputFuture, final ChannelPromise promise) {
+        ChannelFuture shutdownInputFuture = shutdownInput();
+        if (shutdownInputFuture.isDone()) {
+            shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+        } else {
+            shutdownInputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture shutdownInputFuture) throws Exception {
+                    shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+                }
+            });
+        }
+    }
+
+    private static void shutdownDone(ChannelFuture shutdownOutputFuture,
+                              ChannelFuture shutdownInputFuture,
+                              ChannelPromise promise) {
+        Throwable shutdownOutputCause = shutdownOutputFuture.cause();
+        Throwable shutdownInputCause = shutdownInputFuture.cause();
+        if (shutdownOutputCause != null) {
+            if (shutdownInputCause != null) {
+                logger.debug("Exception suppressed because a previous exception occurred.",
+                        shutdownInputCause);
+            }
+            promise.setFailure(shutdownOutputCause);
+        } else if (shutdownInputCause != null) {
+            promise.setFailure(shutdownInputCause);
+        } else {
+            promise.setSuccess();
+        }
+    }
+
+    @Override
+    void freeResources() {
+        try {
+            super.freeResources();
+        } finally {
+            // No read or write is in flight anymore, so the kernel is done with this memory.
+            iovArray.release();
+        }
+    }
+
+    private static boolean isAllowHalfClosure(ChannelConfig config) {
+        return config instanceof IOUringSocketChannelConfig &&
+                ((IOUringSocketChannelConfig) config).isAllowHalfClosure();
+    }
+
+    class IOUringStreamUnsafe extends AbstractUringUnsafe {
+
+        @Override
+        void scheduleRead() {
+            if (!isActive() || socket.isInputShutdown()) {
+                return;
+            }
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            ByteBuf byteBuf = allocHandle.allocate(alloc());
+            if (!byteBuf.hasMemoryAddress()) {
+                ByteBuf direct = alloc().directBuffer(byteBuf.capacity());
+                byteBuf.release();
+                byteBuf = direct;
+            }
+            allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+            readBuffer = byteBuf;
+            submissionQueue().addRead(socket.intValue(), byteBuf.memoryAddress(), byteBuf.writerIndex(),
+                    byteBuf.capacity(), (short) 0);
+            ioState |= READ_SCHEDULED;
+        }
+
+        @Override
+        void readComplete(int res) {
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                byteBuf.release();
+                return;
+            }
+
+            final ChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            boolean close = false;
+            try {
+                if (res < 0) {
+                    throw Errors.newConnectionResetException("read", res);
+                }
+                allocHandle.lastBytesRead(res);
+                if (res == 0) {
+                    // EOF, nothing left to read.
+                    byteBuf.release();
+                    byteBuf = null;
+                    close = true;
+                    readPending = false;
+                } else {
+                    byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                    allocHandle.incMessagesRead(1);
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                    byteBuf = null;
+                }
+
+                // Every completion finishes a read loop, as the next read may not complete until the peer sends
+                // more data and so would delay the flush of anything written in channelRead(...).
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+
+                if (close) {
+                    shutdownInput();
+                }
+            } catch (Throwable t) {
+                handleReadException(pipeline, byteBuf, t, close, allocHandle);
+            } finally {
+                if (!close && isActive() && (readPending || config.isAutoRead()) &&
+                        (ioState & READ_SCHEDULED) == 0) {
+                    allocHandle.reset(config);
+                    scheduleRead();
+                }
+            }
+        }
+
+        private void shutdownInput() {
+            if (!socket.isInputShutdown()) {
+                if (isAllowHalfClosure(config())) {
+                    try {
+                        socket.shutdown(true, false);
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                        close(voidPromise());
+                        return;
+                    } catch (NotYetConnectedException ignore) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                    }
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownReadComplete.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            }
+        }
+
+        private void handleReadException(ChannelPipeline pipeline, ByteBuf byteBuf, Throwable cause, boolean close,
+                RecvByteBufAllocator.Handle allocHandle) {
+            if (byteBuf != null) {
+                if (byteBuf.isReadable()) {
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                } else {
+                    byteBuf.release();
+                }
+            }
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            pipeline.fireExceptionCaught(cause);
+            if (close || cause instanceof IOException) {
+                shutdownInput();
+            }
+        }
+
+        @Override
+        void writeComplete(int res) {
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (res < 0) {
+                // Surfaced via doWrite(...) so the flushed messages are failed the same way as for every other
+                // transport.
+                writeException = Errors.newConnectionResetException("write", res);
+            } else if (in != null) {
+                in.removeBytes(res);
+            }
+            flush0();
+        }
+    }
+}
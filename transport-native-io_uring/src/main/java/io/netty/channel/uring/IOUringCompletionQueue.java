@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion side of an io_uring instance.
+ */
+final class IOUringCompletionQueue {
+
+    private static final int CQE_SIZE = 16;
+
+    // Offsets of the fields in struct io_uring_cqe
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+    private static final int CQE_FLAGS_FIELD = 12;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long completionQueueArrayAddress;
+    private final int ringMask;
+    private final int ringSize;
+    private final long ringAddress;
+
+    private int head;
+
+    IOUringCompletionQueue(long kHeadAddress, long kTailAddress, long kRingMaskAddress,
+                           long completionQueueArrayAddress, int ringSize, long ringAddress) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.completionQueueArrayAddress = completionQueueArrayAddress;
+        this.ringSize = ringSize;
+        this.ringAddress = ringAddress;
+        ringMask = PlatformDependent.getIntVolatile(kRingMaskAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+    }
+
+    boolean hasCompletions() {
+        return head != PlatformDependent.getIntVolatile(kTailAddress);
+    }
+
+    /**
+     * Hands every available completion to the {@link IOUringCompletionQueueCallback} and returns how many were
+     * processed. The slot of each completion is released before the callback runs, so the callback may submit
+     * new entries.
+     */
+    int process(IOUringCompletionQueueCallback callback) {
+        int tail = PlatformDependent.getIntVolatile(kTailAddress);
+        int processed = 0;
+        while (head != tail) {
+            long cqe = completionQueueArrayAddress + (long) (head & ringMask) * CQE_SIZE;
+            long userData = PlatformDependent.getLong(cqe + CQE_USER_DATA_FIELD);
+            int res = PlatformDependent.getInt(cqe + CQE_RES_FIELD);
+            int flags = PlatformDependent.getInt(cqe + CQE_FLAGS_FIELD);
+
+            PlatformDependent.putIntOrdered(kHeadAddress, ++head);
+
+            int fd = (int) userData;
+            byte op = (byte) (userData >>> 32);
+            short data = (short) (userData >>> 48);
+            callback.handle(fd, res, flags, op, data);
+            processed++;
+
+            if (head == tail) {
+                // Pick up completions that were posted while we were busy.
+                tail = PlatformDependent.getIntVolatile(kTailAddress);
+            }
+        }
+        return processed;
+    }
+
+    int ringSize() {
+        return ringSize;
+    }
+
+    long ringAddress() {
+        return ringAddress;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * Receives the completions reaped by {@link IOUringCompletionQueue#process(IOUringCompletionQueueCallback)}.
+ */
+interface IOUringCompletionQueueCallback {
+
+    /**
+     * Called for each completion.
+     *
+     * @param fd the file descriptor the entry was submitted for.
+     * @param res the result of the operation, a negative errno on failure.
+     * @param flags the completion flags.
+     * @param op the {@code IORING_OP_*} of the entry.
+     * @param data the extra data that was encoded in the entry.
+     */
+    void handle(int fd, int res, int flags, byte op, short data);
+}
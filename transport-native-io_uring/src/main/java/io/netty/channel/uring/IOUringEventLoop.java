@@ -0,0 +1,341 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link EventLoop} which uses io_uring under the covers. Only works on Linux!
+ * <p>
+ * Channels add their reads, writes, accepts and connects to the submission queue of this loop while it runs tasks
+ * and completions. All of them are handed to the kernel at once at the start of the next iteration.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements IOUringCompletionQueueCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final AtomicIntegerFieldUpdater<IOUringEventLoop> WAKEN_UP_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(IOUringEventLoop.class, "wakenUp");
+
+    // Timeouts which are only used to drain cancelled operations while shutting down.
+    private static final long CLEANUP_TIMEOUT_NANOS = 10000000L;
+    private static final int CLEANUP_MAX_ATTEMPTS = 100;
+
+    static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        // We use unix-common methods in this class which are backed by JNI methods.
+        IOUring.ensureAvailability();
+    }
+
+    private final RingBuffer ringBuffer;
+    private final FileDescriptor eventFd;
+    private final IntObjectMap<AbstractIOUringChannel> channels = new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    // 8 bytes the eventfd counter is read into and a struct __kernel_timespec for the timeout of the loop.
+    private final long eventFdReadBuffer;
+    private final long timeoutMemoryAddress;
+    private final Callable<Integer> pendingTasksCallable = new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+            return IOUringEventLoop.super.pendingTasks();
+        }
+    };
+
+    private boolean eventFdReadPending;
+    private boolean timeoutPending;
+    private long timeoutDeadlineNanos;
+    private short timeoutSequence;
+
+    private volatile int wakenUp;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize,
+                     RejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
+        boolean success = false;
+        RingBuffer ringBuffer = null;
+        FileDescriptor eventFd = null;
+        try {
+            this.ringBuffer = ringBuffer = ringSize == 0 ? Native.createRingBuffer() : Native.createRingBuffer(ringSize);
+            this.eventFd = eventFd = Native.newEventFd();
+            success = true;
+        } finally {
+            if (!success) {
+                if (ringBuffer != null) {
+                    try {
+                        ringBuffer.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+                if (eventFd != null) {
+                    try {
+                        eventFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        eventFdReadBuffer = PlatformDependent.allocateMemory(8);
+        timeoutMemoryAddress = PlatformDependent.allocateMemory(16);
+    }
+
+    /**
+     * Returns the {@link IOUringSubmissionQueue} channels of this {@link EventLoop} add their operations to.
+     */
+    IOUringSubmissionQueue submissionQueue() {
+        return ringBuffer.submissionQueue();
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            // write to the evfd which will then complete the pending read and so wake-up io_uring_enter(...)
+            Native.eventFdWrite(eventFd.intValue(), 1L);
+        }
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop}.
+     */
+    void add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        channels.put(ch.socket.intValue(), ch);
+    }
+
+    /**
+     * Deregister the given channel from this {@link EventLoop}. This must only be called once no operation of the
+     * channel is in flight anymore, as otherwise its completions could not be dispatched.
+     */
+    void remove(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int fd = ch.socket.intValue();
+        AbstractIOUringChannel old = channels.remove(fd);
+        if (old != null && old != ch) {
+            // The fd was re-used and is now owned by another channel, put it back.
+            channels.put(fd, old);
+        }
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        // This event loop never calls takeTask()
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                                                    : PlatformDependent.<Runnable>newMpscQueue(maxPendingTasks);
+    }
+
+    @Override
+    public int pendingTasks() {
+        // As we use a MpscQueue we need to ensure pendingTasks() is only executed from within the EventLoop as
+        // otherwise we may see unexpected behavior (as size() is only allowed to be called by a single consumer).
+        // See https://github.com/netty/netty/issues/5297
+        if (inEventLoop()) {
+            return super.pendingTasks();
+        } else {
+            return submit(pendingTasksCallable).syncUninterruptibly().getNow();
+        }
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    @Override
+    protected void run() {
+        final IOUringSubmissionQueue submissionQueue = ringBuffer.submissionQueue();
+        final IOUringCompletionQueue completionQueue = ringBuffer.completionQueue();
+        for (;;) {
+            try {
+                if (!hasTasks() && !completionQueue.hasCompletions()) {
+                    WAKEN_UP_UPDATER.set(this, 0);
+                    // Check again as a task may have been added before wakenUp was reset, in which case no one
+                    // will write to the eventfd for it.
+                    if (!hasTasks()) {
+                        addEventFdRead(submissionQueue);
+                        addTimeout(submissionQueue, delayNanos(System.nanoTime()));
+                        submissionQueue.submitAndWait();
+                    } else {
+                        submissionQueue.submit();
+                    }
+                } else {
+                    submissionQueue.submit();
+                }
+
+                final int ioRatio = this.ioRatio;
+                if (ioRatio == 100) {
+                    try {
+                        completionQueue.process(this);
+                    } finally {
+                        // Ensure we always run tasks.
+                        runAllTasks();
+                    }
+                } else {
+                    final long ioStartTime = System.nanoTime();
+
+                    try {
+                        completionQueue.process(this);
+                    } finally {
+                        // Ensure we always run tasks.
+                        final long ioTime = System.nanoTime() - ioStartTime;
+                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+            // Always handle shutdown even if the loop processing threw an exception.
+            try {
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+        }
+    }
+
+    private void addEventFdRead(IOUringSubmissionQueue submissionQueue) {
+        if (!eventFdReadPending) {
+            eventFdReadPending = true;
+            submissionQueue.addRead(eventFd.intValue(), eventFdReadBuffer, 0, 8, (short) 0);
+        }
+    }
+
+    private void addTimeout(IOUringSubmissionQueue submissionQueue, long delayNanos) {
+        long deadlineNanos = System.nanoTime() + delayNanos;
+        if (timeoutPending) {
+            if (deadlineNanos - timeoutDeadlineNanos >= 0) {
+                // The pending timeout fires early enough.
+                return;
+            }
+            submissionQueue.addCancel(eventFd.intValue(), IOUringSubmissionQueue.encode(
+                    eventFd.intValue(), Native.IORING_OP_TIMEOUT, timeoutSequence));
+        }
+        PlatformDependent.putLong(timeoutMemoryAddress, delayNanos / 1000000000L);
+        PlatformDependent.putLong(timeoutMemoryAddress + 8, delayNanos % 1000000000L);
+        timeoutPending = true;
+        timeoutDeadlineNanos = deadlineNanos;
+        submissionQueue.addTimeout(eventFd.intValue(), timeoutMemoryAddress, ++timeoutSequence);
+    }
+
+    @Override
+    public void handle(int fd, int res, int flags, byte op, short data) {
+        if (op == Native.IORING_OP_TIMEOUT) {
+            if (data == timeoutSequence) {
+                timeoutPending = false;
+            }
+        } else if (op == Native.IORING_OP_ASYNC_CANCEL) {
+            // Nothing to do, the cancelled operation completes on its own.
+        } else if (fd == eventFd.intValue()) {
+            // The wakeup was consumed by the read, the next blocking submit arms a new one.
+            eventFdReadPending = false;
+        } else {
+            AbstractIOUringChannel ch = channels.get(fd);
+            if (ch != null) {
+                ((AbstractIOUringChannel.AbstractUringUnsafe) ch.unsafe()).handle(res, flags, op, data);
+            }
+        }
+    }
+
+    private static void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void closeAll() {
+        // Using the intermediate collection to prevent ConcurrentModificationException.
+        // Channels remove themselves from `channels` once their in-flight operations completed.
+        Collection<AbstractIOUringChannel> array = new ArrayList<AbstractIOUringChannel>(channels.size());
+
+        for (AbstractIOUringChannel channel: channels.values()) {
+            array.add(channel);
+        }
+
+        for (AbstractIOUringChannel ch: array) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            // Closed channels only release their file descriptors once the cancellation of their in-flight
+            // operations completed, so give the kernel a chance to deliver those completions.
+            IOUringSubmissionQueue submissionQueue = ringBuffer.submissionQueue();
+            IOUringCompletionQueue completionQueue = ringBuffer.completionQueue();
+            for (int i = 0; i < CLEANUP_MAX_ATTEMPTS && !channels.isEmpty(); i++) {
+                addTimeout(submissionQueue, CLEANUP_TIMEOUT_NANOS);
+                submissionQueue.submitAndWait();
+                completionQueue.process(this);
+            }
+        } catch (Throwable t) {
+            logger.warn("Failed to drain the io_uring completion queue.", t);
+        } finally {
+            try {
+                ringBuffer.close();
+            } catch (Throwable t) {
+                logger.warn("Failed to close the io_uring ring.", t);
+            }
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+            // The ring is gone so the kernel does not touch this memory anymore.
+            PlatformDependent.freeMemory(eventFdReadBuffer);
+            PlatformDependent.freeMemory(timeoutMemoryAddress);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.Socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static io.netty.channel.unix.Socket.newSocketStream;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses linux io_uring to accept connections.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+
+    public IOUringServerSocketChannel() {
+        this(newSocketStream(), false);
+    }
+
+    public IOUringServerSocketChannel(int fd) {
+        // Must call this constructor to ensure this object's local address is configured.
+        // See https://github.com/netty/netty/issues/2359
+        this(new Socket(fd), true);
+    }
+
+    IOUringServerSocketChannel(Socket fd, boolean active) {
+        super(null, fd, active);
+        readOp = Native.IORING_OP_ACCEPT;
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        socket.listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected AbstractUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    private Channel newChildChannel(int fd) {
+        Socket child = new Socket(fd);
+        return new IOUringSocketChannel(this, child, child.remoteAddress());
+    }
+
+    final class IOUringServerSocketUnsafe extends AbstractUringUnsafe {
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleRead() {
+            if (!isActive()) {
+                return;
+            }
+            submissionQueue().addAccept(socket.intValue(), (short) 0);
+            ioState |= READ_SCHEDULED;
+        }
+
+        @Override
+        void readComplete(int res) {
+            if (!isOpen() || res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                if (res >= 0) {
+                    // Accepted while closing, nobody will ever use this connection.
+                    try {
+                        new Socket(res).close();
+                    } catch (IOException ignore) {
+                        // ignore
+                    }
+                }
+                return;
+            }
+            final ChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            try {
+                if (res >= 0) {
+                    allocHandle.incMessagesRead(1);
+                    readPending = false;
+                    pipeline.fireChannelRead(newChildChannel(res));
+                }
+                // A pending accept may wait for a long time, so notify the batch as completed right away.
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                if (res < 0 && res != Errors.ERRNO_EAGAIN_NEGATIVE) {
+                    pipeline.fireExceptionCaught(Errors.newIOException("accept", res));
+                }
+            } finally {
+                if (isActive() && (readPending || config.isAutoRead()) && (ioState & READ_SCHEDULED) == 0) {
+                    allocHandle.reset(config);
+                    scheduleRead();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.util.internal.PlatformDependent;
+
+import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * The submission side of an io_uring instance. Entries are only written to the shared memory ring and are handed to
+ * the kernel in one batch by {@link #submit()} or {@link #submitAndWait()}, so many reads, writes, accepts and
+ * connects that are requested during one event loop iteration cost a single {@code io_uring_enter(...)} call.
+ */
+final class IOUringSubmissionQueue {
+
+    private static final int SQE_SIZE = 64;
+
+    // Offsets of the fields in struct io_uring_sqe
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FLAGS_FIELD = 1;
+    private static final int SQE_IOPRIO_FIELD = 2;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_RW_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+    private static final int SQE_PAD_FIELD = 40;
+    private static final int SQE_PAD_LENGTH = SQE_SIZE - SQE_PAD_FIELD;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long submissionQueueArrayAddress;
+    private final int ringEntries;
+    private final int ringMask;
+    private final int ringSize;
+    private final long ringAddress;
+    private final int ringFd;
+
+    private int head;
+    private int tail;
+
+    IOUringSubmissionQueue(long kHeadAddress, long kTailAddress, long kRingMaskAddress, long kRingEntriesAddress,
+                           long submissionQueueArrayAddress, int ringSize, long ringAddress, int ringFd) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.submissionQueueArrayAddress = submissionQueueArrayAddress;
+        this.ringSize = ringSize;
+        this.ringAddress = ringAddress;
+        this.ringFd = ringFd;
+        ringEntries = PlatformDependent.getIntVolatile(kRingEntriesAddress);
+        ringMask = PlatformDependent.getIntVolatile(kRingMaskAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        tail = PlatformDependent.getIntVolatile(kTailAddress);
+    }
+
+    /**
+     * Encodes the {@code user_data} of an entry, which is handed back unchanged in the matching completion.
+     */
+    static long encode(int fd, byte op, short data) {
+        return (fd & 0xFFFFFFFFL) | (long) (op & 0xFF) << 32 | (long) (data & 0xFFFF) << 48;
+    }
+
+    private void enqueueSqe(byte op, int rwFlags, int fd, long address, int length, long offset, long userData) {
+        if (tail - head == ringEntries) {
+            // The ring is full, hand what we have to the kernel to make room.
+            submit();
+            if (tail - head == ringEntries) {
+                throw new ChannelException("submission queue is full: " + ringEntries);
+            }
+        }
+        long sqe = submissionQueueArrayAddress + (long) (tail++ & ringMask) * SQE_SIZE;
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putByte(sqe + SQE_FLAGS_FIELD, (byte) 0);
+        PlatformDependent.putShort(sqe + SQE_IOPRIO_FIELD, (short) 0);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_RW_FLAGS_FIELD, rwFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+        PlatformDependent.setMemory(sqe + SQE_PAD_FIELD, SQE_PAD_LENGTH, (byte) 0);
+    }
+
+    void addRead(int fd, long bufferAddress, int pos, int limit, short data) {
+        enqueueSqe(Native.IORING_OP_READ, 0, fd, bufferAddress + pos, limit - pos, 0,
+                encode(fd, Native.IORING_OP_READ, data));
+    }
+
+    void addWrite(int fd, long bufferAddress, int pos, int limit, short data) {
+        enqueueSqe(Native.IORING_OP_WRITE, 0, fd, bufferAddress + pos, limit - pos, 0,
+                encode(fd, Native.IORING_OP_WRITE, data));
+    }
+
+    void addWritev(int fd, long iovecArrayAddress, int length, short data) {
+        enqueueSqe(Native.IORING_OP_WRITEV, 0, fd, iovecArrayAddress, length, 0,
+                encode(fd, Native.IORING_OP_WRITEV, data));
+    }
+
+    void addAccept(int fd, short data) {
+        enqueueSqe(Native.IORING_OP_ACCEPT, Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC, fd, 0, 0, 0,
+                encode(fd, Native.IORING_OP_ACCEPT, data));
+    }
+
+    void addConnect(int fd, long socketAddress, int socketAddressLength, short data) {
+        enqueueSqe(Native.IORING_OP_CONNECT, 0, fd, socketAddress, 0, socketAddressLength,
+                encode(fd, Native.IORING_OP_CONNECT, data));
+    }
+
+    void addSendmsg(int fd, long msgHdrAddress, short data) {
+        enqueueSqe(Native.IORING_OP_SENDMSG, 0, fd, msgHdrAddress, 1, 0,
+                encode(fd, Native.IORING_OP_SENDMSG, data));
+    }
+
+    void addRecvmsg(int fd, long msgHdrAddress, short data) {
+        enqueueSqe(Native.IORING_OP_RECVMSG, 0, fd, msgHdrAddress, 1, 0,
+                encode(fd, Native.IORING_OP_RECVMSG, data));
+    }
+
+    /**
+     * Adds a timeout which completes with {@code -ETIME} once the {@code struct __kernel_timespec} at
+     * {@code timeSpecAddress} elapsed. The timespec is read when the entry is submitted.
+     */
+    void addTimeout(int fd, long timeSpecAddress, short data) {
+        enqueueSqe(Native.IORING_OP_TIMEOUT, 0, -1, timeSpecAddress, 1, 0,
+                encode(fd, Native.IORING_OP_TIMEOUT, data));
+    }
+
+    /**
+     * Cancels the in-flight entry which was submitted with the given {@code user_data}.
+     */
+    void addCancel(int fd, long userDataToCancel) {
+        enqueueSqe(Native.IORING_OP_ASYNC_CANCEL, 0, -1, userDataToCancel, 0, 0,
+                encode(fd, Native.IORING_OP_ASYNC_CANCEL, (short) 0));
+    }
+
+    /**
+     * Returns the number of entries which were added but not yet handed to the kernel.
+     */
+    int count() {
+        return tail - head;
+    }
+
+    /**
+     * Hands all pending entries to the kernel without waiting for any completion.
+     */
+    int submit() {
+        return submit(0, 0);
+    }
+
+    /**
+     * Hands all pending entries to the kernel and blocks until at least one completion is available.
+     */
+    int submitAndWait() {
+        return submit(1, Native.IORING_ENTER_GETEVENTS);
+    }
+
+    private int submit(int minComplete, int flags) {
+        int toSubmit = tail - head;
+        if (toSubmit == 0 && minComplete == 0) {
+            return 0;
+        }
+        PlatformDependent.putIntOrdered(kTailAddress, tail);
+        int ret = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        if (ret < 0) {
+            if (ret == ERRNO_EAGAIN_NEGATIVE || ret == Native.ERRNO_EBUSY_NEGATIVE) {
+                // The kernel is out of resources or the completion queue overflowed, the caller needs to reap
+                // completions first. The entries stay in the ring and will be handed over by the next call.
+                return 0;
+            }
+            throw new ChannelException(newIOException("io_uring_enter", ret));
+        }
+        return ret;
+    }
+
+    int ringEntries() {
+        return ringEntries;
+    }
+
+    int ringSize() {
+        return ringSize;
+    }
+
+    long ringAddress() {
+        return ringAddress;
+    }
+
+    long submissionQueueArrayAddress() {
+        return submissionQueueArrayAddress;
+    }
+
+    int ringFd() {
+        return ringFd;
+    }
+}
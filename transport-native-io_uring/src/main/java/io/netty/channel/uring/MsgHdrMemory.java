@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.NativeInetAddress;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Native memory for one {@code struct msghdr} together with the single {@code struct iovec} and the
+ * {@code struct sockaddr_storage} it points to, as used by {@code IORING_OP_SENDMSG} and {@code IORING_OP_RECVMSG}.
+ */
+final class MsgHdrMemory {
+    private static final byte[] IPV4_MAPPED_IPV6_PREFIX = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff };
+
+    private final long memoryAddress;
+    private final long iovAddress;
+    private final long sockAddress;
+
+    MsgHdrMemory() {
+        int size = Native.SIZEOF_MSGHDR + Native.SIZEOF_IOVEC + Native.SIZEOF_SOCKADDR_STORAGE;
+        memoryAddress = PlatformDependent.allocateMemory(size);
+        PlatformDependent.setMemory(memoryAddress, size, (byte) 0);
+        iovAddress = memoryAddress + Native.SIZEOF_MSGHDR;
+        sockAddress = iovAddress + Native.SIZEOF_IOVEC;
+        PlatformDependent.putLong(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_IOV, iovAddress);
+        PlatformDependent.putLong(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_IOVLEN, 1);
+    }
+
+    long address() {
+        return memoryAddress;
+    }
+
+    /**
+     * Prepares the {@code struct msghdr} to send the given memory to {@code recipient}, or to the connected peer
+     * if {@code recipient} is {@code null}.
+     */
+    void prepareSend(long bufferAddress, int length, InetSocketAddress recipient) {
+        setIov(bufferAddress, length);
+        if (recipient == null) {
+            PlatformDependent.putLong(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_NAME, 0);
+            PlatformDependent.putInt(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_NAMELEN, 0);
+        } else {
+            NativeInetAddress address = NativeInetAddress.newInstance(recipient.getAddress());
+            int addressLength = Native.initAddress(
+                    address.address(), address.scopeId(), recipient.getPort(), sockAddress);
+            PlatformDependent.putLong(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_NAME, sockAddress);
+            PlatformDependent.putInt(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_NAMELEN, addressLength);
+        }
+    }
+
+    /**
+     * Prepares the {@code struct msghdr} to receive into the given memory.
+     */
+    void prepareReceive(long bufferAddress, int length) {
+        setIov(bufferAddress, length);
+        PlatformDependent.putLong(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_NAME, sockAddress);
+        PlatformDependent.putInt(memoryAddress + Native.MSGHDR_OFFSETOF_MSG_NAMELEN, Native.SIZEOF_SOCKADDR_STORAGE);
+    }
+
+    private void setIov(long bufferAddress, int length) {
+        PlatformDependent.putLong(iovAddress, bufferAddress);
+        PlatformDependent.putLong(iovAddress + 8, length);
+    }
+
+    /**
+     * Returns the address of the sender once a receive completed.
+     */
+    InetSocketAddress sender() throws UnknownHostException {
+        int family = PlatformDependent.getShort(sockAddress) & 0xFFFF;
+        // sin_port and sin6_port are both stored in network byte order at offset 2.
+        int port = (PlatformDependent.getByte(sockAddress + 2) & 0xFF) << 8 |
+                PlatformDependent.getByte(sockAddress + 3) & 0xFF;
+        final InetAddress address;
+        if (family == Native.AF_INET) {
+            byte[] bytes = new byte[4];
+            PlatformDependent.copyMemory(sockAddress + 4, bytes, 0, 4);
+            address = InetAddress.getByAddress(bytes);
+        } else {
+            byte[] bytes = new byte[16];
+            PlatformDependent.copyMemory(sockAddress + 8, bytes, 0, 16);
+            if (isIpv4Mapped(bytes)) {
+                byte[] ipv4 = new byte[4];
+                System.arraycopy(bytes, 12, ipv4, 0, 4);
+                address = InetAddress.getByAddress(ipv4);
+            } else {
+                int scopeId = PlatformDependent.getInt(sockAddress + 24);
+                address = Inet6Address.getByAddress(null, bytes, scopeId);
+            }
+        }
+        return new InetSocketAddress(address, port);
+    }
+
+    private static boolean isIpv4Mapped(byte[] bytes) {
+        for (int i = 0; i < IPV4_MAPPED_IPV6_PREFIX.length; i++) {
+            if (bytes[i] != IPV4_MAPPED_IPV6_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void release() {
+        PlatformDependent.freeMemory(memoryAddress);
+    }
+}
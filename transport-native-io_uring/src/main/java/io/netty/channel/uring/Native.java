@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.afInet;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.afInet6;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ebusy;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ecanceled;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.etime;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringEnterGetevents;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpAccept;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpAsyncCancel;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpConnect;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpRead;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpRecvmsg;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpSendmsg;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpTimeout;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpWrite;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.ioringOpWritev;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.kernelVersion;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.offsetofMsghdrIov;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.offsetofMsghdrIovlen;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.offsetofMsghdrName;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.offsetofMsghdrNamelen;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofIovec;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofMsghdr;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sizeofSockaddrStorage;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sockCloexec;
+import static io.netty.channel.uring.NativeStaticallyReferencedJniMethods.sockNonblock;
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Native helper methods
+ * <p><strong>Internal usage only!</strong>
+ * <p>Static members which call JNI methods must be defined in {@link NativeStaticallyReferencedJniMethods}.
+ */
+final class Native {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Native.class);
+
+    static {
+        try {
+            // First, try calling a side-effect free JNI method to see if the library was already
+            // loaded by the application.
+            sizeofIovec();
+        } catch (UnsatisfiedLinkError ignore) {
+            // The library was not previously loaded, load it now.
+            loadNativeLibrary();
+        }
+        Socket.initialize();
+    }
+
+    static final int DEFAULT_RING_SIZE = Math.max(64, SystemPropertyUtil.getInt("io.netty.uring.ringSize", 4096));
+
+    static final int SIZEOF_SOCKADDR_STORAGE = sizeofSockaddrStorage();
+    static final int SIZEOF_IOVEC = sizeofIovec();
+    static final int SIZEOF_MSGHDR = sizeofMsghdr();
+    static final int MSGHDR_OFFSETOF_MSG_NAME = offsetofMsghdrName();
+    static final int MSGHDR_OFFSETOF_MSG_NAMELEN = offsetofMsghdrNamelen();
+    static final int MSGHDR_OFFSETOF_MSG_IOV = offsetofMsghdrIov();
+    static final int MSGHDR_OFFSETOF_MSG_IOVLEN = offsetofMsghdrIovlen();
+    static final int AF_INET = afInet();
+    static final int AF_INET6 = afInet6();
+    static final int SOCK_NONBLOCK = sockNonblock();
+    static final int SOCK_CLOEXEC = sockCloexec();
+    static final int ERRNO_ETIME_NEGATIVE = -etime();
+    static final int ERRNO_ECANCELED_NEGATIVE = -ecanceled();
+    static final int ERRNO_EBUSY_NEGATIVE = -ebusy();
+    static final int IORING_ENTER_GETEVENTS = ioringEnterGetevents();
+    static final byte IORING_OP_TIMEOUT = ioringOpTimeout();
+    static final byte IORING_OP_ACCEPT = ioringOpAccept();
+    static final byte IORING_OP_ASYNC_CANCEL = ioringOpAsyncCancel();
+    static final byte IORING_OP_CONNECT = ioringOpConnect();
+    static final byte IORING_OP_READ = ioringOpRead();
+    static final byte IORING_OP_WRITE = ioringOpWrite();
+    static final byte IORING_OP_WRITEV = ioringOpWritev();
+    static final byte IORING_OP_SENDMSG = ioringOpSendmsg();
+    static final byte IORING_OP_RECVMSG = ioringOpRecvmsg();
+    static final String KERNEL_VERSION = kernelVersion();
+
+    // Offsets into the array returned by ioUringSetup0(...), must be kept in sync with netty_io_uring_native.c
+    private static final int RING_FD = 0;
+    private static final int SQ_HEAD = 1;
+    private static final int SQ_TAIL = 2;
+    private static final int SQ_RING_MASK = 3;
+    private static final int SQ_RING_ENTRIES = 4;
+    private static final int SQ_SQES = 8;
+    private static final int SQ_RING_SIZE = 9;
+    private static final int SQ_RING_ADDRESS = 10;
+    private static final int CQ_HEAD = 11;
+    private static final int CQ_TAIL = 12;
+    private static final int CQ_RING_MASK = 13;
+    private static final int CQ_CQES = 16;
+    private static final int CQ_RING_SIZE = 17;
+    private static final int CQ_RING_ADDRESS = 18;
+
+    static RingBuffer createRingBuffer(int ringSize) {
+        long[] values = ioUringSetup0(ringSize);
+        int ringFd = (int) values[RING_FD];
+        IOUringSubmissionQueue submissionQueue = new IOUringSubmissionQueue(
+                values[SQ_HEAD], values[SQ_TAIL], values[SQ_RING_MASK], values[SQ_RING_ENTRIES], values[SQ_SQES],
+                (int) values[SQ_RING_SIZE], values[SQ_RING_ADDRESS], ringFd);
+        IOUringCompletionQueue completionQueue = new IOUringCompletionQueue(
+                values[CQ_HEAD], values[CQ_TAIL], values[CQ_RING_MASK], values[CQ_CQES], (int) values[CQ_RING_SIZE],
+                values[CQ_RING_ADDRESS]);
+        return new RingBuffer(submissionQueue, completionQueue);
+    }
+
+    static RingBuffer createRingBuffer() {
+        return createRingBuffer(DEFAULT_RING_SIZE);
+    }
+
+    private static native long[] ioUringSetup0(int entries);
+
+    /**
+     * Submits {@code toSubmit} entries and optionally waits for {@code minComplete} completions.
+     *
+     * @return the number of submitted entries, or the negative errno if the call failed.
+     */
+    static native int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags);
+
+    static native void ioUringExit(long sqRingAddress, int sqRingSize, long cqRingAddress, int cqRingSize,
+                                   long sqesAddress, int sqesSize, int ringFd);
+
+    static FileDescriptor newEventFd() {
+        return new FileDescriptor(eventFd());
+    }
+
+    private static native int eventFd();
+    static native void eventFdWrite(int fd, long value);
+
+    /**
+     * Fills the {@code struct sockaddr_storage} at {@code memoryAddress} and returns its effective length.
+     */
+    static native int initAddress(byte[] address, int scopeId, int port, long memoryAddress);
+
+    static void checkResult(String method, int res) throws IOException {
+        if (res < 0) {
+            throw newIOException(method, res);
+        }
+    }
+
+    private static void loadNativeLibrary() {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        String staticLibName = "netty_transport_native_io_uring";
+        String sharedLibName = staticLibName + '_' + PlatformDependent.normalizedArch();
+        ClassLoader cl = PlatformDependent.getClassLoader(Native.class);
+        try {
+            NativeLibraryLoader.load(sharedLibName, cl);
+        } catch (UnsatisfiedLinkError e1) {
+            try {
+                NativeLibraryLoader.load(staticLibName, cl);
+                logger.debug("Failed to load {}", sharedLibName, e1);
+            } catch (UnsatisfiedLinkError e2) {
+                ThrowableUtil.addSuppressed(e1, e2);
+                throw e1;
+            }
+        }
+    }
+
+    private Native() {
+        // utility
+    }
+}
@@ -18,6 +18,7 @@ package io.netty.channel.kqueue;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelConfig;
+import io.netty.channel.PredictiveRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.util.UncheckedBooleanSupplier;
 import io.netty.util.internal.ObjectUtil;
@@ -59,7 +60,13 @@ final class KQueueRecvByteAllocatorHandle implements RecvByteBufAllocator.Extend
 
     @Override
     public ByteBuf allocate(ByteBufAllocator alloc) {
-        return overrideGuess ? alloc.ioBuffer(guess0()) : delegate.allocate(alloc);
+        if (overrideGuess) {
+            return alloc.ioBuffer(guess0());
+        }
+        if (numberBytesPending != 0 && delegate instanceof PredictiveRecvByteBufAllocator.PredictiveHandle) {
+            ((PredictiveRecvByteBufAllocator.PredictiveHandle) delegate).bytesAvailable(guess0());
+        }
+        return delegate.allocate(alloc);
     }
 
     @Override
@@ -88,17 +88,31 @@ public final class IovArray implements MessageProcessor {
      * have been added.
      */
     public boolean add(ByteBuf buf) {
+        return add(buf, buf.readerIndex(), buf.readableBytes());
+    }
+
+    /**
+     * Add the region of a {@link ByteBuf} which starts at {@code offset} and spans {@code len} bytes to this
+     * {@link IovArray}. This can be used to describe the writable part of a {@link ByteBuf} when reading into it.
+     * @param buf The {@link ByteBuf} to add.
+     * @param offset The index of the first byte of the region.
+     * @param len The length of the region.
+     * @return {@code true} if the entire region has been added to this {@link IovArray}. Note in the event
+     * that {@link ByteBuf} is a {@link CompositeByteBuf} {@code false} may be returned even if some of the components
+     * have been added.
+     */
+    public boolean add(ByteBuf buf, int offset, int len) {
         if (count == IOV_MAX) {
             // No more room!
             return false;
         } else if (buf.nioBufferCount() == 1) {
-            final int len = buf.readableBytes();
-            return len == 0 || add(buf.memoryAddress(), buf.readerIndex(), len);
+            return len == 0 || add(buf.memoryAddress(), offset, len);
         } else {
-            ByteBuffer[] buffers = buf.nioBuffers();
+            ByteBuffer[] buffers = buf.nioBuffers(offset, len);
             for (ByteBuffer nioBuffer : buffers) {
-                final int len = nioBuffer.remaining();
-                if (len != 0 && (!add(directBufferAddress(nioBuffer), nioBuffer.position(), len) || count == IOV_MAX)) {
+                final int remaining = nioBuffer.remaining();
+                if (remaining != 0 &&
+                        (!add(directBufferAddress(nioBuffer), nioBuffer.position(), remaining) || count == IOV_MAX)) {
                     return false;
                 }
             }
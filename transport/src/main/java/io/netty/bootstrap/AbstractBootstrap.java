@@ -329,6 +329,13 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
     }
 
     final ChannelFuture initAndRegister() {
+        return initAndRegister(config().group());
+    }
+
+    /**
+     * Create and init a new {@link Channel} and register it with the given {@link EventLoopGroup}.
+     */
+    final ChannelFuture initAndRegister(EventLoopGroup group) {
         Channel channel = null;
         try {
 //            工厂模式创建渠道
@@ -348,7 +355,7 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
         }
 
 //        从服务端通道配置信息中获取事件组并注册通道
-        ChannelFuture regFuture = config().group().register(channel);
+        ChannelFuture regFuture = group.register(channel);
         if (regFuture.cause() != null) {
 //            通道已注册到事件组
             if (channel.isRegistered()) {
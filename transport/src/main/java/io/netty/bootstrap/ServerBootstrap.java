@@ -25,16 +25,24 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * {@link Bootstrap} sub-class which allows easy bootstrap of {@link ServerChannel}
@@ -50,6 +58,8 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
     private final ServerBootstrapConfig config = new ServerBootstrapConfig(this);
     private volatile EventLoopGroup childGroup;
     private volatile ChannelHandler childHandler;
+    // If set, accepted channels are registered on the EventLoop of the ServerChannel which accepted them.
+    private volatile boolean acceptOnChildLoop;
 
     public ServerBootstrap() { }
 
@@ -57,6 +67,7 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         super(bootstrap);
         childGroup = bootstrap.childGroup;
         childHandler = bootstrap.childHandler;
+        acceptOnChildLoop = bootstrap.acceptOnChildLoop;
         synchronized (bootstrap.childOptions) {
             childOptions.putAll(bootstrap.childOptions);
         }
@@ -162,6 +173,7 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         ChannelPipeline p = channel.pipeline();
 
         final EventLoopGroup currentChildGroup = childGroup;
+        final boolean currentAcceptOnChildLoop = acceptOnChildLoop;
         final ChannelHandler currentChildHandler = childHandler;
         final Entry<ChannelOption<?>, Object>[] currentChildOptions;
         final Entry<AttributeKey<?>, Object>[] currentChildAttrs;
@@ -183,18 +195,103 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
                     pipeline.addLast(handler);
                 }
 
+                final EventLoopGroup acceptorChildGroup =
+                        currentAcceptOnChildLoop ? ch.eventLoop() : currentChildGroup;
                 ch.eventLoop().execute(new Runnable() {
                     @Override
                     public void run() {
 //                        在pipeline最后添加ServerBootstrapAcceptor
                         pipeline.addLast(new ServerBootstrapAcceptor(
-                                ch, currentChildGroup, currentChildHandler, currentChildOptions, currentChildAttrs));
+                                ch, acceptorChildGroup, currentChildHandler, currentChildOptions, currentChildAttrs));
                     }
                 });
             }
         });
     }
 
+    /**
+     * Create one {@link ServerChannel} per {@link EventLoop} of the child {@link EventLoopGroup} and bind all of them
+     * to the same port.
+     *
+     * @see #bindPerChildLoop(SocketAddress)
+     */
+    public List<ChannelFuture> bindPerChildLoop(int inetPort) {
+        return bindPerChildLoop(new InetSocketAddress(inetPort));
+    }
+
+    /**
+     * Create one {@link ServerChannel} per {@link EventLoop} of the child {@link EventLoopGroup}, register it with
+     * that {@link EventLoop} and bind all of them to the given {@code localAddress}. Accepted {@link Channel}s are
+     * registered on the {@link EventLoop} of the {@link ServerChannel} which accepted them, so there is no hand-off
+     * between threads and the kernel spreads the connections over the {@link EventLoop}s.
+     * <p>
+     * This only works if the transport allows several sockets to listen on the same port, for example with
+     * {@code EpollChannelOption.SO_REUSEPORT} set to {@code true}. The parent {@link EventLoopGroup} is not used to
+     * register any {@link Channel}, but it must still be set as the child {@link EventLoopGroup} can only be set
+     * together with it, so simply use {@link #group(EventLoopGroup)} with the child {@link EventLoopGroup}.
+     * The {@link ServerChannel}s are bound one after the other in the iteration order of the child
+     * {@link EventLoopGroup}, so the n-th {@link ServerChannel} is the n-th socket of the {@code SO_REUSEPORT} group.
+     * If the port of {@code localAddress} is {@code 0} all {@link ServerChannel}s use the port of the first one
+     * which was bound successfully.
+     *
+     * @return the bind futures, in the iteration order of the child {@link EventLoopGroup}.
+     */
+    public List<ChannelFuture> bindPerChildLoop(SocketAddress localAddress) {
+        validate();
+        if (localAddress == null) {
+            throw new NullPointerException("localAddress");
+        }
+        ServerBootstrap bootstrap = clone();
+        bootstrap.acceptOnChildLoop = true;
+
+        List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+        // The address of the first channel which was bound, all later channels are bound to it.
+        AtomicReference<SocketAddress> boundAddress = new AtomicReference<SocketAddress>();
+        ChannelFuture previous = null;
+        for (EventExecutor executor : childGroup) {
+            previous = bootstrap.bindOnLoop((EventLoop) executor, localAddress, boundAddress, previous);
+            futures.add(previous);
+        }
+        return Collections.unmodifiableList(futures);
+    }
+
+    private ChannelFuture bindOnLoop(EventLoop loop, final SocketAddress localAddress,
+                                     final AtomicReference<SocketAddress> boundAddress, final ChannelFuture previous) {
+        final ChannelFuture regFuture = initAndRegister(loop);
+        if (regFuture.cause() != null) {
+            return regFuture;
+        }
+        final Channel channel = regFuture.channel();
+        final PendingRegistrationPromise promise = new PendingRegistrationPromise(channel);
+        final ChannelFutureListener bindListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                // Use the address the first channel was bound to, which matters if an ephemeral port was requested.
+                // Bind even if the previous bind failed, the remaining channels can still accept.
+                if (previous != null && previous.isSuccess()) {
+                    boundAddress.compareAndSet(null, previous.channel().localAddress());
+                }
+                SocketAddress address = boundAddress.get();
+                channel.bind(address != null ? address : localAddress, promise)
+                        .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            }
+        };
+        regFuture.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                Throwable cause = future.cause();
+                if (cause != null) {
+                    promise.setFailure(cause);
+                    return;
+                }
+                promise.registered();
+                // Wait for the previous channel so the sockets join the SO_REUSEPORT group in order.
+                (previous == null ? future : previous).addListener(bindListener);
+            }
+        });
+        return promise;
+    }
+
     @Override
     public ServerBootstrap validate() {
         super.validate();
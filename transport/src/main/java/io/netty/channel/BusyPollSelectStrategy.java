@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+
+/**
+ * {@link SelectStrategy} which spins on a non-blocking select before it falls back to a blocking select. This trades
+ * CPU time for latency: events and tasks which arrive while spinning are picked up without the cost of waking up a
+ * blocked thread.
+ * <p>
+ * The loop spins until either {@code maxSpins} empty selects were done or the spin time budget is used up. Be aware
+ * that scheduled tasks are only picked up once the loop blocks again or a task or event arrives, so they may be
+ * delayed by up to the spin time budget.
+ * <p>
+ * Instances are created by {@link BusyPollSelectStrategyFactory}, one per event loop, and must only be used by the
+ * thread of that event loop. The statistics can be read from any thread.
+ */
+public final class BusyPollSelectStrategy implements SelectStrategy {
+    private final int maxSpins;
+    private final long maxSpinNanos;
+
+    // State of the current spin, only accessed by the event loop.
+    private int spins;
+    private long spinStartTime;
+
+    // Statistics, only written by the event loop.
+    private volatile long idleSpins;
+    private volatile long idleSpinNanos;
+    private volatile long spinHits;
+    private volatile long parks;
+
+    BusyPollSelectStrategy(int maxSpins, long maxSpinNanos) {
+        this.maxSpins = maxSpins;
+        this.maxSpinNanos = maxSpinNanos;
+    }
+
+    @Override
+    public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+        if (hasTasks) {
+            endSpin(true);
+            return selectSupplier.get();
+        }
+        if (maxSpins == 0 || maxSpinNanos == 0) {
+            return SELECT;
+        }
+        int ready = selectSupplier.get();
+        if (ready > 0) {
+            endSpin(true);
+            return ready;
+        }
+        long now = System.nanoTime();
+        if (spins == 0) {
+            spinStartTime = now;
+        }
+        if (spins < maxSpins && now - spinStartTime < maxSpinNanos) {
+            spins++;
+            idleSpins++;
+            return CONTINUE;
+        }
+        endSpin(false);
+        parks++;
+        return SELECT;
+    }
+
+    private void endSpin(boolean hit) {
+        if (spins == 0) {
+            return;
+        }
+        idleSpinNanos += System.nanoTime() - spinStartTime;
+        if (hit) {
+            spinHits++;
+        }
+        spins = 0;
+    }
+
+    /**
+     * Returns the number of non-blocking selects which found neither events nor tasks.
+     */
+    public long idleSpins() {
+        return idleSpins;
+    }
+
+    /**
+     * Returns the total time in nanoseconds spent spinning.
+     */
+    public long idleSpinNanos() {
+        return idleSpinNanos;
+    }
+
+    /**
+     * Returns how often spinning was ended by an event or a task, which means a blocking select and the wakeup it
+     * needs were saved.
+     */
+    public long spinHits() {
+        return spinHits;
+    }
+
+    /**
+     * Returns how often the spin budget was used up and the event loop fell back to a blocking select.
+     */
+    public long parks() {
+        return parks;
+    }
+
+    @Override
+    public String toString() {
+        return "BusyPollSelectStrategy(maxSpins: " + maxSpins + ", maxSpinNanos: " + maxSpinNanos +
+                ", idleSpins: " + idleSpins + ", idleSpinNanos: " + idleSpinNanos + ", spinHits: " + spinHits +
+                ", parks: " + parks + ')';
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Factory which creates a {@link BusyPollSelectStrategy} per event loop. Keep a reference to the factory to read the
+ * idle spin statistics of the event loops via {@link #strategies()}.
+ */
+public final class BusyPollSelectStrategyFactory implements SelectStrategyFactory {
+    private final int maxSpins;
+    private final long maxSpinNanos;
+    private final List<BusyPollSelectStrategy> strategies = new CopyOnWriteArrayList<BusyPollSelectStrategy>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxSpins the maximal number of empty non-blocking selects before blocking.
+     * @param maxSpinTime the maximal time to spin before blocking.
+     * @param unit the {@link TimeUnit} of {@code maxSpinTime}.
+     */
+    public BusyPollSelectStrategyFactory(int maxSpins, long maxSpinTime, TimeUnit unit) {
+        this.maxSpins = checkPositiveOrZero(maxSpins, "maxSpins");
+        maxSpinNanos = checkNotNull(unit, "unit").toNanos(checkPositiveOrZero(maxSpinTime, "maxSpinTime"));
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        BusyPollSelectStrategy strategy = new BusyPollSelectStrategy(maxSpins, maxSpinNanos);
+        strategies.add(strategy);
+        return strategy;
+    }
+
+    /**
+     * Returns the strategies created by this factory, in the order the event loops were created.
+     */
+    public List<BusyPollSelectStrategy> strategies() {
+        return Collections.unmodifiableList(strategies);
+    }
+}
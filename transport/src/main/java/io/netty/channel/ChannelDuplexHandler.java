@@ -15,6 +15,8 @@
  */
 package io.netty.channel;
 
+import io.netty.channel.ChannelHandlerMask.Skip;
+
 import java.net.SocketAddress;
 
 /**
@@ -34,6 +36,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext。绑定(SocketAddress, ChannelPromise)转发到ChannelPipeline中的下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void bind(ChannelHandlerContext ctx, SocketAddress localAddress,
                      ChannelPromise promise) throws Exception {
@@ -47,6 +50,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext。连接(SocketAddress、SocketAddress、ChannelPromise)到ChannelOutboundHandler中的下一个channelboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress,
                         SocketAddress localAddress, ChannelPromise promise) throws Exception {
@@ -60,6 +64,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.disconnect(ChannelPromise)，将其转发到ChannelOutboundHandler中。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise)
             throws Exception {
@@ -73,6 +78,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.close(ChannelPromise)以在ChannelPipeline中转发到下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
         ctx.close(promise);
@@ -85,6 +91,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.close(ChannelPromise)以在ChannelPipeline中转发到下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void deregister(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
         ctx.deregister(promise);
@@ -97,6 +104,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.read()将其转发到ChannelOutboundHandler中。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void read(ChannelHandlerContext ctx) throws Exception {
         ctx.read();
@@ -109,6 +117,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext。写入(对象，ChannelPromise)以转发到ChannelOutboundHandler中的下一个channelboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         ctx.write(msg, promise);
@@ -121,6 +130,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.flush()来转发到ChannelPipeline中的下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
         ctx.flush();
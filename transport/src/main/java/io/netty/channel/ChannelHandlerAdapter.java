@@ -16,6 +16,7 @@
 
 package io.netty.channel;
 
+import io.netty.channel.ChannelHandlerMask.Skip;
 import io.netty.util.internal.InternalThreadLocalMap;
 
 import java.util.Map;
@@ -88,6 +89,7 @@ public abstract class ChannelHandlerAdapter implements ChannelHandler {
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireExceptionCaught(可抛出)以转发到ChannelPipeline中的下一个ChannelHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         ctx.fireExceptionCaught(cause);
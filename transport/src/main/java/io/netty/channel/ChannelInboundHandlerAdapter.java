@@ -15,6 +15,8 @@
  */
 package io.netty.channel;
 
+import io.netty.channel.ChannelHandlerMask.Skip;
+
 /**
  * Abstract base class for {@link ChannelInboundHandler} implementations which provide
  * implementations of all of their methods.
@@ -42,6 +44,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用channelhandlercontext . firechannelregistration()将其转发到ChannelPipeline中的下一个channelelinboundhandler。子类可以重写此方法以更改行为。ChannelHandlerContext的通道被注册到它的EventLoop中
      */
+    @Skip
     @Override
     public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
         ctx.fireChannelRegistered();
@@ -54,6 +57,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用channelhandlercontext . firechannelunregistration()，将其转发到ChannelPipeline中的下一个channelelinboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
         ctx.fireChannelUnregistered();
@@ -66,6 +70,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireChannelActive()将其转发到ChannelPipeline中的下一个channelelinboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         ctx.fireChannelActive();
@@ -78,6 +83,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireChannelInactive()来转发到ChannelPipeline中的下一个ChannelInboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         ctx.fireChannelInactive();
@@ -90,6 +96,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireChannelRead(Object)，将其转发到ChannelPipeline中的下一个channelelinboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         ctx.fireChannelRead(msg);
@@ -102,6 +109,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireChannelReadComplete()，将其转发到ChannelPipeline中的下一个channelelinboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
         ctx.fireChannelReadComplete();
@@ -114,6 +122,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用channelhandlercontext . fireuserevent触发器(Object)，以在ChannelPipeline中转发到下一个channelelinboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         ctx.fireUserEventTriggered(evt);
@@ -126,6 +135,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireChannelWritabilityChanged()，以转发到ChannelPipeline中的下一个ChannelInboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
         ctx.fireChannelWritabilityChanged();
@@ -138,6 +148,7 @@ public class ChannelInboundHandlerAdapter extends ChannelHandlerAdapter implemen
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.fireExceptionCaught(可抛出)以转发到ChannelPipeline中的下一个ChannelHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
             throws Exception {
@@ -96,6 +96,12 @@ public class ChannelOption<T> extends AbstractConstant<ChannelOption<T>> {
     public static final ChannelOption<WriteBufferWaterMark> WRITE_BUFFER_WATER_MARK =
             valueOf("WRITE_BUFFER_WATER_MARK");
 
+    /**
+     * Merges runs of small flushed buffers into one before they are written, see {@link WriteCoalescer}. Supported by
+     * the NIO and the epoll socket channels, disabled by default.
+     */
+    public static final ChannelOption<WriteCoalescer> WRITE_COALESCER = valueOf("WRITE_COALESCER");
+
     public static final ChannelOption<Boolean> ALLOW_HALF_CLOSURE = valueOf("ALLOW_HALF_CLOSURE");
     public static final ChannelOption<Boolean> AUTO_READ = valueOf("AUTO_READ");
 
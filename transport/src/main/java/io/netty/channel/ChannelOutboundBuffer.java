@@ -16,11 +16,10 @@
 package io.netty.channel;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.Recycler;
-import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.InternalThreadLocalMap;
@@ -48,17 +47,18 @@ import static java.lang.Math.min;
  * <li>{@link #getUserDefinedWritability(int)} and {@link #setUserDefinedWritability(int, boolean)}</li>
  * </ul>
  * </p>
+ * <p>
+ * Messages are kept in a ring of parallel arrays, one slot per message, which grows and shrinks with the number of
+ * pending messages. The pending bytes of the messages are only ever changed by the I/O thread, so they are
+ * accounted for separately from the ones added through the thread-safe methods and published without an atomic
+ * update per message.
+ * </p>
  * (仅传输实现者)AbstractChannel使用的内部数据结构来存储等待的出站写请求。
  所有方法必须通过从I/O线程的传输实现调用，但以下方法除外:
  */
 public final class ChannelOutboundBuffer {
-    // Assuming a 64-bit JVM:
-    //  - 16 bytes object header
-    //  - 8 reference fields
-    //  - 2 long fields
-    //  - 2 int fields
-    //  - 1 boolean field
-    //  - padding
+    // The size of the former linked Entry object on a 64-bit JVM. A slot of the ring only takes 3 references,
+    // 2 longs, 2 ints and 1 boolean, but the overhead is kept so the watermarks behave as before.
     static final int CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD =
             SystemPropertyUtil.getInt("io.netty.transport.outboundBufferEntrySizeOverhead", 96);
 
@@ -71,18 +71,29 @@ public final class ChannelOutboundBuffer {
         }
     };
 
+    private static final int INITIAL_CAPACITY = 8;
+
     private final Channel channel;
 
-    // Entry(flushedEntry) --> ... Entry(unflushedEntry) --> ... Entry(tailEntry)
-    //
-    // The Entry that is the first in the linked-list structure that was flushed被刷新的链表结构中的第一个项
-    private Entry flushedEntry;
-    // The Entry which is the first unflushed in the linked-list structure
-    private Entry unflushedEntry;
-    // The Entry which represents the tail of the buffer
-    private Entry tailEntry;
-    // The number of flushed entries that are not written yet
+    // slot(head) ... slot(head + flushed - 1) are flushed, slot(head + flushed) ... slot(head + count - 1) are not.
+    // All arrays have the same power of two length and are only allocated once the first message is added.
+    private Object[] messages;
+    private ChannelPromise[] promises;
+    // The ByteBuffer, or the ByteBuffer[] if nioBufferCounts[slot] != 1, of a ByteBuf message once resolved.
+    private Object[] cachedNioBuffers;
+    private int[] nioBufferCounts;
+    private int[] pendingSizes;
+    private long[] totals;
+    private long[] progresses;
+    private boolean[] cancelled;
+    private int head;
+    private int count;
+    // The number of flushed messages that are not written yet
     private int flushed;
+    // The highest count since the buffer was empty the last time, to decide if it should shrink.
+    private int peakCount;
+    // The number of flushed messages at the end of the flushed ones which were not passed to a WriteCoalescer yet.
+    private int uncoalesced;
 
     private int nioBufferCount;
     private long nioBufferSize;
@@ -92,9 +103,17 @@ public final class ChannelOutboundBuffer {
     private static final AtomicLongFieldUpdater<ChannelOutboundBuffer> TOTAL_PENDING_SIZE_UPDATER =
             AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "totalPendingSize");
 
+    // The pending bytes added through the thread-safe methods.
     @SuppressWarnings("UnusedDeclaration")
     private volatile long totalPendingSize;
 
+    private static final AtomicLongFieldUpdater<ChannelOutboundBuffer> BUFFERED_PENDING_SIZE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "bufferedPendingSize");
+
+    // The pending bytes of the messages in this buffer, only written by the I/O thread.
+    @SuppressWarnings("UnusedDeclaration")
+    private volatile long bufferedPendingSize;
+
     private static final AtomicIntegerFieldUpdater<ChannelOutboundBuffer> UNWRITABLE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "unwritable");
 
@@ -112,22 +131,63 @@ public final class ChannelOutboundBuffer {
      * the message was written.向这个ChannelOutboundBuffer添加给定的消息。给定的ChannelPromise将在消息被写入时被通知。
      */
     public void addMessage(Object msg, int size, ChannelPromise promise) {
-        Entry entry = Entry.newInstance(msg, size, total(msg), promise);
-        if (tailEntry == null) {
-            flushedEntry = null;
-            tailEntry = entry;
-        } else {
-            Entry tail = tailEntry;
-            tail.next = entry;
-            tailEntry = entry;
+        if (messages == null) {
+            allocate(INITIAL_CAPACITY);
+        } else if (count == messages.length) {
+            resize(count << 1);
         }
-        if (unflushedEntry == null) {
-            unflushedEntry = entry;
+        int slot = (head + count) & messages.length - 1;
+        int pendingSize = size + CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD;
+        messages[slot] = msg;
+        promises[slot] = promise;
+        pendingSizes[slot] = pendingSize;
+        totals[slot] = total(msg);
+        if (++ count > peakCount) {
+            peakCount = count;
         }
 
         // increment pending bytes after adding message to the unflushed arrays.向未刷新的数组添加消息后增加挂起字节。
         // See https://github.com/netty/netty/issues/1619
-        incrementPendingOutboundBytes(entry.pendingSize, false);
+        incrementBufferedPendingSize(pendingSize);
+    }
+
+    private void allocate(int capacity) {
+        messages = new Object[capacity];
+        promises = new ChannelPromise[capacity];
+        cachedNioBuffers = new Object[capacity];
+        nioBufferCounts = new int[capacity];
+        Arrays.fill(nioBufferCounts, -1);
+        pendingSizes = new int[capacity];
+        totals = new long[capacity];
+        progresses = new long[capacity];
+        cancelled = new boolean[capacity];
+        head = 0;
+    }
+
+    private void resize(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalStateException();
+        }
+        int oldCapacity = messages.length;
+        int[] newNioBufferCounts = new int[capacity];
+        Arrays.fill(newNioBufferCounts, count, capacity, -1);
+        messages = (Object[]) copySlots(messages, new Object[capacity], oldCapacity);
+        promises = (ChannelPromise[]) copySlots(promises, new ChannelPromise[capacity], oldCapacity);
+        cachedNioBuffers = (Object[]) copySlots(cachedNioBuffers, new Object[capacity], oldCapacity);
+        nioBufferCounts = (int[]) copySlots(nioBufferCounts, newNioBufferCounts, oldCapacity);
+        pendingSizes = (int[]) copySlots(pendingSizes, new int[capacity], oldCapacity);
+        totals = (long[]) copySlots(totals, new long[capacity], oldCapacity);
+        progresses = (long[]) copySlots(progresses, new long[capacity], oldCapacity);
+        cancelled = (boolean[]) copySlots(cancelled, new boolean[capacity], oldCapacity);
+        head = 0;
+    }
+
+    // Copies the slots in use to the start of dst, in order.
+    private Object copySlots(Object src, Object dst, int oldCapacity) {
+        int first = min(count, oldCapacity - head);
+        System.arraycopy(src, head, dst, 0, first);
+        System.arraycopy(src, 0, dst, first, count - first);
+        return dst;
     }
 
     /**
@@ -140,25 +200,124 @@ public final class ChannelOutboundBuffer {
 //在此期间增加了。
         //
         // See https://github.com/netty/netty/issues/2577
-        Entry entry = unflushedEntry;
-        if (entry != null) {
-            if (flushedEntry == null) {
-                // there is no flushedEntry yet, so start with the entry还没有冲水阀，所以从入口开始
-                flushedEntry = entry;
+        uncoalesced = min(uncoalesced, flushed) + count - flushed;
+        // The fields are read again on each iteration as a listener may add messages while a cancelled one is
+        // released, which are then flushed as well.
+        while (flushed < count) {
+            int slot = (head + flushed) & messages.length - 1;
+            flushed ++;
+            if (!promises[slot].setUncancellable()) {
+                // Was cancelled so make sure we free up memory and notify about the freed bytes已取消，因此请确保释放内存并通知释放的字节
+                int pending = cancel(slot);
+                decrementBufferedPendingSize(pending, true);
+            }
+        }
+    }
+
+    private int cancel(int slot) {
+        if (!cancelled[slot]) {
+            cancelled[slot] = true;
+            int pSize = pendingSizes[slot];
+
+            // release message and replace with an empty buffer
+            ReferenceCountUtil.safeRelease(messages[slot]);
+            messages[slot] = Unpooled.EMPTY_BUFFER;
+
+            pendingSizes[slot] = 0;
+            totals[slot] = 0;
+            progresses[slot] = 0;
+            cachedNioBuffers[slot] = null;
+            nioBufferCounts[slot] = -1;
+            return pSize;
+        }
+        return 0;
+    }
+
+    /**
+     * Copies runs of small {@link ByteBuf}s which were flushed since the last call into one buffer each, see
+     * {@link WriteCoalescer}. The merged buffer takes the slot of the first buffer of its run and the others are
+     * replaced with empty buffers, so each promise is still notified in order once all bytes up to and including
+     * its own were written.
+     */
+    void coalesce(WriteCoalescer coalescer, ByteBufAllocator alloc) {
+        final int start = flushed - min(uncoalesced, flushed);
+        uncoalesced = 0;
+        if (flushed - start < 2) {
+            return;
+        }
+        final int mask = messages.length - 1;
+        final int maxBufferSize = coalescer.maxBufferSize();
+        final int maxCoalescedSize = coalescer.maxCoalescedSize();
+        int buffers = 0;
+        int mergedBuffers = 0;
+        long mergedBytes = 0;
+        // The first non-empty buffer of the current run, or -1 if it has none yet.
+        int runStart = -1;
+        int runBuffers = 0;
+        int runBytes = 0;
+        for (int i = start; i < flushed; i++) {
+            int slot = (head + i) & mask;
+            Object msg = messages[slot];
+            int readableBytes = msg instanceof ByteBuf ? ((ByteBuf) msg).readableBytes() : -1;
+            if (readableBytes == 0) {
+                // Empty and cancelled messages neither end a run nor take part in it.
+                continue;
             }
-            do {
-                flushed ++;
-                if (!entry.promise.setUncancellable()) {
-                    // Was cancelled so make sure we free up memory and notify about the freed bytes已取消，因此请确保释放内存并通知释放的字节
-                    int pending = entry.cancel();
-                    decrementPendingOutboundBytes(pending, false, true);
+            if (readableBytes > 0) {
+                buffers ++;
+            }
+            // Only the readable bytes of a partially written buffer are merged, but a message whose promise reports
+            // progress is never merged as its progress could not be told apart from the one of the others.
+            boolean small = readableBytes > 0 && readableBytes <= maxBufferSize &&
+                    !(promises[slot] instanceof ChannelProgressivePromise);
+            if (!small || runBytes + readableBytes > maxCoalescedSize) {
+                if (runBuffers > 1) {
+                    coalesceRun(alloc, runStart, i, runBytes);
+                    mergedBuffers += runBuffers - 1;
+                    mergedBytes += runBytes;
+                }
+                runStart = -1;
+                runBuffers = 0;
+                runBytes = 0;
+                if (!small) {
+                    continue;
                 }
-                entry = entry.next;
-            } while (entry != null);
+            }
+            if (runStart < 0) {
+                runStart = i;
+            }
+            runBuffers ++;
+            runBytes += readableBytes;
+        }
+        if (runBuffers > 1) {
+            coalesceRun(alloc, runStart, flushed, runBytes);
+            mergedBuffers += runBuffers - 1;
+            mergedBytes += runBytes;
+        }
+        if (mergedBuffers != 0) {
+            coalescer.coalesced(buffers, mergedBuffers, mergedBytes);
+        }
+    }
 
-            // All flushed so reset unflushedEntry所有刷新，所以重置unflushedEntry
-            unflushedEntry = null;
+    private void coalesceRun(ByteBufAllocator alloc, int from, int to, int bytes) {
+        final int mask = messages.length - 1;
+        ByteBuf coalesced = alloc.directBuffer(bytes);
+        for (int i = from; i < to; i++) {
+            int slot = (head + i) & mask;
+            ByteBuf buf = (ByteBuf) messages[slot];
+            int readableBytes = buf.readableBytes();
+            if (readableBytes != 0) {
+                coalesced.writeBytes(buf, buf.readerIndex(), readableBytes);
+                ReferenceCountUtil.safeRelease(buf);
+                messages[slot] = Unpooled.EMPTY_BUFFER;
+                totals[slot] = 0;
+                cachedNioBuffers[slot] = null;
+                nioBufferCounts[slot] = -1;
+            }
         }
+        int slot = (head + from) & mask;
+        messages[slot] = coalesced;
+        totals[slot] = bytes;
     }
 
     /**
@@ -175,13 +334,33 @@ public final class ChannelOutboundBuffer {
             return;
         }
 
-        long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, size);
+        long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, size) + bufferedPendingSize;
 //        如果大于64k设置不可写
         if (newWriteBufferSize > channel.config().getWriteBufferHighWaterMark()) {
             setUnwritable(invokeLater);
         }
     }
 
+    private void incrementBufferedPendingSize(long size) {
+        long newBufferedSize = bufferedPendingSize + size;
+        BUFFERED_PENDING_SIZE_UPDATER.lazySet(this, newBufferedSize);
+        if (newBufferedSize + totalPendingSize > channel.config().getWriteBufferHighWaterMark()) {
+            setUnwritable(false);
+        }
+    }
+
+    private void decrementBufferedPendingSize(long size, boolean notifyWritability) {
+        if (size == 0) {
+            return;
+        }
+        long newBufferedSize = bufferedPendingSize - size;
+        BUFFERED_PENDING_SIZE_UPDATER.lazySet(this, newBufferedSize);
+        if (notifyWritability &&
+                newBufferedSize + totalPendingSize < channel.config().getWriteBufferLowWaterMark()) {
+            setWritable(false);
+        }
+    }
+
     /**
      * Decrement the pending bytes which will be written at some point.
      * This method is thread-safe!
@@ -196,7 +375,7 @@ public final class ChannelOutboundBuffer {
             return;
         }
 
-        long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
+        long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size) + bufferedPendingSize;
 //        如果没有达到写的标识位就开始写
         if (notifyWritability && newWriteBufferSize < channel.config().getWriteBufferLowWaterMark()) {
             setWritable(invokeLater);
@@ -221,25 +400,24 @@ public final class ChannelOutboundBuffer {
      * 如果之前没有刷新，则返回要写入的当前消息或null，以便写入。
      */
     public Object current() {
-        Entry entry = flushedEntry;
-        if (entry == null) {
+        if (flushed == 0) {
             return null;
         }
 
-        return entry.msg;
+        return messages[head];
     }
 
     /**
      * Notify the {@link ChannelPromise} of the current message about writing progress.通知ChannelPromise关于编写进度的当前消息。
      */
     public void progress(long amount) {
-        Entry e = flushedEntry;
-        assert e != null;
-        ChannelPromise p = e.promise;
+        assert flushed != 0;
+        int slot = head;
+        ChannelPromise p = promises[slot];
         if (p instanceof ChannelProgressivePromise) {
-            long progress = e.progress + amount;
-            e.progress = progress;
-            ((ChannelProgressivePromise) p).tryProgress(progress, e.total);
+            long progress = progresses[slot] + amount;
+            progresses[slot] = progress;
+            ((ChannelProgressivePromise) p).tryProgress(progress, totals[slot]);
         }
     }
 
@@ -249,29 +427,58 @@ public final class ChannelOutboundBuffer {
      * messages are ready to be handled.将删除当前消息，将其频道承诺标记为成功并返回true。如果在调用此方法时不存在刷新消息，则返回false以表示不再准备处理任何消息。
      */
     public boolean remove() {
-        Entry e = flushedEntry;
-        if (e == null) {
+        if (flushed == 0) {
             clearNioBuffers();
             return false;
         }
-        Object msg = e.msg;
+        decrementBufferedPendingSize(removeAndSucceed(), true);
+        return true;
+    }
 
-        ChannelPromise promise = e.promise;
-        int size = e.pendingSize;
+    // Removes the current message and notifies its promise, but leaves it to the caller to decrement the returned
+    // pending bytes.
+    private int removeAndSucceed() {
+        int slot = head;
+        Object msg = messages[slot];
+        ChannelPromise promise = promises[slot];
+        int size = pendingSizes[slot];
+        boolean cancelled = this.cancelled[slot];
 
-        removeEntry(e);
+        removeEntry(slot);
 
-        if (!e.cancelled) {
+        if (!cancelled) {
             // only release message, notify and decrement if it was not canceled before.如果之前没有取消，则只释放消息、通知和减量。
             ReferenceCountUtil.safeRelease(msg);
             safeSuccess(promise);
-            decrementPendingOutboundBytes(size, false, true);
+            return size;
+        }
+        return 0;
+    }
+
+    /**
+     * Will remove the current message without releasing it and without notifying its {@link ChannelPromise}, and
+     * return the promise. The caller takes over the ownership of the message and is responsible for releasing it and
+     * notifying the returned promise. This is useful for transports which hand the memory of a message to the
+     * operating system and only learn later when it is no longer used. Returns {@code null} if no flushed message
+     * exists or if the message was cancelled before.
+     */
+    public ChannelPromise removeAndDetach() {
+        if (flushed == 0) {
+            clearNioBuffers();
+            return null;
         }
+        int slot = head;
+        ChannelPromise promise = promises[slot];
+        int size = pendingSizes[slot];
+        boolean cancelled = this.cancelled[slot];
 
-        // recycle the entry
-        e.recycle();
+        removeEntry(slot);
 
-        return true;
+        if (!cancelled) {
+            decrementBufferedPendingSize(size, true);
+        }
+
+        return cancelled ? null : promise;
     }
 
     /**
@@ -284,45 +491,62 @@ public final class ChannelOutboundBuffer {
     }
 
     private boolean remove0(Throwable cause, boolean notifyWritability) {
-        Entry e = flushedEntry;
-        if (e == null) {
+        if (flushed == 0) {
 //            清空buffer
             clearNioBuffers();
             return false;
         }
-        Object msg = e.msg;
-
-        ChannelPromise promise = e.promise;
-        int size = e.pendingSize;
+        int slot = head;
+        Object msg = messages[slot];
+        ChannelPromise promise = promises[slot];
+        int size = pendingSizes[slot];
+        boolean cancelled = this.cancelled[slot];
 
-        removeEntry(e);
+        removeEntry(slot);
 
-        if (!e.cancelled) {
+        if (!cancelled) {
             // only release message, fail and decrement if it was not canceled before.只有发布消息，失败和减量，如果它没有取消之前。
             ReferenceCountUtil.safeRelease(msg);
 
             safeFail(promise, cause);
 //            判断流量控制逻辑，channel是否可写
-            decrementPendingOutboundBytes(size, false, notifyWritability);
+            decrementBufferedPendingSize(size, notifyWritability);
         }
 
-        // recycle the entry 回收 entry
-        e.recycle();
-
         return true;
     }
 
-    private void removeEntry(Entry e) {
-        if (-- flushed == 0) {
+    private void removeEntry(int slot) {
+        clearSlot(slot);
+        flushed --;
+        if (-- count == 0) {
             // processed everything
-            flushedEntry = null;
-            if (e == tailEntry) {
-                tailEntry = null;
-                unflushedEntry = null;
-            }
+            shrinkIfIdle();
+        } else {
+            head = (slot + 1) & messages.length - 1;
+        }
+    }
+
+    private void clearSlot(int slot) {
+        messages[slot] = null;
+        promises[slot] = null;
+        cachedNioBuffers[slot] = null;
+        nioBufferCounts[slot] = -1;
+        pendingSizes[slot] = 0;
+        totals[slot] = 0;
+        progresses[slot] = 0;
+        cancelled[slot] = false;
+    }
+
+    // Called once the buffer is empty, halves the arrays if far less of them was used since it was empty last time.
+    private void shrinkIfIdle() {
+        int capacity = messages.length;
+        if (capacity > INITIAL_CAPACITY && peakCount <= capacity >>> 2) {
+            allocate(capacity >>> 1);
         } else {
-            flushedEntry = e.next;
+            head = 0;
         }
+        peakCount = 0;
     }
 
     /**
@@ -330,30 +554,36 @@ public final class ChannelOutboundBuffer {
      * This operation assumes all messages in this buffer is {@link ByteBuf}.删除完整的已写条目并更新部分已写条目的读取器索引。此操作假定该缓冲区中的所有消息都是ByteBuf。
      */
     public void removeBytes(long writtenBytes) {
-        for (;;) {
-            Object msg = current();
-            if (!(msg instanceof ByteBuf)) {
-                assert writtenBytes == 0;
-                break;
-            }
+        // The pending bytes of all removed messages are decremented at once.
+        long removedSize = 0;
+        try {
+            for (;;) {
+                Object msg = current();
+                if (!(msg instanceof ByteBuf)) {
+                    assert writtenBytes == 0;
+                    break;
+                }
 
-            final ByteBuf buf = (ByteBuf) msg;
-            final int readerIndex = buf.readerIndex();
-            final int readableBytes = buf.writerIndex() - readerIndex;
+                final ByteBuf buf = (ByteBuf) msg;
+                final int readerIndex = buf.readerIndex();
+                final int readableBytes = buf.writerIndex() - readerIndex;
 
-            if (readableBytes <= writtenBytes) {
-                if (writtenBytes != 0) {
-                    progress(readableBytes);
-                    writtenBytes -= readableBytes;
-                }
-                remove();
-            } else { // readableBytes > writtenBytes
-                if (writtenBytes != 0) {
-                    buf.readerIndex(readerIndex + (int) writtenBytes);
-                    progress(writtenBytes);
+                if (readableBytes <= writtenBytes) {
+                    if (writtenBytes != 0) {
+                        progress(readableBytes);
+                        writtenBytes -= readableBytes;
+                    }
+                    removedSize += removeAndSucceed();
+                } else { // readableBytes > writtenBytes
+                    if (writtenBytes != 0) {
+                        buf.readerIndex(readerIndex + (int) writtenBytes);
+                        progress(writtenBytes);
+                    }
+                    break;
                 }
-                break;
             }
+        } finally {
+            decrementBufferedPendingSize(removedSize, true);
         }
         clearNioBuffers();
     }
@@ -407,10 +637,15 @@ public final class ChannelOutboundBuffer {
         int nioBufferCount = 0;
         final InternalThreadLocalMap threadLocalMap = InternalThreadLocalMap.get();
         ByteBuffer[] nioBuffers = NIO_BUFFERS.get(threadLocalMap);
-        Entry entry = flushedEntry;
-        while (isFlushedEntry(entry) && entry.msg instanceof ByteBuf) {
-            if (!entry.cancelled) {
-                ByteBuf buf = (ByteBuf) entry.msg;
+        final int mask = flushed == 0 ? 0 : messages.length - 1;
+        for (int index = 0; index < flushed; index++) {
+            final int slot = (head + index) & mask;
+            final Object msg = messages[slot];
+            if (!(msg instanceof ByteBuf)) {
+                break;
+            }
+            if (!cancelled[slot]) {
+                ByteBuf buf = (ByteBuf) msg;
                 final int readerIndex = buf.readerIndex();
                 final int readableBytes = buf.writerIndex() - readerIndex;
 
@@ -430,10 +665,10 @@ public final class ChannelOutboundBuffer {
                         break;
                     }
                     nioBufferSize += readableBytes;
-                    int count = entry.count;
+                    int count = nioBufferCounts[slot];
                     if (count == -1) {
                         //noinspection ConstantValueVariableUse
-                        entry.count = count = buf.nioBufferCount();
+                        nioBufferCounts[slot] = count = buf.nioBufferCount();
                     }
                     int neededSpace = min(maxCount, nioBufferCount + count);
                     if (neededSpace > nioBuffers.length) {
@@ -441,19 +676,19 @@ public final class ChannelOutboundBuffer {
                         NIO_BUFFERS.set(threadLocalMap, nioBuffers);
                     }
                     if (count == 1) {
-                        ByteBuffer nioBuf = entry.buf;
+                        ByteBuffer nioBuf = (ByteBuffer) cachedNioBuffers[slot];
                         if (nioBuf == null) {
                             // cache ByteBuffer as it may need to create a new ByteBuffer instance if its a
                             // derived buffer
-                            entry.buf = nioBuf = buf.internalNioBuffer(readerIndex, readableBytes);
+                            cachedNioBuffers[slot] = nioBuf = buf.internalNioBuffer(readerIndex, readableBytes);
                         }
                         nioBuffers[nioBufferCount++] = nioBuf;
                     } else {
-                        ByteBuffer[] nioBufs = entry.bufs;
+                        ByteBuffer[] nioBufs = (ByteBuffer[]) cachedNioBuffers[slot];
                         if (nioBufs == null) {
                             // cached ByteBuffers as they may be expensive to create in terms
                             // of Object allocation
-                            entry.bufs = nioBufs = buf.nioBuffers();
+                            cachedNioBuffers[slot] = nioBufs = buf.nioBuffers();
                         }
                         for (int i = 0; i < nioBufs.length && nioBufferCount < maxCount; ++i) {
                             ByteBuffer nioBuf = nioBufs[i];
@@ -470,7 +705,6 @@ public final class ChannelOutboundBuffer {
                     }
                 }
             }
-            entry = entry.next;
         }
         this.nioBufferCount = nioBufferCount;
         this.nioBufferSize = nioBufferSize;
@@ -689,18 +923,21 @@ public final class ChannelOutboundBuffer {
 
         // Release all unflushed messages.释放所有未刷新的消息。
         try {
-            Entry e = unflushedEntry;
-            while (e != null) {
+            while (count != 0) {
+                int slot = head;
+                Object msg = messages[slot];
+                ChannelPromise promise = promises[slot];
+                boolean cancelled = this.cancelled[slot];
                 // Just decrease; do not trigger any events via decrementPendingOutboundBytes()只是减少;不要通过decrementPendingOutboundBytes()触发任何事件
-                int size = e.pendingSize;
-                TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
-
-                if (!e.cancelled) {
-                    ReferenceCountUtil.safeRelease(e.msg);
-                    safeFail(e.promise, cause);
+                decrementBufferedPendingSize(pendingSizes[slot], false);
+                clearSlot(slot);
+                head = (slot + 1) & messages.length - 1;
+                count --;
+
+                if (!cancelled) {
+                    ReferenceCountUtil.safeRelease(msg);
+                    safeFail(promise, cause);
                 }
-//                内存回收
-                e = e.recycleAndGetNext();
             }
         } finally {
             inFail = false;
@@ -732,7 +969,7 @@ public final class ChannelOutboundBuffer {
     }
 
     public long totalPendingWriteBytes() {
-        return totalPendingSize;
+        return totalPendingSize + bufferedPendingSize;
     }
 
     /**
@@ -740,7 +977,7 @@ public final class ChannelOutboundBuffer {
      * This quantity will always be non-negative. If {@link #isWritable()} is {@code false} then 0.获取在isWritable()返回false之前可以写入多少字节。这个量总是非负的。如果isWritable()为false，则为0。
      */
     public long bytesBeforeUnwritable() {
-        long bytes = channel.config().getWriteBufferHighWaterMark() - totalPendingSize;
+        long bytes = channel.config().getWriteBufferHighWaterMark() - totalPendingWriteBytes();
         // If bytes is negative we know we are not writable, but if bytes is non-negative we have to check writability.
         // Note that totalPendingSize and isWritable() use different volatile variables that are not synchronized
         // together. totalPendingSize will be updated before isWritable().
@@ -755,7 +992,7 @@ public final class ChannelOutboundBuffer {
      * This quantity will always be non-negative. If {@link #isWritable()} is {@code true} then 0.获取在isWritable()返回true之前必须从底层缓冲区抽取多少字节。这个量总是非负的。如果isWritable()为真，则为0。
      */
     public long bytesBeforeWritable() {
-        long bytes = totalPendingSize - channel.config().getWriteBufferLowWaterMark();
+        long bytes = totalPendingWriteBytes() - channel.config().getWriteBufferLowWaterMark();
         // If bytes is negative we know we are writable, but if bytes is non-negative we have to check writability.
         // Note that totalPendingSize and isWritable() use different volatile variables that are not synchronized
         // together. totalPendingSize will be updated before isWritable().
@@ -776,23 +1013,14 @@ public final class ChannelOutboundBuffer {
             throw new NullPointerException("processor");
         }
 
-        Entry entry = flushedEntry;
-        if (entry == null) {
-            return;
-        }
-
-        do {
-            if (!entry.cancelled) {
-                if (!processor.processMessage(entry.msg)) {
+        for (int i = 0; i < flushed; i++) {
+            int slot = (head + i) & messages.length - 1;
+            if (!cancelled[slot]) {
+                if (!processor.processMessage(messages[slot])) {
                     return;
                 }
             }
-            entry = entry.next;
-        } while (isFlushedEntry(entry));
-    }
-
-    private boolean isFlushedEntry(Entry e) {
-        return e != null && e != unflushedEntry;
+        }
     }
 
     public interface MessageProcessor {
@@ -802,77 +1030,4 @@ public final class ChannelOutboundBuffer {
          */
         boolean processMessage(Object msg) throws Exception;
     }
-
-    static final class Entry {
-        private static final Recycler<Entry> RECYCLER = new Recycler<Entry>() {
-            @Override
-            protected Entry newObject(Handle<Entry> handle) {
-                return new Entry(handle);
-            }
-        };
-
-        private final Handle<Entry> handle;
-        Entry next;
-        Object msg;
-        ByteBuffer[] bufs;
-        ByteBuffer buf;
-        ChannelPromise promise;
-        long progress;
-        long total;
-        int pendingSize;
-        int count = -1;
-        boolean cancelled;
-
-        private Entry(Handle<Entry> handle) {
-            this.handle = handle;
-        }
-
-        static Entry newInstance(Object msg, int size, long total, ChannelPromise promise) {
-            Entry entry = RECYCLER.get();
-            entry.msg = msg;
-            entry.pendingSize = size + CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD;
-            entry.total = total;
-            entry.promise = promise;
-            return entry;
-        }
-
-        int cancel() {
-            if (!cancelled) {
-                cancelled = true;
-                int pSize = pendingSize;
-
-                // release message and replace with an empty buffer
-                ReferenceCountUtil.safeRelease(msg);
-                msg = Unpooled.EMPTY_BUFFER;
-
-                pendingSize = 0;
-                total = 0;
-                progress = 0;
-                bufs = null;
-                buf = null;
-                return pSize;
-            }
-            return 0;
-        }
-
-        void recycle() {
-            next = null;
-            bufs = null;
-            buf = null;
-            msg = null;
-            promise = null;
-            progress = 0;
-            total = 0;
-            pendingSize = 0;
-            count = -1;
-            cancelled = false;
-            handle.recycle(this);
-        }
-
-        Entry recycleAndGetNext() {
-            Entry next = this.next;
-            recycle();
-            return next;
-        }
-    }
 }
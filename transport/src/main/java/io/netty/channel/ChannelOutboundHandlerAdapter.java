@@ -15,6 +15,8 @@
  */
 package io.netty.channel;
 
+import io.netty.channel.ChannelHandlerMask.Skip;
+
 import java.net.SocketAddress;
 
 /**
@@ -30,6 +32,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext。绑定(SocketAddress, ChannelPromise)转发到ChannelPipeline中的下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void bind(ChannelHandlerContext ctx, SocketAddress localAddress,
             ChannelPromise promise) throws Exception {
@@ -43,6 +46,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext。连接(SocketAddress、SocketAddress、ChannelPromise)到ChannelOutboundHandler中的下一个channelboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress,
             SocketAddress localAddress, ChannelPromise promise) throws Exception {
@@ -56,6 +60,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.disconnect(ChannelPromise)，将其转发到ChannelOutboundHandler中。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise)
             throws Exception {
@@ -69,6 +74,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.close(ChannelPromise)以在ChannelPipeline中转发到下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void close(ChannelHandlerContext ctx, ChannelPromise promise)
             throws Exception {
@@ -82,6 +88,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.deregister(ChannelPromise)，将其转发到ChannelOutboundHandler中。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void deregister(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
         ctx.deregister(promise);
@@ -95,6 +102,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * 调用ChannelHandlerContext.read()将其转发到ChannelOutboundHandler中。子类可以重写此方法以更改行为。
      */
 //    自己实现的handler会覆盖这个方法，在这个方法中实现自己的读取逻辑
+    @Skip
     @Override
     public void read(ChannelHandlerContext ctx) throws Exception {
         ctx.read();
@@ -107,6 +115,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext。写入(对象，ChannelPromise)以转发到ChannelOutboundHandler中的下一个channelboundhandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         ctx.write(msg, promise);
@@ -119,6 +128,7 @@ public class ChannelOutboundHandlerAdapter extends ChannelHandlerAdapter impleme
      * Sub-classes may override this method to change behavior.
      * 调用ChannelHandlerContext.flush()来转发到ChannelPipeline中的下一个ChannelOutboundHandler。子类可以重写此方法以更改行为。
      */
+    @Skip
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
         ctx.flush();
@@ -1288,7 +1288,7 @@ public class DefaultChannelPipeline implements ChannelPipeline {
     final class TailContext extends AbstractChannelHandlerContext implements ChannelInboundHandler {
 
         TailContext(DefaultChannelPipeline pipeline) {
-            super(pipeline, null, TAIL_NAME, true, false);
+            super(pipeline, null, TAIL_NAME, ChannelHandlerMask.mask(TailContext.class));
             setAddComplete();
         }
 
@@ -1351,7 +1351,7 @@ public class DefaultChannelPipeline implements ChannelPipeline {
         private final Unsafe unsafe;
 
         HeadContext(DefaultChannelPipeline pipeline) {
-            super(pipeline, null, HEAD_NAME, false, true);
+            super(pipeline, null, HEAD_NAME, ChannelHandlerMask.mask(HeadContext.class));
             unsafe = pipeline.channel().unsafe();
             setAddComplete();
         }
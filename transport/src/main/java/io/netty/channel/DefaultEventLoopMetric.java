@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutorMetric;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The {@link EventLoopMetric} of a {@link SingleThreadEventLoop}. Like the task values it delegates to, the I/O
+ * values are only updated by the thread of the loop via ordered stores.
+ */
+final class DefaultEventLoopMetric implements EventLoopMetric {
+
+    // Bucket 0 is for no ready channel, bucket i for [2^(i-1), 2^i) and the last one for 256 or more.
+    private static final int READY_CHANNELS_BUCKETS = 10;
+
+    private static final AtomicLongFieldUpdater<DefaultEventLoopMetric> IO_WAIT_TIME_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventLoopMetric.class, "ioWaitTimeNanos");
+    private static final AtomicLongFieldUpdater<DefaultEventLoopMetric> IO_TIME_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventLoopMetric.class, "ioTimeNanos");
+    private static final AtomicLongFieldUpdater<DefaultEventLoopMetric> WAKEUPS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventLoopMetric.class, "wakeups");
+    private static final AtomicLongFieldUpdater<DefaultEventLoopMetric> READY_CHANNELS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultEventLoopMetric.class, "readyChannels");
+
+    private final EventExecutorMetric taskMetric;
+    private final AtomicLongArray readyChannelsHistogram = new AtomicLongArray(READY_CHANNELS_BUCKETS);
+
+    @SuppressWarnings("unused")
+    private volatile long ioWaitTimeNanos;
+    @SuppressWarnings("unused")
+    private volatile long ioTimeNanos;
+    @SuppressWarnings("unused")
+    private volatile long wakeups;
+    @SuppressWarnings("unused")
+    private volatile long readyChannels;
+
+    DefaultEventLoopMetric(EventExecutorMetric taskMetric) {
+        this.taskMetric = taskMetric;
+    }
+
+    void recordIoWait(long waitNanos) {
+        IO_WAIT_TIME_UPDATER.lazySet(this, ioWaitTimeNanos + waitNanos);
+    }
+
+    void recordIo(int readyChannels, long ioNanos) {
+        WAKEUPS_UPDATER.lazySet(this, wakeups + 1);
+        READY_CHANNELS_UPDATER.lazySet(this, this.readyChannels + readyChannels);
+        IO_TIME_UPDATER.lazySet(this, ioTimeNanos + ioNanos);
+        int bucket = Math.min(32 - Integer.numberOfLeadingZeros(readyChannels), READY_CHANNELS_BUCKETS - 1);
+        readyChannelsHistogram.lazySet(bucket, readyChannelsHistogram.get(bucket) + 1);
+    }
+
+    @Override
+    public int pendingTasks() {
+        return taskMetric.pendingTasks();
+    }
+
+    @Override
+    public long completedTasks() {
+        return taskMetric.completedTasks();
+    }
+
+    @Override
+    public long taskTimeNanos() {
+        return taskMetric.taskTimeNanos();
+    }
+
+    @Override
+    public long slowTasks() {
+        return taskMetric.slowTasks();
+    }
+
+    @Override
+    public long slowTaskThresholdNanos() {
+        return taskMetric.slowTaskThresholdNanos();
+    }
+
+    @Override
+    public long[] taskQueueLatencyHistogram() {
+        return taskMetric.taskQueueLatencyHistogram();
+    }
+
+    @Override
+    public long ioWaitTimeNanos() {
+        return ioWaitTimeNanos;
+    }
+
+    @Override
+    public long ioTimeNanos() {
+        return ioTimeNanos;
+    }
+
+    @Override
+    public long wakeups() {
+        return wakeups;
+    }
+
+    @Override
+    public long readyChannels() {
+        return readyChannels;
+    }
+
+    @Override
+    public long[] readyChannelsHistogram() {
+        long[] histogram = new long[READY_CHANNELS_BUCKETS];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = readyChannelsHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256)
+                .append("EventLoopMetric(pendingTasks: ").append(pendingTasks())
+                .append("; completedTasks: ").append(completedTasks())
+                .append("; taskTimeNanos: ").append(taskTimeNanos())
+                .append("; slowTasks: ").append(slowTasks())
+                .append("; ioWaitTimeNanos: ").append(ioWaitTimeNanos())
+                .append("; ioTimeNanos: ").append(ioTimeNanos())
+                .append("; wakeups: ").append(wakeups())
+                .append("; readyChannels: ").append(readyChannels())
+                .append(')').toString();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutorMetric;
+
+/**
+ * Runtime metrics of an {@link EventLoop} which also handles I/O, like the ones of the NIO and native transports.
+ * Each iteration of such a loop waits for I/O in {@code select} or {@code epoll_wait}, processes the ready channels
+ * and then runs its tasks, so {@link #ioWaitTimeNanos()}, {@link #ioTimeNanos()} and {@link #taskTimeNanos()}
+ * together tell how saturated it is.
+ * <p>
+ * An {@link EventLoop} which does not handle I/O itself reports {@code 0} for all I/O values.
+ */
+public interface EventLoopMetric extends EventExecutorMetric {
+
+    /**
+     * Returns the time in nanoseconds spent waiting for I/O, for example in {@code select} or {@code epoll_wait}.
+     */
+    long ioWaitTimeNanos();
+
+    /**
+     * Returns the time in nanoseconds spent processing the channels which were ready for I/O.
+     */
+    long ioTimeNanos();
+
+    /**
+     * Returns how often the loop returned from waiting for I/O, whether any channel was ready or not.
+     */
+    long wakeups();
+
+    /**
+     * Returns the number of channels which were ready for I/O, summed over all {@link #wakeups()}.
+     */
+    long readyChannels();
+
+    /**
+     * Returns a histogram of the number of channels which were ready per wakeup. The bucket at index {@code 0}
+     * counts the wakeups without any ready channel, the bucket at index {@code i > 0} the ones with
+     * <code>2<sup>i-1</sup></code> to <code>2<sup>i</sup> - 1</code> ready channels, and the last bucket all
+     * wakeups with 256 or more ready channels.
+     */
+    long[] readyChannelsHistogram();
+}
@@ -17,12 +17,18 @@ package io.netty.channel;
 
 import io.netty.util.NettyRuntime;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorMetric;
+import io.netty.util.concurrent.EventExecutorMetricProvider;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -82,6 +88,20 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
     @Override
     protected abstract EventLoop newChild(Executor executor, Object... args) throws Exception;
 
+    @Override
+    public List<EventLoopMetric> metrics() {
+        List<EventLoopMetric> metrics = new ArrayList<EventLoopMetric>(executorCount());
+        for (EventExecutor e: this) {
+            if (e instanceof EventExecutorMetricProvider) {
+                EventExecutorMetric metric = ((EventExecutorMetricProvider) e).metric();
+                if (metric instanceof EventLoopMetric) {
+                    metrics.add((EventLoopMetric) metric);
+                }
+            }
+        }
+        return Collections.unmodifiableList(metrics);
+    }
+
     @Override
     public ChannelFuture register(Channel channel) {
         return next().register(channel);
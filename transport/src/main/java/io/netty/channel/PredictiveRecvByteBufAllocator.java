@@ -0,0 +1,273 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A {@link RecvByteBufAllocator} which predicts the size of the next read from the recent reads of each channel.
+ * <p>
+ * Each {@link PredictiveHandle} keeps a moving average of its read sizes and of their deviation from it, and sizes
+ * the next buffer so that it holds most reads of that distribution. A read which fills its buffer is treated as the
+ * start of a burst and the next buffer jumps to the size of the socket receive buffer, or to the bytes queued on
+ * the socket if the transport can tell, instead of growing step by step. Reads of a burst are not added to the
+ * distribution, so the prediction falls back as soon as the burst is over.
+ * <p>
+ * The epoll transport queries {@code FIONREAD} after a read filled its buffer, the kqueue transport passes the
+ * bytes reported by {@code EVFILT_READ}. NIO only knows {@code SO_RCVBUF}.
+ * <p>
+ * The allocator counts the bytes which were allocated but not filled by a read, see {@link #wastedBytes()}.
+ */
+public class PredictiveRecvByteBufAllocator extends DefaultMaxMessagesRecvByteBufAllocator {
+
+    static final int DEFAULT_MINIMUM = 64;
+    static final int DEFAULT_INITIAL = 1024;
+    static final int DEFAULT_MAXIMUM = 65536;
+
+    private final int minimum;
+    private final int initial;
+    private final int maximum;
+
+    private final LongCounter reads = PlatformDependent.newLongCounter();
+    private final LongCounter allocatedBytes = PlatformDependent.newLongCounter();
+    private final LongCounter wastedBytes = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new predictor with the default parameters. With the default parameters, the expected buffer size
+     * starts from {@code 1024}, does not go down below {@code 64}, and does not go up above {@code 65536}.
+     */
+    public PredictiveRecvByteBufAllocator() {
+        this(DEFAULT_MINIMUM, DEFAULT_INITIAL, DEFAULT_MAXIMUM);
+    }
+
+    /**
+     * Creates a new predictor with the specified parameters.
+     *
+     * @param minimum  the inclusive lower bound of the expected buffer size
+     * @param initial  the initial buffer size when no feed back was received
+     * @param maximum  the inclusive upper bound of the expected buffer size
+     */
+    public PredictiveRecvByteBufAllocator(int minimum, int initial, int maximum) {
+        if (minimum <= 0) {
+            throw new IllegalArgumentException("minimum: " + minimum);
+        }
+        if (initial < minimum) {
+            throw new IllegalArgumentException("initial: " + initial);
+        }
+        if (maximum < initial) {
+            throw new IllegalArgumentException("maximum: " + maximum);
+        }
+        this.minimum = minimum;
+        this.initial = initial;
+        this.maximum = maximum;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public PredictiveHandle newHandle() {
+        return new PredictiveHandle();
+    }
+
+    @Override
+    public PredictiveRecvByteBufAllocator respectMaybeMoreData(boolean respectMaybeMoreData) {
+        super.respectMaybeMoreData(respectMaybeMoreData);
+        return this;
+    }
+
+    /**
+     * Returns the number of reads of all channels which use this allocator.
+     */
+    public long reads() {
+        return reads.value();
+    }
+
+    /**
+     * Returns the number of bytes allocated for the reads of all channels which use this allocator.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes.value();
+    }
+
+    /**
+     * Returns the number of bytes which were allocated for the reads of all channels which use this allocator but
+     * not filled by them.
+     */
+    public long wastedBytes() {
+        return wastedBytes.value();
+    }
+
+    /**
+     * Returns the average number of {@linkplain #wastedBytes() wasted bytes} per read.
+     */
+    public double wastedBytesPerRead() {
+        long reads = reads();
+        return reads == 0 ? 0 : (double) wastedBytes() / reads;
+    }
+
+    private int normalize(int size) {
+        // Round up like the pooled allocator does so the prediction does not leave unused space behind.
+        int normalized = size <= 512 ? (size + 15) & ~15 : MathUtil.safeFindNextPositivePowerOfTwo(size);
+        return min(maximum, max(minimum, normalized));
+    }
+
+    /**
+     * The {@link RecvByteBufAllocator.Handle} of a {@link PredictiveRecvByteBufAllocator}, one per channel.
+     */
+    public final class PredictiveHandle extends MaxMessageHandle {
+        // Fixed point with 4 fractional bits, only valid once sampled is true.
+        private long average;
+        private long deviation;
+        private boolean sampled;
+        private int nextReceiveBufferSize = initial;
+        // The bytes queued on the socket as told by the transport, or -1 if unknown.
+        private int bytesAvailable = -1;
+        // SO_RCVBUF, 0 if not known yet and -1 if it can not be known.
+        private int receiveBufferSize;
+        private boolean burst;
+
+        private long reads;
+        private long allocatedBytes;
+        private long wastedBytes;
+        private int pendingReads;
+        private long pendingAllocatedBytes;
+        private long pendingWastedBytes;
+
+        private PredictiveHandle() { }
+
+        @Override
+        public void reset(ChannelConfig config) {
+            super.reset(config);
+            if (receiveBufferSize == 0) {
+                receiveBufferSize = -1;
+                if (config instanceof SocketChannelConfig) {
+                    try {
+                        receiveBufferSize = max(-1, ((SocketChannelConfig) config).getReceiveBufferSize());
+                    } catch (ChannelException ignore) {
+                        // Not known then.
+                    }
+                }
+            }
+        }
+
+        @Override
+        public ByteBuf allocate(ByteBufAllocator alloc) {
+            return alloc.ioBuffer(guess());
+        }
+
+        @Override
+        public int guess() {
+            return bytesAvailable > 0 ? normalize(bytesAvailable) : nextReceiveBufferSize;
+        }
+
+        /**
+         * Returns {@code true} if the last read filled its buffer, in which case a transport which can tell the
+         * number of bytes queued on the socket should pass them to {@link #bytesAvailable(int)} before the next
+         * read.
+         */
+        public boolean wantsBytesAvailable() {
+            return burst;
+        }
+
+        /**
+         * Tells the number of bytes queued on the socket, which is used to size the next buffer.
+         */
+        public void bytesAvailable(int bytes) {
+            bytesAvailable = bytes;
+        }
+
+        @Override
+        public void lastBytesRead(int bytes) {
+            super.lastBytesRead(bytes);
+            bytesAvailable = -1;
+            int attempted = attemptedBytesRead();
+            if (attempted > 0) {
+                record(bytes < 0 ? 0 : bytes, attempted);
+            }
+        }
+
+        private void record(int bytes, int attempted) {
+            pendingReads++;
+            pendingAllocatedBytes += attempted;
+            pendingWastedBytes += attempted - bytes;
+
+            if (bytes >= attempted) {
+                // A burst, size the next buffer for what may be queued instead of what was read so far.
+                burst = true;
+                nextReceiveBufferSize = receiveBufferSize > 0 ? normalize(receiveBufferSize) : maximum;
+                return;
+            }
+            burst = false;
+            if (bytes == 0) {
+                return;
+            }
+            long sample = (long) bytes << 4;
+            if (sampled) {
+                average += (sample - average) >> 3;
+                deviation += (abs(sample - average) - deviation) >> 2;
+            } else {
+                // The initial size is only a guess, start the distribution from the first read.
+                sampled = true;
+                average = sample;
+            }
+            nextReceiveBufferSize = normalize((int) min(Integer.MAX_VALUE, (average + 2 * deviation + 15) >> 4));
+        }
+
+        @Override
+        public void readComplete() {
+            super.readComplete();
+            if (pendingReads != 0) {
+                reads += pendingReads;
+                allocatedBytes += pendingAllocatedBytes;
+                wastedBytes += pendingWastedBytes;
+                PredictiveRecvByteBufAllocator.this.reads.add(pendingReads);
+                PredictiveRecvByteBufAllocator.this.allocatedBytes.add(pendingAllocatedBytes);
+                PredictiveRecvByteBufAllocator.this.wastedBytes.add(pendingWastedBytes);
+                pendingReads = 0;
+                pendingAllocatedBytes = pendingWastedBytes = 0;
+            }
+        }
+
+        /**
+         * Returns the number of reads of this channel.
+         */
+        public long reads() {
+            return reads;
+        }
+
+        /**
+         * Returns the number of bytes allocated for the reads of this channel.
+         */
+        public long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Returns the number of bytes which were allocated for the reads of this channel but not filled by them.
+         */
+        public long wastedBytes() {
+            return wastedBytes;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * A {@link RecvByteBufAllocator} which reads into a large scratch buffer owned by the event loop and hands the
+ * pipeline a buffer which only holds what was read. Small reads are copied into a right-sized buffer, a read which
+ * fills at least half of the scratch buffer is handed over as is and the event loop allocates a new scratch buffer
+ * for its next read. This way the memory used for reading scales with the number of reads in progress and not with
+ * the number of connections, which helps servers with many mostly idle connections that only ever read a few bytes
+ * at once.
+ * <p>
+ * Only the stream channels of the NIO and epoll transports read into the scratch buffer. All other channels fall
+ * back to allocating a buffer of the size of the scratch buffer for each read.
+ * <p>
+ * Each event loop thread has a single scratch buffer shared by all channels and all instances of this allocator.
+ */
+public class ScratchRecvByteBufAllocator extends DefaultMaxMessagesRecvByteBufAllocator {
+
+    static final int DEFAULT_SCRATCH_CAPACITY = 65536;
+
+    private static final FastThreadLocal<ByteBuf> SCRATCH = new FastThreadLocal<ByteBuf>() {
+        @Override
+        protected void onRemoval(ByteBuf scratch) {
+            if (scratch != null) {
+                scratch.release();
+            }
+        }
+    };
+
+    private final int scratchCapacity;
+
+    /**
+     * Creates a new allocator whose scratch buffer has a capacity of {@code 65536} bytes.
+     */
+    public ScratchRecvByteBufAllocator() {
+        this(DEFAULT_SCRATCH_CAPACITY);
+    }
+
+    /**
+     * Creates a new allocator whose scratch buffer has a capacity of {@code scratchCapacity} bytes.
+     */
+    public ScratchRecvByteBufAllocator(int scratchCapacity) {
+        if (scratchCapacity <= 0) {
+            throw new IllegalArgumentException("scratchCapacity: " + scratchCapacity + " (expected: > 0)");
+        }
+        this.scratchCapacity = scratchCapacity;
+    }
+
+    /**
+     * Returns the capacity of the scratch buffer.
+     */
+    public final int scratchCapacity() {
+        return scratchCapacity;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public ScratchHandle newHandle() {
+        return new ScratchHandle();
+    }
+
+    @Override
+    public ScratchRecvByteBufAllocator respectMaybeMoreData(boolean respectMaybeMoreData) {
+        super.respectMaybeMoreData(respectMaybeMoreData);
+        return this;
+    }
+
+    /**
+     * The {@link RecvByteBufAllocator.Handle} of a {@link ScratchRecvByteBufAllocator}. A transport which supports
+     * the scratch buffer reads into the buffer returned by {@link #allocateScratch(ByteBufAllocator)} and passes it
+     * through {@link #copyOut(ByteBufAllocator, ByteBuf)} before firing it through the pipeline.
+     */
+    public final class ScratchHandle extends MaxMessageHandle {
+
+        private ScratchHandle() { }
+
+        @Override
+        public int guess() {
+            return scratchCapacity;
+        }
+
+        /**
+         * Returns the cleared scratch buffer of the current event loop. The caller must either release it or pass
+         * it to {@link #copyOut(ByteBufAllocator, ByteBuf)}, and must not keep a reference to it afterwards.
+         */
+        public ByteBuf allocateScratch(ByteBufAllocator alloc) {
+            ByteBuf scratch = SCRATCH.get();
+            if (scratch == null || scratch.capacity() < scratchCapacity) {
+                if (scratch != null) {
+                    scratch.release();
+                }
+                scratch = alloc.ioBuffer(scratchCapacity, scratchCapacity);
+                SCRATCH.set(scratch);
+            }
+            return scratch.clear().retain();
+        }
+
+        /**
+         * Returns a buffer owned by the caller which holds the readable bytes of {@code scratch}, and releases
+         * {@code scratch}.
+         */
+        public ByteBuf copyOut(ByteBufAllocator alloc, ByteBuf scratch) {
+            try {
+                int readable = scratch.readableBytes();
+                if (readable >= scratch.capacity() >>> 1 && SCRATCH.get() == scratch) {
+                    // Copying a large read costs more than allocating a new scratch buffer for the next one, so
+                    // hand the scratch buffer over. The reference of the event loop moves to the returned buffer.
+                    SCRATCH.set(null);
+                    return scratch;
+                }
+                ByteBuf copy = alloc.ioBuffer(readable);
+                copy.writeBytes(scratch, scratch.readerIndex(), readable);
+                return copy;
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+}
@@ -37,6 +37,7 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
             SystemPropertyUtil.getInt("io.netty.eventLoop.maxPendingTasks", Integer.MAX_VALUE));
 
     private final Queue<Runnable> tailTasks;
+    private final DefaultEventLoopMetric metric = new DefaultEventLoopMetric(super.metric());
 
     protected SingleThreadEventLoop(EventLoopGroup parent, ThreadFactory threadFactory, boolean addTaskWakesUp) {
         this(parent, threadFactory, addTaskWakesUp, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject());
@@ -152,6 +153,33 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         return super.pendingTasks() + tailTasks.size();
     }
 
+    @Override
+    protected int pendingTasksEstimate() {
+        return super.pendingTasksEstimate() + tailTasks.size();
+    }
+
+    @Override
+    public EventLoopMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Records the time spent waiting for I/O in the {@link #metric()} of this loop. Must only be called from the
+     * thread of the loop while {@link #isMetricsEnabled()} returns {@code true}.
+     */
+    protected final void recordIoWait(long waitNanos) {
+        metric.recordIoWait(waitNanos);
+    }
+
+    /**
+     * Records one wakeup with the number of channels which were ready for I/O and the time spent processing them in
+     * the {@link #metric()} of this loop. Must only be called from the thread of the loop while
+     * {@link #isMetricsEnabled()} returns {@code true}.
+     */
+    protected final void recordIo(int readyChannels, long ioNanos) {
+        metric.recordIo(readyChannels, ioNanos);
+    }
+
     /**
      * Marker interface for {@link Runnable} that will not trigger an {@link #wakeup(boolean)} in all cases.
      * 可运行的标记接口，在所有情况下不会触发唤醒(布尔)。
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Copies runs of small flushed {@link ByteBuf}s of a {@link ChannelOutboundBuffer} into one direct buffer before a
+ * gathering write, so that many tiny writes, as produced by some encoders, take a few entries of the
+ * {@code iovec} array instead of one entry each and no longer need an extra {@code writev} call per
+ * {@code IOV_MAX} buffers.
+ * <p>
+ * Buffers of at most {@link #maxBufferSize()} readable bytes are merged until the merged buffer would exceed
+ * {@link #maxCoalescedSize()} bytes. Any other message ends a run, as do buffers whose promise is a
+ * {@link ChannelProgressivePromise}. The promises of merged buffers are notified once the merged buffer was
+ * written.
+ * <p>
+ * Coalescing is disabled by default and enabled per channel via {@link ChannelOption#WRITE_COALESCER}, which is
+ * supported by the NIO and the epoll socket channels. One instance may be shared by many channels, its counters
+ * then cover all of them.
+ */
+public final class WriteCoalescer {
+
+    static final int DEFAULT_MAX_BUFFER_SIZE = 64;
+    static final int DEFAULT_MAX_COALESCED_SIZE = 8192;
+
+    // The number of buffers a gathering write passes at most, both for NIO and IOV_MAX on Linux.
+    private static final int MAX_GATHERED_BUFFERS = 1024;
+
+    private final int maxBufferSize;
+    private final int maxCoalescedSize;
+
+    private final LongCounter mergedBuffers = PlatformDependent.newLongCounter();
+    private final LongCounter mergedBytes = PlatformDependent.newLongCounter();
+    private final LongCounter savedSyscalls = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which merges buffers of at most {@code 64} bytes into buffers of at most {@code 8192}
+     * bytes.
+     */
+    public WriteCoalescer() {
+        this(DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAX_COALESCED_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxBufferSize     the maximal number of readable bytes of a buffer which is merged with others
+     * @param maxCoalescedSize  the maximal number of bytes of a merged buffer
+     */
+    public WriteCoalescer(int maxBufferSize, int maxCoalescedSize) {
+        checkPositive(maxBufferSize, "maxBufferSize");
+        if (maxCoalescedSize < maxBufferSize) {
+            throw new IllegalArgumentException(
+                    "maxCoalescedSize: " + maxCoalescedSize + " (expected: >= " + maxBufferSize + ')');
+        }
+        this.maxBufferSize = maxBufferSize;
+        this.maxCoalescedSize = maxCoalescedSize;
+    }
+
+    /**
+     * Returns the maximal number of readable bytes of a buffer which is merged with others.
+     */
+    public int maxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * Returns the maximal number of bytes of a merged buffer.
+     */
+    public int maxCoalescedSize() {
+        return maxCoalescedSize;
+    }
+
+    /**
+     * Merges the small buffers which were flushed to the given {@link ChannelOutboundBuffer} since the last call,
+     * allocating the merged buffers from {@code alloc}. Must be called from the I/O thread before the buffers are
+     * gathered for a write.
+     */
+    public void coalesce(ChannelOutboundBuffer in, ByteBufAllocator alloc) {
+        in.coalesce(this, checkNotNull(alloc, "alloc"));
+    }
+
+    void coalesced(int buffers, int mergedBuffers, long mergedBytes) {
+        this.mergedBuffers.add(mergedBuffers);
+        this.mergedBytes.add(mergedBytes);
+        // Assumes that every gathering write passes as many buffers as it may.
+        long saved = gatheringWrites(buffers) - gatheringWrites(buffers - mergedBuffers);
+        if (saved != 0) {
+            savedSyscalls.add(saved);
+        }
+    }
+
+    private static int gatheringWrites(int buffers) {
+        return (buffers + MAX_GATHERED_BUFFERS - 1) / MAX_GATHERED_BUFFERS;
+    }
+
+    /**
+     * Returns the number of buffers which were merged into another one and so did not need an own entry in a
+     * gathering write.
+     */
+    public long mergedBuffers() {
+        return mergedBuffers.value();
+    }
+
+    /**
+     * Returns the number of bytes which were copied into merged buffers.
+     */
+    public long mergedBytes() {
+        return mergedBytes.value();
+    }
+
+    /**
+     * Returns the number of gathering writes which were saved by merging buffers, assuming that each gathering
+     * write passes as many buffers as the transport allows.
+     */
+    public long savedSyscalls() {
+        return savedSyscalls.value();
+    }
+}
@@ -26,6 +26,7 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.ScratchRecvByteBufAllocator;
 import io.netty.channel.internal.ChannelUtils;
 import io.netty.channel.socket.ChannelInputShutdownEvent;
 import io.netty.channel.socket.ChannelInputShutdownReadComplete;
@@ -121,13 +122,17 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
             final ChannelPipeline pipeline = pipeline();
             final ByteBufAllocator allocator = config.getAllocator();
             final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            final ScratchRecvByteBufAllocator.ScratchHandle scratchHandle =
+                    allocHandle instanceof ScratchRecvByteBufAllocator.ScratchHandle ?
+                            (ScratchRecvByteBufAllocator.ScratchHandle) allocHandle : null;
             allocHandle.reset(config);
 
             ByteBuf byteBuf = null;
             boolean close = false;
             try {
                 do {
-                    byteBuf = allocHandle.allocate(allocator);
+                    byteBuf = scratchHandle != null ? scratchHandle.allocateScratch(allocator)
+                            : allocHandle.allocate(allocator);
                     allocHandle.lastBytesRead(doReadBytes(byteBuf));
                     if (allocHandle.lastBytesRead() <= 0) {
                         // nothing was read. release the buffer.
@@ -143,6 +148,12 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
 
                     allocHandle.incMessagesRead(1);
                     readPending = false;
+                    if (scratchHandle != null) {
+                        // The scratch buffer must never reach the pipeline, not even from handleReadException.
+                        ByteBuf scratch = byteBuf;
+                        byteBuf = null;
+                        byteBuf = scratchHandle.copyOut(allocator, scratch);
+                    }
                     pipeline.fireChannelRead(byteBuf);
                     byteBuf = null;
                 } while (allocHandle.continueReading());
@@ -433,7 +433,13 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                     case SelectStrategy.CONTINUE:
                         continue;
                     case SelectStrategy.SELECT:
-                        select(wakenUp.getAndSet(false));
+                        if (isMetricsEnabled()) {
+                            final long selectStartTime = System.nanoTime();
+                            select(wakenUp.getAndSet(false));
+                            recordIoWait(System.nanoTime() - selectStartTime);
+                        } else {
+                            select(wakenUp.getAndSet(false));
+                        }
 //                        监听事件
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
@@ -550,6 +556,20 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     }
 
     private void processSelectedKeys() {
+        if (!isMetricsEnabled()) {
+            processSelectedKeys0();
+            return;
+        }
+        final int readyChannels = selectedKeys != null ? selectedKeys.size() : selector.selectedKeys().size();
+        final long ioStartTime = System.nanoTime();
+        try {
+            processSelectedKeys0();
+        } finally {
+            recordIo(readyChannels, System.nanoTime() - ioStartTime);
+        }
+    }
+
+    private void processSelectedKeys0() {
         if (selectedKeys != null) {
 //           最selectionKey做优化
             processSelectedKeysOptimized();
@@ -586,6 +606,15 @@ public final class NioEventLoop extends SingleThreadEventLoop {
         return task;
     }
 
+    @Override
+    protected void afterRunningAllTasks() {
+        super.afterRunningAllTasks();
+        // Tasks are drained in batches without pollTask(), so flush the keys they cancelled here.
+        if (needsToSelectAgain) {
+            selectAgain();
+        }
+    }
+
     private void processSelectedKeysPlain(Set<SelectionKey> selectedKeys) {
         // check if the set is empty and if so just return to not create garbage by
         // creating a new Iterator every time even if there is nothing to process.//检查集合是否为空，如果是空，返回不创建垃圾
@@ -20,11 +20,13 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
 import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteCoalescer;
 import io.netty.channel.nio.AbstractNioByteChannel;
 import io.netty.channel.socket.DefaultSocketChannelConfig;
 import io.netty.channel.socket.ServerSocketChannel;
@@ -44,6 +46,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.Map;
 import java.util.concurrent.Executor;
 
 import static io.netty.channel.internal.ChannelUtils.MAX_BYTES_PER_GATHERING_WRITE_ATTEMPTED_LOW_THRESHOLD;
@@ -382,6 +385,10 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
         SocketChannel ch = javaChannel();
 //        写循环次数
         int writeSpinCount = config().getWriteSpinCount();
+        WriteCoalescer coalescer = ((NioSocketChannelConfig) config).getWriteCoalescer();
+        if (coalescer != null) {
+            coalescer.coalesce(in, alloc());
+        }
         do {
             if (in.isEmpty()) {
                 // All written so clear OP_WRITE都写得很清楚，OP_WRITE
@@ -475,6 +482,7 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
 
     private final class NioSocketChannelConfig extends DefaultSocketChannelConfig {
         private volatile int maxBytesPerGatheringWrite = Integer.MAX_VALUE;
+        private volatile WriteCoalescer writeCoalescer;
 
         private NioSocketChannelConfig(NioSocketChannel channel, Socket javaSocket) {
             super(channel, javaSocket);
@@ -486,6 +494,39 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
             clearReadPending();
         }
 
+        @Override
+        public Map<ChannelOption<?>, Object> getOptions() {
+            return getOptions(super.getOptions(), ChannelOption.WRITE_COALESCER);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T getOption(ChannelOption<T> option) {
+            if (option == ChannelOption.WRITE_COALESCER) {
+                return (T) getWriteCoalescer();
+            }
+            return super.getOption(option);
+        }
+
+        @Override
+        public <T> boolean setOption(ChannelOption<T> option, T value) {
+            validate(option, value);
+
+            if (option == ChannelOption.WRITE_COALESCER) {
+                setWriteCoalescer((WriteCoalescer) value);
+                return true;
+            }
+            return super.setOption(option, value);
+        }
+
+        WriteCoalescer getWriteCoalescer() {
+            return writeCoalescer;
+        }
+
+        void setWriteCoalescer(WriteCoalescer writeCoalescer) {
+            this.writeCoalescer = writeCoalescer;
+        }
+
         @Override
         public NioSocketChannelConfig setSendBufferSize(int sendBufferSize) {
             super.setSendBufferSize(sendBufferSize);
@@ -15,24 +15,37 @@
  */
 package io.netty.bootstrap;
 
+import io.netty.channel.AbstractServerChannel;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultChannelConfig;
 import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalEventLoopGroup;
 import io.netty.channel.local.LocalServerChannel;
 import org.junit.Test;
 
+import java.net.BindException;
+import java.net.SocketAddress;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -137,4 +150,100 @@ public class ServerBootstrapTest {
             group.shutdownGracefully();
         }
     }
+
+    @Test(timeout = 5000)
+    public void testBindPerChildLoopUsesFirstBoundAddressAfterFailedBind() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        EventLoopGroup group = new DefaultEventLoopGroup(4);
+        List<ChannelFuture> futures = null;
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group, group)
+              .channelFactory(new ChannelFactory<ServerChannel>() {
+                  @Override
+                  public ServerChannel newChannel() {
+                      // The binds of the first and the third channel fail.
+                      return new TestServerChannel(created.getAndIncrement() % 2 == 0);
+                  }
+              })
+              .childHandler(new ChannelInboundHandlerAdapter());
+            futures = sb.bindPerChildLoop(LocalAddress.ANY);
+            assertEquals(4, futures.size());
+            for (ChannelFuture future : futures) {
+                future.awaitUninterruptibly();
+            }
+
+            assertFalse(futures.get(0).isSuccess());
+            assertTrue(futures.get(1).isSuccess());
+            assertFalse(futures.get(2).isSuccess());
+            assertTrue(futures.get(3).isSuccess());
+            // The last channel must not pick a new ephemeral address because the one before it failed.
+            assertEquals(futures.get(1).channel().localAddress(), futures.get(3).channel().localAddress());
+        } finally {
+            if (futures != null) {
+                for (ChannelFuture future : futures) {
+                    future.channel().close().syncUninterruptibly();
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    // Binds to a new address for LocalAddress.ANY, like a socket does for port 0.
+    private static final class TestServerChannel extends AbstractServerChannel {
+        private static final AtomicInteger ids = new AtomicInteger();
+
+        private final ChannelConfig config = new DefaultChannelConfig(this);
+        private final boolean failBind;
+        private volatile boolean open = true;
+        private volatile SocketAddress localAddress;
+
+        TestServerChannel(boolean failBind) {
+            this.failBind = failBind;
+        }
+
+        @Override
+        public ChannelConfig config() {
+            return config;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isActive() {
+            return open && localAddress != null;
+        }
+
+        @Override
+        protected boolean isCompatible(EventLoop loop) {
+            return true;
+        }
+
+        @Override
+        protected SocketAddress localAddress0() {
+            return localAddress;
+        }
+
+        @Override
+        protected void doBind(SocketAddress localAddress) throws Exception {
+            if (failBind) {
+                throw new BindException();
+            }
+            this.localAddress = localAddress == LocalAddress.ANY ?
+                    new LocalAddress("test-" + ids.incrementAndGet()) : localAddress;
+        }
+
+        @Override
+        protected void doClose() {
+            open = false;
+        }
+
+        @Override
+        protected void doBeginRead() {
+            // NOOP
+        }
+    }
 }
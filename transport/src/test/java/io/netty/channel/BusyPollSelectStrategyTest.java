@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BusyPollSelectStrategyTest {
+
+    private static final class TestSupplier implements IntSupplier {
+        int ready;
+        int calls;
+
+        @Override
+        public int get() {
+            calls++;
+            return ready;
+        }
+    }
+
+    @Test
+    public void testSpinsUntilMaxSpins() throws Exception {
+        BusyPollSelectStrategyFactory factory = new BusyPollSelectStrategyFactory(3, 1, TimeUnit.HOURS);
+        BusyPollSelectStrategy strategy = (BusyPollSelectStrategy) factory.newSelectStrategy();
+        assertSame(strategy, factory.strategies().get(0));
+
+        TestSupplier supplier = new TestSupplier();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier, false));
+        }
+        assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(supplier, false));
+        assertEquals(4, supplier.calls);
+        assertEquals(3, strategy.idleSpins());
+        assertEquals(1, strategy.parks());
+        assertEquals(0, strategy.spinHits());
+
+        // A new spin starts after the loop was blocked.
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier, false));
+    }
+
+    @Test
+    public void testSpinEndedByEventsAndTasks() throws Exception {
+        BusyPollSelectStrategy strategy = (BusyPollSelectStrategy)
+                new BusyPollSelectStrategyFactory(100, 1, TimeUnit.HOURS).newSelectStrategy();
+        TestSupplier supplier = new TestSupplier();
+
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier, false));
+        supplier.ready = 2;
+        assertEquals(2, strategy.calculateStrategy(supplier, false));
+        assertEquals(1, strategy.spinHits());
+
+        supplier.ready = 0;
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier, false));
+        assertEquals(0, strategy.calculateStrategy(supplier, true));
+        assertEquals(2, strategy.spinHits());
+        assertEquals(2, strategy.idleSpins());
+        assertEquals(0, strategy.parks());
+    }
+
+    @Test
+    public void testSpinTimeBudget() throws Exception {
+        BusyPollSelectStrategy strategy = (BusyPollSelectStrategy)
+                new BusyPollSelectStrategyFactory(Integer.MAX_VALUE, 10, TimeUnit.MILLISECONDS).newSelectStrategy();
+        TestSupplier supplier = new TestSupplier();
+        int result;
+        do {
+            result = strategy.calculateStrategy(supplier, false);
+        } while (result == SelectStrategy.CONTINUE);
+        assertEquals(SelectStrategy.SELECT, result);
+        assertEquals(1, strategy.parks());
+    }
+
+    @Test
+    public void testNoSpinning() throws Exception {
+        BusyPollSelectStrategy strategy = (BusyPollSelectStrategy)
+                new BusyPollSelectStrategyFactory(0, 0, TimeUnit.NANOSECONDS).newSelectStrategy();
+        TestSupplier supplier = new TestSupplier();
+        assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(supplier, false));
+        assertEquals(0, supplier.calls);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.channel.local.LocalChannel;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.netty.channel.ChannelHandlerMask.*;
+import static org.junit.Assert.assertEquals;
+
+public class ChannelHandlerMaskTest {
+
+    private static final EventLoopGroup group = new DefaultEventLoopGroup(1);
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        group.shutdownGracefully().sync();
+    }
+
+    @Test
+    public void testAdaptersAreSkipped() {
+        assertEquals(0, mask(ChannelInboundHandlerAdapter.class));
+        assertEquals(0, mask(ChannelOutboundHandlerAdapter.class));
+        assertEquals(0, mask(ChannelDuplexHandler.class));
+    }
+
+    @Test
+    public void testOverriddenMethodsAreNotSkipped() {
+        assertEquals(MASK_CHANNEL_READ, mask(ReadHandler.class));
+        assertEquals(MASK_CHANNEL_READ | MASK_CHANNEL_ACTIVE, mask(ReadAndActiveHandler.class));
+        assertEquals(MASK_WRITE | MASK_FLUSH | MASK_EXCEPTION_CAUGHT, mask(WriteHandler.class));
+    }
+
+    @Test
+    public void testHandlerWithoutAdapterIsNotSkipped() {
+        int mask = mask(CustomInboundHandler.class);
+        assertEquals(MASK_EXCEPTION_CAUGHT | MASK_CHANNEL_REGISTERED | MASK_CHANNEL_UNREGISTERED |
+                MASK_CHANNEL_ACTIVE | MASK_CHANNEL_INACTIVE | MASK_CHANNEL_READ | MASK_CHANNEL_READ_COMPLETE |
+                MASK_USER_EVENT_TRIGGERED | MASK_CHANNEL_WRITABILITY_CHANGED, mask);
+    }
+
+    @Test(timeout = 5000)
+    public void testEventsPassSkippedHandlers() throws Exception {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        Channel channel = new LocalChannel();
+        group.register(channel).sync();
+        ChannelPipeline pipeline = channel.pipeline();
+        pipeline.addLast(new ChannelDuplexHandler() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                events.add("write " + msg);
+                promise.setSuccess();
+            }
+        });
+        pipeline.addLast(new ChannelInboundHandlerAdapter());
+        pipeline.addLast(new ChannelOutboundHandlerAdapter());
+        pipeline.addLast(new ChannelDuplexHandler());
+        pipeline.addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                events.add("read " + msg);
+            }
+
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                events.add("event " + evt);
+            }
+        });
+
+        pipeline.fireChannelRead("a");
+        pipeline.fireUserEventTriggered("b");
+        pipeline.write("c").sync();
+        channel.close().sync();
+        assertEquals(3, events.size());
+        assertEquals("read a", events.get(0));
+        assertEquals("event b", events.get(1));
+        assertEquals("write c", events.get(2));
+    }
+
+    private static class ReadHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private static final class ReadAndActiveHandler extends ReadHandler {
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.fireChannelActive();
+        }
+    }
+
+    private static final class WriteHandler extends ChannelDuplexHandler {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.fireExceptionCaught(cause);
+        }
+    }
+
+    private static final class CustomInboundHandler extends ChannelHandlerAdapter implements ChannelInboundHandler {
+        @Override
+        public void channelRegistered(ChannelHandlerContext ctx) {
+            ctx.fireChannelRegistered();
+        }
+
+        @Override
+        public void channelUnregistered(ChannelHandlerContext ctx) {
+            ctx.fireChannelUnregistered();
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.fireChannelReadComplete();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            ctx.fireChannelWritabilityChanged();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.fireExceptionCaught(cause);
+        }
+    }
+}
@@ -17,12 +17,17 @@ package io.netty.channel;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.junit.Test;
 
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import static io.netty.buffer.Unpooled.*;
 import static org.hamcrest.Matchers.*;
@@ -118,6 +123,284 @@ public class ChannelOutboundBufferTest {
         buf.release();
     }
 
+    @Test
+    public void testRemoveAndDetach() {
+        TestChannel channel = new TestChannel();
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        assertNull(buffer.removeAndDetach());
+
+        ByteBuf buf = directBuffer().writeBytes("buf1".getBytes(CharsetUtil.US_ASCII));
+        ChannelPromise promise = channel.newPromise();
+        buffer.addMessage(buf, buf.readableBytes(), promise);
+        buffer.addFlush();
+
+        assertSame(promise, buffer.removeAndDetach());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        // Neither released nor notified, this is up to the caller now.
+        assertEquals(1, buf.refCnt());
+        assertFalse(promise.isDone());
+        buf.release();
+    }
+
+    @Test
+    public void testRingWrapsAroundAndGrows() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        List<ChannelPromise> promises = new ArrayList<ChannelPromise>();
+        for (int i = 0; i < 5; i++) {
+            promises.add(addMessage(buffer, channel, i));
+        }
+        buffer.addFlush();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(buffer.remove());
+        }
+        // The ring starts at an offset now and has to wrap around and grow.
+        for (int i = 5; i < 20; i++) {
+            promises.add(addMessage(buffer, channel, i));
+        }
+        assertEquals(2, buffer.size());
+        buffer.addFlush();
+        assertEquals(17, buffer.size());
+
+        final List<Object> flushedMessages = new ArrayList<Object>();
+        try {
+            buffer.forEachFlushedMessage(new ChannelOutboundBuffer.MessageProcessor() {
+                @Override
+                public boolean processMessage(Object msg) {
+                    flushedMessages.add(msg);
+                    return true;
+                }
+            });
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        assertEquals(17, flushedMessages.size());
+
+        ByteBuffer[] buffers = buffer.nioBuffers();
+        assertEquals(17, buffer.nioBufferCount());
+        assertEquals(17 * 4, buffer.nioBufferSize());
+        for (int i = 0; i < 17; i++) {
+            assertEquals(i + 3, buffers[i].getInt(buffers[i].position()));
+            assertEquals(i + 3, ((ByteBuf) flushedMessages.get(i)).getInt(0));
+        }
+
+        // Write all but the last two bytes.
+        buffer.removeBytes(17 * 4 - 2);
+        assertEquals(1, buffer.size());
+        assertEquals(2, ((ByteBuf) buffer.current()).readableBytes());
+        // The pending bytes of a message are only released once it was written completely.
+        assertEquals(4 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD,
+                buffer.totalPendingWriteBytes());
+        for (int i = 0; i < 19; i++) {
+            assertTrue(promises.get(i).isSuccess());
+        }
+        assertFalse(promises.get(19).isDone());
+
+        buffer.removeBytes(2);
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        assertTrue(promises.get(19).isSuccess());
+
+        // Still usable after it was emptied.
+        addMessage(buffer, channel, 20);
+        buffer.addFlush();
+        assertEquals(20, ((ByteBuf) buffer.current()).getInt(0));
+        release(buffer);
+    }
+
+    @Test
+    public void testCancelledMessageIsSkipped() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        addMessage(buffer, channel, 0);
+        ByteBuf cancelledBuf = directBuffer().writeInt(1);
+        ChannelPromise cancelled = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        buffer.addMessage(cancelledBuf, cancelledBuf.readableBytes(), cancelled);
+        addMessage(buffer, channel, 2);
+        assertTrue(cancelled.cancel(false));
+        buffer.addFlush();
+
+        assertEquals(0, cancelledBuf.refCnt());
+        assertEquals(2 * (4 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD),
+                buffer.totalPendingWriteBytes());
+        ByteBuffer[] buffers = buffer.nioBuffers();
+        assertEquals(2, buffer.nioBufferCount());
+        assertEquals(0, buffers[0].getInt(buffers[0].position()));
+        assertEquals(2, buffers[1].getInt(buffers[1].position()));
+        buffer.removeBytes(8);
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+
+    @Test(timeout = 5000)
+    public void testWritabilityWithBatchedRemoval() throws Exception {
+        final StringBuilder buf = new StringBuilder();
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        try {
+            final Channel ch = new LocalChannel();
+            ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+                    buf.append(ctx.channel().isWritable());
+                    buf.append(' ');
+                }
+            });
+            group.register(ch).sync();
+            ch.config().setWriteBufferLowWaterMark(1024);
+            ch.config().setWriteBufferHighWaterMark(2048);
+
+            ch.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelOutboundBuffer cob = ch.unsafe().outboundBuffer();
+                    for (int i = 0; i < 32; i++) {
+                        ByteBuf msg = directBuffer().writeInt(i);
+                        cob.addMessage(msg, msg.readableBytes(), ch.voidPromise());
+                    }
+                    assertEquals("false ", buf.toString());
+                    assertEquals(32 * (4 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD),
+                            cob.totalPendingWriteBytes());
+                    cob.addFlush();
+                    cob.removeBytes(32 * 4);
+                    assertEquals("false true ", buf.toString());
+                    assertEquals(0, cob.totalPendingWriteBytes());
+                }
+            }).sync();
+            ch.close().sync();
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test
+    public void testCoalesceSmallBuffers() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        WriteCoalescer coalescer = new WriteCoalescer(8, 16);
+
+        List<ChannelPromise> promises = new ArrayList<ChannelPromise>();
+        for (int i = 0; i < 5; i++) {
+            promises.add(addMessage(buffer, channel, i));
+        }
+        ByteBuf large = directBuffer().writeZero(32);
+        buffer.addMessage(large, large.readableBytes(), channel.voidPromise());
+        for (int i = 5; i < 7; i++) {
+            promises.add(addMessage(buffer, channel, i));
+        }
+        buffer.addFlush();
+        coalescer.coalesce(buffer, UnpooledByteBufAllocator.DEFAULT);
+
+        // 0 to 3 fill the first merged buffer, 4 is left alone as the next one is too large.
+        ByteBuffer[] buffers = buffer.nioBuffers();
+        assertEquals(4, buffer.nioBufferCount());
+        assertEquals(16, buffers[0].remaining());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, buffers[0].getInt(buffers[0].position() + i * 4));
+        }
+        assertEquals(4, buffers[1].getInt(buffers[1].position()));
+        assertEquals(32, buffers[2].remaining());
+        assertEquals(8, buffers[3].remaining());
+        assertEquals(5, buffers[3].getInt(buffers[3].position()));
+        assertEquals(6, buffers[3].getInt(buffers[3].position() + 4));
+        assertEquals(4, coalescer.mergedBuffers());
+        assertEquals(24, coalescer.mergedBytes());
+        assertEquals(0, coalescer.savedSyscalls());
+        // The pending bytes are still accounted per message.
+        assertEquals(7 * (4 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD) +
+                32 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD, buffer.totalPendingWriteBytes());
+
+        // Nothing was flushed since, so there is nothing to do.
+        coalescer.coalesce(buffer, UnpooledByteBufAllocator.DEFAULT);
+        assertEquals(4, coalescer.mergedBuffers());
+
+        buffer.removeBytes(16);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(promises.get(i).isSuccess());
+        }
+        assertFalse(promises.get(4).isDone());
+        buffer.removeBytes(4 + 32 + 6);
+        assertFalse(promises.get(5).isDone());
+        assertFalse(promises.get(6).isDone());
+        buffer.removeBytes(2);
+        assertTrue(promises.get(5).isSuccess());
+        assertTrue(promises.get(6).isSuccess());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+
+    @Test
+    public void testCoalesceMergesPartiallyWrittenButSkipsProgressiveWrites() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        WriteCoalescer coalescer = new WriteCoalescer();
+
+        addMessage(buffer, channel, 0);
+        addMessage(buffer, channel, 1);
+        buffer.addFlush();
+        buffer.nioBuffers();
+        buffer.removeBytes(2);
+
+        ByteBuf progressiveBuf = directBuffer().writeInt(2);
+        ChannelProgressivePromise progressive =
+                new DefaultChannelProgressivePromise(channel, ImmediateEventExecutor.INSTANCE);
+        buffer.addMessage(progressiveBuf, progressiveBuf.readableBytes(), progressive);
+        addMessage(buffer, channel, 3);
+        addMessage(buffer, channel, 4);
+        buffer.addFlush();
+        coalescer.coalesce(buffer, UnpooledByteBufAllocator.DEFAULT);
+
+        // The rest of 0 is merged with 1.
+        ByteBuffer[] buffers = buffer.nioBuffers();
+        assertEquals(3, buffer.nioBufferCount());
+        assertEquals(6, buffers[0].remaining());
+        assertEquals(1, buffers[0].getInt(buffers[0].position() + 2));
+        assertEquals(2, buffers[1].getInt(buffers[1].position()));
+        assertEquals(8, buffers[2].remaining());
+        assertEquals(2, coalescer.mergedBuffers());
+        assertEquals(14, coalescer.mergedBytes());
+        assertEquals(1, progressiveBuf.refCnt());
+
+        buffer.removeBytes(6 + 4 + 8);
+        assertTrue(progressive.isSuccess());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testCoalesceCountsSavedSyscalls() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        WriteCoalescer coalescer = new WriteCoalescer(64, 64);
+        // The channel is not registered, so it must not become unwritable.
+        channel.config().setWriteBufferHighWaterMark(Integer.MAX_VALUE);
+
+        for (int i = 0; i < 3000; i++) {
+            buffer.addMessage(directBuffer().writeByte(i), 1, channel.voidPromise());
+        }
+        buffer.addFlush();
+        coalescer.coalesce(buffer, UnpooledByteBufAllocator.DEFAULT);
+
+        // 3000 buffers need three gathering writes, 47 merged ones only one.
+        buffer.nioBuffers();
+        assertEquals(47, buffer.nioBufferCount());
+        assertEquals(3000, buffer.nioBufferSize());
+        assertEquals(3000 - 47, coalescer.mergedBuffers());
+        assertEquals(3000, coalescer.mergedBytes());
+        assertEquals(2, coalescer.savedSyscalls());
+        buffer.removeBytes(3000);
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static ChannelPromise addMessage(ChannelOutboundBuffer buffer, Channel channel, int value) {
+        ByteBuf buf = directBuffer().writeInt(value);
+        ChannelPromise promise = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        buffer.addMessage(buf, buf.readableBytes(), promise);
+        return promise;
+    }
+
     private static void release(ChannelOutboundBuffer buffer) {
         for (;;) {
             if (!buffer.remove()) {
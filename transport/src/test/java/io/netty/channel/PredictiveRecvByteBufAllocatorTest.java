@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.socket.SocketChannelConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PredictiveRecvByteBufAllocatorTest {
+    private final ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+    private ChannelConfig config;
+    private PredictiveRecvByteBufAllocator allocator;
+    private PredictiveRecvByteBufAllocator.PredictiveHandle handle;
+
+    @Before
+    public void setup() {
+        config = mock(ChannelConfig.class);
+        when(config.isAutoRead()).thenReturn(true);
+        allocator = new PredictiveRecvByteBufAllocator(64, 1024, 65536);
+        handle = allocator.newHandle();
+        handle.reset(config);
+    }
+
+    @Test
+    public void testSmallReadsShrinkQuickly() {
+        allocRead(1024, 100);
+        for (int i = 0; i < 20; i++) {
+            allocRead(handle.guess(), 100);
+        }
+        // Close to the read size instead of one step down per two reads.
+        assertEquals(112, handle.guess());
+    }
+
+    @Test
+    public void testBurstJumpsToMaximumAndFallsBack() {
+        allocRead(1024, 1024);
+        assertTrue(handle.wantsBytesAvailable());
+        assertEquals(65536, handle.guess());
+        allocRead(65536, 65536);
+        assertEquals(65536, handle.guess());
+
+        // The reads of the burst did not change the distribution.
+        allocRead(65536, 1000);
+        assertFalse(handle.wantsBytesAvailable());
+        assertEquals(1024, handle.guess());
+    }
+
+    @Test
+    public void testBurstJumpsToReceiveBufferSize() {
+        SocketChannelConfig config = mock(SocketChannelConfig.class);
+        when(config.isAutoRead()).thenReturn(true);
+        when(config.getReceiveBufferSize()).thenReturn(10000);
+        handle = allocator.newHandle();
+        handle.reset(config);
+        allocRead(1024, 1024);
+        assertEquals(16384, handle.guess());
+    }
+
+    @Test
+    public void testBytesAvailable() {
+        allocRead(1024, 1024);
+        handle.bytesAvailable(3000);
+        assertEquals(4096, handle.guess());
+        allocRead(4096, 3000);
+
+        // Only applies to the next read.
+        handle.bytesAvailable(100);
+        assertEquals(112, handle.guess());
+        allocRead(112, 100);
+        // A single small read does not collapse the prediction.
+        assertEquals(4096, handle.guess());
+    }
+
+    @Test
+    public void testWastedBytes() {
+        allocRead(1024, 1000);
+        allocRead(handle.guess(), 10);
+        assertEquals(0, allocator.reads());
+
+        handle.readComplete();
+        assertEquals(2, handle.reads());
+        assertEquals(2048, handle.allocatedBytes());
+        assertEquals(24 + 1014, handle.wastedBytes());
+        assertEquals(2, allocator.reads());
+        assertEquals(2048, allocator.allocatedBytes());
+        assertEquals(24 + 1014, allocator.wastedBytes());
+        assertEquals(519, allocator.wastedBytesPerRead(), 0);
+    }
+
+    private void allocRead(int expectedBufferSize, int lastRead) {
+        ByteBuf buf = handle.allocate(alloc);
+        assertEquals(expectedBufferSize, buf.capacity());
+        handle.attemptedBytesRead(buf.writableBytes());
+        handle.lastBytesRead(lastRead);
+        handle.incMessagesRead(1);
+        buf.release();
+    }
+}
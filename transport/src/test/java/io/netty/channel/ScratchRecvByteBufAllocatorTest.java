@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ScratchRecvByteBufAllocatorTest {
+    private final ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+    private final ScratchRecvByteBufAllocator.ScratchHandle handle = new ScratchRecvByteBufAllocator(1024).newHandle();
+
+    @Test
+    public void testSmallReadIsCopied() {
+        ByteBuf scratch = handle.allocateScratch(alloc);
+        assertEquals(2, scratch.refCnt());
+        scratch.writeBytes(new byte[] { 1, 2, 3 });
+        ByteBuf buf = handle.copyOut(alloc, scratch);
+        assertNotSame(scratch, buf);
+        assertEquals(3, buf.capacity());
+        assertEquals(3, buf.readableBytes());
+        assertEquals(1, buf.refCnt());
+        assertEquals(1, scratch.refCnt());
+        buf.release();
+
+        // The scratch buffer is reused and cleared.
+        ByteBuf next = handle.allocateScratch(alloc);
+        assertSame(scratch, next);
+        assertEquals(0, next.readableBytes());
+        next.release();
+    }
+
+    @Test
+    public void testLargeReadIsHandedOver() {
+        ByteBuf scratch = handle.allocateScratch(alloc);
+        scratch.writeZero(512);
+        ByteBuf buf = handle.copyOut(alloc, scratch);
+        assertSame(scratch, buf);
+        assertEquals(1, buf.refCnt());
+
+        ByteBuf next = handle.allocateScratch(alloc);
+        assertNotSame(scratch, next);
+        next.release();
+        buf.release();
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testFallbackAllocation() {
+        ByteBuf buf = handle.allocate(alloc);
+        assertEquals(1024, buf.capacity());
+        assertEquals(1, buf.refCnt());
+        buf.release();
+    }
+}
@@ -18,11 +18,14 @@ package io.netty.channel.nio;
 import io.netty.channel.AbstractEventLoopTest;
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopMetric;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import org.junit.Test;
 
 import java.nio.channels.Selector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -68,4 +71,81 @@ public class NioEventLoopTest extends AbstractEventLoopTest {
             group.shutdownGracefully();
         }
     }
+
+    @Test(timeout = 5000)
+    public void testMetrics() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            group.setMetricsEnabled(true);
+            NioEventLoop loop = (NioEventLoop) group.next();
+            for (int i = 0; i < 10; i++) {
+                // Let the loop block in select() before each task.
+                Thread.sleep(10);
+                loop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                }).sync();
+            }
+            // The metric of a task is recorded after it completed its future, so run one more.
+            loop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).sync();
+
+            assertEquals(1, group.metrics().size());
+            EventLoopMetric metric = group.metrics().get(0);
+            assertSame(loop.metric(), metric);
+            assertTrue(metric.completedTasks() >= 10);
+            assertTrue(metric.ioWaitTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(metric.wakeups() >= 10);
+            long wakeups = 0;
+            for (long count : metric.readyChannelsHistogram()) {
+                wakeups += count;
+            }
+            assertTrue(wakeups >= 10);
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testPendingTasksMetricDoesNotBlock() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            NioEventLoop loop = (NioEventLoop) group.next();
+            final CountDownLatch blocked = new CountDownLatch(1);
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    blocked.countDown();
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            blocked.await();
+            for (int i = 0; i < 3; i++) {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                });
+            }
+
+            // Read from a foreign thread while the loop is blocked, this must neither block nor submit a task.
+            assertEquals(3, loop.metric().pendingTasks());
+            assertEquals(3, loop.metric().pendingTasks());
+        } finally {
+            latch.countDown();
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
 }
@@ -29,7 +29,9 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ScratchRecvByteBufAllocator;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteCoalescer;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -38,18 +40,22 @@ import io.netty.util.NetUtil;
 import io.netty.util.internal.PlatformDependent;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.util.Queue;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -278,4 +284,134 @@ public class NioSocketChannelTest {
             group.shutdownGracefully();
         }
     }
+
+    @Test(timeout = 10000)
+    public void testReadIntoScratchBuffer() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            final byte[] data = new byte[65536];
+            new Random(0).nextBytes(data);
+            final ByteArrayOutputStream received = new ByteArrayOutputStream();
+            final Queue<Throwable> errors = new LinkedBlockingQueue<Throwable>();
+            final CountDownLatch latch = new CountDownLatch(1);
+
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(NioServerSocketChannel.class);
+            sb.childOption(ChannelOption.RCVBUF_ALLOCATOR, new ScratchRecvByteBufAllocator(1024));
+            sb.childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    ByteBuf buf = (ByteBuf) msg;
+                    try {
+                        // Small reads are copied into a buffer of their own size.
+                        if (buf.readableBytes() < 512 && buf.capacity() != buf.readableBytes()) {
+                            errors.add(new AssertionError("capacity: " + buf.capacity()));
+                        }
+                        byte[] bytes = new byte[buf.readableBytes()];
+                        buf.readBytes(bytes);
+                        received.write(bytes, 0, bytes.length);
+                        if (received.size() == data.length) {
+                            latch.countDown();
+                        }
+                    } finally {
+                        buf.release();
+                    }
+                }
+            });
+
+            SocketAddress address = sb.bind(0).sync().channel().localAddress();
+            Socket s = new Socket(NetUtil.LOCALHOST, ((InetSocketAddress) address).getPort());
+            try {
+                OutputStream out = s.getOutputStream();
+                for (int i = 0; i < data.length; i += 100) {
+                    out.write(data, i, Math.min(100, data.length - i));
+                }
+                out.flush();
+                latch.await();
+            } finally {
+                s.close();
+            }
+            assertNull(errors.poll());
+            assertArrayEquals(data, received.toByteArray());
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testWriteCoalescing() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            final byte[] data = new byte[256 * 1024];
+            new Random(0).nextBytes(data);
+            final WriteCoalescer coalescer = new WriteCoalescer();
+            final AtomicInteger succeeded = new AtomicInteger();
+            final Queue<Throwable> errors = new LinkedBlockingQueue<Throwable>();
+
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(NioServerSocketChannel.class);
+            sb.childOption(ChannelOption.WRITE_COALESCER, coalescer);
+            sb.childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelActive(ChannelHandlerContext ctx) {
+                    if (ctx.channel().config().getOption(ChannelOption.WRITE_COALESCER) != coalescer) {
+                        errors.add(new AssertionError("option not set"));
+                    }
+                    ChannelFutureListener listener = new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) {
+                            if (future.isSuccess()) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                errors.add(future.cause());
+                            }
+                        }
+                    };
+                    // Writes of 3 to 50 bytes like the ones of many small encoders.
+                    Random random = new Random(0);
+                    int writes = 0;
+                    for (int i = 0; i < data.length; writes++) {
+                        int length = Math.min(3 + random.nextInt(48), data.length - i);
+                        ctx.write(Unpooled.wrappedBuffer(data, i, length)).addListener(listener);
+                        i += length;
+                    }
+                    final int expected = writes;
+                    // Completed once all writes before it were written.
+                    ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) {
+                            if (succeeded.get() != expected) {
+                                errors.add(new AssertionError("succeeded: " + succeeded.get()));
+                            }
+                            future.channel().close();
+                        }
+                    });
+                }
+            });
+
+            SocketAddress address = sb.bind(0).sync().channel().localAddress();
+            Socket s = new Socket(NetUtil.LOCALHOST, ((InetSocketAddress) address).getPort());
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            try {
+                InputStream in = s.getInputStream();
+                byte[] bytes = new byte[8192];
+                for (;;) {
+                    int read = in.read(bytes);
+                    if (read < 0) {
+                        break;
+                    }
+                    received.write(bytes, 0, read);
+                }
+            } finally {
+                s.close();
+            }
+            assertArrayEquals(data, received.toByteArray());
+            assertNull(errors.poll());
+            assertTrue(coalescer.mergedBuffers() > 0);
+            assertEquals(data.length, coalescer.mergedBytes());
+            assertTrue(coalescer.savedSyscalls() > 0);
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
 }